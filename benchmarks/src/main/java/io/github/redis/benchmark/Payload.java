@@ -0,0 +1,95 @@
+package io.github.redis.benchmark;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The type Payload.
+ * Session like object cached by the benchmarks, a few scalar fields and a list, with a text body of a given size.
+ */
+public class Payload {
+
+    private static final String[] WORDS = ("session user cart item price total order address city country token "
+            + "expiry created updated status active pending shipped delivered currency discount quantity").split(" ");
+
+    private String id;
+
+    private long createdAt;
+
+    private boolean active;
+
+    private List<String> roles;
+
+    private String body;
+
+    /**
+     * Builds a payload with a body of the given number of characters.
+     *
+     * @param size the body size
+     * @return the payload
+     */
+    public static Payload of(int size) {
+        // words drawn at random from a small vocabulary, compressible about as much as real text
+        Random random = new Random(size);
+        StringBuilder body = new StringBuilder(size + 16);
+        while (body.length() < size) {
+            body.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        body.setLength(size);
+        List<String> roles = new ArrayList<>();
+        roles.add("user");
+        roles.add("admin");
+
+        Payload payload = new Payload();
+        payload.setId("3f1c9a1e-6a52-4b8e-9a55-2c1d5e1f0b7a");
+        payload.setCreatedAt(1550620800000L);
+        payload.setActive(true);
+        payload.setRoles(roles);
+        payload.setBody(body.toString());
+        return payload;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(List<String> roles) {
+        this.roles = roles;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+}
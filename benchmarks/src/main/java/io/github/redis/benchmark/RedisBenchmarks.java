@@ -0,0 +1,47 @@
+package io.github.redis.benchmark;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * The type Redis benchmarks.
+ * Entry point of the benchmarks jar. Without arguments all benchmarks run once per concurrency level of
+ * {@code -Dthreads} (1,4,16 by default) with the GC profiler, so allocation rate is reported next to latency.
+ * With arguments, they are handed to the JMH command line as is.
+ */
+public final class RedisBenchmarks {
+
+    private RedisBenchmarks() {
+    }
+
+    /**
+     * The entry point of application.
+     *
+     * @param args the JMH command line, optional
+     * @throws RunnerException if a benchmark fails
+     * @throws IOException     if the JMH command line can not be parsed
+     */
+    public static void main(String[] args) throws RunnerException, IOException {
+        if (args.length > 0) {
+            Main.main(args);
+            return;
+        }
+
+        for (String threads : System.getProperty("threads", "1,4,16").split(",")) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(System.getProperty("benchmarks", "io.github.redis.benchmark.*"))
+                    .threads(Integer.parseInt(threads.trim()))
+                    .addProfiler(GCProfiler.class);
+            new Runner(options.build()).run();
+        }
+    }
+}
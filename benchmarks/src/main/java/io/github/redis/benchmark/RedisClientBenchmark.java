@@ -0,0 +1,85 @@
+package io.github.redis.benchmark;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.redis.benchmark.RedisTarget.KEYS;
+import static io.github.redis.benchmark.RedisTarget.hashKey;
+import static io.github.redis.benchmark.RedisTarget.objectKey;
+import static io.github.redis.benchmark.RedisTarget.stringKey;
+
+/**
+ * The type Redis client benchmark.
+ * Latency of the {@link io.github.redis.client.RedisClient} hot paths, for String and Object values and hash values,
+ * through hystrix (the client) and without (the raw template), so the cost of the command wrapper shows up on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisClientBenchmark {
+
+    @Benchmark
+    public String getString(RedisTarget redis) {
+        return redis.client.getElementFromRedis(stringKey(nextKey()), String.class);
+    }
+
+    @Benchmark
+    public Payload getObject(RedisTarget redis) {
+        return redis.client.getElementFromRedis(objectKey(nextKey()), Payload.class);
+    }
+
+    @Benchmark
+    public void setString(RedisTarget redis) {
+        redis.client.setElementInRedis(stringKey(nextKey()), redis.stringPayload);
+    }
+
+    @Benchmark
+    public void setObject(RedisTarget redis) {
+        redis.client.setElementInRedis(objectKey(nextKey()), redis.payload);
+    }
+
+    @Benchmark
+    public void setObjectWithExpiry(RedisTarget redis) {
+        redis.client.setElementInRedisWithExpiry(objectKey(nextKey()), redis.payload, 600);
+    }
+
+    @Benchmark
+    public Payload getFromHash(RedisTarget redis) {
+        return redis.client.getFromRedisUsingHashOps(hashKey(nextKey()), "field", Payload.class);
+    }
+
+    @Benchmark
+    public void putInHash(RedisTarget redis) {
+        redis.client.putInRedisUsingHashOps(hashKey(nextKey()), "field", redis.payload);
+    }
+
+    @Benchmark
+    public Object rawGetObject(RedisTarget redis) {
+        return redis.redisTemplate.opsForValue().get(objectKey(nextKey()));
+    }
+
+    @Benchmark
+    public void rawSetObject(RedisTarget redis) {
+        redis.redisTemplate.opsForValue().set(objectKey(nextKey()), redis.payload);
+    }
+
+    private static int nextKey() {
+        return ThreadLocalRandom.current().nextInt(KEYS);
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.redis.benchmark;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.hystrix.contrib.javanica.aop.aspectj.HystrixCommandAspect;
+import io.github.redis.client.RedisClient;
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.config.RedisConnectionAutoConfiguration;
+import io.github.redis.test.RespTestServer;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+
+/**
+ * The type Redis target.
+ * Redis client, wired by {@link RedisConnectionAutoConfiguration} the same way as in an application, against either
+ * the in-JVM {@link RespTestServer} of the client's test jar ({@code target=stub}) or a local redis ({@code target=redis}, at
+ * {@code -Dredis.host}/{@code -Dredis.port}, localhost:6379 by default).
+ * <p>
+ * {@link #client} is proxied with the javanica hystrix aspect, exactly like the spring bean, {@link #redisTemplate}
+ * is the raw template underneath it.
+ */
+@State(Scope.Benchmark)
+public class RedisTarget {
+
+    /**
+     * Number of keys read by the benchmarks, written once at setup.
+     */
+    static final int KEYS = 1024;
+
+    @Param({"stub"})
+    private String target;
+
+    @Param({"JSON", "SMILE"})
+    private RedisClientProperties.Format format;
+
+    @Param({"256"})
+    private int payloadSize;
+
+    RedisClient client;
+
+    RedisTemplate<String, Object> redisTemplate;
+
+    StringRedisTemplate stringRedisTemplate;
+
+    Payload payload;
+
+    String stringPayload;
+
+    private RespTestServer stub;
+
+    private JedisConnectionFactory connectionFactory;
+
+    /**
+     * Starts the stub if needed, connects and writes the keys read by the benchmarks.
+     *
+     * @throws IOException if the stub can not be started
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // every benchmark thread must get a hystrix thread, else calls are rejected and measure the fallback
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.threadpool.default.coreSize", 256);
+
+        RedisProperties redisProperties = new RedisProperties();
+        if ("stub".equals(target)) {
+            stub = new RespTestServer();
+            redisProperties.setHost("localhost");
+            redisProperties.setPort(stub.getPort());
+        } else {
+            redisProperties.setHost(System.getProperty("redis.host", "localhost"));
+            redisProperties.setPort(Integer.getInteger("redis.port", 6379));
+        }
+        RedisClientProperties clientProperties = new RedisClientProperties();
+        clientProperties.getSerialization().setValueFormat(format);
+        clientProperties.getSerialization().setHashValueFormat(format);
+
+        RedisConnectionAutoConfiguration configuration =
+                new RedisConnectionAutoConfiguration(redisProperties, clientProperties, false, false);
+        RedisConnectionFactory factory = configuration.redisConnectionFactory();
+        connectionFactory = (JedisConnectionFactory) factory;
+        connectionFactory.getPoolConfig().setMaxTotal(256);
+        connectionFactory.getPoolConfig().setMaxIdle(256);
+        connectionFactory.afterPropertiesSet();
+
+        redisTemplate = configuration.redisTemplate(factory);
+        redisTemplate.afterPropertiesSet();
+        stringRedisTemplate = configuration.stringRedisTemplate(factory);
+        stringRedisTemplate.afterPropertiesSet();
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(
+                new RedisClient(redisTemplate, stringRedisTemplate, clientProperties));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new HystrixCommandAspect());
+        client = proxyFactory.getProxy();
+
+        payload = Payload.of(payloadSize);
+        stringPayload = payload.getBody();
+        for (int i = 0; i < KEYS; i++) {
+            redisTemplate.opsForValue().set(objectKey(i), payload);
+            stringRedisTemplate.opsForValue().set(stringKey(i), stringPayload);
+            redisTemplate.opsForHash().put(hashKey(i), "field", payload);
+        }
+    }
+
+    /**
+     * Disconnects and stops the stub.
+     *
+     * @throws IOException if the stub can not be stopped
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        connectionFactory.destroy();
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    static String objectKey(int i) {
+        return "benchmark:object:" + i;
+    }
+
+    static String stringKey(int i) {
+        return "benchmark:string:" + i;
+    }
+
+    static String hashKey(int i) {
+        return "benchmark:hash:" + i;
+    }
+}
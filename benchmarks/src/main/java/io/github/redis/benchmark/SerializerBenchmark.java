@@ -0,0 +1,85 @@
+package io.github.redis.benchmark;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.serializer.CompactRedisSerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Serializer benchmark.
+ * Cost of writing and reading a value in every serialization format, without redis. The serialized size is reported
+ * as the secondary result {@code serializedBytes} of every benchmark, as it is what the network and redis memory pay
+ * for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private RedisClientProperties.Format format;
+
+    @Param({"NONE", "LZ4"})
+    private RedisClientProperties.Compression compression;
+
+    @Param({"256", "16384"})
+    private int payloadSize;
+
+    private CompactRedisSerializer serializer;
+
+    private Payload payload;
+
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() {
+        serializer = new CompactRedisSerializer(format, compression, 1024);
+        payload = Payload.of(payloadSize);
+        serialized = serializer.serialize(payload);
+    }
+
+    @Benchmark
+    public byte[] serialize(SerializedSize size) {
+        byte[] bytes = serializer.serialize(payload);
+        size.serializedBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public Object deserialize(SerializedSize size) {
+        size.serializedBytes = serialized.length;
+        return serializer.deserialize(serialized);
+    }
+
+    /**
+     * The serialized size of the payload, reported by JMH next to the time of the benchmark. JMH zeroes the counter
+     * after setup, so the benchmarks set it.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SerializedSize {
+
+        /**
+         * Size in bytes of the serialized payload.
+         */
+        public long serializedBytes;
+    }
+}
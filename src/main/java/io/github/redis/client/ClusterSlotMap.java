@@ -0,0 +1,129 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Cluster slot map.
+ * Master of every slot of a redis cluster, loaded from CLUSTER NODES when first used. One map is shared by the
+ * {@link ClusterSlotRouter}, the {@link RedisBulkheads} and the {@link ReplicaReadRouter} of a {@link RedisClient},
+ * so the topology is loaded once for all of them and a change seen by one of them is seen by all.
+ * <p>
+ * The map is loaded again right away when a master redirects a key with MOVED or ASK, and on next use after a
+ * failed command, at most once a second as every failure of a broken master gets here.
+ */
+class ClusterSlotMap {
+
+    private static final Logger LOGGER = LogManager.getLogger(ClusterSlotMap.class.getName());
+
+    /**
+     * The constant SLOT_COUNT. This is the number of hash slots of a redis cluster.
+     */
+    static final int SLOT_COUNT = 16384;
+
+    private static final long MIN_RELOAD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private volatile RedisClusterNode[] masters;
+
+    private volatile long loadedAt;
+
+    /**
+     * Instantiates a new Cluster slot map.
+     *
+     * @param redisTemplate the redis template, of a cluster connection factory
+     */
+    ClusterSlotMap(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Slot of the key, as the key is serialized by the redis template.
+     *
+     * @param key the key
+     * @return the slot
+     */
+    int slotOf(String key) {
+        @SuppressWarnings("unchecked")
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        return ClusterSlotHashUtil.calculateSlot(keySerializer.serialize(key));
+    }
+
+    /**
+     * Master owning the slot of the key, the map is loaded when missing.
+     *
+     * @param key the key
+     * @return the master, {@code null} if no master serves the slot
+     */
+    RedisClusterNode masterOf(String key) {
+        RedisClusterNode[] owners = masters;
+        if (owners == null) {
+            owners = redisTemplate.execute((RedisCallback<RedisClusterNode[]>) connection ->
+                    masters((RedisClusterConnection) connection));
+        }
+        return owners[slotOf(key)];
+    }
+
+    /**
+     * Master of every slot, loaded with the connection when missing.
+     *
+     * @param connection the cluster connection
+     * @return the masters, indexed by slot
+     */
+    RedisClusterNode[] masters(RedisClusterConnection connection) {
+        RedisClusterNode[] owners = masters;
+        return owners != null ? owners : reload(connection);
+    }
+
+    /**
+     * Loads the map again from CLUSTER NODES, as a slot is known to have moved.
+     *
+     * @param connection the cluster connection
+     * @return the masters, indexed by slot
+     */
+    RedisClusterNode[] reload(RedisClusterConnection connection) {
+        return update(connection.clusterGetNodes());
+    }
+
+    /**
+     * Replaces the map with the masters of the cluster nodes, as read by CLUSTER NODES.
+     *
+     * @param nodes the nodes of the cluster, masters and replicas
+     * @return the masters, indexed by slot
+     */
+    RedisClusterNode[] update(Iterable<RedisClusterNode> nodes) {
+        RedisClusterNode[] owners = new RedisClusterNode[SLOT_COUNT];
+        for (RedisClusterNode node : nodes) {
+            if (node.isMaster()) {
+                for (int slot : node.getSlotRange().getSlotsArray()) {
+                    owners[slot] = node;
+                }
+            }
+        }
+        loadedAt = System.nanoTime();
+        masters = owners;
+        return owners;
+    }
+
+    /**
+     * Loads the map again on next use, unless it was loaded within the last second.
+     */
+    void invalidate() {
+        if (masters != null && System.nanoTime() - loadedAt > MIN_RELOAD_INTERVAL_NANOS) {
+            LOGGER.debug("Redis command failed, cluster slot map is loaded again");
+            masters = null;
+        }
+    }
+}
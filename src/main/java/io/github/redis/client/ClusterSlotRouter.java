@@ -0,0 +1,375 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The type Cluster slot router.
+ * Runs multi-key operations of {@link RedisClient} against a redis cluster reached through jedis, which would
+ * otherwise fail with CROSSSLOT or send one command per key. The CRC16 slot of every key is computed locally, keys
+ * are grouped by the master owning their slot in a cached slot map, and every master gets one pipeline per batch,
+ * up to {@link RedisClientProperties.Cluster#getParallelism()} masters in parallel. The executor is bounded, its queue
+ * holds as many pipelines as it has threads and the calling thread runs the pipelines which do not fit. Results are
+ * returned in the order of the given keys.
+ * <p>
+ * When a master answers MOVED, the {@link ClusterSlotMap} is loaded again and the moved keys are routed again once.
+ * When a master answers ASK, its slot is being migrated and the slot map is kept: the asked keys are sent to the node
+ * named by the answer, one at a time, each after ASKING. When a master fails, the slot map is invalidated. The
+ * threads of the router are stopped by {@link #close()}.
+ * Lettuce routes multi-key commands by slot on its own, so it does not need this router.
+ */
+class ClusterSlotRouter {
+
+    private static final Logger LOGGER = LogManager.getLogger(ClusterSlotRouter.class.getName());
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final ClusterSlotMap slotMap;
+
+    private final int batchSize;
+
+    private final int parallelism;
+
+    private volatile ExecutorService executor;
+
+    /**
+     * Instantiates a new Cluster slot router.
+     *
+     * @param redisTemplate the redis template, of a jedis cluster connection factory
+     * @param slotMap       the slot map of the cluster
+     * @param batchSize     the max number of keys per pipeline
+     * @param properties    the cluster properties
+     */
+    ClusterSlotRouter(RedisTemplate<String, Object> redisTemplate, ClusterSlotMap slotMap, int batchSize,
+                      RedisClientProperties.Cluster properties) {
+        this.redisTemplate = redisTemplate;
+        this.slotMap = slotMap;
+        this.batchSize = Math.max(1, batchSize);
+        this.parallelism = Math.max(1, properties.getParallelism());
+    }
+
+    /**
+     * Gets the raw values of the keys with pipelined GETs.
+     *
+     * @param keys the distinct keys
+     * @return the raw values, in order of the keys, {@code null} for missing keys and keys of failed masters
+     */
+    List<byte[]> get(List<String> keys) {
+        RedisSerializer<String> keySerializer = keySerializer();
+        Object[] results = route(keys, (pipeline, key, index) -> pipeline.get(keySerializer.serialize(key)), false);
+        List<byte[]> values = new ArrayList<>(keys.size());
+        for (Object result : results) {
+            values.add(result instanceof byte[] ? (byte[]) result : null);
+        }
+        return values;
+    }
+
+    /**
+     * Sets the raw values of the keys with pipelined SETs, or SETEXs with an expiry.
+     *
+     * @param keys            the distinct keys
+     * @param rawValues       the raw values, in order of the keys
+     * @param expiryInSeconds the expiry in seconds, none if not positive
+     */
+    void set(List<String> keys, List<byte[]> rawValues, int expiryInSeconds) {
+        RedisSerializer<String> keySerializer = keySerializer();
+        route(keys, (pipeline, key, index) -> expiryInSeconds > 0
+                ? pipeline.setex(keySerializer.serialize(key), expiryInSeconds, rawValues.get(index))
+                : pipeline.set(keySerializer.serialize(key), rawValues.get(index)), true);
+    }
+
+    /**
+     * Deletes the keys with pipelined DELs.
+     *
+     * @param keys the distinct keys
+     * @return the number of keys deleted
+     */
+    long delete(List<String> keys) {
+        RedisSerializer<String> keySerializer = keySerializer();
+        Object[] results = route(keys, (pipeline, key, index) -> pipeline.del(keySerializer.serialize(key)), true);
+        long deleted = 0;
+        for (Object result : results) {
+            deleted += result instanceof Long ? (Long) result : 0;
+        }
+        return deleted;
+    }
+
+    /**
+     * Routes the keys to their masters and runs the command for every key, in one pipeline per master and batch.
+     *
+     * @param keys        the distinct keys
+     * @param command     the command queued for every key
+     * @param failOnError whether a failed master fails the whole call, instead of only when all masters failed
+     * @return the results of the command, in order of the keys
+     */
+    Object[] route(List<String> keys, KeyCommand command, boolean failOnError) {
+        Object[] results = new Object[keys.size()];
+        if (keys.isEmpty()) {
+            return results;
+        }
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            JedisCluster cluster = jedisCluster(connection.getNativeConnection());
+            Map<RedisClusterNode, List<Integer>> indexesByNode = groupByNode(keys, (RedisClusterConnection) connection, false);
+            Redirects redirects = runOnNodes(cluster, indexesByNode, keys, command, results, failOnError);
+            List<Integer> moved = runAsked(cluster, redirects, keys, command, results, failOnError);
+            if (!moved.isEmpty()) {
+                LOGGER.info("Redis cluster slots moved, routing {} keys again", moved.size());
+                Map<RedisClusterNode, List<Integer>> retry = groupByNode(keys, (RedisClusterConnection) connection, true,
+                        moved);
+                Redirects retryRedirects = runOnNodes(cluster, retry, keys, command, results, failOnError);
+                List<Integer> stillMoved = runAsked(cluster, retryRedirects, keys, command, results, failOnError);
+                if (!stillMoved.isEmpty() && failOnError) {
+                    throw new RedisSystemException("Redis cluster slots still moving for "
+                            + stillMoved.size() + " keys", null);
+                }
+            }
+            return null;
+        });
+        return results;
+    }
+
+    private Map<RedisClusterNode, List<Integer>> groupByNode(List<String> keys, RedisClusterConnection connection,
+                                                             boolean reload) {
+        List<Integer> indexes = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            indexes.add(i);
+        }
+        return groupByNode(keys, connection, reload, indexes);
+    }
+
+    private Map<RedisClusterNode, List<Integer>> groupByNode(List<String> keys, RedisClusterConnection connection,
+                                                             boolean reload, List<Integer> indexes) {
+        RedisClusterNode[] owners = reload ? slotMap.reload(connection) : slotMap.masters(connection);
+        Map<RedisClusterNode, List<Integer>> indexesByNode = new LinkedHashMap<>();
+        for (Integer index : indexes) {
+            int slot = slotMap.slotOf(keys.get(index));
+            RedisClusterNode owner = owners[slot];
+            if (owner == null) {
+                owners = slotMap.reload(connection);
+                owner = owners[slot];
+                if (owner == null) {
+                    throw new RedisSystemException("No redis cluster master serves the slot of key " + keys.get(index), null);
+                }
+            }
+            indexesByNode.computeIfAbsent(owner, node -> new ArrayList<>()).add(index);
+        }
+        return indexesByNode;
+    }
+
+    /**
+     * Runs the pipelines of every master, the last one on the calling thread.
+     *
+     * @return the keys redirected by their master
+     */
+    private Redirects runOnNodes(JedisCluster cluster, Map<RedisClusterNode, List<Integer>> indexesByNode,
+                                 List<String> keys, KeyCommand command, Object[] results, boolean failOnError) {
+        List<RedisClusterNode> nodes = new ArrayList<>(indexesByNode.keySet());
+        List<Future<Redirects>> futures = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size() - 1; i++) {
+            RedisClusterNode node = nodes.get(i);
+            futures.add(executor().submit(() -> runOnNode(cluster, node, indexesByNode.get(node), keys, command, results)));
+        }
+
+        Redirects redirects = new Redirects();
+        RuntimeException lastFailure = null;
+        int failedNodes = 0;
+        RedisClusterNode callerNode = nodes.get(nodes.size() - 1);
+        try {
+            redirects.addAll(runOnNode(cluster, callerNode, indexesByNode.get(callerNode), keys, command, results));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Redis cluster pipeline Failed on node:{} for {} keys", callerNode, indexesByNode.get(callerNode).size(), e);
+            lastFailure = e;
+            failedNodes++;
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                redirects.addAll(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RedisSystemException("Interrupted while waiting for redis cluster nodes", e);
+            } catch (ExecutionException e) {
+                RuntimeException failure = e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause()
+                        : new RedisSystemException("Redis cluster pipeline failed", e.getCause());
+                LOGGER.warn("Redis cluster pipeline Failed on node:{} for {} keys", nodes.get(i),
+                        indexesByNode.get(nodes.get(i)).size(), failure);
+                lastFailure = failure;
+                failedNodes++;
+            }
+        }
+
+        if (lastFailure != null) {
+            // a master may have failed over, its slots are looked up again
+            slotMap.invalidate();
+        }
+        if (lastFailure != null && (failOnError || failedNodes == nodes.size())) {
+            throw lastFailure;
+        }
+        return redirects;
+    }
+
+    private Redirects runOnNode(JedisCluster cluster, RedisClusterNode node, List<Integer> indexes,
+                                List<String> keys, KeyCommand command, Object[] results) {
+        JedisPool pool = cluster.getClusterNodes().get(node.getHost() + ":" + node.getPort());
+        if (pool == null) {
+            throw new InvalidDataAccessApiUsageException("No connection pool for cluster node " + node);
+        }
+        Redirects redirects = new Redirects();
+        try (Jedis jedis = pool.getResource()) {
+            for (int from = 0; from < indexes.size(); from += batchSize) {
+                List<Integer> batch = indexes.subList(from, Math.min(indexes.size(), from + batchSize));
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<?>> responses = new ArrayList<>(batch.size());
+                for (Integer index : batch) {
+                    responses.add(command.queue(pipeline, keys.get(index), index));
+                }
+                pipeline.sync();
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        results[batch.get(i)] = responses.get(i).get();
+                    } catch (JedisAskDataException e) {
+                        redirects.asked.computeIfAbsent(e.getTargetNode(), target -> new ArrayList<>()).add(batch.get(i));
+                    } catch (JedisRedirectionException e) {
+                        redirects.moved.add(batch.get(i));
+                    }
+                }
+            }
+        }
+        return redirects;
+    }
+
+    /**
+     * Runs the command of the asked keys on the nodes they were asked to, one key at a time after ASKING, as ASKING
+     * only applies to the next command. The slot map is not loaded again, the slots still belong to their master
+     * until their migration ends.
+     *
+     * @return the indexes of the moved keys, including asked keys redirected again
+     */
+    private List<Integer> runAsked(JedisCluster cluster, Redirects redirects, List<String> keys, KeyCommand command,
+                                   Object[] results, boolean failOnError) {
+        List<Integer> moved = new ArrayList<>(redirects.moved);
+        for (Map.Entry<HostAndPort, List<Integer>> asked : redirects.asked.entrySet()) {
+            JedisPool pool = cluster.getClusterNodes().get(asked.getKey().toString());
+            if (pool == null) {
+                // a node the slot map does not know yet
+                moved.addAll(asked.getValue());
+                continue;
+            }
+            try (Jedis jedis = pool.getResource()) {
+                for (Integer index : asked.getValue()) {
+                    jedis.asking();
+                    Pipeline pipeline = jedis.pipelined();
+                    Response<?> response = command.queue(pipeline, keys.get(index), index);
+                    pipeline.sync();
+                    try {
+                        results[index] = response.get();
+                    } catch (JedisRedirectionException e) {
+                        moved.add(index);
+                    }
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Redis cluster ASK Failed on node:{} for {} keys", asked.getKey(), asked.getValue().size(), e);
+                if (failOnError) {
+                    throw e;
+                }
+            }
+        }
+        return moved;
+    }
+
+    private static JedisCluster jedisCluster(Object nativeConnection) {
+        if (nativeConnection instanceof JedisCluster) {
+            return (JedisCluster) nativeConnection;
+        }
+        throw new InvalidDataAccessApiUsageException("Slot routing is not supported for connection "
+                + (nativeConnection == null ? null : nativeConnection.getClass().getName()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<String> keySerializer() {
+        return (RedisSerializer<String>) redisTemplate.getKeySerializer();
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    ThreadFactory threadFactory = runnable -> {
+                        Thread thread = new Thread(runnable, "redis-client-cluster-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    };
+                    executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<>(parallelism), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the threads running the pipelines of other masters.
+     */
+    void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The keys redirected by the masters, by index: moved keys, and asked keys by the node they were asked to.
+     */
+    private static final class Redirects {
+
+        private final List<Integer> moved = new ArrayList<>();
+
+        private final Map<HostAndPort, List<Integer>> asked = new LinkedHashMap<>();
+
+        private void addAll(Redirects other) {
+            moved.addAll(other.moved);
+            other.asked.forEach((target, indexes) -> asked.computeIfAbsent(target, t -> new ArrayList<>()).addAll(indexes));
+        }
+    }
+
+    /**
+     * One command queued on the pipeline of a master, for one key.
+     */
+    @FunctionalInterface
+    interface KeyCommand {
+
+        Response<?> queue(Pipeline pipeline, String key, int index);
+    }
+}
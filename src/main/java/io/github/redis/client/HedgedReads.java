@@ -0,0 +1,214 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.AdaptiveTimeoutConfigurer;
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.metrics.LatencyTracker;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisSystemException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * The type Hedged reads.
+ * Cuts the latency tail of reads: a read still running after the {@link RedisClientProperties.Hedge#getPercentile()}
+ * of recent latencies of its command is sent again, over another pooled connection or to another replica, and the
+ * first response wins. Hedges are paid for by a budget which every read adds
+ * {@link RedisClientProperties.Hedge#getMaxRatio()} of a hedge to, so hedges stay under that fraction of reads, in
+ * bursts of at most {@value #MAX_BURST} hedges.
+ * <p>
+ * With adaptive timeouts the read fails with a {@link QueryTimeoutException} when neither response arrives within the
+ * adaptive timeout of the command, see {@link AdaptiveTimeoutConfigurer#timeoutMillis}. Until enough latencies are
+ * recorded, and when all hedge threads are busy, reads run on the calling thread without hedge.
+ */
+class HedgedReads {
+
+    private static final Logger LOGGER = LogManager.getLogger(HedgedReads.class.getName());
+
+    private static final int MAX_BURST = 10;
+
+    private static final long HEDGE_COST = 1000;
+
+    private final LatencyTracker latencyTracker;
+
+    private final RedisClientProperties.Hedge properties;
+
+    private final RedisClientProperties.AdaptiveTimeout adaptiveTimeout;
+
+    private final long minDelayNanos;
+
+    private final long depositPerRead;
+
+    private final AtomicLong budget = new AtomicLong();
+
+    private volatile ExecutorService executor;
+
+    /**
+     * Instantiates new Hedged reads.
+     *
+     * @param latencyTracker  the latency tracker, of the redis client metrics
+     * @param properties      the hedge properties
+     * @param adaptiveTimeout the adaptive timeout properties
+     */
+    HedgedReads(LatencyTracker latencyTracker, RedisClientProperties.Hedge properties,
+                RedisClientProperties.AdaptiveTimeout adaptiveTimeout) {
+        this.latencyTracker = latencyTracker;
+        this.properties = properties;
+        this.adaptiveTimeout = adaptiveTimeout;
+        this.minDelayNanos = properties.getMinDelay().toNanos();
+        this.depositPerRead = Math.round(Math.max(0, Math.min(1, properties.getMaxRatio())) * HEDGE_COST);
+    }
+
+    /**
+     * Runs the read, and sends it again when it is slow.
+     *
+     * @param <T>     the type parameter
+     * @param command the command name the latencies of the read are recorded under
+     * @param read    the read, which may run twice, concurrently
+     * @return the first value read
+     */
+    <T> T read(String command, Supplier<T> read) {
+        deposit();
+        long delay = latencyTracker.percentile(command, properties.getPercentile());
+        if (delay < 0) {
+            return read.get();
+        }
+        long start = System.nanoTime();
+        long timeout = adaptiveTimeout.isEnabled()
+                ? TimeUnit.MILLISECONDS.toNanos(AdaptiveTimeoutConfigurer.timeoutMillis(latencyTracker, adaptiveTimeout, command))
+                : -1;
+        CompletableFuture<T> primary = submit(read);
+        if (primary == null) {
+            return read.get();
+        }
+
+        try {
+            return primary.get(Math.max(delay, minDelayNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // slow, hedged below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisSystemException("Interrupted while reading from redis", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+
+        CompletableFuture<T> hedge = withdraw() ? submit(read) : null;
+        if (hedge == null) {
+            return await(command, primary, start, timeout);
+        }
+        LOGGER.debug("Redis {} slower than {}ns, sent again", command, delay);
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        BiConsumer<T, Throwable> complete = (value, failure) -> {
+            if (failure == null) {
+                first.complete(value);
+            } else if (failures.incrementAndGet() == 2) {
+                first.completeExceptionally(failure);
+            }
+        };
+        primary.whenComplete(complete);
+        hedge.whenComplete(complete);
+        return await(command, first, start, timeout);
+    }
+
+    private <T> T await(String command, CompletableFuture<T> read, long start, long timeout) {
+        try {
+            if (timeout < 0) {
+                return read.get();
+            }
+            return read.get(timeout - (System.nanoTime() - start), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("Redis " + command + " timed out after "
+                    + TimeUnit.NANOSECONDS.toMillis(timeout) + "ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisSystemException("Interrupted while reading from redis", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof RuntimeException
+                ? (RuntimeException) cause
+                : new RedisSystemException("Redis read failed", cause);
+    }
+
+    /**
+     * The read running on a hedge thread, {@code null} when all are busy.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> read) {
+        try {
+            return CompletableFuture.supplyAsync(read, executor());
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private void deposit() {
+        long current;
+        do {
+            current = budget.get();
+            if (current >= MAX_BURST * HEDGE_COST) {
+                return;
+            }
+        } while (!budget.compareAndSet(current, Math.min(MAX_BURST * HEDGE_COST, current + depositPerRead)));
+    }
+
+    private boolean withdraw() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < HEDGE_COST) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - HEDGE_COST));
+        return true;
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    int threads = Math.max(1, properties.getThreads());
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new SynchronousQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "redis-client-hedge-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    pool.allowCoreThreadTimeOut(true);
+                    executor = pool;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the threads running the hedged reads.
+     */
+    void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The type Near cache.
+ * In-process (L1) cache of values and hash values read by {@link RedisClient}, bounded by number of entries with
+ * least recently used eviction, and expiring after a ttl. Expired entries are kept for a further stale ttl so they
+ * can be served as fallback when redis fails or the circuit is open.
+ * <p>
+ * The cache is striped by key, every stripe being an access ordered map behind its own lock. Writes through the
+ * client invalidate the key locally and publish it on the invalidation channel, this cache listens on that
+ * channel to invalidate keys written by other nodes. Invalidations are published in the background, the keys
+ * invalidated while a publish is in flight being sent together in the next message.
+ * <p>
+ * Every stripe counts its invalidations: a value read from redis is cached with
+ * {@link #put(String, Object, long)} only if no key of its stripe was invalidated since the
+ * {@link #sequence(String)} taken before the read, so that a read racing a write does not cache the old value.
+ * <p>
+ * Cached elements are shared between callers and must not be mutated.
+ */
+public class NearCache implements MessageListener, MeterBinder, DisposableBean {
+
+    private static final Logger LOGGER = LogManager.getLogger(NearCache.class.getName());
+
+    private static final int STRIPES = 16;
+
+    private static final String SEPARATOR = "\n";
+
+    private static final long ANY_SEQUENCE = Long.MIN_VALUE;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final long ttlNanos;
+
+    private final long staleTtlNanos;
+
+    private final byte[] channel;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder staleHits = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    private final Queue<String> pendingInvalidations = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "redis-near-cache-invalidation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Instantiates a new Near cache.
+     *
+     * @param properties    the near cache properties
+     * @param redisTemplate the redis template, used to publish invalidations
+     */
+    public NearCache(RedisClientProperties.NearCache properties, RedisTemplate<String, Object> redisTemplate) {
+        int stripeSize = Math.max(1, properties.getMaxSize() / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeSize);
+        }
+        this.ttlNanos = properties.getTtl().toNanos();
+        this.staleTtlNanos = properties.getStaleTtl().toNanos();
+        this.channel = properties.getInvalidationChannel().getBytes(StandardCharsets.UTF_8);
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Gets a fresh cached element.
+     *
+     * @param <T>    the type parameter
+     * @param key    the key
+     * @param tClass the t class
+     * @return the element, {@code null} if not cached, expired or of another type
+     */
+    public <T> T get(String key, Class<T> tClass) {
+        return lookup(key, null, tClass, ttlNanos, hits, misses);
+    }
+
+    /**
+     * Gets a cached element, even if expired, as long as it is within its stale ttl.
+     *
+     * @param <T>    the type parameter
+     * @param key    the key
+     * @param tClass the t class
+     * @return the element, {@code null} if not cached, beyond its stale ttl or of another type
+     */
+    public <T> T getStale(String key, Class<T> tClass) {
+        return lookup(key, null, tClass, ttlNanos + staleTtlNanos, staleHits, null);
+    }
+
+    /**
+     * Gets a fresh cached hash value.
+     *
+     * @param <T>     the type parameter
+     * @param key     the key
+     * @param hashKey the hash key
+     * @param tClass  the t class
+     * @return the hash value, {@code null} if not cached, expired or of another type
+     */
+    public <T> T getFromHash(String key, Object hashKey, Class<T> tClass) {
+        return lookup(key, hashKey, tClass, ttlNanos, hits, misses);
+    }
+
+    /**
+     * Gets a cached hash value, even if expired, as long as it is within its stale ttl.
+     *
+     * @param <T>     the type parameter
+     * @param key     the key
+     * @param hashKey the hash key
+     * @param tClass  the t class
+     * @return the hash value, {@code null} if not cached, beyond its stale ttl or of another type
+     */
+    public <T> T getStaleFromHash(String key, Object hashKey, Class<T> tClass) {
+        return lookup(key, hashKey, tClass, ttlNanos + staleTtlNanos, staleHits, null);
+    }
+
+    /**
+     * Gets the invalidation sequence of the stripe of the key, to be taken before the key is read from redis.
+     *
+     * @param key the key
+     * @return the sequence
+     */
+    public long sequence(String key) {
+        return stripeFor(key).sequence();
+    }
+
+    /**
+     * Caches an element, regardless of invalidations. {@code null} elements are not cached.
+     *
+     * @param key     the key
+     * @param element the element
+     */
+    public void put(String key, Object element) {
+        put(key, element, ANY_SEQUENCE);
+    }
+
+    /**
+     * Caches an element read from redis, unless a key of its stripe was invalidated since the sequence was taken.
+     * {@code null} elements are not cached.
+     *
+     * @param key      the key
+     * @param element  the element
+     * @param sequence the {@link #sequence(String)} of the key taken before it was read
+     */
+    public void put(String key, Object element, long sequence) {
+        if (element != null) {
+            stripeFor(key).put(key, null, element, sequence);
+        }
+    }
+
+    /**
+     * Caches a hash value, regardless of invalidations. {@code null} values are not cached.
+     *
+     * @param key       the key
+     * @param hashKey   the hash key
+     * @param hashValue the hash value
+     */
+    public void putInHash(String key, Object hashKey, Object hashValue) {
+        putInHash(key, hashKey, hashValue, ANY_SEQUENCE);
+    }
+
+    /**
+     * Caches a hash value read from redis, unless a key of its stripe was invalidated since the sequence was taken.
+     * {@code null} values are not cached.
+     *
+     * @param key       the key
+     * @param hashKey   the hash key
+     * @param hashValue the hash value
+     * @param sequence  the {@link #sequence(String)} of the key taken before it was read
+     */
+    public void putInHash(String key, Object hashKey, Object hashValue, long sequence) {
+        if (hashValue != null && hashKey != null) {
+            stripeFor(key).put(key, hashKey, hashValue, sequence);
+        }
+    }
+
+    /**
+     * Invalidates the key (value and all its hash values) in this cache and in the near caches of other nodes.
+     *
+     * @param key the key
+     */
+    public void invalidate(String key) {
+        invalidate(Collections.singleton(key));
+    }
+
+    /**
+     * Invalidates the keys in this cache and, in the background, in the near caches of other nodes.
+     *
+     * @param keys the keys
+     */
+    public void invalidate(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        keys.forEach(this::invalidateLocally);
+
+        pendingInvalidations.addAll(keys);
+        if (publishScheduled.compareAndSet(false, true)) {
+            try {
+                publisher.execute(this::publishPending);
+            } catch (RuntimeException e) {
+                publishScheduled.set(false);
+                publishPending();
+            }
+        }
+    }
+
+    /**
+     * Publishes the pending invalidations in one message.
+     */
+    private void publishPending() {
+        publishScheduled.set(false);
+        List<String> keys = new ArrayList<>();
+        for (String key; (key = pendingInvalidations.poll()) != null; ) {
+            keys.add(key);
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        byte[] message = (nodeId + SEPARATOR + String.join(SEPARATOR, keys)).getBytes(StandardCharsets.UTF_8);
+        try {
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, message));
+        } catch (RuntimeException e) {
+            LOGGER.error("Near Cache invalidation publish Failed for {} keys", keys.size(), e);
+        }
+    }
+
+    /**
+     * Invalidates the key in this cache only.
+     *
+     * @param key the key
+     */
+    public void invalidateLocally(String key) {
+        if (stripeFor(key).remove(key)) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Publishes the pending invalidations before the publisher is stopped.
+     */
+    @Override
+    public void destroy() {
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        publishPending();
+    }
+
+    /**
+     * Binds the counters of the cache as <b>redis.client.near.cache.requests</b> tagged by result (hit, miss and
+     * stale), <b>.evictions</b> and <b>.invalidations</b>, and its size as <b>redis.client.near.cache.size</b>.
+     *
+     * @param registry the registry
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "redis.client.near.cache.requests", "hit", NearCache::getHitCount);
+        counter(registry, "redis.client.near.cache.requests", "miss", NearCache::getMissCount);
+        counter(registry, "redis.client.near.cache.requests", "stale", NearCache::getStaleHitCount);
+        counter(registry, "redis.client.near.cache.evictions", null, NearCache::getEvictionCount);
+        counter(registry, "redis.client.near.cache.invalidations", null, NearCache::getInvalidationCount);
+        Gauge.builder("redis.client.near.cache.size", this, NearCache::size)
+                .baseUnit("entries")
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String name, String result, ToDoubleFunction<NearCache> count) {
+        FunctionCounter.Builder<NearCache> builder = FunctionCounter.builder(name, this, count);
+        if (result != null) {
+            builder = builder.tag("result", result);
+        }
+        builder.register(registry);
+    }
+
+    /**
+     * Invalidates all keys in this cache only.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(SEPARATOR);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        for (int i = 1; i < parts.length; i++) {
+            invalidateLocally(parts[i]);
+        }
+    }
+
+    /**
+     * Number of entries (values and hash values) in the cache.
+     *
+     * @return the size
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.weight();
+        }
+        return size;
+    }
+
+    /**
+     * Number of reads served from fresh cached entries.
+     *
+     * @return the count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of reads not served from the cache.
+     *
+     * @return the count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of fallback reads served from expired (stale) entries.
+     *
+     * @return the count
+     */
+    public long getStaleHitCount() {
+        return staleHits.sum();
+    }
+
+    /**
+     * Number of keys evicted to keep the cache within its max size.
+     *
+     * @return the count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Number of keys invalidated by local or remote writes.
+     *
+     * @return the count
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    private <T> T lookup(String key, Object hashKey, Class<T> tClass, long maxAgeNanos,
+                         LongAdder hitCounter, LongAdder missCounter) {
+        Object element = stripeFor(key).get(key, hashKey, System.nanoTime() - maxAgeNanos);
+        if (element != null && tClass.isInstance(element)) {
+            hitCounter.increment();
+            return tClass.cast(element);
+        }
+        if (missCounter != null) {
+            missCounter.increment();
+        }
+        return null;
+    }
+
+    private Stripe stripeFor(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static final class Entry {
+
+        private final Object element;
+
+        private final long writtenAt = System.nanoTime();
+
+        private Entry(Object element) {
+            this.element = element;
+        }
+    }
+
+    private static final class KeyEntry {
+
+        private Entry value;
+
+        private Map<Object, Entry> hash;
+
+        private int weight() {
+            return (value != null ? 1 : 0) + (hash != null ? hash.size() : 0);
+        }
+    }
+
+    private final class Stripe {
+
+        private final int capacity;
+
+        private final LinkedHashMap<String, KeyEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private int weight;
+
+        private long sequence;
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private synchronized Object get(String key, Object hashKey, long notWrittenBefore) {
+            KeyEntry keyEntry = entries.get(key);
+            if (keyEntry == null) {
+                return null;
+            }
+            Entry entry = hashKey == null ? keyEntry.value : (keyEntry.hash != null ? keyEntry.hash.get(hashKey) : null);
+            return entry != null && entry.writtenAt - notWrittenBefore >= 0 ? entry.element : null;
+        }
+
+        private synchronized void put(String key, Object hashKey, Object element, long readSequence) {
+            if (readSequence != ANY_SEQUENCE && readSequence != sequence) {
+                return;
+            }
+            KeyEntry keyEntry = entries.computeIfAbsent(key, k -> new KeyEntry());
+            weight -= keyEntry.weight();
+            if (hashKey == null) {
+                keyEntry.value = new Entry(element);
+            } else {
+                if (keyEntry.hash == null) {
+                    keyEntry.hash = new HashMap<>();
+                }
+                keyEntry.hash.put(hashKey, new Entry(element));
+            }
+            weight += keyEntry.weight();
+            evict(key);
+        }
+
+        private void evict(String retainedKey) {
+            Iterator<Map.Entry<String, KeyEntry>> eldest = entries.entrySet().iterator();
+            while (weight > capacity && eldest.hasNext()) {
+                Map.Entry<String, KeyEntry> candidate = eldest.next();
+                if (!candidate.getKey().equals(retainedKey)) {
+                    weight -= candidate.getValue().weight();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            }
+        }
+
+        private synchronized boolean remove(String key) {
+            sequence++;
+            KeyEntry keyEntry = entries.remove(key);
+            if (keyEntry != null) {
+                weight -= keyEntry.weight();
+                return true;
+            }
+            return false;
+        }
+
+        private synchronized void clear() {
+            sequence++;
+            entries.clear();
+            weight = 0;
+        }
+
+        private synchronized long sequence() {
+            return sequence;
+        }
+
+        private synchronized int weight() {
+            return weight;
+        }
+    }
+}
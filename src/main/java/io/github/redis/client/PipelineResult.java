@@ -0,0 +1,78 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+/**
+ * The type Pipeline result.
+ * Typed handle to the result of one operation queued in a {@link RedisPipeline}, available after
+ * {@link RedisPipeline#execute()}. An operation which failed (e.g. the value could not be deserialized, or the
+ * whole pipeline fell back) resolves to {@code null} and keeps the failure for inspection.
+ *
+ * @param <T> the type parameter
+ */
+public class PipelineResult<T> {
+
+    private T value;
+
+    private Throwable failure;
+
+    private boolean done;
+
+    /**
+     * Instantiates a new Pipeline result.
+     */
+    PipelineResult() {
+    }
+
+    void complete(T value) {
+        this.value = value;
+        this.done = true;
+    }
+
+    void fail(Throwable failure) {
+        this.value = null;
+        this.failure = failure;
+        this.done = true;
+    }
+
+    /**
+     * Gets the result of the operation.
+     *
+     * @return the value, {@code null} if the operation failed or has no value
+     * @throws IllegalStateException if the pipeline has not been executed yet
+     */
+    public T get() {
+        if (!done) {
+            throw new IllegalStateException("Pipeline has not been executed yet");
+        }
+        return value;
+    }
+
+    /**
+     * Is done boolean.
+     *
+     * @return whether the pipeline holding the operation has been executed
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Is fallback boolean.
+     *
+     * @return whether the operation failed and its value is the fallback {@code null}
+     */
+    public boolean isFallback() {
+        return failure != null;
+    }
+
+    /**
+     * Gets failure.
+     *
+     * @return the failure of the operation, {@code null} if it succeeded
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+}
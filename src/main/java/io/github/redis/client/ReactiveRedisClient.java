@@ -0,0 +1,294 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.helper.ValueTypes;
+import io.github.redis.serializer.TypedRedisSerializer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.github.redis.helper.Constants.*;
+
+/**
+ * Reactive redis client. Same operations as {@link RedisClient}, non-blocking on a multiplexed lettuce connection
+ * with the use of {@link ReactiveRedisTemplate}.
+ * Each operation is wrapped in a semaphore isolated hystrix command, so no thread is held while waiting on redis.
+ * Values are serialized the same way as by {@link RedisClient}, both clients can share keys. Given
+ * {@link TypedRedisSerializer}s, values are read straight into the type asked for, as by {@link RedisClient}, so values
+ * written without type information are read into their class.
+ */
+public class ReactiveRedisClient {
+
+    private static final Logger LOGGER = LogManager.getLogger(ReactiveRedisClient.class.getName());
+
+    private ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+
+    private ReactiveHashOperations<String, Object, Object> hashOperations;
+
+    private int maxConcurrentRequests;
+
+    private RedisSerializer<Object> valueSerializer;
+
+    private RedisSerializer<Object> hashValueSerializer;
+
+    private final Map<Class<?>, RedisSerializationContext<String, Object>> typedContexts = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new Reactive redis client.
+     *
+     * @param reactiveRedisTemplate the reactive redis template
+     * @param clientProperties      the client properties
+     */
+    public ReactiveRedisClient(ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+                               RedisClientProperties clientProperties) {
+        this(reactiveRedisTemplate, null, null, clientProperties);
+    }
+
+    /**
+     * Instantiates a new Reactive redis client, reading values straight into the type asked for with the serializers
+     * which are {@link TypedRedisSerializer}s.
+     *
+     * @param reactiveRedisTemplate the reactive redis template
+     * @param valueSerializer       the value serializer of the template, {@code null} to read as the template does
+     * @param hashValueSerializer   the hash value serializer of the template, {@code null} to read as the template does
+     * @param clientProperties      the client properties
+     */
+    public ReactiveRedisClient(ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+                               RedisSerializer<Object> valueSerializer, RedisSerializer<Object> hashValueSerializer,
+                               RedisClientProperties clientProperties) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.hashOperations = reactiveRedisTemplate.opsForHash();
+        this.maxConcurrentRequests = clientProperties.getReactive().getMaxConcurrentRequests();
+        this.valueSerializer = valueSerializer instanceof TypedRedisSerializer ? valueSerializer : null;
+        this.hashValueSerializer = hashValueSerializer instanceof TypedRedisSerializer ? hashValueSerializer : null;
+    }
+
+    /**
+     * Sets element in redis.
+     *
+     * @param <T>     the type parameter
+     * @param key     the key
+     * @param element the element
+     * @return whether the element was set, {@code false} on fallback
+     */
+    public <T> Mono<Boolean> setElementInRedis(String key, T element) {
+        return ReactiveRedisCommand.mono(REACTIVE_REDIS_SET_COMMAND, maxConcurrentRequests,
+                () -> reactiveRedisTemplate.opsForValue().set(key, element),
+                e -> {
+                    LOGGER.error("Reactive Redis SET Failed for key:{}", key, e);
+                    return Mono.just(Boolean.FALSE);
+                });
+    }
+
+    /**
+     * Sets element in redis with expiry.
+     *
+     * @param <T>             the type parameter
+     * @param key             the key
+     * @param element         the element
+     * @param expiryInSeconds the expiry in seconds
+     * @return whether the element was set, {@code false} on fallback
+     */
+    public <T> Mono<Boolean> setElementInRedisWithExpiry(String key, T element, int expiryInSeconds) {
+        return ReactiveRedisCommand.mono(REACTIVE_REDIS_SET_COMMAND, maxConcurrentRequests,
+                () -> reactiveRedisTemplate.opsForValue().set(key, element, Duration.ofSeconds(expiryInSeconds)),
+                e -> {
+                    LOGGER.error("Reactive Redis SET Failed for key:{}, expiry(second):{}", key, expiryInSeconds, e);
+                    return Mono.just(Boolean.FALSE);
+                });
+    }
+
+    /**
+     * Gets element from redis.
+     *
+     * @param <T>    the type parameter
+     * @param key    the key
+     * @param tClass the t class (this is return type of the element in redis against the key)
+     * @return the element from redis, empty if missing or on fallback
+     */
+    public <T> Mono<T> getElementFromRedis(String key, Class<T> tClass) {
+        return ReactiveRedisCommand.mono(REACTIVE_REDIS_GET_COMMAND, maxConcurrentRequests,
+                () -> valueOperations(tClass).get(key).map(value -> ValueTypes.cast(value, tClass)),
+                e -> {
+                    LOGGER.error("Reactive Redis Get Failed for key:{}, type:{}, returning EMPTY", key, tClass.getName(), e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Gets elements from redis using MGET.
+     *
+     * @param <T>    the type parameter
+     * @param keys   the keys
+     * @param tClass the t class (this is return type of the elements in redis against the keys)
+     * @return the elements from redis, in order of the given keys, {@code null} value for missing keys
+     */
+    public <T> Mono<Map<String, T>> getElementsFromRedis(Collection<String> keys, Class<T> tClass) {
+        List<String> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        return ReactiveRedisCommand.mono(REACTIVE_REDIS_MULTI_GET_COMMAND, maxConcurrentRequests,
+                () -> valueOperations(tClass).multiGet(distinctKeys).map(values -> {
+                    Map<String, T> elements = new LinkedHashMap<>();
+                    for (int i = 0; i < distinctKeys.size(); i++) {
+                        Object value = i < values.size() ? values.get(i) : null;
+                        elements.put(distinctKeys.get(i), ValueTypes.isInstance(value, tClass) ? ValueTypes.cast(value, tClass) : null);
+                    }
+                    return elements;
+                }),
+                e -> {
+                    LOGGER.error("Reactive Redis MGET Failed for {} keys, type:{}, returning NULL values",
+                            distinctKeys.size(), tClass.getName(), e);
+                    Map<String, T> elements = new LinkedHashMap<>();
+                    distinctKeys.forEach(key -> elements.put(key, null));
+                    return Mono.just(elements);
+                });
+    }
+
+    /**
+     * Delete element from redis.
+     *
+     * @param key the key
+     * @return whether the key was deleted, {@code false} on fallback
+     */
+    public Mono<Boolean> deleteElementFromRedis(String key) {
+        return ReactiveRedisCommand.mono(REACTIVE_REDIS_DELETE_COMMAND, maxConcurrentRequests,
+                () -> reactiveRedisTemplate.delete(key).map(deleted -> deleted > 0),
+                e -> {
+                    LOGGER.error("Reactive Redis Delete Failed for key:{}", key, e);
+                    return Mono.just(Boolean.FALSE);
+                });
+    }
+
+    /**
+     * Put in redis using hash ops.
+     *
+     * @param <T>       the type parameter
+     * @param key       the key
+     * @param hashKey   the hash key
+     * @param hashValue the hash value
+     * @return whether the hash value was put, {@code false} on fallback
+     */
+    public <T> Mono<Boolean> putInRedisUsingHashOps(String key, Object hashKey, T hashValue) {
+        if (hashValue == null || hashKey == null) {
+            return Mono.just(Boolean.FALSE);
+        }
+        return ReactiveRedisCommand.mono(REACTIVE_REDIS_PUT_IN_DB, maxConcurrentRequests,
+                () -> hashOperations.put(key, hashKey, hashValue),
+                e -> {
+                    LOGGER.error("Reactive Redis Put Using HashOps Failed for key:{}, hashKey:{}", key, hashKey, e);
+                    return Mono.just(Boolean.FALSE);
+                });
+    }
+
+    /**
+     * Gets from redis using hash ops.
+     *
+     * @param <T>     the type parameter
+     * @param key     the key
+     * @param hashKey the hash key
+     * @param tClass  the t class (this is return type of the element in redis against the key)
+     * @return the hash value, empty if missing or on fallback
+     */
+    public <T> Mono<T> getFromRedisUsingHashOps(String key, Object hashKey, Class<T> tClass) {
+        if (hashKey == null) {
+            return Mono.empty();
+        }
+        return ReactiveRedisCommand.mono(REACTIVE_REDIS_GET_FROM_DB, maxConcurrentRequests,
+                () -> hashOperations(tClass).get(key, hashKey).map(value -> ValueTypes.cast(value, tClass)),
+                e -> {
+                    LOGGER.error("Reactive Redis Get Using HashOps Failed for key:{}, hashKey:{} return type:{} returning EMPTY",
+                            key, hashKey, tClass, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Gets keys from pattern.
+     *
+     * @param pattern the pattern
+     * @return the keys from pattern, empty on fallback
+     */
+    public Flux<String> getKeysFromPattern(String pattern) {
+        return ReactiveRedisCommand.flux(REACTIVE_REDIS_GET_FROM_DB, maxConcurrentRequests,
+                () -> reactiveRedisTemplate.keys(pattern),
+                e -> {
+                    LOGGER.error("Fallback for get keys from pattern executed, returning empty, pattern:{}", pattern, e);
+                    return Flux.empty();
+                });
+    }
+
+    private ReactiveValueOperations<String, Object> valueOperations(Class<?> tClass) {
+        return valueSerializer == null
+                ? reactiveRedisTemplate.opsForValue()
+                : reactiveRedisTemplate.opsForValue(typedContext(tClass));
+    }
+
+    private ReactiveHashOperations<String, Object, Object> hashOperations(Class<?> tClass) {
+        return hashValueSerializer == null ? hashOperations : reactiveRedisTemplate.opsForHash(typedContext(tClass));
+    }
+
+    /**
+     * Serialization context of the template, whose values and hash values are read into the type by the typed
+     * serializers.
+     */
+    private RedisSerializationContext<String, Object> typedContext(Class<?> tClass) {
+        return typedContexts.computeIfAbsent(tClass, type -> {
+            RedisSerializationContext<String, Object> context = reactiveRedisTemplate.getSerializationContext();
+            return RedisSerializationContext.<String, Object>newSerializationContext()
+                    .key(context.getKeySerializationPair())
+                    .value(valueSerializer == null
+                            ? context.getValueSerializationPair()
+                            : SerializationPair.fromSerializer(new TypedReader(valueSerializer, type)))
+                    .hashKey(context.getHashKeySerializationPair())
+                    .hashValue(hashValueSerializer == null
+                            ? context.getHashValueSerializationPair()
+                            : SerializationPair.fromSerializer(new TypedReader(hashValueSerializer, type)))
+                    .string(context.getStringSerializationPair())
+                    .build();
+        });
+    }
+
+    /**
+     * Serializer reading values into one type with a typed serializer, and writing them with it.
+     */
+    private static final class TypedReader implements RedisSerializer<Object> {
+
+        private final RedisSerializer<Object> serializer;
+
+        private final Class<?> type;
+
+        private TypedReader(RedisSerializer<Object> serializer, Class<?> type) {
+            this.serializer = serializer;
+            this.type = type;
+        }
+
+        @Override
+        public byte[] serialize(Object value) throws SerializationException {
+            return serializer.serialize(value);
+        }
+
+        @Override
+        public Object deserialize(byte[] bytes) throws SerializationException {
+            return TypedRedisSerializer.deserialize(serializer, bytes, type);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixObservableCommand;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import rx.Observable;
+import rx.RxReactiveStreams;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The type Reactive redis command.
+ * {@link HystrixObservableCommand} around a reactive redis operation. Isolation is done with a semaphore, so the
+ * operation runs on the lettuce event loop instead of occupying a hystrix pool thread.
+ *
+ * @param <R> the type parameter
+ */
+class ReactiveRedisCommand<R> extends HystrixObservableCommand<R> {
+
+    private final Supplier<Publisher<R>> run;
+
+    private final Function<Throwable, Publisher<R>> fallback;
+
+    private ReactiveRedisCommand(String commandKey, int maxConcurrentRequests,
+                                 Supplier<Publisher<R>> run, Function<Throwable, Publisher<R>> fallback) {
+        super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey(commandKey))
+                .andCommandKey(HystrixCommandKey.Factory.asKey(commandKey))
+                .andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                        .withExecutionIsolationStrategy(HystrixCommandProperties.ExecutionIsolationStrategy.SEMAPHORE)
+                        .withExecutionIsolationSemaphoreMaxConcurrentRequests(maxConcurrentRequests)
+                        .withFallbackIsolationSemaphoreMaxConcurrentRequests(maxConcurrentRequests)));
+        this.run = run;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Wraps a single valued redis operation, a new command is executed for every subscription.
+     *
+     * @param <R>                   the type parameter
+     * @param commandKey            the command key
+     * @param maxConcurrentRequests the max concurrent requests
+     * @param run                   the redis operation
+     * @param fallback              the fallback, given the failure of the redis operation
+     * @return the mono
+     */
+    static <R> Mono<R> mono(String commandKey, int maxConcurrentRequests,
+                            Supplier<Mono<R>> run, Function<Throwable, Mono<R>> fallback) {
+        return Mono.defer(() -> Mono.from(RxReactiveStreams.toPublisher(
+                new ReactiveRedisCommand<R>(commandKey, maxConcurrentRequests, run::get, fallback::apply)
+                        .toObservable())));
+    }
+
+    /**
+     * Wraps a multi valued redis operation, a new command is executed for every subscription.
+     *
+     * @param <R>                   the type parameter
+     * @param commandKey            the command key
+     * @param maxConcurrentRequests the max concurrent requests
+     * @param run                   the redis operation
+     * @param fallback              the fallback, given the failure of the redis operation
+     * @return the flux
+     */
+    static <R> Flux<R> flux(String commandKey, int maxConcurrentRequests,
+                            Supplier<Flux<R>> run, Function<Throwable, Flux<R>> fallback) {
+        return Flux.defer(() -> Flux.from(RxReactiveStreams.toPublisher(
+                new ReactiveRedisCommand<R>(commandKey, maxConcurrentRequests, run::get, fallback::apply)
+                        .toObservable())));
+    }
+
+    @Override
+    protected Observable<R> construct() {
+        return RxReactiveStreams.toObservable(run.get());
+    }
+
+    @Override
+    protected Observable<R> resumeWithFallback() {
+        return RxReactiveStreams.toObservable(fallback.apply(getExecutionException()));
+    }
+}
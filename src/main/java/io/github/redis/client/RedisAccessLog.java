@@ -0,0 +1,111 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.config.RedisClientProperties.AccessLogMode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The type Redis access log.
+ * Logs the command, key, latency and size of redis operations according to the
+ * {@link RedisClientProperties.AccessLog#getMode()}: never, a random sample, only those slower than the slow threshold,
+ * or all of them. Values are never logged, and nothing is allocated unless a line is actually written:
+ * the level is checked first, parameters are passed without varargs and latency and size are boxed through
+ * log4j2's reusable {@link Unbox} buffers.
+ */
+class RedisAccessLog {
+
+    /**
+     * The constant UNKNOWN_SIZE, size of elements which can not be known without serializing them.
+     */
+    static final long UNKNOWN_SIZE = -1;
+
+    private static final Logger LOGGER = LogManager.getLogger(RedisAccessLog.class.getName());
+
+    private static final long NANOS_PER_MICRO = 1000L;
+
+    private final AccessLogMode mode;
+
+    private final double sampleRate;
+
+    private final long slowThresholdNanos;
+
+    /**
+     * Instantiates a new Redis access log.
+     *
+     * @param properties the access log properties
+     */
+    RedisAccessLog(RedisClientProperties.AccessLog properties) {
+        this.mode = properties.getMode();
+        this.sampleRate = properties.getSampleRate();
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+    }
+
+    /**
+     * Start time of an operation.
+     *
+     * @return the start time in nanoseconds, {@code 0} when the access log is off
+     */
+    long start() {
+        return mode == AccessLogMode.OFF ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Logs an operation, if the mode selects it.
+     *
+     * @param command the command name
+     * @param key     the key
+     * @param start   the start time, as returned by {@link #start()}
+     * @param size    the size of the element, {@link #UNKNOWN_SIZE} if not known
+     */
+    void log(String command, String key, long start, long size) {
+        switch (mode) {
+            case SLOW:
+                long latency = System.nanoTime() - start;
+                if (latency >= slowThresholdNanos && LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("Slow {} key:{}, latency(us):{}, size:{}",
+                            command, key, Unbox.box(latency / NANOS_PER_MICRO), Unbox.box(size));
+                }
+                break;
+            case SAMPLED:
+                if (ThreadLocalRandom.current().nextDouble() < sampleRate) {
+                    info(command, key, start, size);
+                }
+                break;
+            case ALL:
+                info(command, key, start, size);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void info(String command, String key, long start, long size) {
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("{} key:{}, latency(us):{}, size:{}",
+                    command, key, Unbox.box((System.nanoTime() - start) / NANOS_PER_MICRO), Unbox.box(size));
+        }
+    }
+
+    /**
+     * Size of an element, the length of strings and byte arrays, {@link #UNKNOWN_SIZE} for other elements.
+     *
+     * @param element the element
+     * @return the size
+     */
+    static long sizeOf(Object element) {
+        if (element instanceof String) {
+            return ((String) element).length();
+        }
+        if (element instanceof byte[]) {
+            return ((byte[]) element).length;
+        }
+        return element == null ? 0 : UNKNOWN_SIZE;
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import com.netflix.hystrix.HystrixCommandProperties;
+import io.github.redis.config.RedisClientProperties;
+import org.springframework.data.redis.connection.RedisClusterNode;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The type Redis bulkheads.
+ * Splits the single key commands of {@link RedisClient} by partition of the keyspace, so that a slow cluster master or
+ * a pathological key prefix trips a circuit breaker and fills a concurrency limit of its own instead of those of
+ * every key. A partition is the cluster master owning the slot of the key, with
+ * {@link RedisClientProperties.Bulkhead#isPerNode()}, and the longest of
+ * {@link RedisClientProperties.Bulkhead#getPrefixes()} the key starts with, {@code default} for other keys.
+ * <p>
+ * Every partition of a command runs as a semaphore isolated hystrix command
+ * {@code <command key>-<host>-<port>-<prefix>}, without fallback: its failures, including an open circuit, fail the
+ * command, whose fallback runs. The circuit breaker of the command itself is disabled by
+ * {@link io.github.redis.config.HystrixIsolationConfigurer}, so it does not open for all keys.
+ */
+class RedisBulkheads {
+
+    private static final String DEFAULT_PREFIX = "default";
+
+    private final ClusterSlotMap slotMap;
+
+    private final boolean perNode;
+
+    private final List<String> prefixes;
+
+    private final boolean enabled;
+
+    private final HystrixCommandProperties.Setter commandProperties;
+
+    /**
+     * Instantiates new Redis bulkheads.
+     *
+     * @param slotMap    the slot map of the cluster, {@code null} if not connected to a cluster
+     * @param properties the bulkhead properties
+     */
+    RedisBulkheads(ClusterSlotMap slotMap, RedisClientProperties.Bulkhead properties) {
+        this.slotMap = slotMap;
+        this.perNode = slotMap != null && properties.isPerNode();
+        this.prefixes = properties.getPrefixes().stream()
+                .filter(prefix -> prefix != null && !prefix.isEmpty())
+                .sorted(Comparator.comparingInt(String::length).reversed())
+                .collect(Collectors.toList());
+        this.enabled = properties.isPerNode() || !prefixes.isEmpty();
+        this.commandProperties = HystrixCommandProperties.Setter()
+                .withExecutionIsolationStrategy(HystrixCommandProperties.ExecutionIsolationStrategy.SEMAPHORE)
+                .withExecutionIsolationSemaphoreMaxConcurrentRequests(properties.getMaxConcurrentRequests())
+                .withExecutionTimeoutEnabled(false);
+    }
+
+    /**
+     * Runs the redis operation on a key, under the hystrix command of the partition of the key.
+     *
+     * @param <T>        the type parameter
+     * @param commandKey the command key of the operation
+     * @param key        the key
+     * @param operation  the redis operation
+     * @return the result of the operation
+     * @throws com.netflix.hystrix.exception.HystrixRuntimeException if the operation fails or the circuit is open
+     */
+    <T> T execute(String commandKey, String key, Supplier<T> operation) {
+        if (!enabled) {
+            return operation.get();
+        }
+        return new RedisCommand<>(commandKey + "-" + partitionOf(key), commandProperties, () -> {
+            try {
+                return operation.get();
+            } catch (RuntimeException e) {
+                if (perNode) {
+                    // the slot may have moved to another master
+                    slotMap.invalidate();
+                }
+                throw e;
+            }
+        }, null).execute();
+    }
+
+    /**
+     * Runs the redis operation on a key, under the hystrix command of the partition of the key.
+     *
+     * @param commandKey the command key of the operation
+     * @param key        the key
+     * @param operation  the redis operation
+     */
+    void run(String commandKey, String key, Runnable operation) {
+        execute(commandKey, key, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Partition of the key.
+     *
+     * @param key the key
+     * @return the partition, {@code <host>-<port>-<prefix>} per node or {@code <prefix>} otherwise
+     */
+    String partitionOf(String key) {
+        String prefix = DEFAULT_PREFIX;
+        for (String candidate : prefixes) {
+            if (key.startsWith(candidate)) {
+                prefix = candidate.replaceAll("[^A-Za-z0-9_-]", "_");
+                break;
+            }
+        }
+        if (!perNode) {
+            return prefix;
+        }
+        RedisClusterNode master = slotMap.masterOf(key);
+        return (master == null ? "unassigned" : master.getHost() + "-" + master.getPort()) + "-" + prefix;
+    }
+}
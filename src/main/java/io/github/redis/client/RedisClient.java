@@ -4,16 +4,50 @@ package io.github.redis.client;
  */
 
 import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.helper.RedisKeyPartitioner;
+import io.github.redis.helper.ValueTypes;
+import io.github.redis.metrics.LatencyTracker;
+import io.github.redis.metrics.RedisClientMetrics;
+import io.github.redis.serializer.TypedRedisSerializer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import static io.github.redis.helper.Constants.*;
 
@@ -23,31 +57,256 @@ import static io.github.redis.helper.Constants.*;
  * Wrapped with {@link HystrixCommand} for each redis operation.
  */
 @Component
-public class RedisClient {
+public class RedisClient implements DisposableBean {
 
     private static final Logger LOGGER = LogManager.getLogger(RedisClient.class.getName());
 
+    private static final String JSON_FORMAT = "json";
+
+    private static final String COUNTER_FORMAT = "counter";
+
+    private static final String SCRIPT_FORMAT = "script";
+
+    private static final String BYTES_FORMAT = "bytes";
+
     private RedisTemplate<String, Object> redisTemplate;
 
     private StringRedisTemplate stringRedisTemplate;
 
     private HashOperations<String, Object, Object> hashOperations;
 
+    private RedisClientProperties clientProperties;
+
+    private boolean clusterMode;
+
+    private NearCache nearCache;
+
+    private RedisKeyScanner keyScanner;
+
+    private RedisHashes hashes;
+
+    private ClusterSlotRouter slotRouter;
+
+    private ReplicaReadRouter replicaRouter;
+
+    private RedisBulkheads bulkheads;
+
+    private RedisScripts scripts;
+
+    private final Map<String, RedisRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    private RedisStreamCommands streamCommands;
+
+    private RedisLargeValues largeValues;
+
+    private LatencyTracker latencyTracker;
+
+    private HedgedReads hedgedReads;
+
+    private RedisClientMetrics metrics = RedisClientMetrics.noop();
+
+    private RedisAccessLog accessLog;
+
+    private SingleFlightLoader singleFlightLoader;
+
+    private WriteBehindBuffer writeBehindBuffer;
+
+    private String valueFormat;
+
+    private String hashValueFormat;
+
     /**
-     * Instantiates a new Redis client. All Args Constructor.
+     * Instantiates a new Redis client with default client properties.
      *
      * @param redisTemplate       the redis template
      * @param stringRedisTemplate the string redis template
      */
     public RedisClient(RedisTemplate<String, Object> redisTemplate,
                        StringRedisTemplate stringRedisTemplate) {
+        this(redisTemplate, stringRedisTemplate, new RedisClientProperties());
+    }
+
+    /**
+     * Instantiates a new Redis client. All Args Constructor.
+     *
+     * @param redisTemplate       the redis template
+     * @param stringRedisTemplate the string redis template
+     * @param clientProperties    the client properties
+     */
+    @Autowired
+    public RedisClient(RedisTemplate<String, Object> redisTemplate,
+                       StringRedisTemplate stringRedisTemplate,
+                       RedisClientProperties clientProperties) {
         this.redisTemplate = redisTemplate;
         this.stringRedisTemplate = stringRedisTemplate;
         this.hashOperations = redisTemplate.opsForHash();
+        this.clientProperties = clientProperties;
+        this.clusterMode = isClusterAware(redisTemplate.getConnectionFactory());
+        this.keyScanner = new RedisKeyScanner(redisTemplate, clientProperties.getScan());
+        this.hashes = new RedisHashes(redisTemplate, clusterMode, clientProperties.getScan().getCount());
+        ClusterSlotMap slotMap = clusterMode ? new ClusterSlotMap(redisTemplate) : null;
+        this.bulkheads = new RedisBulkheads(slotMap, clientProperties.getBulkhead());
+        this.scripts = new RedisScripts(redisTemplate, clientProperties.getScript());
+        this.streamCommands = new RedisStreamCommands(redisTemplate);
+        this.largeValues = new RedisLargeValues(redisTemplate, clusterMode, clientProperties.getLargeValue());
+        this.largeValues.setScripts(scripts);
+        if (clusterMode && redisTemplate.getConnectionFactory() instanceof JedisConnectionFactory
+                && clientProperties.getCluster().isRoutingEnabled()) {
+            this.slotRouter = new ClusterSlotRouter(redisTemplate, slotMap, clientProperties.getBatchSize(),
+                    clientProperties.getCluster());
+        }
+        if (redisTemplate.getConnectionFactory() instanceof JedisConnectionFactory
+                && clientProperties.getRead().getFrom() != RedisClientProperties.ReadFrom.MASTER) {
+            JedisConnectionFactory connectionFactory = (JedisConnectionFactory) redisTemplate.getConnectionFactory();
+            if (connectionFactory.isRedisClusterAware() || connectionFactory.isRedisSentinelAware()) {
+                this.replicaRouter = new ReplicaReadRouter(redisTemplate, connectionFactory,
+                        connectionFactory.isRedisClusterAware() ? slotMap : null, clientProperties.getRead(),
+                        clientProperties.getIsolation().getMaxConcurrentRequests());
+            }
+        }
+        this.accessLog = new RedisAccessLog(clientProperties.getAccessLog());
+        this.singleFlightLoader = new SingleFlightLoader(this, redisTemplate, stringRedisTemplate, clusterMode, clientProperties.getLoad());
+        this.valueFormat = formatTag(clientProperties.getSerialization().getValueFormat());
+        this.hashValueFormat = formatTag(clientProperties.getSerialization().getHashValueFormat());
+    }
+
+    /**
+     * Sets the near cache. Reads of values and hash values are then served from the near cache when cached,
+     * writes invalidate it, and the fallbacks of reads return stale cached elements instead of {@code null}.
+     *
+     * @param nearCache the near cache, {@code null} to disable
+     */
+    @Autowired(required = false)
+    public void setNearCache(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    /**
+     * Sets the write behind buffer. Sets and hash puts are then buffered and written to redis in the background,
+     * and those which fail, including when the circuit is open, are kept and written again. The near cache is
+     * invalidated for the keys once they are written.
+     *
+     * @param writeBehindBuffer the write behind buffer, {@code null} to disable
+     */
+    @Autowired(required = false)
+    public void setWriteBehindBuffer(WriteBehindBuffer writeBehindBuffer) {
+        this.writeBehindBuffer = writeBehindBuffer;
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.setPipelineFactory(() ->
+                    new RedisPipeline(redisTemplate, stringRedisTemplate, clusterMode, null, metrics, enabledLargeValues()));
+            writeBehindBuffer.setWrittenKeysListener(keys -> {
+                if (nearCache != null) {
+                    nearCache.invalidate(keys);
+                }
+            });
+        }
+    }
+
+    /**
+     * Discards the buffered writes of the keys, before they are written directly.
+     */
+    private void discardBufferedWrites(Collection<String> keys) {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.discard(keys);
+        }
+    }
+
+    /**
+     * Discards the buffered writes of the hash fields and of the value of the key, before the fields are written
+     * directly. Buffered writes of other fields of the hash are kept.
+     */
+    private void discardBufferedHashWrites(String key, Collection<?> hashKeys) {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.discard(key, hashKeys);
+        }
+    }
+
+    /**
+     * Sets the script registry, the scripts run by {@link #executeScript(String, Class, List, Object...)}.
+     *
+     * @param scripts the script registry, {@code null} for the built-in scripts only
+     */
+    @Autowired(required = false)
+    public void setScripts(RedisScripts scripts) {
+        this.scripts = scripts != null ? scripts : new RedisScripts(redisTemplate, clientProperties.getScript());
+        this.largeValues.setScripts(this.scripts);
     }
 
     /**
-     * Sets element in redis.
+     * Sets the metrics, operations are timed and fallbacks counted with them.
+     *
+     * @param metrics the metrics
+     */
+    @Autowired(required = false)
+    public void setMetrics(RedisClientMetrics metrics) {
+        this.metrics = metrics != null ? metrics : RedisClientMetrics.noop();
+        this.metrics.setLatencyTracker(latencyTracker);
+        this.singleFlightLoader.setMetrics(this.metrics);
+        this.largeValues.setMetrics(this.metrics);
+    }
+
+    /**
+     * Sets the latency tracker, given the latencies of the operations. With
+     * <b>spring.redis.client.hedge.enabled=true</b>, reads of {@link #getElementFromRedis(String, Class)} slower than
+     * the hedge percentile of recent reads are then sent again, see {@link HedgedReads}.
+     *
+     * @param latencyTracker the latency tracker, {@code null} to disable
+     */
+    @Autowired(required = false)
+    public void setLatencyTracker(LatencyTracker latencyTracker) {
+        this.latencyTracker = latencyTracker;
+        this.metrics.setLatencyTracker(latencyTracker);
+        if (hedgedReads != null) {
+            hedgedReads.close();
+        }
+        this.hedgedReads = latencyTracker != null && clientProperties.getHedge().isEnabled()
+                ? new HedgedReads(latencyTracker, clientProperties.getHedge(), clientProperties.getAdaptiveTimeout())
+                : null;
+    }
+
+    /**
+     * Stops the threads of the cluster router, the replica router and the hedged reads, and destroys the connection
+     * pools of the sentinel replicas.
+     */
+    @Override
+    public void destroy() {
+        if (slotRouter != null) {
+            slotRouter.close();
+        }
+        if (replicaRouter != null) {
+            replicaRouter.close();
+        }
+        if (hedgedReads != null) {
+            hedgedReads.close();
+        }
+    }
+
+    private static String formatTag(RedisClientProperties.Format format) {
+        return format.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Format of an element, String elements are written by the string redis template as JSON.
+     */
+    private String formatOf(Object element) {
+        return element instanceof String ? JSON_FORMAT : valueFormat;
+    }
+
+    private String formatOf(Class<?> tClass) {
+        return tClass == String.class ? JSON_FORMAT : valueFormat;
+    }
+
+    private static boolean isClusterAware(RedisConnectionFactory connectionFactory) {
+        if (connectionFactory instanceof LettuceConnectionFactory) {
+            return ((LettuceConnectionFactory) connectionFactory).isClusterAware();
+        }
+        return connectionFactory instanceof JedisConnectionFactory
+                && ((JedisConnectionFactory) connectionFactory).isRedisClusterAware();
+    }
+
+    /**
+     * Sets element in redis. With <b>spring.redis.client.large-value.enabled=true</b>, the chunks of a large value
+     * the key held are deleted, see {@link RedisLargeValues#replace(List, List, int)}.
      *
      * @param <T>     the type parameter
      * @param key     the key
@@ -60,16 +319,26 @@ public class RedisClient {
             fallbackMethod = "fallbackForSetElementInRedis"
     )
     public <T> void setElementInRedis(String key, T element) {
-        LOGGER.info("Set Called for Key:{}", key);
-        if (element instanceof String) {
-            stringRedisTemplate.opsForValue().set(key, String.valueOf(element));
-        } else {
-            redisTemplate.opsForValue().set(key, element);
+        if (writeBehindBuffer != null && element != null && writeBehindBuffer.set(key, element)) {
+            return;
         }
+        long start = accessLog.start();
+        metrics.timeRunnable(REDIS_SET_COMMAND, formatOf(element), () -> bulkheads.run(REDIS_SET_COMMAND, key, () -> {
+            if (largeValues.isEnabled()) {
+                largeValues.replace(Collections.singletonList(key), Collections.singletonList(serializeValue(element)), 0);
+            } else if (element instanceof String) {
+                stringRedisTemplate.opsForValue().set(key, String.valueOf(element));
+            } else {
+                redisTemplate.opsForValue().set(key, element);
+            }
+        }));
+        accessLog.log(REDIS_SET_COMMAND, key, start, RedisAccessLog.sizeOf(element));
+        invalidateNearCache(key);
     }
 
     /**
-     * Sets element in redis with expiry.
+     * Sets element in redis with expiry. The chunks of a large value the key held are deleted, as by
+     * {@link #setElementInRedis(String, Object)}.
      *
      * @param <T>             the type parameter
      * @param key             the key
@@ -77,16 +346,31 @@ public class RedisClient {
      * @param expiryInSeconds the expiry in seconds
      */
     public <T> void setElementInRedisWithExpiry(String key, T element, int expiryInSeconds) {
-        LOGGER.info("Set Called for Key:{}, expiry(second):{}", key, expiryInSeconds);
-        if (element instanceof String) {
-            stringRedisTemplate.opsForValue().set(key, String.valueOf(element), expiryInSeconds, TimeUnit.SECONDS);
-        } else {
-            redisTemplate.opsForValue().set(key, element, expiryInSeconds, TimeUnit.SECONDS);
-        }
+        discardBufferedWrites(Collections.singleton(key));
+        long start = accessLog.start();
+        metrics.timeRunnable(REDIS_SET_WITH_EXPIRY_COMMAND, formatOf(element), () ->
+                bulkheads.run(REDIS_SET_WITH_EXPIRY_COMMAND, key, () -> {
+                    if (largeValues.isEnabled()) {
+                        largeValues.replace(Collections.singletonList(key),
+                                Collections.singletonList(serializeValue(element)), expiryInSeconds);
+                    } else if (element instanceof String) {
+                        stringRedisTemplate.opsForValue().set(key, String.valueOf(element), expiryInSeconds,
+                                TimeUnit.SECONDS);
+                    } else {
+                        redisTemplate.opsForValue().set(key, element, expiryInSeconds, TimeUnit.SECONDS);
+                    }
+                }));
+        accessLog.log(REDIS_SET_WITH_EXPIRY_COMMAND, key, start, RedisAccessLog.sizeOf(element));
+        invalidateNearCache(key);
     }
 
-    private <T> void fallbackForSetElementInRedis(String key, T element) {
-        LOGGER.error("Redis SET Failed for key:{}, element:{}", key, element);
+    private <T> void fallbackForSetElementInRedis(String key, T element, Throwable failure) {
+        metrics.fallback(REDIS_SET_COMMAND, formatOf(element), failure);
+        if (writeBehindBuffer != null && element != null && writeBehindBuffer.set(key, element)) {
+            LOGGER.warn("Redis SET Failed for key:{}, kept in write behind buffer", key, failure);
+            return;
+        }
+        LOGGER.error("Redis SET Failed for key:{}, element:{}", key, element, failure);
     }
 
     /**
@@ -103,30 +387,123 @@ public class RedisClient {
             fallbackMethod = "fallbackForGetElementFromRedis"
     )
     public <T> T getElementFromRedis(String key, Class<T> tClass) {
-        LOGGER.info("Get Called for Key:{}, ResponseType:{}", key, tClass.getName());
+        if (nearCache != null) {
+            T cached = nearCache.get(key, tClass);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long sequence = nearCacheSequence(key);
+        long start = accessLog.start();
         if (tClass == String.class) {
-            String obj = stringRedisTemplate.opsForValue().get(key);
+            String obj = metrics.time(REDIS_GET_COMMAND, JSON_FORMAT, () ->
+                    bulkheads.execute(REDIS_GET_COMMAND, key, () -> (String) hedged(() -> readValue(stringRedisTemplate, key))));
 
-            LOGGER.info("Get Called for Key:{}, ResponseType:{}, Response:{}",
-                    key, tClass.getName(), String.valueOf(obj));
+            accessLog.log(REDIS_GET_COMMAND, key, start, RedisAccessLog.sizeOf(obj));
 
-            return tClass.cast(obj);
+            return cacheInNearCache(key, sequence, tClass.cast(obj));
         } else {
-            T element = tClass.cast(redisTemplate.opsForValue().get(key));
+            T element = metrics.time(REDIS_GET_COMMAND, valueFormat, () ->
+                    bulkheads.execute(REDIS_GET_COMMAND, key, () -> hedged(() -> readTypedValue(key, tClass))));
 
-            LOGGER.info("Get Called for Key:{}, ResponseType:{}, Response:{}", key, tClass.getName(), element);
+            accessLog.log(REDIS_GET_COMMAND, key, start, RedisAccessLog.sizeOf(element));
 
-            return tClass.cast(element);
+            return cacheInNearCache(key, sequence, element);
         }
     }
 
-    private <T> T fallbackForGetElementFromRedis(String key, Class<T> tClass) {
-        LOGGER.error("Redis Get Failed for key:{}, type:{}, returning NULL", key, tClass.getName());
+    private <T> T hedged(Supplier<T> read) {
+        return hedgedReads == null ? read.get() : hedgedReads.read(REDIS_GET_COMMAND, read);
+    }
+
+    /**
+     * Reads the value of the key, from a replica when reads are routed to replicas.
+     */
+    private Object readValue(RedisTemplate<String, ?> template, String key) {
+        if (replicaRouter == null) {
+            return template.opsForValue().get(key);
+        }
+        RedisSerializer<?> valueSerializer = template.getValueSerializer();
+        return replicaRouter.read(key, jedis -> valueSerializer.deserialize(jedis.get(rawKey(key))),
+                () -> template.opsForValue().get(key));
+    }
+
+    /**
+     * Reads the value of the key straight into the type when the value serializer is a {@link TypedRedisSerializer},
+     * from a replica when reads are routed to replicas.
+     */
+    private <T> T readTypedValue(String key, Class<T> tClass) {
+        RedisSerializer<?> valueSerializer = redisTemplate.getValueSerializer();
+        if (!(valueSerializer instanceof TypedRedisSerializer)) {
+            return ValueTypes.cast(readValue(redisTemplate, key), tClass);
+        }
+        byte[] rawKey = rawKey(key);
+        Supplier<byte[]> masterRead = () -> redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey));
+        byte[] rawValue = replicaRouter == null ? masterRead.get() : replicaRouter.read(key, jedis -> jedis.get(rawKey), masterRead);
+        return ((TypedRedisSerializer) valueSerializer).deserialize(rawValue, tClass);
+    }
+
+    private <T> T fallbackForGetElementFromRedis(String key, Class<T> tClass, Throwable failure) {
+        metrics.fallback(REDIS_GET_COMMAND, formatOf(tClass), failure);
+        if (nearCache != null) {
+            T stale = nearCache.getStale(key, tClass);
+            if (stale != null) {
+                LOGGER.warn("Redis Get Failed for key:{}, type:{}, returning stale element from near cache",
+                        key, tClass.getName());
+                return stale;
+            }
+        }
+        LOGGER.error("Redis Get Failed for key:{}, type:{}, returning NULL", key, tClass.getName(), failure);
         return null;
     }
 
     /**
-     * Delete element from redis.
+     * Gets element from redis, or loads it when missing and writes it back with
+     * {@link #setElementInRedisWithExpiry(String, Object, int)}. Concurrent callers of the same key share one read
+     * and one load, and with <b>spring.redis.client.load.lock-enabled=true</b> one node at a time loads the key.
+     * The element may be loaded again before it expires, with a probability growing as expiry nears, so that
+     * recomputation of a popular key is spread instead of happening all at once when it expires.
+     * If redis can not be read, the element is loaded.
+     *
+     * @param <T>             the type parameter
+     * @param key             the key
+     * @param tClass          the t class (this is return type of the element in redis against the key)
+     * @param loader          the loader of the element, when missing in redis
+     * @param expiryInSeconds the expiry in seconds of the loaded element
+     * @return the element, {@code null} if the loader returns {@code null}, which is not written back
+     */
+    public <T> T getOrLoad(String key, Class<T> tClass, Supplier<T> loader, int expiryInSeconds) {
+        if (nearCache != null) {
+            T cached = nearCache.get(key, tClass);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long sequence = nearCacheSequence(key);
+        return cacheInNearCache(key, sequence,
+                singleFlightLoader.load(key, tClass, loader, expiryInSeconds, formatOf(tClass)));
+    }
+
+    private long nearCacheSequence(String key) {
+        return nearCache != null ? nearCache.sequence(key) : 0;
+    }
+
+    private <T> T cacheInNearCache(String key, long sequence, T element) {
+        if (nearCache != null) {
+            nearCache.put(key, element, sequence);
+        }
+        return element;
+    }
+
+    private void invalidateNearCache(String key) {
+        if (nearCache != null) {
+            nearCache.invalidate(key);
+        }
+    }
+
+    /**
+     * Delete element from redis. The chunks of a large value are deleted with it, as by
+     * {@link #setElementInRedis(String, Object)}.
      *
      * @param key the key
      */
@@ -137,11 +514,442 @@ public class RedisClient {
             fallbackMethod = "fallbackForDeleteElementFromRedis"
     )
     public void deleteElementFromRedis(String key) {
-        redisTemplate.delete(key);
+        discardBufferedWrites(Collections.singleton(key));
+        long start = accessLog.start();
+        metrics.timeRunnable(REDIS_DELETE_COMMAND, valueFormat, () -> bulkheads.run(REDIS_DELETE_COMMAND, key, () -> {
+            if (largeValues.isEnabled()) {
+                largeValues.replace(Collections.singletonList(key), null, 0);
+            } else {
+                redisTemplate.delete(key);
+            }
+        }));
+        accessLog.log(REDIS_DELETE_COMMAND, key, start, 0);
+        invalidateNearCache(key);
+    }
+
+    private void fallbackForDeleteElementFromRedis(String key, Throwable failure) {
+        metrics.fallback(REDIS_DELETE_COMMAND, valueFormat, failure);
+        LOGGER.error("Redis Delete Failed for key:{}", key, failure);
     }
 
-    private void fallbackForDeleteElementFromRedis(String key) {
-        LOGGER.error("Redis Delete Failed for key:{}", key);
+    /**
+     * Deletes elements from redis with DEL. Keys are sent in chunks of {@link RedisClientProperties#getBatchSize()}
+     * keys, grouped by hash slot in cluster mode, or routed to their cluster masters in parallel with jedis. With
+     * large values enabled, every chunk is deleted by {@link RedisLargeValues#replace(List, List, int)} instead.
+     *
+     * @param keys the keys
+     * @return the number of keys deleted
+     */
+    @HystrixCommand(
+            commandKey = REDIS_DELETE_COMMAND,
+            groupKey = REDIS_DELETE_COMMAND,
+            threadPoolKey = REDIS_DELETE_COMMAND,
+            fallbackMethod = "fallbackForDeleteElementsFromRedis"
+    )
+    public long deleteElementsFromRedis(Collection<String> keys) {
+        List<String> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        discardBufferedWrites(distinctKeys);
+        long deleted = metrics.time(REDIS_DELETE_COMMAND, valueFormat, () -> {
+            if (slotRouter != null && !largeValues.isEnabled()) {
+                return slotRouter.delete(distinctKeys);
+            }
+            long count = 0;
+            for (List<String> chunk : RedisKeyPartitioner.partition(distinctKeys, clientProperties.getBatchSize(), clusterMode)) {
+                Long chunkCount = largeValues.isEnabled()
+                        ? largeValues.replace(chunk, null, 0)
+                        : redisTemplate.delete(chunk);
+                count += chunkCount == null ? 0 : chunkCount;
+            }
+            return count;
+        });
+        if (nearCache != null) {
+            nearCache.invalidate(distinctKeys);
+        }
+        return deleted;
+    }
+
+    private long fallbackForDeleteElementsFromRedis(Collection<String> keys, Throwable failure) {
+        metrics.fallback(REDIS_DELETE_COMMAND, valueFormat, failure);
+        LOGGER.error("Redis DEL Failed for {} keys:{}", keys.size(), keys, failure);
+        return 0;
+    }
+
+    /**
+     * Increments the counter at the key by one with INCR, atomically. A missing counter starts at 0.
+     *
+     * @param key the key
+     * @return the counter after the increment, {@code null} if redis could not be reached
+     */
+    @HystrixCommand(
+            commandKey = REDIS_INCREMENT_COMMAND,
+            groupKey = REDIS_INCREMENT_COMMAND,
+            threadPoolKey = REDIS_INCREMENT_COMMAND,
+            fallbackMethod = "fallbackForIncrement"
+    )
+    public Long increment(String key) {
+        return incrementCounter(key, 1);
+    }
+
+    private Long fallbackForIncrement(String key, Throwable failure) {
+        return fallbackForIncrementBy(key, 1, failure);
+    }
+
+    /**
+     * Decrements the counter at the key by one with DECR, atomically. A missing counter starts at 0.
+     *
+     * @param key the key
+     * @return the counter after the decrement, {@code null} if redis could not be reached
+     */
+    @HystrixCommand(
+            commandKey = REDIS_INCREMENT_COMMAND,
+            groupKey = REDIS_INCREMENT_COMMAND,
+            threadPoolKey = REDIS_INCREMENT_COMMAND,
+            fallbackMethod = "fallbackForDecrement"
+    )
+    public Long decrement(String key) {
+        return incrementCounter(key, -1);
+    }
+
+    private Long fallbackForDecrement(String key, Throwable failure) {
+        return fallbackForIncrementBy(key, -1, failure);
+    }
+
+    /**
+     * Increments the counter at the key by the delta with INCRBY, atomically. A missing counter starts at 0.
+     * Counters are stored as decimal text and can be read with {@link #getElementFromRedis(String, Class)} as
+     * {@link Long} or {@link Integer}.
+     *
+     * @param key   the key
+     * @param delta the delta, negative to decrement
+     * @return the counter after the increment, {@code null} if redis could not be reached
+     */
+    @HystrixCommand(
+            commandKey = REDIS_INCREMENT_COMMAND,
+            groupKey = REDIS_INCREMENT_COMMAND,
+            threadPoolKey = REDIS_INCREMENT_COMMAND,
+            fallbackMethod = "fallbackForIncrementBy"
+    )
+    public Long incrementBy(String key, long delta) {
+        return incrementCounter(key, delta);
+    }
+
+    /**
+     * Runs INCR, DECR or INCRBY, called by the hystrix commands of {@link #increment(String)},
+     * {@link #decrement(String)} and {@link #incrementBy(String, long)} as calls between methods of the client do not
+     * go through its proxy.
+     */
+    private Long incrementCounter(String key, long delta) {
+        discardBufferedWrites(Collections.singleton(key));
+        long start = accessLog.start();
+        Long count = metrics.time(REDIS_INCREMENT_COMMAND, COUNTER_FORMAT, () -> bulkheads.execute(REDIS_INCREMENT_COMMAND, key, () ->
+                redisTemplate.execute((RedisCallback<Long>) connection -> {
+                    byte[] rawKey = rawKey(key);
+                    if (delta == 1) {
+                        return connection.incr(rawKey);
+                    }
+                    return delta == -1 ? connection.decr(rawKey) : connection.incrBy(rawKey, delta);
+                })));
+        accessLog.log(REDIS_INCREMENT_COMMAND, key, start, RedisAccessLog.UNKNOWN_SIZE);
+        invalidateNearCache(key);
+        return count;
+    }
+
+    private Long fallbackForIncrementBy(String key, long delta, Throwable failure) {
+        metrics.fallback(REDIS_INCREMENT_COMMAND, COUNTER_FORMAT, failure);
+        LOGGER.error("Redis INCRBY Failed for key:{}, delta:{}, returning NULL", key, delta, failure);
+        return null;
+    }
+
+    /**
+     * Increments the counter at the key by the delta, and sets its expiry if it has none yet, so the expiry runs from
+     * the creation of the counter (e.g. a fixed window rate counter). INCRBY and EXPIRE are run atomically by a Lua
+     * script.
+     *
+     * @param key             the key
+     * @param delta           the delta, negative to decrement
+     * @param expiryInSeconds the expiry in seconds, set when the counter has no expiry
+     * @return the counter after the increment, {@code null} if redis could not be reached
+     */
+    @HystrixCommand(
+            commandKey = REDIS_INCREMENT_COMMAND,
+            groupKey = REDIS_INCREMENT_COMMAND,
+            threadPoolKey = REDIS_INCREMENT_COMMAND,
+            fallbackMethod = "fallbackForIncrementWithExpiry"
+    )
+    public Long incrementWithExpiry(String key, long delta, int expiryInSeconds) {
+        discardBufferedWrites(Collections.singleton(key));
+        long start = accessLog.start();
+        Long count = metrics.time(REDIS_INCREMENT_COMMAND, COUNTER_FORMAT, () -> bulkheads.execute(REDIS_INCREMENT_COMMAND, key, () ->
+                scripts.execute(RedisScripts.INCREMENT_WITH_EXPIRY, Long.class, Collections.singletonList(key),
+                        delta, expiryInSeconds)));
+        accessLog.log(REDIS_INCREMENT_COMMAND, key, start, RedisAccessLog.UNKNOWN_SIZE);
+        invalidateNearCache(key);
+        return count;
+    }
+
+    private Long fallbackForIncrementWithExpiry(String key, long delta, int expiryInSeconds, Throwable failure) {
+        metrics.fallback(REDIS_INCREMENT_COMMAND, COUNTER_FORMAT, failure);
+        LOGGER.error("Redis INCRBY Failed for key:{}, delta:{}, expiry(second):{}, returning NULL",
+                key, delta, expiryInSeconds, failure);
+        return null;
+    }
+
+    /**
+     * Runs a Lua script with EVALSHA, in one round-trip, see {@link RedisScripts}. The near cache entries of the keys
+     * are invalidated, as the script may write them.
+     *
+     * @param <T>    the type parameter
+     * @param script the script, its result type is the type of the result
+     * @param keys   the keys the script accesses, in the same slot in cluster mode
+     * @param args   the arguments of the script
+     * @return the result of the script, {@code null} if redis could not be reached
+     */
+    @HystrixCommand(
+            commandKey = REDIS_SCRIPT_COMMAND,
+            groupKey = REDIS_SCRIPT_COMMAND,
+            threadPoolKey = REDIS_SCRIPT_COMMAND,
+            fallbackMethod = "fallbackForExecuteScript"
+    )
+    public <T> T executeScript(RedisScript<T> script, List<String> keys, Object... args) {
+        return runScript(script, script.getResultType(), keys, args);
+    }
+
+    private <T> T fallbackForExecuteScript(RedisScript<T> script, List<String> keys, Object[] args, Throwable failure) {
+        metrics.fallback(REDIS_SCRIPT_COMMAND, SCRIPT_FORMAT, failure);
+        LOGGER.error("Redis EVALSHA Failed for script:{}, keys:{}, returning NULL", script.getSha1(), keys, failure);
+        return null;
+    }
+
+    /**
+     * Runs a registered Lua script with EVALSHA, in one round-trip, see {@link RedisScripts}. The near cache entries
+     * of the keys are invalidated, as the script may write them.
+     *
+     * @param <T>        the type parameter
+     * @param name       the name the script is registered under
+     * @param resultType the type of the result
+     * @param keys       the keys the script accesses, in the same slot in cluster mode
+     * @param args       the arguments of the script
+     * @return the result of the script, {@code null} if redis could not be reached or no script is registered
+     */
+    @HystrixCommand(
+            commandKey = REDIS_SCRIPT_COMMAND,
+            groupKey = REDIS_SCRIPT_COMMAND,
+            threadPoolKey = REDIS_SCRIPT_COMMAND,
+            fallbackMethod = "fallbackForExecuteNamedScript"
+    )
+    public <T> T executeScript(String name, Class<T> resultType, List<String> keys, Object... args) {
+        return runScript(scripts.get(name), resultType, keys, args);
+    }
+
+    private <T> T fallbackForExecuteNamedScript(String name, Class<T> resultType, List<String> keys, Object[] args,
+                                                Throwable failure) {
+        metrics.fallback(REDIS_SCRIPT_COMMAND, SCRIPT_FORMAT, failure);
+        LOGGER.error("Redis EVALSHA Failed for script:{}, keys:{}, returning NULL", name, keys, failure);
+        return null;
+    }
+
+    private <T> T runScript(RedisScript<?> script, Class<T> resultType, List<String> keys, Object... args) {
+        long start = accessLog.start();
+        T result = metrics.time(REDIS_SCRIPT_COMMAND, SCRIPT_FORMAT, () -> scripts.execute(script, resultType, keys, args));
+        accessLog.log(REDIS_SCRIPT_COMMAND, keys.isEmpty() ? "" : keys.get(0), start, RedisAccessLog.sizeOf(result));
+        keys.forEach(this::invalidateNearCache);
+        return result;
+    }
+
+    /**
+     * Gets element from redis and sets the expiry of its key, in one round-trip, e.g. to extend a session on read.
+     *
+     * @param <T>             the type parameter
+     * @param key             the key
+     * @param tClass          the t class (this is return type of the element in redis against the key)
+     * @param expiryInSeconds the new expiry in seconds
+     * @return the element from redis, {@code null} if missing or if redis could not be reached
+     */
+    @HystrixCommand(
+            commandKey = REDIS_SCRIPT_COMMAND,
+            groupKey = REDIS_SCRIPT_COMMAND,
+            threadPoolKey = REDIS_SCRIPT_COMMAND,
+            fallbackMethod = "fallbackForGetAndExpire"
+    )
+    public <T> T getAndExpire(String key, Class<T> tClass, int expiryInSeconds) {
+        long start = accessLog.start();
+        T element = metrics.time(REDIS_SCRIPT_COMMAND, formatOf(tClass), () -> {
+            byte[] value = scripts.execute(RedisScripts.GET_AND_EXPIRE, byte[].class, Collections.singletonList(key),
+                    expiryInSeconds);
+            return deserializeValue(value, tClass);
+        });
+        accessLog.log(REDIS_SCRIPT_COMMAND, key, start, RedisAccessLog.sizeOf(element));
+        return element;
+    }
+
+    private <T> T fallbackForGetAndExpire(String key, Class<T> tClass, int expiryInSeconds, Throwable failure) {
+        metrics.fallback(REDIS_SCRIPT_COMMAND, formatOf(tClass), failure);
+        LOGGER.error("Redis GET and EXPIRE Failed for key:{}, type:{}, expiry(second):{}, returning NULL",
+                key, tClass.getName(), expiryInSeconds, failure);
+        return null;
+    }
+
+    /**
+     * Sets element in redis only if the current element is the expected one, atomically. Elements are compared in
+     * their serialized form, as written by {@link #setElementInRedis(String, Object)}. A large value is never
+     * replaced, as its manifest is no serialized element.
+     *
+     * @param <T>      the type parameter
+     * @param key      the key
+     * @param expected the expected element, {@code null} if the key must be missing
+     * @param update   the new element, {@code null} to delete the key
+     * @return whether the element was set, {@code false} if redis could not be reached
+     */
+    @HystrixCommand(
+            commandKey = REDIS_SCRIPT_COMMAND,
+            groupKey = REDIS_SCRIPT_COMMAND,
+            threadPoolKey = REDIS_SCRIPT_COMMAND,
+            fallbackMethod = "fallbackForCompareAndSet"
+    )
+    public <T> boolean compareAndSet(String key, T expected, T update) {
+        return compareAndSetElement(key, expected, update, 0);
+    }
+
+    private <T> boolean fallbackForCompareAndSet(String key, T expected, T update, Throwable failure) {
+        metrics.fallback(REDIS_SCRIPT_COMMAND, formatOf(update != null ? update : expected), failure);
+        LOGGER.error("Redis compare and set Failed for key:{}, returning false", key, failure);
+        return false;
+    }
+
+    /**
+     * Sets element in redis with an expiry only if the current element is the expected one, atomically. Elements
+     * are compared in their serialized form, as written by {@link #setElementInRedis(String, Object)}.
+     *
+     * @param <T>             the type parameter
+     * @param key             the key
+     * @param expected        the expected element, {@code null} if the key must be missing
+     * @param update          the new element, {@code null} to delete the key
+     * @param expiryInSeconds the expiry in seconds, {@code 0} for none
+     * @return whether the element was set, {@code false} if redis could not be reached
+     */
+    @HystrixCommand(
+            commandKey = REDIS_SCRIPT_COMMAND,
+            groupKey = REDIS_SCRIPT_COMMAND,
+            threadPoolKey = REDIS_SCRIPT_COMMAND,
+            fallbackMethod = "fallbackForCompareAndSetWithExpiry"
+    )
+    public <T> boolean compareAndSetWithExpiry(String key, T expected, T update, int expiryInSeconds) {
+        return compareAndSetElement(key, expected, update, expiryInSeconds);
+    }
+
+    private <T> boolean fallbackForCompareAndSetWithExpiry(String key, T expected, T update, int expiryInSeconds,
+                                                           Throwable failure) {
+        metrics.fallback(REDIS_SCRIPT_COMMAND, formatOf(update != null ? update : expected), failure);
+        LOGGER.error("Redis compare and set Failed for key:{}, expiry(second):{}, returning false",
+                key, expiryInSeconds, failure);
+        return false;
+    }
+
+    /**
+     * Compare and set shared by {@link #compareAndSet(String, Object, Object)} and
+     * {@link #compareAndSetWithExpiry(String, Object, Object, int)}, each running it under its own hystrix command.
+     */
+    private <T> boolean compareAndSetElement(String key, T expected, T update, int expiryInSeconds) {
+        discardBufferedWrites(Collections.singleton(key));
+        long start = accessLog.start();
+        Boolean set = metrics.time(REDIS_SCRIPT_COMMAND, formatOf(update != null ? update : expected), () ->
+                scripts.execute(RedisScripts.COMPARE_AND_SET, Boolean.class, Collections.singletonList(key),
+                        serializeValue(expected), serializeValue(update), expiryInSeconds));
+        accessLog.log(REDIS_SCRIPT_COMMAND, key, start, RedisAccessLog.sizeOf(update));
+        if (Boolean.TRUE.equals(set)) {
+            invalidateNearCache(key);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a call in the sliding window at the key if fewer than the limit were recorded within the window, in
+     * one round-trip. Calls are kept as members of a sorted set scored by the redis clock, so the window slides
+     * exactly, at the cost of one member per call.
+     *
+     * @param key            the key of the window, e.g. per client or per API
+     * @param limit          the maximum number of calls within the window
+     * @param windowInMillis the window in milliseconds
+     * @return whether the call is within the limit, <b>spring.redis.client.rate-limiter.fail-open</b> if redis could
+     * not be reached
+     */
+    @HystrixCommand(
+            commandKey = REDIS_SCRIPT_COMMAND,
+            groupKey = REDIS_SCRIPT_COMMAND,
+            threadPoolKey = REDIS_SCRIPT_COMMAND,
+            fallbackMethod = "fallbackForTryAcquireInSlidingWindow"
+    )
+    public boolean tryAcquireInSlidingWindow(String key, long limit, long windowInMillis) {
+        long start = accessLog.start();
+        List<?> grant = metrics.time(REDIS_SCRIPT_COMMAND, COUNTER_FORMAT, () ->
+                scripts.execute(RedisScripts.SLIDING_WINDOW, List.class, Collections.singletonList(key),
+                        limit, windowInMillis, 1, 1, Long.toHexString(ThreadLocalRandom.current().nextLong())));
+        accessLog.log(REDIS_SCRIPT_COMMAND, key, start, RedisAccessLog.UNKNOWN_SIZE);
+        return grant != null && !grant.isEmpty() && grant.get(0) instanceof Number
+                && ((Number) grant.get(0)).longValue() > 0;
+    }
+
+    private boolean fallbackForTryAcquireInSlidingWindow(String key, long limit, long windowInMillis, Throwable failure) {
+        metrics.fallback(REDIS_SCRIPT_COMMAND, COUNTER_FORMAT, failure);
+        boolean failOpen = clientProperties.getRateLimiter().isFailOpen();
+        LOGGER.error("Redis sliding window Failed for key:{}, limit:{}, window(ms):{}, returning {}",
+                key, limit, windowInMillis, failOpen, failure);
+        return failOpen;
+    }
+
+    /**
+     * Gets the rate limiter configured under <b>spring.redis.client.rate-limiter.limits.&lt;name&gt;</b>. See
+     * {@link RedisRateLimiter}.
+     *
+     * @param name the name of the limit, also the prefix of its keys
+     * @return the rate limiter, the same one for every call with the name
+     * @throws IllegalArgumentException if no limit is configured under the name
+     */
+    public RedisRateLimiter rateLimiter(String name) {
+        RedisClientProperties.Limit limit = clientProperties.getRateLimiter().getLimits().get(name);
+        if (limit == null) {
+            throw new IllegalArgumentException("No redis rate limit configured as " + name);
+        }
+        return rateLimiters.computeIfAbsent(name, ignored -> rateLimiter(name, limit));
+    }
+
+    /**
+     * Creates a rate limiter of the limit. See {@link RedisRateLimiter}.
+     *
+     * @param name  the name of the limiter, the prefix of its keys
+     * @param limit the limit
+     * @return the new rate limiter, with its own leases
+     */
+    public RedisRateLimiter rateLimiter(String name, RedisClientProperties.Limit limit) {
+        boolean failOpen = limit.getFailOpen() != null
+                ? limit.getFailOpen()
+                : clientProperties.getRateLimiter().isFailOpen();
+        return new RedisRateLimiter(name, limit, failOpen, scripts, metrics);
+    }
+
+    /**
+     * Serializer of elements of the type, String elements are written by the string redis template as JSON.
+     */
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> valueSerializerOf(Class<?> tClass) {
+        return (RedisSerializer<Object>) (tClass == String.class
+                ? stringRedisTemplate.getValueSerializer()
+                : redisTemplate.getValueSerializer());
+    }
+
+    private byte[] serializeValue(Object element) {
+        return element == null ? null : valueSerializerOf(element.getClass()).serialize(element);
+    }
+
+    private <T> T deserializeValue(byte[] value, Class<T> tClass) {
+        return ValueTypes.cast(TypedRedisSerializer.deserialize(valueSerializerOf(tClass), value, tClass), tClass);
+    }
+
+    private byte[] rawKey(String key) {
+        @SuppressWarnings("unchecked")
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        return keySerializer.serialize(key);
     }
 
     /**
@@ -160,12 +968,26 @@ public class RedisClient {
     )
     public <T> void putInRedisUsingHashOps(String key, Object hashKey, T hashValue) {
         if (hashValue != null && hashKey != null) {
-            hashOperations.put(key, hashKey, hashValue);
+            if (writeBehindBuffer != null && writeBehindBuffer.putInHash(key, hashKey, hashValue)) {
+                return;
+            }
+            long start = accessLog.start();
+            metrics.timeRunnable(REDIS_PUT_IN_DB, hashValueFormat, () ->
+                    bulkheads.run(REDIS_PUT_IN_DB, key, () -> hashOperations.put(key, hashKey, hashValue)));
+            accessLog.log(REDIS_PUT_IN_DB, key, start, RedisAccessLog.sizeOf(hashValue));
+            invalidateNearCache(key);
         }
     }
 
-    private <T> void fallbackForPutInDBUsingHashOps(String key, Object hashKey, T hashValue) {
-        LOGGER.error("Redis Put Using HashOps Failed for key:{}, hashKey:{}, hashValue:{}", key, hashKey, hashValue);
+    private <T> void fallbackForPutInDBUsingHashOps(String key, Object hashKey, T hashValue, Throwable failure) {
+        metrics.fallback(REDIS_PUT_IN_DB, hashValueFormat, failure);
+        if (writeBehindBuffer != null && hashKey != null && hashValue != null
+                && writeBehindBuffer.putInHash(key, hashKey, hashValue)) {
+            LOGGER.warn("Redis Put Using HashOps Failed for key:{}, hashKey:{}, kept in write behind buffer",
+                    key, hashKey, failure);
+            return;
+        }
+        LOGGER.error("Redis Put Using HashOps Failed for key:{}, hashKey:{}, hashValue:{}", key, hashKey, hashValue, failure);
     }
 
     /**
@@ -185,34 +1007,804 @@ public class RedisClient {
     )
     public <T> T getFromRedisUsingHashOps(String key, Object hashKey, Class<T> tClass) {
         if (hashKey != null) {
-            return tClass.cast(hashOperations.get(key, hashKey));
+            if (nearCache != null) {
+                T cached = nearCache.getFromHash(key, hashKey, tClass);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            long sequence = nearCacheSequence(key);
+            long start = accessLog.start();
+            T hashValue = metrics.time(REDIS_GET_FROM_DB, hashValueFormat, () ->
+                    bulkheads.execute(REDIS_GET_FROM_DB, key, () -> ValueTypes.cast(readHashValue(key, hashKey), tClass)));
+            accessLog.log(REDIS_GET_FROM_DB, key, start, RedisAccessLog.sizeOf(hashValue));
+            if (nearCache != null) {
+                nearCache.putInHash(key, hashKey, hashValue, sequence);
+            }
+            return hashValue;
         }
         return null;
     }
 
-    private <T> T fallbackForGetFromDBUsingHashOps(String key, Object hashKey, Class<T> tClass) {
-        LOGGER.error("Redis Get Using HashOps Failed for key:{}, hashKey:{} return type:{} returning NULL", key, hashKey, tClass);
+    /**
+     * Reads the value of the hash key, from a replica when reads are routed to replicas.
+     */
+    private Object readHashValue(String key, Object hashKey) {
+        if (replicaRouter == null) {
+            return hashOperations.get(key, hashKey);
+        }
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> hashKeySerializer = (RedisSerializer<Object>) redisTemplate.getHashKeySerializer();
+        RedisSerializer<?> hashValueSerializer = redisTemplate.getHashValueSerializer();
+        return replicaRouter.read(key,
+                jedis -> hashValueSerializer.deserialize(jedis.hget(rawKey(key), hashKeySerializer.serialize(hashKey))),
+                () -> hashOperations.get(key, hashKey));
+    }
+
+    private <T> T fallbackForGetFromDBUsingHashOps(String key, Object hashKey, Class<T> tClass, Throwable failure) {
+        metrics.fallback(REDIS_GET_FROM_DB, hashValueFormat, failure);
+        if (nearCache != null && hashKey != null) {
+            T stale = nearCache.getStaleFromHash(key, hashKey, tClass);
+            if (stale != null) {
+                LOGGER.warn("Redis Get Using HashOps Failed for key:{}, hashKey:{}, returning stale value from near cache",
+                        key, hashKey);
+                return stale;
+            }
+        }
+        LOGGER.error("Redis Get Using HashOps Failed for key:{}, hashKey:{} return type:{} returning NULL",
+                key, hashKey, tClass, failure);
         return null;
     }
 
     /**
-     * Gets keys from pattern.
+     * Gets all fields of a hash with HGETALL, in one round-trip. For hashes too large to hold in heap prefer
+     * {@link #scanRedisHash(String, String, long, Class, BiPredicate)}.
+     *
+     * @param <T>    the type parameter
+     * @param key    the key
+     * @param tClass the t class (this is return type of the hash values in redis against the key)
+     * @return the hash values against their hash keys, empty if the hash does not exist
+     */
+    @HystrixCommand(
+            commandKey = REDIS_MULTI_GET_FROM_DB,
+            groupKey = REDIS_MULTI_GET_FROM_DB,
+            threadPoolKey = REDIS_MULTI_GET_FROM_DB,
+            fallbackMethod = "fallbackForGetAllFromRedisHash"
+    )
+    public <T> Map<String, T> getAllFromRedisHash(String key, Class<T> tClass) {
+        long start = accessLog.start();
+        Map<String, T> hash = metrics.time(REDIS_MULTI_GET_FROM_DB, hashValueFormat, () -> hashes.getAll(key, tClass));
+        accessLog.log(REDIS_MULTI_GET_FROM_DB, key, start, RedisAccessLog.UNKNOWN_SIZE);
+        return hash;
+    }
+
+    private <T> Map<String, T> fallbackForGetAllFromRedisHash(String key, Class<T> tClass, Throwable failure) {
+        metrics.fallback(REDIS_MULTI_GET_FROM_DB, hashValueFormat, failure);
+        LOGGER.error("Redis HGETALL Failed for key:{}, return type:{} returning empty map", key, tClass, failure);
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Gets fields of a hash with HMGET, in one round-trip.
+     *
+     * @param <T>      the type parameter
+     * @param key      the key
+     * @param hashKeys the hash keys
+     * @param tClass   the t class (this is return type of the hash values in redis against the key)
+     * @return the hash values against their hash keys, in order of the given hash keys, {@code null} value for
+     * missing fields
+     */
+    @HystrixCommand(
+            commandKey = REDIS_MULTI_GET_FROM_DB,
+            groupKey = REDIS_MULTI_GET_FROM_DB,
+            threadPoolKey = REDIS_MULTI_GET_FROM_DB,
+            fallbackMethod = "fallbackForGetFromRedisHash"
+    )
+    public <T> Map<String, T> getFromRedisHash(String key, Collection<String> hashKeys, Class<T> tClass) {
+        long start = accessLog.start();
+        Map<String, T> hash = metrics.time(REDIS_MULTI_GET_FROM_DB, hashValueFormat,
+                () -> hashes.multiGet(key, hashKeys, tClass));
+        accessLog.log(REDIS_MULTI_GET_FROM_DB, key, start, RedisAccessLog.UNKNOWN_SIZE);
+        return hash;
+    }
+
+    private <T> Map<String, T> fallbackForGetFromRedisHash(String key, Collection<String> hashKeys, Class<T> tClass,
+                                                           Throwable failure) {
+        metrics.fallback(REDIS_MULTI_GET_FROM_DB, hashValueFormat, failure);
+        LOGGER.error("Redis HMGET Failed for key:{}, {} hashKeys, return type:{} returning NULL values",
+                key, hashKeys.size(), tClass, failure);
+        return emptyResult(hashKeys);
+    }
+
+    /**
+     * Puts fields in a hash with HMSET, in one round-trip together with the EXPIRE of the hash when an expiry is given.
+     *
+     * @param <T>             the type parameter
+     * @param key             the key
+     * @param hashValues      the hash values against their hash keys, {@code null} values are skipped
+     * @param expiryInSeconds the expiry of the whole hash in seconds, none if not positive
+     */
+    @HystrixCommand(
+            commandKey = REDIS_MULTI_PUT_IN_DB,
+            groupKey = REDIS_MULTI_PUT_IN_DB,
+            threadPoolKey = REDIS_MULTI_PUT_IN_DB,
+            fallbackMethod = "fallbackForPutAllInRedisHash"
+    )
+    public <T> void putAllInRedisHash(String key, Map<String, T> hashValues, int expiryInSeconds) {
+        discardBufferedHashWrites(key, hashValues.keySet());
+        long start = accessLog.start();
+        metrics.timeRunnable(REDIS_MULTI_PUT_IN_DB, hashValueFormat, () -> hashes.putAll(key, hashValues, expiryInSeconds));
+        accessLog.log(REDIS_MULTI_PUT_IN_DB, key, start, RedisAccessLog.UNKNOWN_SIZE);
+        invalidateNearCache(key);
+    }
+
+    private <T> void fallbackForPutAllInRedisHash(String key, Map<String, T> hashValues, int expiryInSeconds,
+                                                  Throwable failure) {
+        metrics.fallback(REDIS_MULTI_PUT_IN_DB, hashValueFormat, failure);
+        LOGGER.error("Redis HMSET Failed for key:{}, hashKeys:{}, expiry(second):{}",
+                key, hashValues.keySet(), expiryInSeconds, failure);
+    }
+
+    /**
+     * Gets a hash as a POJO with HGETALL, in one round-trip. Every field is set on the bean property of the same name,
+     * fields without a writable property are ignored.
+     *
+     * @param <T>    the type parameter
+     * @param key    the key
+     * @param tClass the t class (this is the POJO type, with a no-arg constructor)
+     * @return the POJO, {@code null} if the hash does not exist
+     */
+    @HystrixCommand(
+            commandKey = REDIS_MULTI_GET_FROM_DB,
+            groupKey = REDIS_MULTI_GET_FROM_DB,
+            threadPoolKey = REDIS_MULTI_GET_FROM_DB,
+            fallbackMethod = "fallbackForGetObjectFromRedisHash"
+    )
+    public <T> T getObjectFromRedisHash(String key, Class<T> tClass) {
+        long start = accessLog.start();
+        T object = metrics.time(REDIS_MULTI_GET_FROM_DB, hashValueFormat, () -> hashes.getAsObject(key, tClass));
+        accessLog.log(REDIS_MULTI_GET_FROM_DB, key, start, RedisAccessLog.sizeOf(object));
+        return object;
+    }
+
+    private <T> T fallbackForGetObjectFromRedisHash(String key, Class<T> tClass, Throwable failure) {
+        metrics.fallback(REDIS_MULTI_GET_FROM_DB, hashValueFormat, failure);
+        LOGGER.error("Redis HGETALL Failed for key:{}, return type:{} returning NULL", key, tClass, failure);
+        return null;
+    }
+
+    /**
+     * Puts a POJO in a hash with HMSET, one field per readable bean property, in one round-trip together with the
+     * EXPIRE of the hash when an expiry is given. {@code null} properties are skipped.
+     *
+     * @param <T>             the type parameter
+     * @param key             the key
+     * @param object          the POJO
+     * @param expiryInSeconds the expiry of the whole hash in seconds, none if not positive
+     */
+    @HystrixCommand(
+            commandKey = REDIS_MULTI_PUT_IN_DB,
+            groupKey = REDIS_MULTI_PUT_IN_DB,
+            threadPoolKey = REDIS_MULTI_PUT_IN_DB,
+            fallbackMethod = "fallbackForPutObjectInRedisHash"
+    )
+    public <T> void putObjectInRedisHash(String key, T object, int expiryInSeconds) {
+        if (object != null) {
+            discardBufferedHashWrites(key, RedisHashes.propertyNames(object));
+            long start = accessLog.start();
+            metrics.timeRunnable(REDIS_MULTI_PUT_IN_DB, hashValueFormat, () -> hashes.putObject(key, object, expiryInSeconds));
+            accessLog.log(REDIS_MULTI_PUT_IN_DB, key, start, RedisAccessLog.sizeOf(object));
+            invalidateNearCache(key);
+        }
+    }
+
+    private <T> void fallbackForPutObjectInRedisHash(String key, T object, int expiryInSeconds, Throwable failure) {
+        metrics.fallback(REDIS_MULTI_PUT_IN_DB, hashValueFormat, failure);
+        LOGGER.error("Redis HMSET Failed for key:{}, object:{}, expiry(second):{}", key, object, expiryInSeconds, failure);
+    }
+
+    /**
+     * Scans the fields of a hash with HSCAN, handing them to the consumer as they arrive, so hashes with millions
+     * of fields are never held in heap. HSCAN may return a field more than once, the consumer has to tolerate
+     * duplicates.
+     *
+     * @param <T>      the type parameter
+     * @param key      the key
+     * @param pattern  the pattern the hash keys have to match, all fields if {@code null}
+     * @param limit    the max number of fields handed to the consumer
+     * @param tClass   the t class (this is return type of the hash values in redis against the key)
+     * @param consumer the consumer of the hash keys and values, returning {@code false} stops the scan
+     * @return the number of fields handed to the consumer
+     */
+    @HystrixCommand(
+            commandKey = REDIS_SCAN_COMMAND,
+            groupKey = REDIS_SCAN_COMMAND,
+            threadPoolKey = REDIS_SCAN_COMMAND,
+            fallbackMethod = "fallbackForScanRedisHash"
+    )
+    public <T> long scanRedisHash(String key, String pattern, long limit, Class<T> tClass,
+                                  BiPredicate<String, T> consumer) {
+        return metrics.time(REDIS_SCAN_COMMAND, hashValueFormat, () -> hashes.scan(key, pattern, limit, tClass, consumer));
+    }
+
+    private <T> long fallbackForScanRedisHash(String key, String pattern, long limit, Class<T> tClass,
+                                              BiPredicate<String, T> consumer, Throwable failure) {
+        metrics.fallback(REDIS_SCAN_COMMAND, hashValueFormat, failure);
+        LOGGER.error("Fallback for scan of hash executed, returning 0, key:{}, pattern:{}", key, pattern, failure);
+        return 0;
+    }
+
+    /**
+     * Gets keys from pattern. The keyspace is walked with SCAN (on every master node in cluster mode, on a replica
+     * when reads of a sentinel topology are routed to replicas), so redis is not blocked as it would be by KEYS. For large keyspaces prefer
+     * {@link #scanKeysFromPattern(String, long, Predicate)}, which does not hold all keys in heap.
      *
      * @param pattern the pattern
      * @return the keys from pattern
      */
     @HystrixCommand(
-            commandKey = REDIS_GET_FROM_DB,
-            groupKey = REDIS_GET_FROM_DB,
-            threadPoolKey = REDIS_GET_FROM_DB,
+            commandKey = REDIS_SCAN_COMMAND,
+            groupKey = REDIS_SCAN_COMMAND,
+            threadPoolKey = REDIS_SCAN_COMMAND,
             fallbackMethod = "fallbackForGetKeysFromPattern"
     )
     public Set<String> getKeysFromPattern(String pattern) {
-        return redisTemplate.keys(pattern);
+        Set<String> keys = new HashSet<>();
+        metrics.time(REDIS_SCAN_COMMAND, valueFormat, () -> replicaRouter != null && !clusterMode
+                ? replicaRouter.read(null, jedis -> keyScanner.scan(jedis, pattern, Long.MAX_VALUE, keys::add),
+                        () -> keyScanner.scan(pattern, Long.MAX_VALUE, false, keys::add))
+                : keyScanner.scan(pattern, Long.MAX_VALUE, clusterMode, keys::add));
+        return keys;
     }
 
-    private Set<String> fallbackForGetKeysFromPattern(String pattern) {
-        LOGGER.error("Fallback for get keys from pattern executed, returning empty set, pattern:{}", pattern);
+    private Set<String> fallbackForGetKeysFromPattern(String pattern, Throwable failure) {
+        metrics.fallback(REDIS_SCAN_COMMAND, valueFormat, failure);
+        LOGGER.error("Fallback for get keys from pattern executed, returning empty set, pattern:{}", pattern, failure);
         return Collections.emptySet();
     }
+
+    /**
+     * Scans keys matching the pattern with SCAN, handing them to the consumer as they arrive.
+     * In cluster mode master nodes are scanned in parallel, the consumer is still called by one thread at a time.
+     * SCAN may return a key more than once, the consumer has to tolerate duplicates.
+     *
+     * @param pattern  the pattern
+     * @param limit    the max number of keys handed to the consumer
+     * @param consumer the consumer of the keys, returning {@code false} stops the scan
+     * @return the number of keys handed to the consumer
+     */
+    @HystrixCommand(
+            commandKey = REDIS_SCAN_COMMAND,
+            groupKey = REDIS_SCAN_COMMAND,
+            threadPoolKey = REDIS_SCAN_COMMAND,
+            fallbackMethod = "fallbackForScanKeysFromPattern"
+    )
+    public long scanKeysFromPattern(String pattern, long limit, Predicate<String> consumer) {
+        return metrics.time(REDIS_SCAN_COMMAND, valueFormat, () -> keyScanner.scan(pattern, limit, clusterMode, consumer));
+    }
+
+    private long fallbackForScanKeysFromPattern(String pattern, long limit, Predicate<String> consumer, Throwable failure) {
+        metrics.fallback(REDIS_SCAN_COMMAND, valueFormat, failure);
+        LOGGER.error("Fallback for scan keys from pattern executed, returning 0, pattern:{}", pattern, failure);
+        return 0;
+    }
+
+    /**
+     * Creates a new pipeline, to send heterogeneous operations to redis in one round-trip under a single
+     * hystrix command. See {@link RedisPipeline}.
+     *
+     * @return the redis pipeline
+     */
+    public RedisPipeline pipeline() {
+        RedisPipeline pipeline = new RedisPipeline(redisTemplate, stringRedisTemplate, clusterMode, nearCache, metrics,
+                enabledLargeValues());
+        pipeline.setWriteBehindBuffer(writeBehindBuffer);
+        return pipeline;
+    }
+
+    private RedisLargeValues enabledLargeValues() {
+        return largeValues.isEnabled() ? largeValues : null;
+    }
+
+    /**
+     * Gets the stream operations, to add entries to redis streams and consume them in consumer groups, each part
+     * under its own hystrix command. See {@link RedisStreams}.
+     *
+     * @return the redis streams
+     */
+    public RedisStreams streams() {
+        return new RedisStreams(redisTemplate, streamCommands, clientProperties.getStream(), metrics, hashValueFormat);
+    }
+
+    /**
+     * Sets a large element in redis, serialized like {@link #setElementInRedis(String, Object)} and stored in
+     * compressed chunks when larger than <b>spring.redis.client.large-value.threshold</b>. See {@link RedisLargeValues}.
+     *
+     * @param <T>             the type parameter
+     * @param key             the key
+     * @param element         the element, not {@code null}
+     * @param expiryInSeconds the expiry in seconds, {@code 0} for none
+     */
+    @HystrixCommand(
+            commandKey = REDIS_LARGE_VALUE_COMMAND,
+            groupKey = REDIS_LARGE_VALUE_COMMAND,
+            threadPoolKey = REDIS_LARGE_VALUE_COMMAND,
+            fallbackMethod = "fallbackForSetLargeElementInRedis"
+    )
+    public <T> void setLargeElementInRedis(String key, T element, int expiryInSeconds) {
+        discardBufferedWrites(Collections.singleton(key));
+        long start = accessLog.start();
+        byte[] value = serializeValue(element);
+        long size = metrics.time(REDIS_LARGE_VALUE_COMMAND, formatOf(element), () ->
+                writeLargeValue(key, new ByteArrayInputStream(value), expiryInSeconds));
+        accessLog.log(REDIS_LARGE_VALUE_COMMAND, key, start, size);
+        invalidateNearCache(key);
+    }
+
+    private <T> void fallbackForSetLargeElementInRedis(String key, T element, int expiryInSeconds, Throwable failure) {
+        metrics.fallback(REDIS_LARGE_VALUE_COMMAND, formatOf(element), failure);
+        LOGGER.error("Redis large value SET Failed for key:{}, expiry(second):{}", key, expiryInSeconds, failure);
+    }
+
+    /**
+     * Sets a large value in redis, streamed from the input stream into compressed chunks when larger than
+     * <b>spring.redis.client.large-value.threshold</b>, so the value is never held in memory as a whole.
+     * See {@link RedisLargeValues}.
+     *
+     * @param key             the key
+     * @param value           the value, read to its end and not closed
+     * @param expiryInSeconds the expiry in seconds, {@code 0} for none
+     * @return the size of the value in bytes, {@code -1} if it could not be written
+     */
+    @HystrixCommand(
+            commandKey = REDIS_LARGE_VALUE_COMMAND,
+            groupKey = REDIS_LARGE_VALUE_COMMAND,
+            threadPoolKey = REDIS_LARGE_VALUE_COMMAND,
+            fallbackMethod = "fallbackForSetLargeValueInRedis"
+    )
+    public long setLargeValueInRedis(String key, InputStream value, int expiryInSeconds) {
+        discardBufferedWrites(Collections.singleton(key));
+        long start = accessLog.start();
+        long size = metrics.time(REDIS_LARGE_VALUE_COMMAND, BYTES_FORMAT, () -> writeLargeValue(key, value, expiryInSeconds));
+        accessLog.log(REDIS_LARGE_VALUE_COMMAND, key, start, size);
+        invalidateNearCache(key);
+        return size;
+    }
+
+    private long fallbackForSetLargeValueInRedis(String key, InputStream value, int expiryInSeconds, Throwable failure) {
+        metrics.fallback(REDIS_LARGE_VALUE_COMMAND, BYTES_FORMAT, failure);
+        LOGGER.error("Redis large value SET Failed for key:{}, expiry(second):{}, returning -1", key, expiryInSeconds, failure);
+        return -1;
+    }
+
+    private long writeLargeValue(String key, InputStream value, int expiryInSeconds) {
+        try {
+            return largeValues.write(key, value, expiryInSeconds);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets a large element from redis, written by {@link #setLargeElementInRedis(String, Object, int)}. The chunks
+     * are streamed and decompressed, then the whole value is deserialized.
+     *
+     * @param <T>    the type parameter
+     * @param key    the key
+     * @param tClass the t class (this is return type of the element in redis against the key)
+     * @return the element from redis, {@code null} if missing or if redis could not be reached
+     */
+    @HystrixCommand(
+            commandKey = REDIS_LARGE_VALUE_COMMAND,
+            groupKey = REDIS_LARGE_VALUE_COMMAND,
+            threadPoolKey = REDIS_LARGE_VALUE_COMMAND,
+            fallbackMethod = "fallbackForGetLargeElementFromRedis"
+    )
+    public <T> T getLargeElementFromRedis(String key, Class<T> tClass) {
+        long start = accessLog.start();
+        byte[] value = metrics.time(REDIS_LARGE_VALUE_COMMAND, formatOf(tClass), () -> {
+            try (InputStream in = largeValues.open(key)) {
+                return in == null ? null : readAll(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        accessLog.log(REDIS_LARGE_VALUE_COMMAND, key, start, RedisAccessLog.sizeOf(value));
+        return value == null ? null : deserializeValue(value, tClass);
+    }
+
+    private <T> T fallbackForGetLargeElementFromRedis(String key, Class<T> tClass, Throwable failure) {
+        metrics.fallback(REDIS_LARGE_VALUE_COMMAND, formatOf(tClass), failure);
+        LOGGER.error("Redis large value Get Failed for key:{}, type:{}, returning NULL", key, tClass.getName(), failure);
+        return null;
+    }
+
+    /**
+     * Opens a stream of a large value in redis, written by {@link #setLargeValueInRedis(String, InputStream, int)}
+     * or {@link #setLargeElementInRedis(String, Object, int)}. Only the manifest is read here, the chunks are read
+     * as the stream is, a batch per round-trip under its own hystrix command, into a pooled direct buffer released
+     * by {@link InputStream#close()}, which must be called. Use {@link java.nio.channels.Channels#newChannel(InputStream)}
+     * for a channel.
+     *
+     * @param key the key
+     * @return the stream of the value, throwing {@link IOException} if chunks can not be read, {@code null} if the
+     * key is missing or if redis could not be reached
+     */
+    @HystrixCommand(
+            commandKey = REDIS_LARGE_VALUE_COMMAND,
+            groupKey = REDIS_LARGE_VALUE_COMMAND,
+            threadPoolKey = REDIS_LARGE_VALUE_COMMAND,
+            fallbackMethod = "fallbackForOpenLargeValueFromRedis"
+    )
+    public InputStream openLargeValueFromRedis(String key) {
+        long start = accessLog.start();
+        InputStream value = metrics.time(REDIS_LARGE_VALUE_COMMAND, BYTES_FORMAT, () -> largeValues.open(key));
+        accessLog.log(REDIS_LARGE_VALUE_COMMAND, key, start, RedisAccessLog.UNKNOWN_SIZE);
+        return value;
+    }
+
+    private InputStream fallbackForOpenLargeValueFromRedis(String key, Throwable failure) {
+        metrics.fallback(REDIS_LARGE_VALUE_COMMAND, BYTES_FORMAT, failure);
+        LOGGER.error("Redis large value open Failed for key:{}, returning NULL", key, failure);
+        return null;
+    }
+
+    /**
+     * Gets a range of a large value in redis, reading and decompressing only the chunks covering it, in one
+     * round-trip after the manifest.
+     *
+     * @param key    the key
+     * @param offset the offset of the first byte
+     * @param length the max number of bytes
+     * @return the bytes, fewer than the length at the end of the value, {@code null} if the key is missing or if
+     * redis could not be reached
+     */
+    @HystrixCommand(
+            commandKey = REDIS_LARGE_VALUE_COMMAND,
+            groupKey = REDIS_LARGE_VALUE_COMMAND,
+            threadPoolKey = REDIS_LARGE_VALUE_COMMAND,
+            fallbackMethod = "fallbackForGetLargeValueRangeFromRedis"
+    )
+    public byte[] getLargeValueRangeFromRedis(String key, long offset, int length) {
+        long start = accessLog.start();
+        byte[] range = metrics.time(REDIS_LARGE_VALUE_COMMAND, BYTES_FORMAT, () -> {
+            try {
+                return largeValues.read(key, offset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        accessLog.log(REDIS_LARGE_VALUE_COMMAND, key, start, RedisAccessLog.sizeOf(range));
+        return range;
+    }
+
+    private byte[] fallbackForGetLargeValueRangeFromRedis(String key, long offset, int length, Throwable failure) {
+        metrics.fallback(REDIS_LARGE_VALUE_COMMAND, BYTES_FORMAT, failure);
+        LOGGER.error("Redis large value range Get Failed for key:{}, offset:{}, length:{}, returning NULL",
+                key, offset, length, failure);
+        return null;
+    }
+
+    /**
+     * Deletes a large value from redis, and its chunks, under the hystrix command of large values.
+     * {@link #deleteElementFromRedis(String)} deletes the chunks too.
+     *
+     * @param key the key
+     */
+    @HystrixCommand(
+            commandKey = REDIS_LARGE_VALUE_COMMAND,
+            groupKey = REDIS_LARGE_VALUE_COMMAND,
+            threadPoolKey = REDIS_LARGE_VALUE_COMMAND,
+            fallbackMethod = "fallbackForDeleteLargeValueFromRedis"
+    )
+    public void deleteLargeValueFromRedis(String key) {
+        discardBufferedWrites(Collections.singleton(key));
+        long start = accessLog.start();
+        metrics.time(REDIS_LARGE_VALUE_COMMAND, BYTES_FORMAT, () -> largeValues.delete(key));
+        accessLog.log(REDIS_LARGE_VALUE_COMMAND, key, start, 0);
+        invalidateNearCache(key);
+    }
+
+    private void fallbackForDeleteLargeValueFromRedis(String key, Throwable failure) {
+        metrics.fallback(REDIS_LARGE_VALUE_COMMAND, BYTES_FORMAT, failure);
+        LOGGER.error("Redis large value Delete Failed for key:{}", key, failure);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, in.available()));
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Gets elements from redis using MGET. Keys are sent in chunks of
+     * {@link RedisClientProperties#getBatchSize()} keys, grouped by hash slot in cluster mode.
+     * A failing chunk does not fail the whole call, its keys are returned with {@code null} values.
+     *
+     * @param <T>    the type parameter
+     * @param keys   the keys
+     * @param tClass the t class (this is return type of the elements in redis against the keys)
+     * @return the elements from redis, in order of the given keys, {@code null} value for missing keys
+     */
+    @HystrixCommand(
+            commandKey = REDIS_MULTI_GET_COMMAND,
+            groupKey = REDIS_MULTI_GET_COMMAND,
+            threadPoolKey = REDIS_MULTI_GET_COMMAND,
+            fallbackMethod = "fallbackForGetElementsFromRedis"
+    )
+    public <T> Map<String, T> getElementsFromRedis(Collection<String> keys, Class<T> tClass) {
+        return metrics.time(REDIS_MULTI_GET_COMMAND, formatOf(tClass), () -> getElementsInChunks(keys, tClass));
+    }
+
+    private <T> Map<String, T> getElementsInChunks(Collection<String> keys, Class<T> tClass) {
+        Map<String, T> elements = emptyResult(keys);
+        if (slotRouter != null) {
+            List<String> distinctKeys = new ArrayList<>(elements.keySet());
+            RedisSerializer<?> serializer = tClass == String.class
+                    ? stringRedisTemplate.getValueSerializer()
+                    : redisTemplate.getValueSerializer();
+            List<byte[]> rawValues = slotRouter.get(distinctKeys);
+            putValues(elements, distinctKeys, deserializeValues(serializer, distinctKeys, rawValues, tClass), tClass);
+            return elements;
+        }
+        List<List<String>> chunks = RedisKeyPartitioner.partition(elements.keySet(), clientProperties.getBatchSize(), clusterMode);
+
+        RuntimeException lastFailure = null;
+        int failedChunks = 0;
+        for (List<String> chunk : chunks) {
+            try {
+                List<?> values;
+                if (tClass == String.class) {
+                    values = stringRedisTemplate.opsForValue().multiGet(chunk);
+                } else if (redisTemplate.getValueSerializer() instanceof TypedRedisSerializer) {
+                    byte[][] rawKeys = chunk.stream().map(this::rawKey).toArray(byte[][]::new);
+                    List<byte[]> rawValues = redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.mGet(rawKeys));
+                    values = deserializeValues(redisTemplate.getValueSerializer(), chunk, rawValues, tClass);
+                } else {
+                    values = redisTemplate.opsForValue().multiGet(chunk);
+                }
+                putValues(elements, chunk, values, tClass);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Redis MGET Failed for {} keys, first key:{}", chunk.size(), chunk.get(0), e);
+                lastFailure = e;
+                failedChunks++;
+            }
+        }
+
+        if (lastFailure != null && failedChunks == chunks.size()) {
+            throw lastFailure;
+        }
+        return elements;
+    }
+
+    /**
+     * Deserializes values read by MGET, straight into the type with a {@link TypedRedisSerializer}. Values which can
+     * not be read into the type are skipped.
+     */
+    private List<Object> deserializeValues(RedisSerializer<?> serializer, List<String> keys, List<byte[]> rawValues,
+                                           Class<?> tClass) {
+        if (rawValues == null) {
+            return null;
+        }
+        List<Object> values = new ArrayList<>(rawValues.size());
+        for (int i = 0; i < rawValues.size(); i++) {
+            byte[] rawValue = rawValues.get(i);
+            if (rawValue == null) {
+                values.add(null);
+            } else if (!(serializer instanceof TypedRedisSerializer)) {
+                values.add(serializer.deserialize(rawValue));
+            } else {
+                try {
+                    values.add(((TypedRedisSerializer) serializer).deserialize(rawValue, tClass));
+                } catch (SerializationException e) {
+                    LOGGER.error("Redis MGET skipped key:{}, could not read type:{}", keys.get(i), tClass.getName(), e);
+                    values.add(null);
+                }
+            }
+        }
+        return values;
+    }
+
+    private <T> void putValues(Map<String, T> elements, List<String> chunk, List<?> values, Class<T> tClass) {
+        if (values == null) {
+            return;
+        }
+        for (int i = 0; i < chunk.size() && i < values.size(); i++) {
+            Object value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            if (ValueTypes.isInstance(value, tClass)) {
+                elements.put(chunk.get(i), ValueTypes.cast(value, tClass));
+            } else {
+                LOGGER.error("Redis MGET skipped key:{}, expected type:{}, found:{}",
+                        chunk.get(i), tClass.getName(), value.getClass().getName());
+            }
+        }
+    }
+
+    private <T> Map<String, T> fallbackForGetElementsFromRedis(Collection<String> keys, Class<T> tClass, Throwable failure) {
+        metrics.fallback(REDIS_MULTI_GET_COMMAND, formatOf(tClass), failure);
+        LOGGER.error("Redis MGET Failed for {} keys, type:{}, returning NULL values", keys.size(), tClass.getName(), failure);
+        return emptyResult(keys);
+    }
+
+    private static <T> Map<String, T> emptyResult(Collection<String> keys) {
+        Map<String, T> elements = new LinkedHashMap<>();
+        new LinkedHashSet<>(keys).forEach(key -> elements.put(key, null));
+        return elements;
+    }
+
+    /**
+     * Sets elements in redis using MSET. Keys are sent in chunks of
+     * {@link RedisClientProperties#getBatchSize()} keys, grouped by hash slot in cluster mode. With large values
+     * enabled, every chunk is set by {@link RedisLargeValues#replace(List, List, int)} instead.
+     *
+     * @param <T>      the type parameter
+     * @param elements the elements against their keys
+     */
+    @HystrixCommand(
+            commandKey = REDIS_MULTI_SET_COMMAND,
+            groupKey = REDIS_MULTI_SET_COMMAND,
+            threadPoolKey = REDIS_MULTI_SET_COMMAND,
+            fallbackMethod = "fallbackForSetElementsInRedis"
+    )
+    public <T> void setElementsInRedis(Map<String, T> elements) {
+        discardBufferedWrites(elements.keySet());
+        if (largeValues.isEnabled()) {
+            metrics.timeRunnable(REDIS_MULTI_SET_COMMAND, valueFormat, () -> replaceElementsInChunks(elements, 0));
+            if (nearCache != null) {
+                nearCache.invalidate(elements.keySet());
+            }
+            return;
+        }
+        if (slotRouter != null) {
+            metrics.timeRunnable(REDIS_MULTI_SET_COMMAND, valueFormat, () -> setElementsRouted(elements, 0));
+            if (nearCache != null) {
+                nearCache.invalidate(elements.keySet());
+            }
+            return;
+        }
+        metrics.timeRunnable(REDIS_MULTI_SET_COMMAND, valueFormat, () -> setElementsInChunks(elements, chunk -> {
+            Map<String, String> strings = new LinkedHashMap<>();
+            Map<String, Object> objects = new LinkedHashMap<>();
+            chunk.forEach(key -> {
+                T element = elements.get(key);
+                if (element instanceof String) {
+                    strings.put(key, String.valueOf(element));
+                } else {
+                    objects.put(key, element);
+                }
+            });
+            if (!strings.isEmpty()) {
+                stringRedisTemplate.opsForValue().multiSet(strings);
+            }
+            if (!objects.isEmpty()) {
+                redisTemplate.opsForValue().multiSet(objects);
+            }
+        }));
+        if (nearCache != null) {
+            nearCache.invalidate(elements.keySet());
+        }
+    }
+
+    private <T> void fallbackForSetElementsInRedis(Map<String, T> elements, Throwable failure) {
+        metrics.fallback(REDIS_MULTI_SET_COMMAND, valueFormat, failure);
+        LOGGER.error("Redis MSET Failed for {} keys:{}", elements.size(), elements.keySet(), failure);
+    }
+
+    /**
+     * Sets elements in redis with expiry. MSET has no expiry, so every chunk is written as pipelined SETEX commands,
+     * in cluster mode (where jedis does not support pipelining) the SETEX commands share one cluster connection.
+     * With large values enabled, every chunk is set by {@link RedisLargeValues#replace(List, List, int)} instead.
+     *
+     * @param <T>             the type parameter
+     * @param elements        the elements against their keys
+     * @param expiryInSeconds the expiry in seconds
+     */
+    @HystrixCommand(
+            commandKey = REDIS_MULTI_SET_COMMAND,
+            groupKey = REDIS_MULTI_SET_COMMAND,
+            threadPoolKey = REDIS_MULTI_SET_COMMAND,
+            fallbackMethod = "fallbackForSetElementsInRedisWithExpiry"
+    )
+    public <T> void setElementsInRedisWithExpiry(Map<String, T> elements, int expiryInSeconds) {
+        discardBufferedWrites(elements.keySet());
+        if (largeValues.isEnabled()) {
+            metrics.timeRunnable(REDIS_MULTI_SET_COMMAND, valueFormat, () -> replaceElementsInChunks(elements, expiryInSeconds));
+            if (nearCache != null) {
+                nearCache.invalidate(elements.keySet());
+            }
+            return;
+        }
+        if (slotRouter != null) {
+            metrics.timeRunnable(REDIS_MULTI_SET_COMMAND, valueFormat, () -> setElementsRouted(elements, expiryInSeconds));
+            if (nearCache != null) {
+                nearCache.invalidate(elements.keySet());
+            }
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> stringValueSerializer = (RedisSerializer<Object>) stringRedisTemplate.getValueSerializer();
+
+        metrics.timeRunnable(REDIS_MULTI_SET_COMMAND, valueFormat, () -> setElementsInChunks(elements, chunk -> {
+            RedisCallback<Object> setEx = connection -> {
+                for (String key : chunk) {
+                    T element = elements.get(key);
+                    byte[] rawValue = element instanceof String
+                            ? stringValueSerializer.serialize(element)
+                            : valueSerializer.serialize(element);
+                    connection.setEx(keySerializer.serialize(key), expiryInSeconds, rawValue);
+                }
+                return null;
+            };
+            if (clusterMode) {
+                redisTemplate.execute(setEx);
+            } else {
+                redisTemplate.executePipelined(setEx);
+            }
+        }));
+        if (nearCache != null) {
+            nearCache.invalidate(elements.keySet());
+        }
+    }
+
+    private <T> void fallbackForSetElementsInRedisWithExpiry(Map<String, T> elements, int expiryInSeconds, Throwable failure) {
+        metrics.fallback(REDIS_MULTI_SET_COMMAND, valueFormat, failure);
+        LOGGER.error("Redis MSET Failed for {} keys:{}, expiry(second):{}",
+                elements.size(), elements.keySet(), expiryInSeconds, failure);
+    }
+
+    private <T> void setElementsRouted(Map<String, T> elements, int expiryInSeconds) {
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> stringValueSerializer = (RedisSerializer<Object>) stringRedisTemplate.getValueSerializer();
+
+        List<String> keys = new ArrayList<>(elements.size());
+        List<byte[]> rawValues = new ArrayList<>(elements.size());
+        elements.forEach((key, element) -> {
+            keys.add(key);
+            rawValues.add(element instanceof String
+                    ? stringValueSerializer.serialize(element)
+                    : valueSerializer.serialize(element));
+        });
+        slotRouter.set(keys, rawValues, expiryInSeconds);
+    }
+
+    private <T> void replaceElementsInChunks(Map<String, T> elements, int expiryInSeconds) {
+        setElementsInChunks(elements, chunk -> {
+            List<byte[]> rawValues = new ArrayList<>(chunk.size());
+            chunk.forEach(key -> rawValues.add(serializeValue(elements.get(key))));
+            largeValues.replace(chunk, rawValues, expiryInSeconds);
+        });
+    }
+
+    private <T> void setElementsInChunks(Map<String, T> elements, Consumer<List<String>> writer) {
+        List<List<String>> chunks = RedisKeyPartitioner.partition(elements.keySet(), clientProperties.getBatchSize(), clusterMode);
+
+        RuntimeException lastFailure = null;
+        int failedChunks = 0;
+        for (List<String> chunk : chunks) {
+            try {
+                writer.accept(chunk);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Redis MSET Failed for {} keys, first key:{}", chunk.size(), chunk.get(0), e);
+                lastFailure = e;
+                failedChunks++;
+            }
+        }
+
+        if (lastFailure != null && failedChunks == chunks.size()) {
+            throw lastFailure;
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixThreadPoolKey;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The type Redis command.
+ * Programmatic {@link HystrixCommand} for redis operations which are not invoked through the spring proxy of
+ * {@link RedisClient} (e.g. builders handed out by the client), so the javanica annotations do not apply to them.
+ * Command, group and thread pool keys are the same, as for the annotated commands.
+ *
+ * @param <R> the type parameter
+ */
+class RedisCommand<R> extends HystrixCommand<R> {
+
+    private final Supplier<R> run;
+
+    private final Function<Throwable, R> fallback;
+
+    /**
+     * Instantiates a new Redis command.
+     *
+     * @param commandKey the command key
+     * @param run        the redis operation
+     * @param fallback   the fallback, given the failure of the redis operation
+     */
+    RedisCommand(String commandKey, Supplier<R> run, Function<Throwable, R> fallback) {
+        this(commandKey, HystrixCommandProperties.Setter(), run, fallback);
+    }
+
+    /**
+     * Instantiates a new Redis command with default command properties, for command keys made up at runtime which
+     * hystrix properties can not be set for up front. Hystrix properties of the command key still take precedence.
+     *
+     * @param commandKey        the command key
+     * @param commandProperties the default command properties
+     * @param run               the redis operation
+     * @param fallback          the fallback, given the failure of the redis operation, {@code null} for none
+     */
+    RedisCommand(String commandKey, HystrixCommandProperties.Setter commandProperties,
+                 Supplier<R> run, Function<Throwable, R> fallback) {
+        super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey(commandKey))
+                .andCommandKey(HystrixCommandKey.Factory.asKey(commandKey))
+                .andThreadPoolKey(HystrixThreadPoolKey.Factory.asKey(commandKey))
+                .andCommandPropertiesDefaults(commandProperties));
+        this.run = run;
+        this.fallback = fallback;
+    }
+
+    @Override
+    protected R run() {
+        return run.get();
+    }
+
+    @Override
+    protected R getFallback() {
+        if (fallback == null) {
+            return super.getFallback();
+        }
+        return fallback.apply(getExecutionException());
+    }
+}
@@ -0,0 +1,318 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.helper.ValueTypes;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.BeansException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * The type Redis hashes.
+ * Reads and writes many fields of a hash in one command (HGETALL, HMGET, HMSET), or streams them with HSCAN.
+ * Fields are read as raw bytes and deserialized straight into the typed map, or the properties of a POJO, returned
+ * to the caller, with the hash key and hash value serializers of the redis template.
+ * <p>
+ * POJOs are stored as one hash field per readable bean property, so single properties can still be read and written
+ * with {@link RedisClient#getFromRedisUsingHashOps(String, Object, Class)} and
+ * {@link RedisClient#putInRedisUsingHashOps(String, Object, Object)}.
+ */
+class RedisHashes {
+
+    private static final Logger LOGGER = LogManager.getLogger(RedisHashes.class.getName());
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final boolean clusterMode;
+
+    private final int scanCount;
+
+    /**
+     * Instantiates a new Redis hashes.
+     *
+     * @param redisTemplate the redis template
+     * @param clusterMode   whether the connection factory is cluster aware
+     * @param scanCount     the COUNT hint of HSCAN
+     */
+    RedisHashes(RedisTemplate<String, Object> redisTemplate, boolean clusterMode, int scanCount) {
+        this.redisTemplate = redisTemplate;
+        this.clusterMode = clusterMode;
+        this.scanCount = scanCount;
+    }
+
+    /**
+     * Gets all fields of a hash with HGETALL.
+     *
+     * @param <T>    the type parameter
+     * @param key    the key
+     * @param tClass the type of the hash values
+     * @return the hash values against their hash keys, empty if the hash does not exist
+     */
+    <T> Map<String, T> getAll(String key, Class<T> tClass) {
+        Map<byte[], byte[]> rawHash = redisTemplate.execute((RedisCallback<Map<byte[], byte[]>>) connection ->
+                connection.hGetAll(rawKey(key)));
+        Map<String, T> hash = new LinkedHashMap<>();
+        if (rawHash != null) {
+            rawHash.forEach((rawHashKey, rawHashValue) -> putValue(hash, key, hashKey(rawHashKey), rawHashValue, tClass));
+        }
+        return hash;
+    }
+
+    /**
+     * Gets fields of a hash with HMGET.
+     *
+     * @param <T>      the type parameter
+     * @param key      the key
+     * @param hashKeys the hash keys
+     * @param tClass   the type of the hash values
+     * @return the hash values against their hash keys, in order of the given hash keys, {@code null} value for missing
+     * fields
+     */
+    <T> Map<String, T> multiGet(String key, Collection<String> hashKeys, Class<T> tClass) {
+        Map<String, T> hash = emptyHash(hashKeys);
+        if (hash.isEmpty()) {
+            return hash;
+        }
+        RedisSerializer<String> hashKeySerializer = hashKeySerializer();
+        byte[][] rawHashKeys = hash.keySet().stream().map(hashKeySerializer::serialize).toArray(byte[][]::new);
+        List<byte[]> rawHashValues = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.hMGet(rawKey(key), rawHashKeys));
+        if (rawHashValues != null) {
+            int i = 0;
+            for (String hashKey : hash.keySet()) {
+                if (i < rawHashValues.size()) {
+                    putValue(hash, key, hashKey, rawHashValues.get(i++), tClass);
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Puts fields in a hash with HMSET, followed by EXPIRE of the hash in the same round-trip when an expiry is given.
+     *
+     * @param key             the key
+     * @param hashValues      the hash values against their hash keys, {@code null} values are skipped
+     * @param expiryInSeconds the expiry of the whole hash in seconds, none if not positive
+     */
+    void putAll(String key, Map<String, ?> hashValues, int expiryInSeconds) {
+        RedisSerializer<String> hashKeySerializer = hashKeySerializer();
+        RedisSerializer<Object> hashValueSerializer = hashValueSerializer();
+        Map<byte[], byte[]> rawHash = new LinkedHashMap<>();
+        hashValues.forEach((hashKey, hashValue) -> {
+            if (hashKey != null && hashValue != null) {
+                rawHash.put(hashKeySerializer.serialize(hashKey), hashValueSerializer.serialize(hashValue));
+            }
+        });
+        putRaw(key, rawHash, expiryInSeconds);
+    }
+
+    /**
+     * Streams the fields of a hash with HSCAN, so hashes with millions of fields are never held in heap at once.
+     * HSCAN may return a field more than once, the consumer has to tolerate duplicates.
+     *
+     * @param <T>      the type parameter
+     * @param key      the key
+     * @param pattern  the pattern the hash keys have to match, all fields if {@code null}
+     * @param limit    the max number of fields handed to the consumer
+     * @param tClass   the type of the hash values
+     * @param consumer the consumer of the hash keys and values, returning {@code false} stops the scan
+     * @return the number of fields handed to the consumer
+     */
+    <T> long scan(String key, String pattern, long limit, Class<T> tClass, BiPredicate<String, T> consumer) {
+        if (limit <= 0) {
+            return 0;
+        }
+        ScanOptions.ScanOptionsBuilder options = ScanOptions.scanOptions().count(scanCount);
+        if (pattern != null) {
+            options.match(pattern);
+        }
+        ScanOptions scanOptions = options.build();
+        RedisSerializer<Object> hashValueSerializer = hashValueSerializer();
+
+        long delivered = 0;
+        Cursor<Map.Entry<byte[], byte[]>> cursor = redisTemplate.executeWithStickyConnection(connection ->
+                connection.hScan(rawKey(key), scanOptions));
+        try {
+            while (delivered < limit && cursor.hasNext()) {
+                Map.Entry<byte[], byte[]> field = cursor.next();
+                String hashKey = hashKey(field.getKey());
+                Object hashValue = hashValueSerializer.deserialize(field.getValue());
+                if (!ValueTypes.isInstance(hashValue, tClass)) {
+                    skip(key, hashKey, hashValue, tClass);
+                    continue;
+                }
+                if (!consumer.test(hashKey, ValueTypes.cast(hashValue, tClass))) {
+                    break;
+                }
+                delivered++;
+            }
+        } finally {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                throw new RedisSystemException("Could not close hscan cursor", e);
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Gets a hash as a POJO with HGETALL, every field is set on the bean property of the same name.
+     * Fields without a writable property are ignored.
+     *
+     * @param <T>   the type parameter
+     * @param key    the key
+     * @param tClass the type of the POJO, with a no-arg constructor
+     * @return the POJO, {@code null} if the hash does not exist
+     */
+    <T> T getAsObject(String key, Class<T> tClass) {
+        Map<byte[], byte[]> rawHash = redisTemplate.execute((RedisCallback<Map<byte[], byte[]>>) connection ->
+                connection.hGetAll(rawKey(key)));
+        if (rawHash == null || rawHash.isEmpty()) {
+            return null;
+        }
+        RedisSerializer<Object> hashValueSerializer = hashValueSerializer();
+        T object = BeanUtils.instantiateClass(tClass);
+        BeanWrapper bean = new BeanWrapperImpl(object);
+        rawHash.forEach((rawHashKey, rawHashValue) -> {
+            String property = hashKey(rawHashKey);
+            if (bean.isWritableProperty(property)) {
+                try {
+                    bean.setPropertyValue(property, hashValueSerializer.deserialize(rawHashValue));
+                } catch (BeansException e) {
+                    LOGGER.error("Redis HGETALL skipped key:{}, hashKey:{}, not assignable to property of type:{}",
+                            key, property, tClass.getName(), e);
+                }
+            }
+        });
+        return object;
+    }
+
+    /**
+     * Puts a POJO in a hash with HMSET, one field per readable bean property. {@code null} properties are skipped,
+     * they do not remove a field already in the hash.
+     *
+     * @param key             the key
+     * @param object          the POJO
+     * @param expiryInSeconds the expiry of the whole hash in seconds, none if not positive
+     */
+    void putObject(String key, Object object, int expiryInSeconds) {
+        RedisSerializer<String> hashKeySerializer = hashKeySerializer();
+        RedisSerializer<Object> hashValueSerializer = hashValueSerializer();
+        BeanWrapper bean = new BeanWrapperImpl(object);
+        Map<byte[], byte[]> rawHash = new LinkedHashMap<>();
+        for (String propertyName : propertyNames(bean)) {
+            Object value = bean.getPropertyValue(propertyName);
+            if (value != null) {
+                rawHash.put(hashKeySerializer.serialize(propertyName), hashValueSerializer.serialize(value));
+            }
+        }
+        putRaw(key, rawHash, expiryInSeconds);
+    }
+
+    /**
+     * Names of the readable bean properties of a POJO, the hash keys {@link #putObject(String, Object, int)} puts it
+     * as.
+     *
+     * @param object the POJO
+     * @return the property names
+     */
+    static List<String> propertyNames(Object object) {
+        return propertyNames(new BeanWrapperImpl(object));
+    }
+
+    private static List<String> propertyNames(BeanWrapper bean) {
+        List<String> names = new ArrayList<>();
+        for (PropertyDescriptor property : bean.getPropertyDescriptors()) {
+            if (!"class".equals(property.getName()) && bean.isReadableProperty(property.getName())) {
+                names.add(property.getName());
+            }
+        }
+        return names;
+    }
+
+    private void putRaw(String key, Map<byte[], byte[]> rawHash, int expiryInSeconds) {
+        if (rawHash.isEmpty()) {
+            return;
+        }
+        byte[] rawKey = rawKey(key);
+        RedisCallback<Object> hmSet = connection -> {
+            connection.hMSet(rawKey, rawHash);
+            if (expiryInSeconds > 0) {
+                connection.expire(rawKey, expiryInSeconds);
+            }
+            return null;
+        };
+        if (clusterMode || expiryInSeconds <= 0) {
+            redisTemplate.execute(hmSet);
+        } else {
+            redisTemplate.executePipelined(hmSet);
+        }
+    }
+
+    private <T> void putValue(Map<String, T> hash, String key, String hashKey, byte[] rawHashValue, Class<T> tClass) {
+        if (rawHashValue == null) {
+            return;
+        }
+        Object hashValue = hashValueSerializer().deserialize(rawHashValue);
+        if (ValueTypes.isInstance(hashValue, tClass)) {
+            hash.put(hashKey, ValueTypes.cast(hashValue, tClass));
+        } else {
+            skip(key, hashKey, hashValue, tClass);
+        }
+    }
+
+    private static void skip(String key, String hashKey, Object hashValue, Class<?> tClass) {
+        if (hashValue != null) {
+            LOGGER.error("Redis hash read skipped key:{}, hashKey:{}, expected type:{}, found:{}",
+                    key, hashKey, tClass.getName(), hashValue.getClass().getName());
+        }
+    }
+
+    private static <T> Map<String, T> emptyHash(Collection<String> hashKeys) {
+        Map<String, T> hash = new LinkedHashMap<>();
+        new LinkedHashSet<>(hashKeys).forEach(hashKey -> hash.put(hashKey, null));
+        return hash;
+    }
+
+    private byte[] rawKey(String key) {
+        @SuppressWarnings("unchecked")
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        return keySerializer.serialize(key);
+    }
+
+    private String hashKey(byte[] rawHashKey) {
+        return hashKeySerializer().deserialize(rawHashKey);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<String> hashKeySerializer() {
+        return (RedisSerializer<String>) redisTemplate.getHashKeySerializer();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> hashValueSerializer() {
+        return (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+    }
+}
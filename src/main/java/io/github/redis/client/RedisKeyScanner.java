@@ -0,0 +1,301 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * The type Redis key scanner.
+ * Walks the keyspace with SCAN instead of KEYS, so redis is never blocked for the whole walk, and hands keys to a
+ * consumer as they arrive instead of building the whole result in heap.
+ * <p>
+ * In cluster mode every master node is scanned on its own, up to {@link RedisClientProperties.Scan#getParallelism()}
+ * nodes in parallel. Keys of all nodes are funnelled through a bounded queue, so the consumer is always called from
+ * the scanning thread, one key at a time.
+ */
+class RedisKeyScanner {
+
+    private static final String END_OF_NODE = new String("END_OF_NODE");
+
+    private static final byte[] START_CURSOR = ScanParams.SCAN_POINTER_START_BINARY;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final int count;
+
+    private final int parallelism;
+
+    private volatile ExecutorService executor;
+
+    /**
+     * Instantiates a new Redis key scanner.
+     *
+     * @param redisTemplate  the redis template
+     * @param scanProperties the scan properties
+     */
+    RedisKeyScanner(RedisTemplate<String, Object> redisTemplate, RedisClientProperties.Scan scanProperties) {
+        this.redisTemplate = redisTemplate;
+        this.count = scanProperties.getCount();
+        this.parallelism = Math.max(1, scanProperties.getParallelism());
+    }
+
+    /**
+     * Scans keys matching the pattern.
+     *
+     * @param pattern     the pattern
+     * @param limit       the max number of keys handed to the consumer
+     * @param clusterMode whether to scan every master node of the cluster
+     * @param consumer    the consumer of the keys, returning {@code false} stops the scan
+     * @return the number of keys handed to the consumer
+     */
+    long scan(String pattern, long limit, boolean clusterMode, Predicate<String> consumer) {
+        if (limit <= 0) {
+            return 0;
+        }
+        if (clusterMode) {
+            Long scanned = redisTemplate.execute((RedisCallback<Long>) connection ->
+                    scanCluster((RedisClusterConnection) connection, pattern, limit, consumer));
+            return scanned == null ? 0 : scanned;
+        }
+        return scanStandalone(pattern, limit, consumer);
+    }
+
+    /**
+     * Scans keys matching the pattern on the node of a jedis connection, e.g. a replica.
+     *
+     * @param jedis    the jedis connection
+     * @param pattern  the pattern
+     * @param limit    the max number of keys handed to the consumer
+     * @param consumer the consumer of the keys, returning {@code false} stops the scan
+     * @return the number of keys handed to the consumer
+     */
+    long scan(Jedis jedis, String pattern, long limit, Predicate<String> consumer) {
+        ScanParams params = new ScanParams().match(pattern).count(count);
+        RedisSerializer<?> keySerializer = redisTemplate.getKeySerializer();
+
+        long delivered = 0;
+        byte[] cursor = START_CURSOR;
+        do {
+            ScanResult<byte[]> page = jedis.scan(cursor, params);
+            for (byte[] rawKey : page.getResult()) {
+                if (delivered >= limit || !consumer.test((String) keySerializer.deserialize(rawKey))) {
+                    return delivered;
+                }
+                delivered++;
+            }
+            cursor = page.getCursorAsBytes();
+        } while (!isFinished(cursor));
+        return delivered;
+    }
+
+    private long scanStandalone(String pattern, long limit, Predicate<String> consumer) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(count).build();
+        RedisSerializer<?> keySerializer = redisTemplate.getKeySerializer();
+
+        long delivered = 0;
+        Cursor<byte[]> cursor = redisTemplate.executeWithStickyConnection(connection -> connection.scan(options));
+        try {
+            while (delivered < limit && cursor.hasNext()) {
+                if (!consumer.test((String) keySerializer.deserialize(cursor.next()))) {
+                    break;
+                }
+                delivered++;
+            }
+        } finally {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                throw new RedisSystemException("Could not close scan cursor", e);
+            }
+        }
+        return delivered;
+    }
+
+    private long scanCluster(RedisClusterConnection connection, String pattern, long limit, Predicate<String> consumer) {
+        List<NodeScan> nodeScans = new ArrayList<>();
+        for (RedisClusterNode master : connection.clusterGetMasterSlaveMap().keySet()) {
+            nodeScans.add(nodeScan(connection.getNativeConnection(), master, pattern));
+        }
+
+        BlockingQueue<String> keys = new ArrayBlockingQueue<>(Math.max(count, 16));
+        AtomicBoolean stopped = new AtomicBoolean();
+        List<Future<?>> futures = new ArrayList<>(nodeScans.size());
+        for (NodeScan nodeScan : nodeScans) {
+            futures.add(executor().submit(() -> {
+                try {
+                    scanNode(nodeScan, keys, stopped);
+                } finally {
+                    offer(keys, END_OF_NODE, stopped, true);
+                }
+                return null;
+            }));
+        }
+
+        long delivered = 0;
+        int runningNodes = nodeScans.size();
+        try {
+            while (runningNodes > 0 && delivered < limit) {
+                String key = keys.take();
+                if (key == END_OF_NODE) {
+                    runningNodes--;
+                } else if (consumer.test(key)) {
+                    delivered++;
+                } else {
+                    break;
+                }
+            }
+            if (runningNodes > 0) {
+                // stopped early on purpose, failures of nodes still scanning do not matter
+                futures.forEach(future -> future.cancel(false));
+                return delivered;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisSystemException("Interrupted while scanning cluster nodes", e);
+        } finally {
+            stopped.set(true);
+            keys.clear();
+        }
+
+        rethrowNodeFailure(futures);
+        return delivered;
+    }
+
+    private void scanNode(NodeScan nodeScan, BlockingQueue<String> keys, AtomicBoolean stopped) throws Exception {
+        byte[] cursor = START_CURSOR;
+        do {
+            ScanResult<byte[]> page = nodeScan.scan(cursor);
+            for (byte[] rawKey : page.getResult()) {
+                if (!offer(keys, (String) redisTemplate.getKeySerializer().deserialize(rawKey), stopped, false)) {
+                    return;
+                }
+            }
+            cursor = page.getCursorAsBytes();
+        } while (!stopped.get() && !isFinished(cursor));
+    }
+
+    private static boolean offer(BlockingQueue<String> keys, String key, AtomicBoolean stopped, boolean always)
+            throws InterruptedException {
+        while (always || !stopped.get()) {
+            if (keys.offer(key, 100, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            if (always && stopped.get()) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static void rethrowNodeFailure(List<Future<?>> futures) {
+        // all nodes have finished, so none of these block
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RedisSystemException("Interrupted while scanning cluster nodes", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException
+                        ? (RuntimeException) cause
+                        : new RedisSystemException("Scan of cluster node failed", cause);
+            }
+        }
+    }
+
+    private static boolean isFinished(byte[] cursor) {
+        return cursor.length == 1 && cursor[0] == '0';
+    }
+
+    private NodeScan nodeScan(Object nativeConnection, RedisClusterNode node, String pattern) {
+        if (nativeConnection instanceof JedisCluster) {
+            JedisPool pool = ((JedisCluster) nativeConnection).getClusterNodes().get(node.getHost() + ":" + node.getPort());
+            if (pool == null) {
+                throw new InvalidDataAccessApiUsageException("No connection pool for cluster node " + node);
+            }
+            ScanParams params = new ScanParams().match(pattern).count(count);
+            return cursor -> {
+                try (Jedis jedis = pool.getResource()) {
+                    return jedis.scan(cursor, params);
+                }
+            };
+        }
+        if (nativeConnection instanceof RedisAdvancedClusterAsyncCommands) {
+            @SuppressWarnings("unchecked")
+            RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands =
+                    (RedisAdvancedClusterAsyncCommands<byte[], byte[]>) nativeConnection;
+            ScanArgs args = ScanArgs.Builder.matches(pattern).limit(count);
+            return cursor -> {
+                KeyScanCursor<byte[]> page = commands.getConnection(node.getHost(), node.getPort())
+                        .scan(ScanCursor.of(new String(cursor, StandardCharsets.UTF_8)), args)
+                        .get();
+                byte[] nextCursor = page.isFinished() ? START_CURSOR : page.getCursor().getBytes(StandardCharsets.UTF_8);
+                return new ScanResult<>(nextCursor, page.getKeys());
+            };
+        }
+        throw new InvalidDataAccessApiUsageException("Scan is not supported for cluster connection "
+                + (nativeConnection == null ? null : nativeConnection.getClass().getName()));
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    ThreadFactory threadFactory = runnable -> {
+                        Thread thread = new Thread(runnable, "redis-client-scan-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    };
+                    executor = Executors.newFixedThreadPool(parallelism, threadFactory);
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * One SCAN call against a single cluster node.
+     */
+    @FunctionalInterface
+    private interface NodeScan {
+
+        ScanResult<byte[]> scan(byte[] cursor) throws Exception;
+    }
+}
@@ -0,0 +1,738 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.metrics.RedisClientMetrics;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static io.github.redis.helper.Constants.REDIS_LARGE_VALUE_COMMAND;
+
+/**
+ * The type Redis large values.
+ * Stores values above {@link RedisClientProperties.LargeValue#getThreshold()} bytes in two tiers, so no single redis
+ * command moves the whole value: the value is cut into chunks of {@link RedisClientProperties.LargeValue#getChunkSize()}
+ * bytes, each compressed on its own with LZ4, and written with SETRANGE one after the other into a data key, in
+ * pipelines of {@link RedisClientProperties.LargeValue#getChunksPerBatch()} chunks. The key itself holds a small
+ * manifest: the total size, the chunk size, the data key and the stored length of every chunk. Smaller values are
+ * stored as is under the key.
+ * <p>
+ * Every write goes to a new data key, and the manifest is swapped in with GETSET once all chunks are written, so
+ * readers never see a half written value. The data key of the replaced manifest is deleted then, a read still
+ * streaming it fails with an {@link IOException}. Data keys expire an hour after a write started until the
+ * manifest is written, so writers which fail leave no garbage, and then take the expiry of the key.
+ * <p>
+ * With {@link RedisClientProperties.LargeValue#isEnabled()}, the plain sets and deletes of {@link RedisClient},
+ * {@link RedisPipeline} and the write behind buffer run {@link #REPLACE_SCRIPT} in place of SET, SETEX, MSET and DEL,
+ * which deletes or overwrites the keys and returns the data keys of the manifests they held, in the same atomic
+ * step. The data keys are then deleted. Without it, plain writes are single commands, and the chunks of a large
+ * value they overwrite or delete are left in redis, for good if the value had no expiry.
+ * <p>
+ * Reads stream the chunks back, a batch of chunks per round-trip, decompressed into direct buffers pooled across
+ * reads. Partial reads fetch the stored bytes of the chunks covering the range only, with one GETRANGE.
+ */
+class RedisLargeValues {
+
+    private static final Logger LOGGER = LogManager.getLogger(RedisLargeValues.class.getName());
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    /**
+     * First bytes of a manifest, which no serialized value starts with.
+     */
+    private static final byte[] MANIFEST_MAGIC = {0x1F, 'L', 'V', 1};
+
+    /**
+     * Bytes read with the first GETRANGE of a read, enough for the manifest of values of a few hundred chunks.
+     */
+    private static final int MANIFEST_PROBE_SIZE = 4096;
+
+    /**
+     * Deletes the keys (the second argument is -1), or sets them to the values following the arguments, with the
+     * expiry in seconds of the second argument, 0 for none. Returns the number of keys deleted, followed by the data
+     * key of every manifest (its first bytes are the first argument) overwritten or deleted.
+     */
+    static final RedisScript<List> REPLACE_SCRIPT = new DefaultRedisScript<>(
+            "local result = {0} "
+                    + "for i, key in ipairs(KEYS) do "
+                    + "if redis.call('type', key).ok == 'string' then "
+                    + "local header = redis.call('getrange', key, 0, 21) "
+                    + "if string.len(header) == 22 and string.sub(header, 1, 4) == ARGV[1] then "
+                    + "local length = string.byte(header, 21) * 256 + string.byte(header, 22) "
+                    + "table.insert(result, redis.call('getrange', key, 22, 21 + length)) end end "
+                    + "if ARGV[2] == '-1' then result[1] = result[1] + redis.call('del', key) "
+                    + "elseif ARGV[2] == '0' then redis.call('set', key, ARGV[i + 2]) "
+                    + "else redis.call('set', key, ARGV[i + 2], 'EX', ARGV[2]) end end "
+                    + "return result", List.class);
+
+    private static final String DELETE_EXPIRY = "-1";
+
+    private static final long WRITE_EXPIRY_SECONDS = 3600;
+
+    private static final String DATA_KEY_INFIX = ":data:";
+
+    private static final String BYTES_FORMAT = "bytes";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final boolean clusterMode;
+
+    private final RedisClientProperties.LargeValue properties;
+
+    private final LZ4Compressor compressor;
+
+    private final LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+
+    private final Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooledBuffers = new AtomicInteger();
+
+    private volatile RedisClientMetrics metrics = RedisClientMetrics.noop();
+
+    private volatile RedisScripts scripts;
+
+    private final AtomicBoolean warnedDisabled = new AtomicBoolean();
+
+    /**
+     * Instantiates new Redis large values.
+     *
+     * @param redisTemplate the redis template
+     * @param clusterMode   whether the connection is a cluster connection, which can not be pipelined
+     * @param properties    the large value properties
+     */
+    RedisLargeValues(RedisTemplate<String, Object> redisTemplate, boolean clusterMode,
+                     RedisClientProperties.LargeValue properties) {
+        this.redisTemplate = redisTemplate;
+        this.clusterMode = clusterMode;
+        this.properties = properties;
+        this.compressor = properties.getCompression() == RedisClientProperties.Compression.LZ4 ? LZ4.fastCompressor() : null;
+    }
+
+    /**
+     * Sets the metrics the chunk reads of streams are timed with.
+     *
+     * @param metrics the metrics
+     */
+    void setMetrics(RedisClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the scripts {@link #REPLACE_SCRIPT} is run with.
+     *
+     * @param scripts the scripts
+     */
+    void setScripts(RedisScripts scripts) {
+        this.scripts = scripts;
+    }
+
+    /**
+     * Whether keys may hold large values, so plain sets and deletes go through {@link #replace(List, List, int)}.
+     *
+     * @return whether large values are enabled
+     */
+    boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Writes the value, in chunks when larger than the threshold.
+     *
+     * @param key             the key
+     * @param value           the value, read to its end
+     * @param expiryInSeconds the expiry in seconds, 0 for none
+     * @return the size of the value in bytes
+     * @throws IOException if the value can not be read
+     */
+    long write(String key, InputStream value, int expiryInSeconds) throws IOException {
+        if (!isEnabled() && warnedDisabled.compareAndSet(false, true)) {
+            LOGGER.warn("Redis large value written with spring.redis.client.large-value.enabled=false, its chunks are "
+                    + "left in redis when the key is overwritten or deleted other than by deleteLargeValueFromRedis");
+        }
+        byte[] rawKey = rawKey(key);
+        int threshold = Math.max(0, properties.getThreshold());
+        byte[] head = new byte[threshold + 1];
+        int headLength = readFully(value, head, head.length);
+        if (headLength <= threshold && !isManifest(head, headLength)) {
+            byte[] small = Arrays.copyOf(head, headLength);
+            deleteData(swap(rawKey, small, null, expiryInSeconds));
+            return headLength;
+        }
+
+        InputStream chunks = new SequenceInputStream(new ByteArrayInputStream(head, 0, headLength), value);
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        int chunksPerBatch = Math.max(1, properties.getChunksPerBatch());
+        byte[] dataKey = rawKey(key + DATA_KEY_INFIX + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        byte[] chunk = new byte[chunkSize];
+        byte[] compressed = compressor != null ? new byte[compressor.maxCompressedLength(chunkSize)] : null;
+        List<Integer> storedLengths = new ArrayList<>();
+        List<byte[]> batch = new ArrayList<>(chunksPerBatch);
+        long size = 0;
+        long offset = 0;
+        long batchOffset = 0;
+        int length;
+        while ((length = readFully(chunks, chunk, chunkSize)) > 0) {
+            int compressedLength = compressor != null
+                    ? compressor.compress(chunk, 0, length, compressed, 0, compressed.length)
+                    : length;
+            byte[] stored = compressedLength < length
+                    ? Arrays.copyOf(compressed, compressedLength)
+                    : Arrays.copyOf(chunk, length);
+            storedLengths.add(compressedLength < length ? compressedLength : -length);
+            batch.add(stored);
+            size += length;
+            offset += stored.length;
+            if (batch.size() == chunksPerBatch) {
+                writeChunks(dataKey, batch, batchOffset, batchOffset == 0);
+                batch.clear();
+                batchOffset = offset;
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeChunks(dataKey, batch, batchOffset, batchOffset == 0);
+        }
+
+        Manifest manifest = new Manifest(size, chunkSize, dataKey, storedLengths);
+        deleteData(swap(rawKey, manifest.encode(), dataKey, expiryInSeconds));
+        return size;
+    }
+
+    /**
+     * Opens a stream of the value.
+     *
+     * @param key the key
+     * @return the stream of the value, {@code null} if the key does not exist
+     */
+    InputStream open(String key) {
+        byte[] rawKey = rawKey(key);
+        byte[] stored = readManifestOrValue(rawKey);
+        if (stored == null) {
+            return null;
+        }
+        if (!isManifest(stored, stored.length)) {
+            return new ByteArrayInputStream(stored);
+        }
+        return new ChunkInputStream(key, Manifest.decode(stored));
+    }
+
+    /**
+     * Reads a range of the value.
+     *
+     * @param key    the key
+     * @param offset the offset of the first byte
+     * @param length the max number of bytes
+     * @return the bytes, fewer than the length at the end of the value, {@code null} if the key does not exist
+     * @throws IOException if the value changed while read
+     */
+    byte[] read(String key, long offset, int length) throws IOException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Offset and length must not be negative, got " + offset + ", " + length);
+        }
+        byte[] rawKey = rawKey(key);
+        byte[] probe = execute(connection -> connection.getRange(rawKey, 0, MANIFEST_PROBE_SIZE - 1));
+        if (probe == null || probe.length == 0) {
+            return null;
+        }
+        if (!isManifest(probe, probe.length)) {
+            if (probe.length < MANIFEST_PROBE_SIZE) {
+                return slice(probe, offset, length);
+            }
+            return length == 0 ? new byte[0] : execute(connection -> connection.getRange(rawKey, offset, offset + length - 1));
+        }
+
+        Manifest manifest = Manifest.decode(probe.length >= Manifest.lengthOf(probe) ? probe : get(rawKey));
+        long end = Math.min(manifest.size, offset + length);
+        if (offset >= end) {
+            return new byte[0];
+        }
+        int fromChunk = (int) (offset / manifest.chunkSize);
+        int toChunk = (int) ((end - 1) / manifest.chunkSize);
+        long storedStart = manifest.storedOffset(fromChunk);
+        long storedEnd = manifest.storedOffset(toChunk + 1);
+        byte[] stored = execute(connection -> connection.getRange(manifest.dataKey, storedStart, storedEnd - 1));
+        if (stored == null || stored.length != storedEnd - storedStart) {
+            throw new IOException("Redis large value changed or expired while read, key:" + key);
+        }
+        if (manifest.isUncompressed(fromChunk, toChunk)) {
+            long rawStart = (long) fromChunk * manifest.chunkSize;
+            return Arrays.copyOfRange(stored, (int) (offset - rawStart), (int) (end - rawStart));
+        }
+
+        byte[] range = new byte[(int) (end - offset)];
+        ByteBuffer chunk = ByteBuffer.allocate(manifest.chunkSize);
+        int storedPosition = 0;
+        for (int index = fromChunk; index <= toChunk; index++) {
+            int storedLength = Math.abs(manifest.storedLengths[index]);
+            decode(manifest, index, ByteBuffer.wrap(stored, storedPosition, storedLength).slice(), chunk);
+            storedPosition += storedLength;
+            long chunkStart = (long) index * manifest.chunkSize;
+            int from = (int) (Math.max(offset, chunkStart) - chunkStart);
+            int to = (int) (Math.min(end, chunkStart + chunk.limit()) - chunkStart);
+            chunk.position(from);
+            chunk.get(range, (int) (chunkStart + from - offset), to - from);
+        }
+        return range;
+    }
+
+    /**
+     * Deletes the value, and its chunks.
+     *
+     * @param key the key
+     * @return whether the key existed
+     */
+    boolean delete(String key) {
+        byte[] rawKey = rawKey(key);
+        byte[] stored = readManifestOrValue(rawKey);
+        if (stored == null) {
+            return false;
+        }
+        Long deleted = execute(connection -> connection.del(rawKey));
+        if (isManifest(stored, stored.length)) {
+            deleteData(stored);
+        }
+        return deleted != null && deleted > 0;
+    }
+
+    /**
+     * Sets or deletes the keys with {@link #REPLACE_SCRIPT}, in one atomic step, and deletes the chunks of the large
+     * values they held.
+     *
+     * @param keys            the keys, of one hash slot in cluster mode
+     * @param values          the serialized values, by position, {@code null} to delete the keys
+     * @param expiryInSeconds the expiry in seconds, 0 for none
+     * @return the number of keys deleted, 0 when set
+     */
+    long replace(List<String> keys, List<byte[]> values, int expiryInSeconds) {
+        Object[] args = new Object[2 + (values == null ? 0 : values.size())];
+        args[0] = MANIFEST_MAGIC;
+        args[1] = values == null ? DELETE_EXPIRY : Integer.toString(Math.max(0, expiryInSeconds));
+        for (int i = 2; i < args.length; i++) {
+            args[i] = values.get(i - 2);
+        }
+        return replaced(scripts.execute(REPLACE_SCRIPT, List.class, keys, args));
+    }
+
+    /**
+     * Runs {@link #REPLACE_SCRIPT} for one key with EVAL on the connection, to be queued in a pipeline. The result
+     * is handed to {@link #replaced(Object)}.
+     *
+     * @param connection      the connection
+     * @param rawKey          the raw key
+     * @param value           the serialized value, {@code null} to delete the key
+     * @param expiryInSeconds the expiry in seconds, 0 for none
+     * @return the result, {@code null} when pipelined
+     */
+    Object replace(RedisConnection connection, byte[] rawKey, byte[] value, int expiryInSeconds) {
+        byte[] expiry = (value == null ? DELETE_EXPIRY : Integer.toString(Math.max(0, expiryInSeconds)))
+                .getBytes(StandardCharsets.UTF_8);
+        byte[][] keysAndArgs = value == null
+                ? new byte[][]{rawKey, MANIFEST_MAGIC, expiry}
+                : new byte[][]{rawKey, MANIFEST_MAGIC, expiry, value};
+        return connection.eval(REPLACE_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8),
+                ReturnType.MULTI, 1, keysAndArgs);
+    }
+
+    /**
+     * Deletes the data keys returned by {@link #REPLACE_SCRIPT}.
+     *
+     * @param result the result of the script
+     * @return the number of keys deleted by the script
+     */
+    long replaced(Object result) {
+        if (!(result instanceof List) || ((List<?>) result).isEmpty()) {
+            return 0;
+        }
+        List<?> values = (List<?>) result;
+        for (Object dataKey : values.subList(1, values.size())) {
+            deleteDataKey(dataKey instanceof byte[]
+                    ? (byte[]) dataKey
+                    : String.valueOf(dataKey).getBytes(StandardCharsets.UTF_8));
+        }
+        Object deleted = values.get(0);
+        return deleted instanceof Number ? ((Number) deleted).longValue() : 0;
+    }
+
+    private void writeChunks(byte[] dataKey, List<byte[]> batch, long offset, boolean firstBatch) {
+        execute(connection -> {
+            boolean pipelined = !clusterMode;
+            if (pipelined) {
+                connection.openPipeline();
+            }
+            long chunkOffset = offset;
+            for (byte[] chunk : batch) {
+                connection.setRange(dataKey, chunk, chunkOffset);
+                chunkOffset += chunk.length;
+            }
+            if (firstBatch) {
+                connection.expire(dataKey, WRITE_EXPIRY_SECONDS);
+            }
+            if (pipelined) {
+                connection.closePipeline();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Sets the key to the manifest or small value, and the expiry of the key and of the data key.
+     *
+     * @return the previous manifest or value of the key
+     */
+    private byte[] swap(byte[] rawKey, byte[] stored, byte[] dataKey, int expiryInSeconds) {
+        return execute(connection -> {
+            byte[] previous = connection.getSet(rawKey, stored);
+            if (expiryInSeconds > 0) {
+                connection.expire(rawKey, expiryInSeconds);
+            }
+            if (dataKey != null) {
+                if (expiryInSeconds > 0) {
+                    connection.expire(dataKey, expiryInSeconds);
+                } else {
+                    connection.persist(dataKey);
+                }
+            }
+            return previous;
+        });
+    }
+
+    private void deleteData(byte[] previous) {
+        if (previous == null || !isManifest(previous, previous.length)) {
+            return;
+        }
+        deleteDataKey(Manifest.decode(previous).dataKey);
+    }
+
+    private void deleteDataKey(byte[] dataKey) {
+        try {
+            execute(connection -> connection.del(dataKey));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Redis large value chunks not deleted, key:{}, left in redis",
+                    new String(dataKey, StandardCharsets.UTF_8), e);
+        }
+    }
+
+    /**
+     * Reads the manifest, or the small value, of a key: the first bytes, and the rest only if the manifest or value
+     * is longer.
+     */
+    private byte[] readManifestOrValue(byte[] rawKey) {
+        byte[] probe = execute(connection -> connection.getRange(rawKey, 0, MANIFEST_PROBE_SIZE - 1));
+        if (probe == null || probe.length == 0) {
+            return null;
+        }
+        if (probe.length < MANIFEST_PROBE_SIZE
+                || isManifest(probe, probe.length) && probe.length >= Manifest.lengthOf(probe)) {
+            return probe;
+        }
+        return get(rawKey);
+    }
+
+    private byte[] get(byte[] rawKey) {
+        return execute(connection -> connection.get(rawKey));
+    }
+
+    /**
+     * Fetches the stored bytes of chunks of a manifest, in one round-trip.
+     */
+    private List<byte[]> fetchChunks(Manifest manifest, int fromChunk, int toChunk) {
+        return new RedisCommand<>(REDIS_LARGE_VALUE_COMMAND, () -> metrics.time(REDIS_LARGE_VALUE_COMMAND, BYTES_FORMAT, () ->
+                execute(connection -> {
+                    byte[] stored = connection.getRange(manifest.dataKey, manifest.storedOffset(fromChunk),
+                            manifest.storedOffset(toChunk + 1) - 1);
+                    List<byte[]> chunks = new ArrayList<>(toChunk - fromChunk + 1);
+                    int position = 0;
+                    for (int index = fromChunk; index <= toChunk && stored != null; index++) {
+                        int storedLength = Math.abs(manifest.storedLengths[index]);
+                        if (position + storedLength > stored.length) {
+                            break;
+                        }
+                        chunks.add(Arrays.copyOfRange(stored, position, position + storedLength));
+                        position += storedLength;
+                    }
+                    return chunks;
+                })), null).execute();
+    }
+
+    /**
+     * Decodes a stored chunk into the buffer, left ready to be read.
+     */
+    private void decode(Manifest manifest, int index, ByteBuffer stored, ByteBuffer chunk) throws IOException {
+        int rawLength = manifest.rawLength(index);
+        chunk.clear();
+        if (manifest.storedLengths[index] < 0) {
+            chunk.put(stored);
+        } else {
+            try {
+                decompressor.decompress(stored, stored.position(), chunk, 0, rawLength);
+            } catch (LZ4Exception e) {
+                throw new IOException("Redis large value chunk " + index + " is corrupt", e);
+            }
+        }
+        chunk.position(0);
+        chunk.limit(rawLength);
+    }
+
+    private ByteBuffer acquireBuffer(int capacity) {
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer != null) {
+            pooledBuffers.decrementAndGet();
+            if (buffer.capacity() >= capacity) {
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        if (buffer.capacity() != properties.getChunkSize()) {
+            return;
+        }
+        if (pooledBuffers.incrementAndGet() > properties.getMaxPooledBuffers()) {
+            pooledBuffers.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        bufferPool.offer(buffer);
+    }
+
+    private <R> R execute(Function<RedisConnection, R> action) {
+        return redisTemplate.execute((RedisCallback<R>) action::apply);
+    }
+
+    private static byte[] slice(byte[] value, long offset, int length) {
+        int from = (int) Math.min(value.length, offset);
+        return Arrays.copyOfRange(value, from, (int) Math.min(value.length, from + (long) length));
+    }
+
+    private static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int count = in.read(buffer, read, length - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        return read;
+    }
+
+    private static boolean isManifest(byte[] stored, int length) {
+        if (length < Manifest.HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MANIFEST_MAGIC.length; i++) {
+            if (stored[i] != MANIFEST_MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] rawKey(String key) {
+        @SuppressWarnings("unchecked")
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        return keySerializer.serialize(key);
+    }
+
+    /**
+     * Manifest of a value stored in chunks: the magic bytes, the size of the value (8 bytes), the chunk size and
+     * the number of chunks (4 bytes each), the length of the data key (2 bytes), the data key, and the stored length
+     * of every chunk (4 bytes each), negative when the chunk is stored uncompressed.
+     */
+    private static final class Manifest {
+
+        private static final int HEADER_LENGTH = MANIFEST_MAGIC.length + 8 + 4 + 4 + 2;
+
+        private final long size;
+
+        private final int chunkSize;
+
+        private final byte[] dataKey;
+
+        private final int[] storedLengths;
+
+        private final long[] storedOffsets;
+
+        private Manifest(long size, int chunkSize, byte[] dataKey, List<Integer> storedLengths) {
+            this(size, chunkSize, dataKey, storedLengths.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        private Manifest(long size, int chunkSize, byte[] dataKey, int[] storedLengths) {
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.dataKey = dataKey;
+            this.storedLengths = storedLengths;
+            this.storedOffsets = new long[storedLengths.length + 1];
+            for (int i = 0; i < storedLengths.length; i++) {
+                storedOffsets[i + 1] = storedOffsets[i] + Math.abs(storedLengths[i]);
+            }
+        }
+
+        private long storedOffset(int index) {
+            return storedOffsets[index];
+        }
+
+        private int rawLength(int index) {
+            return (int) Math.min(chunkSize, size - (long) index * chunkSize);
+        }
+
+        private boolean isUncompressed(int fromChunk, int toChunk) {
+            for (int index = fromChunk; index <= toChunk; index++) {
+                if (storedLengths[index] >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private byte[] encode() {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + dataKey.length + storedLengths.length * 4);
+            buffer.put(MANIFEST_MAGIC).putLong(size).putInt(chunkSize).putInt(storedLengths.length)
+                    .putShort((short) dataKey.length).put(dataKey);
+            for (int storedLength : storedLengths) {
+                buffer.putInt(storedLength);
+            }
+            return buffer.array();
+        }
+
+        private static int lengthOf(byte[] stored) {
+            ByteBuffer buffer = ByteBuffer.wrap(stored);
+            int chunkCount = buffer.getInt(MANIFEST_MAGIC.length + 12);
+            int dataKeyLength = buffer.getShort(MANIFEST_MAGIC.length + 16) & 0xFFFF;
+            return HEADER_LENGTH + dataKeyLength + chunkCount * 4;
+        }
+
+        private static Manifest decode(byte[] stored) {
+            ByteBuffer buffer = ByteBuffer.wrap(stored);
+            buffer.position(MANIFEST_MAGIC.length);
+            long size = buffer.getLong();
+            int chunkSize = buffer.getInt();
+            int[] storedLengths = new int[buffer.getInt()];
+            byte[] dataKey = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(dataKey);
+            for (int i = 0; i < storedLengths.length; i++) {
+                storedLengths[i] = buffer.getInt();
+            }
+            return new Manifest(size, chunkSize, dataKey, storedLengths);
+        }
+    }
+
+    /**
+     * Stream of a value stored in chunks, fetching a batch of chunks per round-trip and decompressing one chunk at
+     * a time into a pooled direct buffer.
+     */
+    private final class ChunkInputStream extends InputStream {
+
+        private final String key;
+
+        private final Manifest manifest;
+
+        private final Deque<byte[]> fetched = new ArrayDeque<>();
+
+        private ByteBuffer chunk;
+
+        private int nextChunk;
+
+        private int nextFetch;
+
+        private ChunkInputStream(String key, Manifest manifest) {
+            this.key = key;
+            this.manifest = manifest;
+            this.chunk = acquireBuffer(manifest.chunkSize);
+            this.chunk.limit(0);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? chunk.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, chunk.remaining());
+            chunk.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return chunk == null ? 0 : chunk.remaining();
+        }
+
+        @Override
+        public void close() {
+            if (chunk != null) {
+                releaseBuffer(chunk);
+                chunk = null;
+            }
+        }
+
+        private boolean fill() throws IOException {
+            if (chunk == null) {
+                throw new IOException("Stream of redis large value closed, key:" + key);
+            }
+            while (!chunk.hasRemaining()) {
+                if (nextChunk >= manifest.storedLengths.length) {
+                    return false;
+                }
+                if (fetched.isEmpty()) {
+                    fetch();
+                }
+                decode(manifest, nextChunk++, ByteBuffer.wrap(fetched.poll()), chunk);
+            }
+            return true;
+        }
+
+        private void fetch() throws IOException {
+            int toChunk = Math.min(manifest.storedLengths.length, nextFetch + Math.max(1, properties.getChunksPerBatch())) - 1;
+            List<byte[]> chunks;
+            try {
+                chunks = fetchChunks(manifest, nextFetch, toChunk);
+            } catch (RuntimeException e) {
+                throw new IOException("Redis large value chunks could not be read, key:" + key, e);
+            }
+            if (chunks.size() != toChunk - nextFetch + 1) {
+                throw new IOException("Redis large value changed or expired while read, key:" + key);
+            }
+            fetched.addAll(chunks);
+            nextFetch = toChunk + 1;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.helper.ValueTypes;
+import io.github.redis.metrics.RedisClientMetrics;
+import io.github.redis.serializer.TypedRedisSerializer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static io.github.redis.helper.Constants.REDIS_PIPELINE_COMMAND;
+
+/**
+ * The type Redis pipeline.
+ * Queues value, hash and delete operations and sends them to redis in one round-trip with
+ * {@link RedisTemplate#executePipelined(RedisCallback, RedisSerializer)}, wrapped in a single hystrix command.
+ * Values are (de)serialized the same way as by the single key methods of {@link RedisClient}.
+ * <p>
+ * Every operation resolves independently: an operation which fails on the server or whose value can not be
+ * deserialized falls back to {@code null} without affecting the others. If the whole pipeline fails, every
+ * operation falls back. A pipeline is not thread safe and is meant to be executed once.
+ * <p>
+ * With large values enabled, sets and deletes are queued as {@link RedisLargeValues#REPLACE_SCRIPT}, so the chunks
+ * of a large value they overwrite or delete are deleted once the pipeline is executed. Jedis can not pipeline
+ * scripts, so with jedis such a pipeline sends its operations one after the other on one connection, as in cluster
+ * mode.
+ * <p>
+ * Pipelines created by {@link RedisClient#pipeline()} discard the buffered writes of the keys, and hash fields, they
+ * write when they are executed, as {@link RedisClient} does for its direct writes. See {@link WriteBehindBuffer}.
+ */
+public class RedisPipeline {
+
+    private static final Logger LOGGER = LogManager.getLogger(RedisPipeline.class.getName());
+
+    /**
+     * Pipelines mix strings, values and hash values, so they are not metered per serialization format.
+     */
+    private static final String MIXED_FORMAT = "mixed";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final boolean clusterMode;
+
+    private final NearCache nearCache;
+
+    private final RedisClientMetrics metrics;
+
+    private final RedisLargeValues largeValues;
+
+    private final List<Operation<?>> operations = new ArrayList<>();
+
+    private final Set<String> writtenKeys = new LinkedHashSet<>();
+
+    private final Set<String> replacedKeys = new LinkedHashSet<>();
+
+    private final Map<String, Set<Object>> writtenHashKeys = new LinkedHashMap<>();
+
+    private boolean scripted;
+
+    private WriteBehindBuffer writeBehindBuffer;
+
+    /**
+     * Instantiates a new Redis pipeline.
+     *
+     * @param redisTemplate       the redis template
+     * @param stringRedisTemplate the string redis template
+     * @param clusterMode         whether the connection is a cluster connection, which can not be pipelined
+     * @param nearCache           the near cache to invalidate for written keys, may be {@code null}
+     * @param metrics             the metrics the execution is timed with
+     * @param largeValues         the large values, when enabled, else {@code null}
+     */
+    RedisPipeline(RedisTemplate<String, Object> redisTemplate,
+                  StringRedisTemplate stringRedisTemplate,
+                  boolean clusterMode,
+                  NearCache nearCache,
+                  RedisClientMetrics metrics,
+                  RedisLargeValues largeValues) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.clusterMode = clusterMode;
+        this.nearCache = nearCache;
+        this.metrics = metrics;
+        this.largeValues = largeValues;
+    }
+
+    /**
+     * Sets the write behind buffer whose writes of the written keys are discarded on execute, done by
+     * {@link RedisClient#pipeline()}.
+     *
+     * @param writeBehindBuffer the write behind buffer, may be {@code null}
+     */
+    void setWriteBehindBuffer(WriteBehindBuffer writeBehindBuffer) {
+        this.writeBehindBuffer = writeBehindBuffer;
+    }
+
+    /**
+     * Queues a SET of the element.
+     *
+     * @param <T>     the type parameter
+     * @param key     the key
+     * @param element the element
+     * @return the result, whether the element was set
+     */
+    public <T> PipelineResult<Boolean> set(String key, T element) {
+        byte[] rawKey = rawKey(key);
+        byte[] rawValue = valueSerializerFor(element).serialize(element);
+        writtenKeys.add(key);
+        replacedKeys.add(key);
+        if (largeValues != null) {
+            scripted = true;
+            return queue("SET " + key, connection -> largeValues.replace(connection, rawKey, rawValue, 0),
+                    this::replacedToBoolean);
+        }
+        return queue("SET " + key, connection -> connection.set(rawKey, rawValue), RedisPipeline::toBoolean);
+    }
+
+    /**
+     * Queues a SETEX of the element.
+     *
+     * @param <T>             the type parameter
+     * @param key             the key
+     * @param element         the element
+     * @param expiryInSeconds the expiry in seconds
+     * @return the result, whether the element was set
+     */
+    public <T> PipelineResult<Boolean> setWithExpiry(String key, T element, int expiryInSeconds) {
+        byte[] rawKey = rawKey(key);
+        byte[] rawValue = valueSerializerFor(element).serialize(element);
+        writtenKeys.add(key);
+        replacedKeys.add(key);
+        if (largeValues != null) {
+            scripted = true;
+            return queue("SETEX " + key, connection -> largeValues.replace(connection, rawKey, rawValue, expiryInSeconds),
+                    this::replacedToBoolean);
+        }
+        return queue("SETEX " + key, connection -> connection.setEx(rawKey, expiryInSeconds, rawValue),
+                RedisPipeline::toBoolean);
+    }
+
+    /**
+     * Queues a GET of the element.
+     *
+     * @param <T>    the type parameter
+     * @param key    the key
+     * @param tClass the t class (this is return type of the element in redis against the key)
+     * @return the result, the element
+     */
+    public <T> PipelineResult<T> get(String key, Class<T> tClass) {
+        byte[] rawKey = rawKey(key);
+        RedisSerializer<?> serializer = tClass == String.class
+                ? stringRedisTemplate.getValueSerializer()
+                : redisTemplate.getValueSerializer();
+        return queue("GET " + key, connection -> connection.get(rawKey),
+                raw -> ValueTypes.cast(TypedRedisSerializer.deserialize(serializer, (byte[]) raw, tClass), tClass));
+    }
+
+    /**
+     * Queues a DEL of the key.
+     *
+     * @param key the key
+     * @return the result, number of keys deleted
+     */
+    public PipelineResult<Long> delete(String key) {
+        byte[] rawKey = rawKey(key);
+        writtenKeys.add(key);
+        replacedKeys.add(key);
+        if (largeValues != null) {
+            scripted = true;
+            return queue("DEL " + key, connection -> largeValues.replace(connection, rawKey, null, 0), largeValues::replaced);
+        }
+        return queue("DEL " + key, connection -> connection.del(rawKey), raw -> (Long) raw);
+    }
+
+    /**
+     * Queues a HSET of the hash value.
+     *
+     * @param <T>       the type parameter
+     * @param key       the key
+     * @param hashKey   the hash key
+     * @param hashValue the hash value
+     * @return the result, whether a new field was created in the hash
+     */
+    public <T> PipelineResult<Boolean> putInHash(String key, Object hashKey, T hashValue) {
+        byte[] rawKey = rawKey(key);
+        byte[] rawHashKey = rawHashKey(hashKey);
+        byte[] rawHashValue = hashValueSerializer().serialize(hashValue);
+        writtenKeys.add(key);
+        writtenHashKeys.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(hashKey);
+        return queue("HSET " + key, connection -> connection.hSet(rawKey, rawHashKey, rawHashValue),
+                RedisPipeline::toBoolean);
+    }
+
+    /**
+     * Queues a HGET of the hash value.
+     *
+     * @param <T>     the type parameter
+     * @param key     the key
+     * @param hashKey the hash key
+     * @param tClass  the t class (this is return type of the hash value in redis against the hash key)
+     * @return the result, the hash value
+     */
+    public <T> PipelineResult<T> getFromHash(String key, Object hashKey, Class<T> tClass) {
+        byte[] rawKey = rawKey(key);
+        byte[] rawHashKey = rawHashKey(hashKey);
+        RedisSerializer<Object> serializer = hashValueSerializer();
+        return queue("HGET " + key, connection -> connection.hGet(rawKey, rawHashKey),
+                raw -> ValueTypes.cast(TypedRedisSerializer.deserialize(serializer, (byte[]) raw, tClass), tClass));
+    }
+
+    /**
+     * Number of queued operations.
+     *
+     * @return the size
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * Executes all queued operations in one round-trip and resolves their {@link PipelineResult}s.
+     *
+     * @return the results of the operations, by position, {@code null} for failed operations
+     */
+    public List<Object> execute() {
+        if (operations.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.discard(replacedKeys);
+            writtenHashKeys.forEach(writeBehindBuffer::discard);
+        }
+
+        List<Object> rawResults = new RedisCommand<>(REDIS_PIPELINE_COMMAND,
+                () -> metrics.time(REDIS_PIPELINE_COMMAND, MIXED_FORMAT, this::executeRaw), this::fallback).execute();
+        if (nearCache != null) {
+            nearCache.invalidate(writtenKeys);
+        }
+
+        List<Object> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            Object raw = i < rawResults.size() ? rawResults.get(i) : null;
+            results.add(operations.get(i).resolve(raw));
+        }
+        return results;
+    }
+
+    private List<Object> executeRaw() {
+        if (clusterMode || scripted && redisTemplate.getConnectionFactory() instanceof JedisConnectionFactory) {
+            List<Object> rawResults = new ArrayList<>(operations.size());
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                for (Operation<?> operation : operations) {
+                    try {
+                        rawResults.add(operation.command.apply(connection));
+                    } catch (RuntimeException e) {
+                        rawResults.add(e);
+                    }
+                }
+                return null;
+            });
+            return rawResults;
+        }
+
+        try {
+            return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                operations.forEach(operation -> operation.command.apply(connection));
+                return null;
+            }, null);
+        } catch (RedisPipelineException e) {
+            if (e.getPipelineResult() == null || e.getPipelineResult().isEmpty()) {
+                throw e;
+            }
+            return e.getPipelineResult();
+        }
+    }
+
+    private List<Object> fallback(Throwable failure) {
+        metrics.fallback(REDIS_PIPELINE_COMMAND, MIXED_FORMAT, failure);
+        LOGGER.error("Redis Pipeline Failed for {} operations, returning NULL", operations.size(), failure);
+        Throwable cause = failure != null ? failure : new IllegalStateException("Redis pipeline short-circuited");
+        return Collections.nCopies(operations.size(), cause);
+    }
+
+    private <T> PipelineResult<T> queue(String description, Function<RedisConnection, Object> command,
+                                        Function<Object, T> converter) {
+        Operation<T> operation = new Operation<>(description, command, converter);
+        operations.add(operation);
+        return operation.result;
+    }
+
+    private byte[] rawKey(String key) {
+        @SuppressWarnings("unchecked")
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        return keySerializer.serialize(key);
+    }
+
+    private byte[] rawHashKey(Object hashKey) {
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> hashKeySerializer = (RedisSerializer<Object>) redisTemplate.getHashKeySerializer();
+        return hashKeySerializer.serialize(hashKey);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> hashValueSerializer() {
+        return (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> RedisSerializer<T> valueSerializerFor(T element) {
+        return (RedisSerializer<T>) (element instanceof String
+                ? stringRedisTemplate.getValueSerializer()
+                : redisTemplate.getValueSerializer());
+    }
+
+    private Boolean replacedToBoolean(Object raw) {
+        largeValues.replaced(raw);
+        return Boolean.TRUE;
+    }
+
+    private static Boolean toBoolean(Object raw) {
+        return raw instanceof Boolean ? (Boolean) raw : Boolean.valueOf("OK".equals(raw));
+    }
+
+    private static final class Operation<T> {
+
+        private final String description;
+
+        private final Function<RedisConnection, Object> command;
+
+        private final Function<Object, T> converter;
+
+        private final PipelineResult<T> result = new PipelineResult<>();
+
+        private Operation(String description, Function<RedisConnection, Object> command, Function<Object, T> converter) {
+            this.description = description;
+            this.command = command;
+            this.converter = converter;
+        }
+
+        private T resolve(Object raw) {
+            if (raw instanceof Throwable) {
+                LOGGER.error("Redis Pipeline operation Failed:{}, returning NULL", description, (Throwable) raw);
+                result.fail((Throwable) raw);
+                return null;
+            }
+            try {
+                result.complete(raw == null ? null : converter.apply(raw));
+            } catch (RuntimeException e) {
+                LOGGER.error("Redis Pipeline operation Failed:{}, returning NULL", description, e);
+                result.fail(e);
+            }
+            return result.get();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.metrics.RedisClientMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.github.redis.helper.Constants.REDIS_RATE_LIMIT_COMMAND;
+
+/**
+ * The type Redis rate limiter.
+ * Limits calls per key across every client of a redis, with one of the {@link RedisClientProperties.RateLimitAlgorithm}
+ * algorithms. Every acquire is a single script run, so checking and taking permits is atomic, in one round-trip, under
+ * one hystrix command. When redis can not be reached or the circuit is open, permits are granted if the limiter fails
+ * open and refused otherwise.
+ * <p>
+ * With a {@link RedisClientProperties.Limit#getLeaseSize()} the limiter takes that many permits of a key at once and
+ * hands them out locally until they run out or the window of redis ends, per the PTTL of the key returned by the
+ * script, so most acquires never reach redis. Leased permits
+ * count against the limit whether used or not, so leases should be small next to the limit divided by the number of
+ * clients.
+ */
+public class RedisRateLimiter {
+
+    private static final Logger LOGGER = LogManager.getLogger(RedisRateLimiter.class.getName());
+
+    private static final String COUNTER_FORMAT = "counter";
+
+    /**
+     * Keys with a lease above which expired leases are dropped, so keys which are not used again do not pile up.
+     */
+    private static final int MAX_LEASES = 10_000;
+
+    private final String name;
+
+    private final RedisClientProperties.Limit limit;
+
+    private final boolean failOpen;
+
+    private final RedisScripts scripts;
+
+    private final RedisClientMetrics metrics;
+
+    private final String scriptName;
+
+    private final long windowMillis;
+
+    private final ConcurrentMap<String, Lease> leases = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new Redis rate limiter.
+     *
+     * @param name     the name of the limiter, prefixed to the keys
+     * @param limit    the limit
+     * @param failOpen whether permits are granted when redis can not be reached
+     * @param scripts  the script registry, with the built-in rate limit scripts
+     * @param metrics  the metrics the acquires are timed with
+     */
+    RedisRateLimiter(String name, RedisClientProperties.Limit limit, boolean failOpen, RedisScripts scripts,
+                     RedisClientMetrics metrics) {
+        this.name = name;
+        this.limit = limit;
+        this.failOpen = failOpen;
+        this.scripts = scripts;
+        this.metrics = metrics;
+        this.scriptName = scriptNameOf(limit.getAlgorithm());
+        this.windowMillis = Math.max(1, limit.getWindow().toMillis());
+    }
+
+    /**
+     * Tries to acquire a permit.
+     *
+     * @param key the key limited, e.g. a client or an API
+     * @return whether the permit was acquired
+     */
+    public boolean tryAcquire(String key) {
+        return tryAcquire(key, 1);
+    }
+
+    /**
+     * Tries to acquire permits, all or none.
+     *
+     * @param key     the key limited, e.g. a client or an API
+     * @param permits the number of permits
+     * @return whether the permits were acquired
+     * @throws IllegalArgumentException if permits is not positive
+     */
+    public boolean tryAcquire(String key, int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("Permits must be positive, got " + permits);
+        }
+        int leaseSize = limit.getLeaseSize();
+        if (leaseSize <= 0) {
+            return acquire(key, permits, permits)[0] >= permits;
+        }
+        Lease lease = leases.get(key);
+        if (lease != null) {
+            if (lease.take(permits)) {
+                return true;
+            }
+            leases.remove(key, lease);
+        }
+        long[] grant = acquire(key, Math.max(leaseSize, permits), permits);
+        long granted = grant[0];
+        if (granted < permits) {
+            return false;
+        }
+        if (granted > permits && grant[1] > 0) {
+            lease(key, new Lease(granted - permits, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(grant[1])));
+        }
+        return true;
+    }
+
+    /**
+     * Gets the name of the limiter.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Takes permits from redis.
+     *
+     * @return the number of permits granted, 0 if fewer than the minimum were left, and the milliseconds left in the
+     * window of redis, at most the window and 0 if unknown
+     */
+    private long[] acquire(String key, long requested, long minimum) {
+        String redisKey = name + ":" + key;
+        return new RedisCommand<>(REDIS_RATE_LIMIT_COMMAND,
+                () -> metrics.time(REDIS_RATE_LIMIT_COMMAND, COUNTER_FORMAT, () ->
+                        grantOf(scripts.execute(scriptName, List.class, Collections.singletonList(redisKey),
+                                limit.getLimit(), windowMillis, requested, minimum,
+                                Long.toHexString(ThreadLocalRandom.current().nextLong())))),
+                failure -> {
+                    metrics.fallback(REDIS_RATE_LIMIT_COMMAND, COUNTER_FORMAT, failure);
+                    LOGGER.error("Redis rate limit Failed for key:{}, returning {}", redisKey,
+                            failOpen ? "allowed" : "denied", failure);
+                    return new long[]{failOpen ? minimum : 0L, 0L};
+                }).execute();
+    }
+
+    private long[] grantOf(List<?> result) {
+        long granted = result != null && !result.isEmpty() && result.get(0) instanceof Number
+                ? ((Number) result.get(0)).longValue() : 0;
+        long windowLeftMillis = result != null && result.size() > 1 && result.get(1) instanceof Number
+                ? Math.min(windowMillis, ((Number) result.get(1)).longValue()) : 0;
+        return new long[]{granted, Math.max(0, windowLeftMillis)};
+    }
+
+    private void lease(String key, Lease lease) {
+        if (leases.size() >= MAX_LEASES) {
+            leases.values().removeIf(Lease::isExpired);
+        }
+        leases.put(key, lease);
+    }
+
+    private static String scriptNameOf(RedisClientProperties.RateLimitAlgorithm algorithm) {
+        switch (algorithm) {
+            case FIXED_WINDOW:
+                return RedisScripts.FIXED_WINDOW;
+            case SLIDING_LOG:
+                return RedisScripts.SLIDING_WINDOW;
+            default:
+                return RedisScripts.TOKEN_BUCKET;
+        }
+    }
+
+    /**
+     * Permits taken from redis, handed out locally until the window of redis ends.
+     */
+    private static final class Lease {
+
+        private final AtomicLong remaining;
+
+        private final long expiresAt;
+
+        private Lease(long permits, long expiresAt) {
+            this.remaining = new AtomicLong(permits);
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean take(int permits) {
+            if (isExpired()) {
+                return false;
+            }
+            long current;
+            do {
+                current = remaining.get();
+                if (current < permits) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - permits));
+            return true;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.helper.ValueTypes;
+import io.github.redis.serializer.TypedRedisSerializer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.NumberUtils;
+import org.springframework.util.StreamUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The type Redis scripts.
+ * Registry of the Lua scripts run by {@link RedisClient#executeScript(String, Class, List, Object...)}: built-in
+ * scripts, {@link RedisScript} beans under their bean name and the scripts found at
+ * {@link RedisClientProperties.Script#getLocations()} under their file name. Registered scripts are loaded with
+ * SCRIPT LOAD at startup, on every node with jedis in cluster mode, and run with EVALSHA, so only their SHA1 is sent.
+ * A node replying NOSCRIPT, e.g. after a restart or a failover, gets the script with EVAL, which caches it again.
+ * <p>
+ * Keys of a script run on a cluster must all hash to the same slot.
+ * Arguments are sent as their text when strings, numbers or booleans ({@code 1} or {@code 0}), as is when
+ * {@code byte[]} and serialized with the value serializer otherwise.
+ */
+public class RedisScripts implements InitializingBean {
+
+    private static final Logger LOGGER = LogManager.getLogger(RedisScripts.class.getName());
+
+    private static final String SCRIPT_EXTENSION = ".lua";
+
+    private static final String NO_SCRIPT_ERROR = "NOSCRIPT";
+
+    /**
+     * Name of the built-in script running INCRBY, then EXPIRE if the counter has no expiry yet.
+     */
+    static final String INCREMENT_WITH_EXPIRY = "incrementWithExpiry";
+
+    /**
+     * Name of the built-in script running GET, then EXPIRE if the key exists.
+     */
+    static final String GET_AND_EXPIRE = "getAndExpire";
+
+    /**
+     * Name of the built-in script setting or deleting a key only if its value is the expected one.
+     */
+    static final String COMPARE_AND_SET = "compareAndSet";
+
+    /**
+     * Name of the built-in script counting permits in a fixed window, in a counter expiring with the window.
+     */
+    static final String FIXED_WINDOW = "fixedWindow";
+
+    /**
+     * Name of the built-in script counting permits in a sliding window, in a sorted set of permit times.
+     */
+    static final String SLIDING_WINDOW = "slidingWindow";
+
+    /**
+     * Name of the built-in script taking permits from a token bucket, in a hash of tokens and refill time.
+     */
+    static final String TOKEN_BUCKET = "tokenBucket";
+
+    private static final RedisScript<Long> INCREMENT_WITH_EXPIRY_SCRIPT = new DefaultRedisScript<>(
+            "local count = redis.call('incrby', KEYS[1], ARGV[1]) "
+                    + "if redis.call('ttl', KEYS[1]) == -1 then redis.call('expire', KEYS[1], ARGV[2]) end "
+                    + "return count", Long.class);
+
+    private static final RedisScript<byte[]> GET_AND_EXPIRE_SCRIPT = new DefaultRedisScript<>(
+            "local value = redis.call('get', KEYS[1]) "
+                    + "if value then redis.call('expire', KEYS[1], ARGV[1]) end "
+                    + "return value", byte[].class);
+
+    /**
+     * An empty expected value stands for a missing key, an empty update for a delete. Serialized values are never
+     * empty.
+     */
+    private static final RedisScript<Boolean> COMPARE_AND_SET_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('get', KEYS[1]) or '') ~= ARGV[1] then return 0 end "
+                    + "if ARGV[2] == '' then redis.call('del', KEYS[1]) "
+                    + "elseif tonumber(ARGV[3]) > 0 then redis.call('set', KEYS[1], ARGV[2], 'EX', ARGV[3]) "
+                    + "else redis.call('set', KEYS[1], ARGV[2]) end "
+                    + "return 1", Boolean.class);
+
+    /**
+     * The rate limit scripts share their arguments: the limit, the window in milliseconds, the permits requested,
+     * the fewest permits worth granting and a unique id of the call. They grant as many of the requested permits as
+     * are left, or none if fewer than the minimum are left, and return the number granted and the milliseconds left
+     * in the window, as the PTTL of the key.
+     */
+    private static final RedisScript<List> FIXED_WINDOW_SCRIPT = new DefaultRedisScript<>(
+            "local used = tonumber(redis.call('get', KEYS[1]) or '0') "
+                    + "local granted = math.min(tonumber(ARGV[3]), tonumber(ARGV[1]) - used) "
+                    + "if granted < tonumber(ARGV[4]) then return {0, redis.call('pttl', KEYS[1])} end "
+                    + "redis.call('incrby', KEYS[1], granted) "
+                    + "if redis.call('pttl', KEYS[1]) < 0 then redis.call('pexpire', KEYS[1], ARGV[2]) end "
+                    + "return {granted, redis.call('pttl', KEYS[1])}", List.class);
+
+    /**
+     * Permit times are taken from the redis clock, in microseconds, so clients with skewed clocks share one window.
+     * Writes after TIME need effects replication, the default from redis 5.
+     */
+    private static final RedisScript<List> SLIDING_WINDOW_SCRIPT = new DefaultRedisScript<>(
+            "redis.replicate_commands() "
+                    + "local time = redis.call('time') "
+                    + "local now = tonumber(time[1]) * 1000000 + tonumber(time[2]) "
+                    + "redis.call('zremrangebyscore', KEYS[1], '-inf', now - tonumber(ARGV[2]) * 1000) "
+                    + "local granted = math.min(tonumber(ARGV[3]), tonumber(ARGV[1]) - redis.call('zcard', KEYS[1])) "
+                    + "if granted < tonumber(ARGV[4]) then return {0, redis.call('pttl', KEYS[1])} end "
+                    + "for i = 1, granted do redis.call('zadd', KEYS[1], now, ARGV[5] .. ':' .. i) end "
+                    + "redis.call('pexpire', KEYS[1], ARGV[2]) "
+                    + "return {granted, tonumber(ARGV[2])}", List.class);
+
+    /**
+     * The bucket holds up to the limit and refills at the limit per window, continuously, by the redis clock in
+     * milliseconds. A missing bucket is full.
+     */
+    private static final RedisScript<List> TOKEN_BUCKET_SCRIPT = new DefaultRedisScript<>(
+            "redis.replicate_commands() "
+                    + "local time = redis.call('time') "
+                    + "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) "
+                    + "local limit = tonumber(ARGV[1]) "
+                    + "local bucket = redis.call('hmget', KEYS[1], 'tokens', 'ts') "
+                    + "local tokens = tonumber(bucket[1]) or limit "
+                    + "local elapsed = math.max(0, now - (tonumber(bucket[2]) or now)) "
+                    + "tokens = math.min(limit, tokens + elapsed * limit / tonumber(ARGV[2])) "
+                    + "local granted = math.min(tonumber(ARGV[3]), math.floor(tokens)) "
+                    + "if granted < tonumber(ARGV[4]) then return {0, redis.call('pttl', KEYS[1])} end "
+                    + "redis.call('hmset', KEYS[1], 'tokens', tostring(tokens - granted), 'ts', now) "
+                    + "redis.call('pexpire', KEYS[1], ARGV[2]) "
+                    + "return {granted, tonumber(ARGV[2])}", List.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final RedisClientProperties.Script properties;
+
+    private final Map<String, RedisScript<?>> scripts = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates new Redis scripts, with the built-in scripts registered.
+     *
+     * @param redisTemplate the redis template
+     * @param properties    the script properties
+     */
+    public RedisScripts(RedisTemplate<String, Object> redisTemplate, RedisClientProperties.Script properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        scripts.put(INCREMENT_WITH_EXPIRY, INCREMENT_WITH_EXPIRY_SCRIPT);
+        scripts.put(GET_AND_EXPIRE, GET_AND_EXPIRE_SCRIPT);
+        scripts.put(COMPARE_AND_SET, COMPARE_AND_SET_SCRIPT);
+        scripts.put(FIXED_WINDOW, FIXED_WINDOW_SCRIPT);
+        scripts.put(SLIDING_WINDOW, SLIDING_WINDOW_SCRIPT);
+        scripts.put(TOKEN_BUCKET, TOKEN_BUCKET_SCRIPT);
+    }
+
+    /**
+     * Registers the script beans, under their bean name.
+     *
+     * @param scripts the scripts by bean name
+     */
+    @Autowired(required = false)
+    public void setScripts(Map<String, RedisScript<?>> scripts) {
+        scripts.forEach(this::register);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        registerResources();
+        if (properties.isPreload()) {
+            load();
+        }
+    }
+
+    /**
+     * Registers a script, replacing the script registered under the same name.
+     *
+     * @param name   the name of the script
+     * @param script the script
+     */
+    public void register(String name, RedisScript<?> script) {
+        if (scripts.put(name, script) != null) {
+            LOGGER.info("Redis script {} replaced", name);
+        }
+    }
+
+    /**
+     * Gets a registered script.
+     *
+     * @param name the name of the script
+     * @return the script
+     * @throws IllegalArgumentException if no script is registered under the name
+     */
+    public RedisScript<?> get(String name) {
+        RedisScript<?> script = scripts.get(name);
+        if (script == null) {
+            throw new IllegalArgumentException("No redis script registered as " + name);
+        }
+        return script;
+    }
+
+    /**
+     * Gets the names of the registered scripts.
+     *
+     * @return the names
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(new TreeSet<>(scripts.keySet()));
+    }
+
+    /**
+     * Loads the registered scripts into redis with SCRIPT LOAD, on every node with jedis in cluster mode. Failures
+     * are logged, scripts are then loaded on first use.
+     */
+    public void load() {
+        try {
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                Object nativeConnection = connection.getNativeConnection();
+                if (nativeConnection instanceof JedisCluster) {
+                    for (JedisPool pool : ((JedisCluster) nativeConnection).getClusterNodes().values()) {
+                        try (Jedis jedis = pool.getResource()) {
+                            scripts.values().forEach(script -> jedis.scriptLoad(bytes(script.getScriptAsString())));
+                        }
+                    }
+                } else {
+                    scripts.values().forEach(script -> connection.scriptLoad(bytes(script.getScriptAsString())));
+                }
+                return null;
+            });
+            LOGGER.info("Redis scripts loaded: {}", getNames());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Redis SCRIPT LOAD Failed, scripts are loaded on first use", e);
+        }
+    }
+
+    private void registerResources() {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        for (String location : properties.getLocations()) {
+            try {
+                for (Resource resource : resolver.getResources(location)) {
+                    String fileName = resource.getFilename();
+                    if (fileName == null || !resource.isReadable()) {
+                        continue;
+                    }
+                    String name = fileName.endsWith(SCRIPT_EXTENSION)
+                            ? fileName.substring(0, fileName.length() - SCRIPT_EXTENSION.length())
+                            : fileName;
+                    try (InputStream inputStream = resource.getInputStream()) {
+                        register(name, new DefaultRedisScript<>(StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8),
+                                Object.class));
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Redis scripts could not be read from " + location, e);
+            }
+        }
+    }
+
+    /**
+     * Runs a registered script.
+     *
+     * @param <T>        the type parameter
+     * @param name       the name of the script
+     * @param resultType the type of the result, see {@link #execute(RedisScript, Class, List, Object...)}
+     * @param keys       the keys the script accesses
+     * @param args       the arguments of the script
+     * @return the result of the script
+     */
+    <T> T execute(String name, Class<T> resultType, List<String> keys, Object... args) {
+        return execute(get(name), resultType, keys, args);
+    }
+
+    /**
+     * Runs a script with EVALSHA, or EVAL when redis does not have it. The result is converted to the type: Lua
+     * numbers to integral types, Lua booleans to {@link Boolean}, tables to a {@link List} of strings and
+     * numbers, bulk strings to {@code byte[]}, {@link String}, floating point numbers or, for any other type, the
+     * value deserialized with the value serializer.
+     *
+     * @param <T>        the type parameter
+     * @param script     the script
+     * @param resultType the type of the result
+     * @param keys       the keys the script accesses
+     * @param args       the arguments of the script
+     * @return the result of the script
+     */
+    <T> T execute(RedisScript<?> script, Class<T> resultType, List<String> keys, Object... args) {
+        ReturnType returnType = returnTypeOf(resultType);
+        byte[][] keysAndArgs = keysAndArgs(keys, args);
+        byte[] sha1 = bytes(script.getSha1());
+        Object result = redisTemplate.execute((RedisCallback<Object>) connection -> {
+            Object nativeConnection = connection.getNativeConnection();
+            if (nativeConnection instanceof JedisCluster) {
+                JedisCluster jedisCluster = (JedisCluster) nativeConnection;
+                try {
+                    return convert(jedisCluster.evalsha(sha1, keys.size(), keysAndArgs), returnType);
+                } catch (RuntimeException e) {
+                    if (!isNoScript(e)) {
+                        throw e;
+                    }
+                    return convert(jedisCluster.eval(bytes(script.getScriptAsString()), keys.size(), keysAndArgs), returnType);
+                }
+            }
+            try {
+                return connection.evalSha(sha1, returnType, keys.size(), keysAndArgs);
+            } catch (RuntimeException e) {
+                if (!isNoScript(e)) {
+                    throw e;
+                }
+                LOGGER.debug("Redis script {} missing, sent with EVAL", script.getSha1());
+                return connection.eval(bytes(script.getScriptAsString()), returnType, keys.size(), keysAndArgs);
+            }
+        });
+        return resultType == null ? null : cast(result, resultType);
+    }
+
+    private byte[][] keysAndArgs(List<String> keys, Object[] args) {
+        @SuppressWarnings("unchecked")
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        byte[][] keysAndArgs = new byte[keys.size() + args.length][];
+        int index = 0;
+        for (String key : keys) {
+            keysAndArgs[index++] = keySerializer.serialize(key);
+        }
+        for (Object arg : args) {
+            keysAndArgs[index++] = serializeArg(arg);
+        }
+        return keysAndArgs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] serializeArg(Object arg) {
+        if (arg == null) {
+            return new byte[0];
+        }
+        if (arg instanceof byte[]) {
+            return (byte[]) arg;
+        }
+        if (arg instanceof Boolean) {
+            return bytes((Boolean) arg ? "1" : "0");
+        }
+        if (arg instanceof CharSequence || arg instanceof Number) {
+            return bytes(arg.toString());
+        }
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(arg);
+    }
+
+    private static ReturnType returnTypeOf(Class<?> resultType) {
+        if (resultType == null) {
+            return ReturnType.STATUS;
+        }
+        Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(resultType);
+        if (type == Boolean.class) {
+            return ReturnType.BOOLEAN;
+        }
+        if (List.class.isAssignableFrom(type)) {
+            return ReturnType.MULTI;
+        }
+        if (Number.class.isAssignableFrom(type) && !isFloatingPoint(type)) {
+            return ReturnType.INTEGER;
+        }
+        return ReturnType.VALUE;
+    }
+
+    /**
+     * Redis turns Lua numbers into integers, floating point numbers are returned as strings.
+     */
+    private static boolean isFloatingPoint(Class<?> type) {
+        return type == Double.class || type == Float.class || type == BigDecimal.class;
+    }
+
+    /**
+     * Converts a result of jedis, which does not convert script results, as spring connections do.
+     */
+    private static Object convert(Object result, ReturnType returnType) {
+        switch (returnType) {
+            case BOOLEAN:
+                return result != null && Long.valueOf(1).equals(result);
+            case STATUS:
+                return result instanceof byte[] ? new String((byte[]) result, StandardCharsets.UTF_8) : result;
+            default:
+                return result;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cast(Object result, Class<T> resultType) {
+        if (result == null) {
+            return null;
+        }
+        Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(resultType);
+        if (result instanceof List) {
+            return (T) type.cast(decode((List<?>) result));
+        }
+        if (!(result instanceof byte[]) || type == byte[].class) {
+            return (T) (type == String.class ? result.toString() : ValueTypes.cast(result, type));
+        }
+        byte[] bytes = (byte[]) result;
+        if (type == String.class) {
+            return (T) new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (Number.class.isAssignableFrom(type)) {
+            return (T) NumberUtils.parseNumber(new String(bytes, StandardCharsets.UTF_8), (Class<? extends Number>) type);
+        }
+        Object value = TypedRedisSerializer.deserialize(redisTemplate.getValueSerializer(), bytes, type);
+        return (T) ValueTypes.cast(value, type);
+    }
+
+    private static List<Object> decode(List<?> values) {
+        List<Object> decoded = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value instanceof byte[]) {
+                decoded.add(new String((byte[]) value, StandardCharsets.UTF_8));
+            } else if (value instanceof List) {
+                decoded.add(decode((List<?>) value));
+            } else {
+                decoded.add(value);
+            }
+        }
+        return decoded;
+    }
+
+    private static boolean isNoScript(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains(NO_SCRIPT_ERROR)) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,236 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.async.BaseRedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.NestedMultiOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Redis stream commands.
+ * Sends the stream commands, which neither jedis 2.9, lettuce 5.0 nor spring data redis 2.0 know, as raw commands:
+ * written in RESP to the socket of the pooled jedis connection, of the master of the stream key with jedis in
+ * cluster mode, or dispatched as custom commands with lettuce, which routes them by key in cluster mode. Commands
+ * of a call are pipelined, their replies are returned in order: bulk strings as {@code byte[]}, integers as
+ * {@link Long} and arrays as lists, error replies as the {@link RedisSystemException} they would be thrown as.
+ * <p>
+ * Lettuce connections are shared, so commands must not block on the server: a stream read with BLOCK is sent
+ * without it with lettuce.
+ */
+class RedisStreamCommands {
+
+    private static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final long timeoutMillis;
+
+    private volatile boolean autoClaimSupported = true;
+
+    /**
+     * Instantiates new Redis stream commands.
+     *
+     * @param redisTemplate the redis template
+     */
+    RedisStreamCommands(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        RedisConnectionFactory connectionFactory = redisTemplate.getConnectionFactory();
+        this.timeoutMillis = connectionFactory instanceof LettuceConnectionFactory
+                ? ((LettuceConnectionFactory) connectionFactory).getClientConfiguration().getCommandTimeout().toMillis()
+                : DEFAULT_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * Sends commands on the same stream in one round-trip.
+     *
+     * @param key      the stream key, the commands are routed by in cluster mode
+     * @param commands the commands, the command name first, which hold the key
+     * @return the replies, in order of the commands
+     */
+    List<Object> execute(byte[] key, List<byte[][]> commands) {
+        if (commands.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+            Object nativeConnection = connection.getNativeConnection();
+            if (nativeConnection instanceof Jedis) {
+                return execute((Jedis) nativeConnection, commands);
+            }
+            if (nativeConnection instanceof JedisCluster) {
+                try (Jedis jedis = masterOf(connection, (JedisCluster) nativeConnection, key).getResource()) {
+                    return execute(jedis, commands);
+                }
+            }
+            if (nativeConnection instanceof BaseRedisAsyncCommands) {
+                @SuppressWarnings("unchecked")
+                BaseRedisAsyncCommands<byte[], byte[]> asyncCommands = (BaseRedisAsyncCommands<byte[], byte[]>) nativeConnection;
+                return execute(asyncCommands, key, commands);
+            }
+            throw new InvalidDataAccessApiUsageException("Redis streams are not supported by "
+                    + nativeConnection.getClass().getName());
+        });
+    }
+
+    /**
+     * Whether stream reads can block on the server, without holding up other commands.
+     *
+     * @return {@code true} with jedis, whose connections are not shared
+     */
+    boolean canBlock() {
+        return !(redisTemplate.getConnectionFactory() instanceof LettuceConnectionFactory);
+    }
+
+    /**
+     * Whether redis is still thought to know XAUTOCLAIM, added by redis 6.2.
+     *
+     * @return {@code false} once redis answered it does not know it
+     */
+    boolean isAutoClaimSupported() {
+        return autoClaimSupported;
+    }
+
+    /**
+     * Records that redis does not know XAUTOCLAIM.
+     */
+    void autoClaimUnsupported() {
+        autoClaimSupported = false;
+    }
+
+    private static List<Object> execute(Jedis jedis, List<byte[][]> commands) {
+        Client client = jedis.getClient();
+        client.connect();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (byte[][] command : commands) {
+            writeCommand(buffer, command);
+        }
+        try {
+            OutputStream outputStream = client.getSocket().getOutputStream();
+            buffer.writeTo(outputStream);
+            outputStream.flush();
+        } catch (IOException e) {
+            client.disconnect();
+            throw new JedisConnectionException(e);
+        }
+        List<Object> replies = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            try {
+                replies.add(client.getOne());
+            } catch (JedisDataException e) {
+                replies.add(new RedisSystemException(e.getMessage(), e));
+            }
+        }
+        return replies;
+    }
+
+    private static void writeCommand(ByteArrayOutputStream buffer, byte[][] command) {
+        writeLength(buffer, '*', command.length);
+        for (byte[] arg : command) {
+            writeLength(buffer, '$', arg.length);
+            buffer.write(arg, 0, arg.length);
+            buffer.write(CRLF, 0, CRLF.length);
+        }
+    }
+
+    private static void writeLength(ByteArrayOutputStream buffer, char type, int length) {
+        byte[] line = (type + Integer.toString(length)).getBytes(StandardCharsets.US_ASCII);
+        buffer.write(line, 0, line.length);
+        buffer.write(CRLF, 0, CRLF.length);
+    }
+
+    private static JedisPool masterOf(RedisConnection connection, JedisCluster jedisCluster, byte[] key) {
+        RedisClusterNode node = ((RedisClusterConnection) connection).clusterGetNodeForKey(key);
+        JedisPool pool = jedisCluster.getClusterNodes().get(node.getHost() + ":" + node.getPort());
+        if (pool == null) {
+            throw new RedisSystemException("No connection to cluster node " + node.asString(), null);
+        }
+        return pool;
+    }
+
+    private List<Object> execute(BaseRedisAsyncCommands<byte[], byte[]> asyncCommands, byte[] key,
+                                 List<byte[][]> commands) {
+        List<RedisFuture<List<Object>>> futures = new ArrayList<>(commands.size());
+        for (byte[][] command : commands) {
+            CommandArgs<byte[], byte[]> args = new CommandArgs<>(ByteArrayCodec.INSTANCE);
+            for (int i = 1; i < command.length; i++) {
+                if (command[i] == key) {
+                    args.addKey(key);
+                } else {
+                    args.add(command[i]);
+                }
+            }
+            futures.add(asyncCommands.dispatch(new Keyword(command[0]),
+                    new NestedMultiOutput<>(ByteArrayCodec.INSTANCE), args));
+        }
+        if (!LettuceFutures.awaitAll(timeoutMillis, TimeUnit.MILLISECONDS, futures.toArray(new Future<?>[0]))) {
+            throw new RedisSystemException("Redis stream commands timed out after " + timeoutMillis + "ms", null);
+        }
+        List<Object> replies = new ArrayList<>(commands.size());
+        for (RedisFuture<List<Object>> future : futures) {
+            try {
+                List<Object> reply = future.get();
+                replies.add(reply.size() == 1 && !(reply.get(0) instanceof List) ? reply.get(0) : reply);
+            } catch (ExecutionException e) {
+                replies.add(new RedisSystemException(e.getCause().getMessage(), e.getCause()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RedisSystemException("Interrupted while sending redis stream commands", e);
+            }
+        }
+        return replies;
+    }
+
+    /**
+     * Command name of a raw command sent with lettuce.
+     */
+    private static final class Keyword implements ProtocolKeyword {
+
+        private final byte[] name;
+
+        private Keyword(byte[] name) {
+            this.name = name;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            return name;
+        }
+
+        @Override
+        public String name() {
+            return new String(name, StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.StringUtils;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The type Redis stream listener container.
+ * Consumes streams in consumer groups in the background: every subscription has a thread reading batches of
+ * {@link RedisClientProperties.Stream#getBatchSize()} new entries with XREADGROUP, blocking for up to
+ * {@link RedisClientProperties.Stream#getBlock()} with jedis and polling as often with lettuce. The entries of a batch
+ * are handed to the listener in parallel, on the {@link RedisClientProperties.Stream#getThreads()} threads of the
+ * container, and those handled are acknowledged with one XACK once the batch is done.
+ * <p>
+ * Entries are handled at least once: an entry whose listener throws, or whose acknowledgement fails, stays pending
+ * and is claimed again, by this or another consumer of the group, once idle for
+ * {@link RedisClientProperties.Stream#getClaimMinIdle()}. Claims run every
+ * {@link RedisClientProperties.Stream#getClaimInterval()}. While redis can not be reached reads fall back to no
+ * entries, and the subscription waits for the block time before reading again.
+ */
+public class RedisStreamListenerContainer implements DisposableBean {
+
+    private static final Logger LOGGER = LogManager.getLogger(RedisStreamListenerContainer.class.getName());
+
+    private final RedisStreams streams;
+
+    private final RedisClientProperties.Stream properties;
+
+    private final String consumer;
+
+    private final List<Subscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private volatile ExecutorService executor;
+
+    /**
+     * Instantiates a new Redis stream listener container.
+     *
+     * @param streams    the redis streams, see {@link RedisClient#streams()}
+     * @param properties the stream properties
+     */
+    public RedisStreamListenerContainer(RedisStreams streams, RedisClientProperties.Stream properties) {
+        this.streams = streams;
+        this.properties = properties;
+        this.consumer = StringUtils.hasText(properties.getConsumer())
+                ? properties.getConsumer()
+                : ManagementFactory.getRuntimeMXBean().getName();
+    }
+
+    /**
+     * Subscribes the listener to the stream, as a consumer of the group, which is created at the end of the stream
+     * if missing. The listener is handed the entries added from then on, and those pending with this consumer name.
+     *
+     * @param <T>      the type parameter
+     * @param stream   the stream key
+     * @param group    the consumer group
+     * @param type     the type of the field values
+     * @param listener the listener
+     * @throws IllegalStateException if the container is stopped
+     */
+    public <T> void subscribe(String stream, String group, Class<T> type, StreamListener<T> listener) {
+        if (stopped.getCount() == 0) {
+            throw new IllegalStateException("Redis stream listener container is stopped");
+        }
+        streams.createGroup(stream, group);
+        Subscription<T> subscription = new Subscription<>(stream, group, type, listener);
+        Thread thread = new Thread(subscription::poll, "redis-stream-" + stream + "-" + group);
+        thread.setDaemon(true);
+        subscription.thread = thread;
+        subscriptions.add(subscription);
+        thread.start();
+        LOGGER.info("Redis stream subscribed stream:{}, group:{}, consumer:{}", stream, group, consumer);
+    }
+
+    /**
+     * Gets the consumer name of the container in its consumer groups.
+     *
+     * @return the consumer name
+     */
+    public String getConsumer() {
+        return consumer;
+    }
+
+    @Override
+    public void destroy() {
+        stopped.countDown();
+        long timeout = properties.getBlock().toMillis() * 2;
+        for (Subscription<?> subscription : subscriptions) {
+            try {
+                subscription.thread.join(timeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    int threads = Math.max(1, properties.getThreads());
+                    executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                            new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "redis-stream-listener-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * A listener subscribed to a stream.
+     */
+    private final class Subscription<T> {
+
+        private final String stream;
+
+        private final String group;
+
+        private final Class<T> type;
+
+        private final StreamListener<T> listener;
+
+        private Thread thread;
+
+        private Subscription(String stream, String group, Class<T> type, StreamListener<T> listener) {
+            this.stream = stream;
+            this.group = group;
+            this.type = type;
+            this.listener = listener;
+        }
+
+        private void poll() {
+            long blockNanos = properties.getBlock().toNanos();
+            long claimIntervalNanos = properties.getClaimInterval().toNanos();
+            long nextClaim = System.nanoTime() + claimIntervalNanos;
+            while (stopped.getCount() > 0) {
+                try {
+                    long start = System.nanoTime();
+                    List<StreamMessage<T>> messages = streams.read(stream, group, consumer, properties.getBatchSize(),
+                            properties.getBlock(), type);
+                    handle(messages);
+                    if (System.nanoTime() - nextClaim >= 0) {
+                        handle(streams.claim(stream, group, consumer, properties.getClaimMinIdle(),
+                                properties.getBatchSize(), type));
+                        nextClaim = System.nanoTime() + claimIntervalNanos;
+                    }
+                    long waitNanos = blockNanos - (System.nanoTime() - start);
+                    if (messages.isEmpty() && waitNanos > 0) {
+                        stopped.await(waitNanos, TimeUnit.NANOSECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    LOGGER.error("Redis stream subscription Failed for stream:{}, group:{}", stream, group, e);
+                }
+            }
+        }
+
+        /**
+         * Hands the entries to the listener in parallel and acknowledges those handled.
+         */
+        private void handle(List<StreamMessage<T>> messages) throws InterruptedException {
+            if (messages.isEmpty()) {
+                return;
+            }
+            List<Future<String>> handled = new ArrayList<>(messages.size());
+            for (StreamMessage<T> message : messages) {
+                handled.add(executor().submit(() -> {
+                    listener.onMessage(message);
+                    return message.getId();
+                }));
+            }
+            List<String> ids = new ArrayList<>(messages.size());
+            for (int i = 0; i < handled.size(); i++) {
+                try {
+                    ids.add(handled.get(i).get());
+                } catch (ExecutionException e) {
+                    LOGGER.error("Redis stream listener Failed for stream:{}, group:{}, id:{}, left pending",
+                            stream, group, messages.get(i).getId(), e.getCause());
+                }
+            }
+            streams.acknowledge(stream, group, ids);
+        }
+    }
+}
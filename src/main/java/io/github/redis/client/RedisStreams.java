@@ -0,0 +1,483 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.hystrix.HystrixCommandProperties;
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.helper.ValueTypes;
+import io.github.redis.metrics.RedisClientMetrics;
+import io.github.redis.serializer.TypedRedisSerializer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.github.redis.helper.Constants.*;
+
+/**
+ * The type Redis streams.
+ * Produces to and consumes from redis streams in consumer groups: XADD of batches of entries in one round-trip,
+ * trimmed with MAXLEN ~ to {@link RedisClientProperties.Stream#getMaxLength()}, XREADGROUP, XACK of batches of ids
+ * and XAUTOCLAIM of entries left pending by failed consumers (XPENDING and XCLAIM before redis 6.2). Adding,
+ * reading, acknowledging and claiming run under hystrix commands of their own, so each has its own circuit breaker
+ * and metrics. See {@link RedisStreamListenerContainer} to consume streams in the background.
+ * <p>
+ * Fields are written and read with the hash key and hash value serializers, as hash fields are. A read entry
+ * whose fields can not be read as the type asked for is skipped and stays pending.
+ */
+public class RedisStreams {
+
+    private static final Logger LOGGER = LogManager.getLogger(RedisStreams.class.getName());
+
+    private static final byte[] XADD = bytes("XADD");
+
+    private static final byte[] XREADGROUP = bytes("XREADGROUP");
+
+    private static final byte[] XGROUP = bytes("XGROUP");
+
+    private static final byte[] XACK = bytes("XACK");
+
+    private static final byte[] XAUTOCLAIM = bytes("XAUTOCLAIM");
+
+    private static final byte[] XPENDING = bytes("XPENDING");
+
+    private static final byte[] XCLAIM = bytes("XCLAIM");
+
+    private static final String BUSY_GROUP_ERROR = "BUSYGROUP";
+
+    private static final String NO_GROUP_ERROR = "NOGROUP";
+
+    private static final String UNKNOWN_COMMAND_ERROR = "unknown command";
+
+    /**
+     * Time a blocking read is given on top of its block before hystrix times it out, when thread isolated.
+     */
+    private static final long READ_TIMEOUT_MARGIN_MILLIS = 1000;
+
+    private static final String BLOCKING_READ_TIMEOUT_PROPERTY = "hystrix.command." + REDIS_STREAM_BLOCKING_READ_COMMAND
+            + ".execution.isolation.thread.timeoutInMilliseconds";
+
+    /**
+     * Timeout set for blocking reads, the longest block of any read plus the margin. Hystrix caches the properties
+     * of a command key, so the timeout is raised through the configuration instead of per command.
+     */
+    private static final AtomicLong blockingReadTimeoutMillis = new AtomicLong();
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final RedisStreamCommands commands;
+
+    private final RedisClientProperties.Stream properties;
+
+    private final RedisClientMetrics metrics;
+
+    private final String format;
+
+    /**
+     * Instantiates new Redis streams.
+     *
+     * @param redisTemplate the redis template
+     * @param commands      the raw stream commands
+     * @param properties    the stream properties
+     * @param metrics       the metrics the commands are timed with
+     * @param format        the serialization format tag of the metrics
+     */
+    RedisStreams(RedisTemplate<String, Object> redisTemplate, RedisStreamCommands commands,
+                 RedisClientProperties.Stream properties, RedisClientMetrics metrics, String format) {
+        this.redisTemplate = redisTemplate;
+        this.commands = commands;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.format = format;
+    }
+
+    /**
+     * Adds an entry to the stream with XADD, creating the stream if it does not exist.
+     *
+     * @param stream the stream key
+     * @param fields the fields of the entry, {@code null} values are left out
+     * @return the id of the entry, {@code null} if it could not be added
+     * @throws IllegalArgumentException if the entry has no field
+     */
+    public String add(String stream, Map<String, ?> fields) {
+        return addAll(stream, Collections.singletonList(fields)).get(0);
+    }
+
+    /**
+     * Adds entries to the stream with one XADD each, sent in one round-trip.
+     *
+     * @param stream  the stream key
+     * @param entries the fields of the entries, {@code null} values are left out
+     * @return the ids of the entries, in order, {@code null} for entries which could not be added
+     * @throws IllegalArgumentException if an entry has no field
+     */
+    public List<String> addAll(String stream, List<? extends Map<String, ?>> entries) {
+        if (entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        byte[] key = rawKey(stream);
+        List<byte[][]> xadds = new ArrayList<>(entries.size());
+        for (Map<String, ?> fields : entries) {
+            xadds.add(xadd(key, fields));
+        }
+        return new RedisCommand<>(REDIS_STREAM_ADD_COMMAND,
+                () -> metrics.time(REDIS_STREAM_ADD_COMMAND, format, () -> ids(stream, commands.execute(key, xadds))),
+                failure -> {
+                    metrics.fallback(REDIS_STREAM_ADD_COMMAND, format, failure);
+                    LOGGER.error("Redis stream XADD Failed for stream:{}, {} entries, returning NULL",
+                            stream, entries.size(), failure);
+                    return Collections.<String>nCopies(entries.size(), null);
+                }).execute();
+    }
+
+    /**
+     * Creates the consumer group with XGROUP CREATE, at the end of the stream, creating the stream if it does not
+     * exist.
+     *
+     * @param stream the stream key
+     * @param group  the consumer group
+     * @return whether the group was created, {@code false} if it exists or could not be created
+     */
+    public boolean createGroup(String stream, String group) {
+        return new RedisCommand<>(REDIS_STREAM_READ_COMMAND,
+                () -> metrics.time(REDIS_STREAM_READ_COMMAND, format, () -> createGroupRaw(rawKey(stream), group)),
+                failure -> {
+                    metrics.fallback(REDIS_STREAM_READ_COMMAND, format, failure);
+                    LOGGER.error("Redis stream XGROUP CREATE Failed for stream:{}, group:{}, returning false",
+                            stream, group, failure);
+                    return false;
+                }).execute();
+    }
+
+    /**
+     * Reads new entries of the stream for a consumer of the group with XREADGROUP, which become pending with the
+     * consumer until acknowledged. A missing group is created, at the end of the stream. Reads which block run under
+     * the hystrix command {@code redisClientStreamBlockingRead}, whose timeout is raised to the longest block, so they
+     * neither time out nor hold up the threads of reads which do not block.
+     *
+     * @param <T>      the type parameter
+     * @param stream   the stream key
+     * @param group    the consumer group
+     * @param consumer the consumer
+     * @param count    the max number of entries
+     * @param block    the time to wait for new entries with jedis, {@code null} or zero not to wait
+     * @param type     the type of the field values
+     * @return the entries, empty if none could be read
+     */
+    public <T> List<StreamMessage<T>> read(String stream, String group, String consumer, int count, Duration block,
+                                           Class<T> type) {
+        long blockMillis = block != null && commands.canBlock() ? block.toMillis() : 0;
+        String commandKey = REDIS_STREAM_READ_COMMAND;
+        HystrixCommandProperties.Setter commandProperties = HystrixCommandProperties.Setter();
+        if (blockMillis > 0) {
+            commandKey = REDIS_STREAM_BLOCKING_READ_COMMAND;
+            int timeoutMillis = raiseBlockingReadTimeout(blockMillis + READ_TIMEOUT_MARGIN_MILLIS);
+            commandProperties.withExecutionTimeoutInMilliseconds(timeoutMillis);
+        }
+        String readCommandKey = commandKey;
+        return new RedisCommand<>(readCommandKey, commandProperties,
+                () -> metrics.time(readCommandKey, format,
+                        () -> readRaw(stream, group, consumer, count, blockMillis, type)),
+                failure -> {
+                    metrics.fallback(readCommandKey, format, failure);
+                    LOGGER.error("Redis stream XREADGROUP Failed for stream:{}, group:{}, returning EMPTY",
+                            stream, group, failure);
+                    return Collections.<StreamMessage<T>>emptyList();
+                }).execute();
+    }
+
+    /**
+     * Raises the timeout of blocking reads to the timeout, unless it is higher already.
+     *
+     * @return the timeout of blocking reads
+     */
+    private static int raiseBlockingReadTimeout(long timeoutMillis) {
+        long current = blockingReadTimeoutMillis.get();
+        while (current < timeoutMillis) {
+            if (blockingReadTimeoutMillis.compareAndSet(current, timeoutMillis)) {
+                ConfigurationManager.getConfigInstance().setProperty(BLOCKING_READ_TIMEOUT_PROPERTY, timeoutMillis);
+                return (int) timeoutMillis;
+            }
+            current = blockingReadTimeoutMillis.get();
+        }
+        return (int) current;
+    }
+
+    /**
+     * Acknowledges entries of the group with XACK, in batches of {@link RedisClientProperties.Stream#getBatchSize()}
+     * ids sent in one round-trip.
+     *
+     * @param stream the stream key
+     * @param group  the consumer group
+     * @param ids    the ids of the entries
+     * @return the number of entries acknowledged, 0 if they could not be, and stay pending
+     */
+    public long acknowledge(String stream, String group, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return new RedisCommand<>(REDIS_STREAM_ACK_COMMAND,
+                () -> metrics.time(REDIS_STREAM_ACK_COMMAND, format, () -> acknowledgeRaw(rawKey(stream), group, ids)),
+                failure -> {
+                    metrics.fallback(REDIS_STREAM_ACK_COMMAND, format, failure);
+                    LOGGER.error("Redis stream XACK Failed for stream:{}, group:{}, {} ids, returning 0",
+                            stream, group, ids.size(), failure);
+                    return 0L;
+                }).execute();
+    }
+
+    /**
+     * Claims entries of the group pending for at least the min idle time for the consumer, with XAUTOCLAIM from the
+     * oldest pending entry. Before redis 6.2 the oldest pending entries are listed with XPENDING and those idle for
+     * long enough claimed with XCLAIM.
+     *
+     * @param <T>      the type parameter
+     * @param stream   the stream key
+     * @param group    the consumer group
+     * @param consumer the consumer claiming the entries
+     * @param minIdle  the time the entries have been pending for at least
+     * @param count    the max number of entries
+     * @param type     the type of the field values
+     * @return the claimed entries, empty if none could be claimed
+     */
+    public <T> List<StreamMessage<T>> claim(String stream, String group, String consumer, Duration minIdle, int count,
+                                            Class<T> type) {
+        return new RedisCommand<>(REDIS_STREAM_CLAIM_COMMAND,
+                () -> metrics.time(REDIS_STREAM_CLAIM_COMMAND, format,
+                        () -> claimRaw(stream, group, consumer, minIdle.toMillis(), count, type)),
+                failure -> {
+                    metrics.fallback(REDIS_STREAM_CLAIM_COMMAND, format, failure);
+                    LOGGER.error("Redis stream XAUTOCLAIM Failed for stream:{}, group:{}, returning EMPTY",
+                            stream, group, failure);
+                    return Collections.<StreamMessage<T>>emptyList();
+                }).execute();
+    }
+
+    private byte[][] xadd(byte[] key, Map<String, ?> fields) {
+        List<byte[]> args = new ArrayList<>(fields.size() * 2 + 6);
+        args.add(XADD);
+        args.add(key);
+        if (properties.getMaxLength() > 0) {
+            args.add(bytes("MAXLEN"));
+            args.add(bytes("~"));
+            args.add(bytes(Long.toString(properties.getMaxLength())));
+        }
+        args.add(bytes("*"));
+        int argsWithoutFields = args.size();
+        RedisSerializer<String> hashKeySerializer = hashKeySerializer();
+        RedisSerializer<Object> hashValueSerializer = hashValueSerializer();
+        fields.forEach((field, value) -> {
+            if (field != null && value != null) {
+                args.add(hashKeySerializer.serialize(field));
+                args.add(hashValueSerializer.serialize(value));
+            }
+        });
+        if (args.size() == argsWithoutFields) {
+            throw new IllegalArgumentException("Redis stream entries need at least one field");
+        }
+        return args.toArray(new byte[0][]);
+    }
+
+    private static List<String> ids(String stream, List<Object> replies) {
+        List<String> ids = new ArrayList<>(replies.size());
+        for (Object reply : replies) {
+            if (reply instanceof RuntimeException) {
+                LOGGER.error("Redis stream XADD Failed for stream:{}, returning NULL", stream, (Throwable) reply);
+                ids.add(null);
+            } else {
+                ids.add(string(reply));
+            }
+        }
+        return ids;
+    }
+
+    private boolean createGroupRaw(byte[] key, String group) {
+        Object reply = commands.execute(key, Collections.singletonList(
+                new byte[][]{XGROUP, bytes("CREATE"), key, bytes(group), bytes("$"), bytes("MKSTREAM")})).get(0);
+        if (isError(reply, BUSY_GROUP_ERROR)) {
+            return false;
+        }
+        check(reply);
+        return true;
+    }
+
+    private <T> List<StreamMessage<T>> readRaw(String stream, String group, String consumer, int count,
+                                               long blockMillis, Class<T> type) {
+        byte[] key = rawKey(stream);
+        List<byte[]> args = new ArrayList<>(11);
+        args.add(XREADGROUP);
+        args.add(bytes("GROUP"));
+        args.add(bytes(group));
+        args.add(bytes(consumer));
+        args.add(bytes("COUNT"));
+        args.add(bytes(Integer.toString(count)));
+        if (blockMillis > 0) {
+            args.add(bytes("BLOCK"));
+            args.add(bytes(Long.toString(blockMillis)));
+        }
+        args.add(bytes("STREAMS"));
+        args.add(key);
+        args.add(bytes(">"));
+        Object reply = commands.execute(key, Collections.singletonList(args.toArray(new byte[0][]))).get(0);
+        if (isError(reply, NO_GROUP_ERROR)) {
+            LOGGER.info("Redis stream consumer group missing, creating stream:{}, group:{}", stream, group);
+            createGroupRaw(key, group);
+            return Collections.emptyList();
+        }
+        check(reply);
+        if (!(reply instanceof List) || ((List<?>) reply).isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<?> streamReply = (List<?>) ((List<?>) reply).get(0);
+        return messages(stream, streamReply.get(1), type);
+    }
+
+    private long acknowledgeRaw(byte[] key, String group, Collection<String> ids) {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        List<byte[][]> xacks = new ArrayList<>();
+        List<byte[]> args = new ArrayList<>();
+        for (String id : ids) {
+            if (args.isEmpty()) {
+                args.add(XACK);
+                args.add(key);
+                args.add(bytes(group));
+            }
+            args.add(bytes(id));
+            if (args.size() - 3 == batchSize) {
+                xacks.add(args.toArray(new byte[0][]));
+                args.clear();
+            }
+        }
+        if (!args.isEmpty()) {
+            xacks.add(args.toArray(new byte[0][]));
+        }
+        long acknowledged = 0;
+        for (Object reply : commands.execute(key, xacks)) {
+            check(reply);
+            acknowledged += (Long) reply;
+        }
+        return acknowledged;
+    }
+
+    private <T> List<StreamMessage<T>> claimRaw(String stream, String group, String consumer, long minIdleMillis,
+                                                int count, Class<T> type) {
+        byte[] key = rawKey(stream);
+        if (commands.isAutoClaimSupported()) {
+            Object reply = commands.execute(key, Collections.singletonList(new byte[][]{XAUTOCLAIM, key, bytes(group),
+                    bytes(consumer), bytes(Long.toString(minIdleMillis)), bytes("0-0"), bytes("COUNT"),
+                    bytes(Integer.toString(count))})).get(0);
+            if (!isError(reply, UNKNOWN_COMMAND_ERROR)) {
+                check(reply);
+                return messages(stream, ((List<?>) reply).get(1), type);
+            }
+            LOGGER.info("Redis XAUTOCLAIM not supported, pending stream entries claimed with XPENDING and XCLAIM");
+            commands.autoClaimUnsupported();
+        }
+
+        Object pending = commands.execute(key, Collections.singletonList(new byte[][]{XPENDING, key, bytes(group),
+                bytes("-"), bytes("+"), bytes(Integer.toString(count))})).get(0);
+        check(pending);
+        List<byte[]> args = new ArrayList<>();
+        for (Object entry : (List<?>) pending) {
+            List<?> pendingEntry = (List<?>) entry;
+            if (((Number) pendingEntry.get(2)).longValue() >= minIdleMillis) {
+                args.add((byte[]) pendingEntry.get(0));
+            }
+        }
+        if (args.isEmpty()) {
+            return Collections.emptyList();
+        }
+        args.addAll(0, Arrays.asList(XCLAIM, key, bytes(group), bytes(consumer),
+                bytes(Long.toString(minIdleMillis))));
+        Object claimed = commands.execute(key, Collections.singletonList(args.toArray(new byte[0][]))).get(0);
+        check(claimed);
+        return messages(stream, claimed, type);
+    }
+
+    /**
+     * Entries of a reply, skipping entries deleted while pending and entries which can not be read as the type.
+     */
+    private <T> List<StreamMessage<T>> messages(String stream, Object entries, Class<T> type) {
+        if (!(entries instanceof List)) {
+            return Collections.emptyList();
+        }
+        List<StreamMessage<T>> messages = new ArrayList<>(((List<?>) entries).size());
+        for (Object entry : (List<?>) entries) {
+            if (!(entry instanceof List) || !(((List<?>) entry).get(1) instanceof List)) {
+                continue;
+            }
+            String id = string(((List<?>) entry).get(0));
+            List<?> rawFields = (List<?>) ((List<?>) entry).get(1);
+            try {
+                Map<String, T> fields = new LinkedHashMap<>();
+                for (int i = 0; i + 1 < rawFields.size(); i += 2) {
+                    fields.put(hashKeySerializer().deserialize((byte[]) rawFields.get(i)),
+                            deserialize((byte[]) rawFields.get(i + 1), type));
+                }
+                messages.add(new StreamMessage<>(stream, id, fields));
+            } catch (SerializationException | ClassCastException e) {
+                LOGGER.error("Redis stream entry skipped, stream:{}, id:{}, expected type:{}",
+                        stream, id, type.getName(), e);
+            }
+        }
+        return messages;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T deserialize(byte[] rawValue, Class<T> type) {
+        RedisSerializer<?> hashValueSerializer = redisTemplate.getHashValueSerializer();
+        if (hashValueSerializer instanceof TypedRedisSerializer) {
+            return ((TypedRedisSerializer) hashValueSerializer).deserialize(rawValue, type);
+        }
+        return ValueTypes.cast(hashValueSerializer.deserialize(rawValue), type);
+    }
+
+    private static boolean isError(Object reply, String error) {
+        return reply instanceof RuntimeException && ((RuntimeException) reply).getMessage() != null
+                && ((RuntimeException) reply).getMessage().contains(error);
+    }
+
+    private static void check(Object reply) {
+        if (reply instanceof RuntimeException) {
+            throw (RuntimeException) reply;
+        }
+    }
+
+    private byte[] rawKey(String key) {
+        @SuppressWarnings("unchecked")
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        return keySerializer.serialize(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<String> hashKeySerializer() {
+        return (RedisSerializer<String>) redisTemplate.getHashKeySerializer();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> hashValueSerializer() {
+        return (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+    }
+
+    private static String string(Object reply) {
+        return reply instanceof byte[] ? new String((byte[]) reply, StandardCharsets.UTF_8) : String.valueOf(reply);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,468 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import com.netflix.hystrix.HystrixCommandProperties;
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.config.RedisClientProperties.ReadFrom;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.connection.NamedNode;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisNode;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+import org.springframework.data.redis.connection.RedisServer;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static io.github.redis.helper.Constants.REDIS_REPLICA_READ_COMMAND;
+
+/**
+ * The type Replica read router.
+ * Sends reads of {@link RedisClient} to the replicas of a sentinel or cluster topology reached through jedis,
+ * following {@link RedisClientProperties.Read#getFrom()}: spread over the replicas in sync with
+ * {@code replica_preferred}, or to the node with the lowest latency with {@code nearest}.
+ * <p>
+ * Replicas are discovered in the background every {@link RedisClientProperties.Read#getRefreshInterval()}: from the
+ * sentinels, which get a connection pool of their own per replica, or from CLUSTER NODES, whose replica pools are
+ * those of the jedis cluster and whose connections are switched to READONLY before their first read. A refresh also
+ * measures the latency of every node with PING and leaves out replicas whose link to the master is down or idle for
+ * more than {@link RedisClientProperties.Read#getMaxLag()}, per INFO replication.
+ * <p>
+ * Every replica is read under a semaphore isolated hystrix command of its own,
+ * {@code redisClientReplicaRead-<host>-<port>}, so it has its own circuit breaker. The read goes to the next replica
+ * when the circuit of a replica is open, and to the master when the replica fails or none is left.
+ * <p>
+ * The masters read from CLUSTER NODES by a refresh also update the {@link ClusterSlotMap} of the client. The refresh
+ * thread and the pools of the sentinel replicas are released by {@link #close()}.
+ */
+class ReplicaReadRouter {
+
+    private static final Logger LOGGER = LogManager.getLogger(ReplicaReadRouter.class.getName());
+
+    private static final Object MASTER_READ = new Object();
+
+    private static final Replica[] NO_REPLICAS = new Replica[0];
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final JedisConnectionFactory connectionFactory;
+
+    private final ClusterSlotMap slotMap;
+
+    private final ReadFrom readFrom;
+
+    private final long maxLagSeconds;
+
+    private final long refreshIntervalNanos;
+
+    private final HystrixCommandProperties.Setter commandProperties;
+
+    private final Map<String, JedisPool> sentinelReplicaPools = new ConcurrentHashMap<>();
+
+    private final Set<Jedis> readOnlyConnections = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile Topology topology;
+
+    private volatile ExecutorService executor;
+
+    /**
+     * Instantiates a new Replica read router.
+     *
+     * @param redisTemplate         the redis template
+     * @param connectionFactory     the connection factory, of a sentinel or cluster topology
+     * @param slotMap               the slot map of the cluster, {@code null} for a sentinel topology
+     * @param properties            the read properties
+     * @param maxConcurrentRequests the max concurrent reads of a replica
+     */
+    ReplicaReadRouter(RedisTemplate<String, Object> redisTemplate, JedisConnectionFactory connectionFactory,
+                      ClusterSlotMap slotMap, RedisClientProperties.Read properties, int maxConcurrentRequests) {
+        this.redisTemplate = redisTemplate;
+        this.connectionFactory = connectionFactory;
+        this.slotMap = slotMap;
+        if (connectionFactory.isRedisClusterAware() && slotMap == null) {
+            throw new InvalidDataAccessApiUsageException("Replica reads of a cluster need its slot map");
+        }
+        if (slotMap == null && !connectionFactory.isRedisSentinelAware()) {
+            throw new InvalidDataAccessApiUsageException("Replica reads need a sentinel or cluster topology");
+        }
+        this.readFrom = properties.getFrom();
+        this.maxLagSeconds = properties.getMaxLag().getSeconds();
+        this.refreshIntervalNanos = properties.getRefreshInterval().toNanos();
+        this.commandProperties = HystrixCommandProperties.Setter()
+                .withExecutionIsolationStrategy(HystrixCommandProperties.ExecutionIsolationStrategy.SEMAPHORE)
+                .withExecutionIsolationSemaphoreMaxConcurrentRequests(maxConcurrentRequests)
+                .withFallbackIsolationSemaphoreMaxConcurrentRequests(maxConcurrentRequests)
+                .withExecutionTimeoutEnabled(false);
+        this.topology = new Topology(new Shard[0], System.nanoTime() - refreshIntervalNanos);
+    }
+
+    /**
+     * Reads from a replica of the key, or from the master.
+     *
+     * @param <T>     the type parameter
+     * @param key     the key, {@code null} for a read of the whole keyspace of a sentinel topology
+     * @param command the read, on a connection to a replica
+     * @param master  the read from the master
+     * @return the value read
+     */
+    @SuppressWarnings("unchecked")
+    <T> T read(String key, Function<Jedis, T> command, Supplier<T> master) {
+        refreshIfStale();
+        Replica[] replicas = candidates(key);
+        int start = readFrom == ReadFrom.NEAREST ? 0 : Math.floorMod(next.getAndIncrement(), Math.max(1, replicas.length));
+        for (int i = 0; i < replicas.length; i++) {
+            Replica replica = replicas[(start + i) % replicas.length];
+            RedisCommand<Object> replicaRead = new RedisCommand<>(replica.commandKey, commandProperties,
+                    () -> replica.read(command), failure -> MASTER_READ);
+            Object value = replicaRead.execute();
+            if (value != MASTER_READ) {
+                return (T) value;
+            }
+            if (!replicaRead.isResponseShortCircuited()) {
+                LOGGER.warn("Read of redis replica:{} failed, reading from master", replica.address,
+                        replicaRead.getExecutionException());
+                break;
+            }
+        }
+        return master.get();
+    }
+
+    /**
+     * Replicas the key can be read from, in order of preference.
+     */
+    private Replica[] candidates(String key) {
+        Shard[] shards = topology.shards;
+        if (shards.length == 0) {
+            return NO_REPLICAS;
+        }
+        if (shards.length > 1 && key == null) {
+            throw new InvalidDataAccessApiUsageException("Reads of a cluster replica need a key");
+        }
+        Shard shard = shards.length == 1 ? shards[0] : shards[slotMap.slotOf(key)];
+        if (shard == null) {
+            return NO_REPLICAS;
+        }
+        return readFrom == ReadFrom.NEAREST ? shard.nearerThanMaster : shard.replicas;
+    }
+
+    private void refreshIfStale() {
+        if (System.nanoTime() - topology.refreshedAt < refreshIntervalNanos || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor().execute(() -> {
+                try {
+                    refresh();
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Discovers the replicas again, with their lag and latency. Until it succeeds reads go to the master.
+     */
+    void refresh() {
+        try {
+            topology = new Topology(slotMap != null ? clusterShards() : sentinelShards(), System.nanoTime());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not discover redis replicas, reading from master", e);
+            topology = new Topology(new Shard[0], System.nanoTime());
+        }
+    }
+
+    private Shard[] sentinelShards() {
+        NamedNode masterName = connectionFactory.getSentinelConfiguration().getMaster();
+        Collection<RedisServer> servers;
+        RedisSentinelConnection sentinel = connectionFactory.getSentinelConnection();
+        try {
+            servers = sentinel.slaves(masterName);
+        } finally {
+            try {
+                sentinel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close redis sentinel connection", e);
+            }
+        }
+
+        Map<String, JedisPool> livePools = new HashMap<>();
+        List<Replica> replicas = new ArrayList<>();
+        for (RedisServer server : servers) {
+            if (!isUp(server)) {
+                continue;
+            }
+            String address = address(server);
+            JedisPool pool = sentinelReplicaPools.computeIfAbsent(address,
+                    ignored -> newPool(server.getHost(), server.getPort()));
+            livePools.put(address, pool);
+            Replica replica = probe(server, pool, false);
+            if (replica != null) {
+                replicas.add(replica);
+            }
+        }
+        sentinelReplicaPools.entrySet().removeIf(entry -> {
+            if (livePools.containsKey(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().destroy();
+            return true;
+        });
+
+        long masterLatency = readFrom == ReadFrom.NEAREST ? latency(() -> redisTemplate.execute(
+                (RedisCallback<String>) connection -> connection.ping())) : Long.MAX_VALUE;
+        return new Shard[]{new Shard(replicas, masterLatency)};
+    }
+
+    private static boolean isUp(RedisServer server) {
+        String flags = server.getFlags();
+        return (flags == null || !(flags.contains("s_down") || flags.contains("o_down") || flags.contains("disconnected")))
+                && "ok".equals(server.get("master-link-status"));
+    }
+
+    private Shard[] clusterShards() {
+        return redisTemplate.execute((RedisCallback<Shard[]>) connection -> {
+            RedisClusterConnection clusterConnection = (RedisClusterConnection) connection;
+            Object nativeConnection = clusterConnection.getNativeConnection();
+            if (!(nativeConnection instanceof JedisCluster)) {
+                throw new InvalidDataAccessApiUsageException("Replica reads are not supported for connection "
+                        + (nativeConnection == null ? null : nativeConnection.getClass().getName()));
+            }
+            Map<String, JedisPool> pools = ((JedisCluster) nativeConnection).getClusterNodes();
+
+            Iterable<RedisClusterNode> nodes = clusterConnection.clusterGetNodes();
+            RedisClusterNode[] masters = slotMap.update(nodes);
+            Map<String, List<Replica>> replicasByMaster = new HashMap<>();
+            for (RedisClusterNode node : nodes) {
+                if (!node.isMaster() && node.getMasterId() != null && node.isConnected() && !node.isMarkedAsFail()) {
+                    JedisPool pool = pools.get(address(node));
+                    Replica replica = pool == null ? null : probe(node, pool, true);
+                    if (replica != null) {
+                        replicasByMaster.computeIfAbsent(node.getMasterId(), ignored -> new ArrayList<>()).add(replica);
+                    }
+                }
+            }
+
+            Map<String, Shard> shardsByMaster = new HashMap<>();
+            Shard[] shards = new Shard[ClusterSlotMap.SLOT_COUNT];
+            for (int slot = 0; slot < shards.length; slot++) {
+                RedisClusterNode master = masters[slot];
+                List<Replica> replicas = master == null ? null : replicasByMaster.get(master.getId());
+                if (replicas != null) {
+                    shards[slot] = shardsByMaster.computeIfAbsent(master.getId(), ignored -> {
+                        JedisPool masterPool = pools.get(address(master));
+                        long masterLatency = readFrom == ReadFrom.NEAREST && masterPool != null
+                                ? latency(() -> ping(masterPool)) : Long.MAX_VALUE;
+                        return new Shard(replicas, masterLatency);
+                    });
+                }
+            }
+            return shards;
+        });
+    }
+
+    /**
+     * The replica with its latency, {@code null} if it can not be reached or lags behind its master.
+     */
+    private Replica probe(RedisNode node, JedisPool pool, boolean readOnly) {
+        try (Jedis jedis = pool.getResource()) {
+            long start = System.nanoTime();
+            jedis.ping();
+            long latency = System.nanoTime() - start;
+            if (!inSync(jedis.info("replication"))) {
+                LOGGER.warn("Redis replica:{} lags behind its master, not read", address(node));
+                return null;
+            }
+            return new Replica(node, pool, readOnly, latency);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Redis replica:{} can not be reached, not read", address(node), e);
+            return null;
+        }
+    }
+
+    /**
+     * Whether the link of the replica to its master is up, and the master was heard from within the max lag.
+     */
+    private boolean inSync(String replicationInfo) {
+        boolean linkUp = false;
+        long lastIoSeconds = Long.MAX_VALUE;
+        for (String line : replicationInfo.split("\r?\n")) {
+            if (line.startsWith("master_link_status:")) {
+                linkUp = "up".equals(line.substring("master_link_status:".length()).trim());
+            } else if (line.startsWith("master_last_io_seconds_ago:")) {
+                lastIoSeconds = Long.parseLong(line.substring("master_last_io_seconds_ago:".length()).trim());
+            }
+        }
+        return linkUp && lastIoSeconds >= 0 && lastIoSeconds <= maxLagSeconds;
+    }
+
+    private static String ping(JedisPool pool) {
+        try (Jedis jedis = pool.getResource()) {
+            return jedis.ping();
+        }
+    }
+
+    private static long latency(Runnable ping) {
+        try {
+            long start = System.nanoTime();
+            ping.run();
+            return System.nanoTime() - start;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Redis master can not be reached to measure its latency", e);
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Creates the pool of a sentinel replica, with the settings of the connection factory.
+     *
+     * @param host the host
+     * @param port the port
+     * @return the jedis pool
+     */
+    JedisPool newPool(String host, int port) {
+        GenericObjectPoolConfig poolConfig = connectionFactory.getPoolConfig() != null
+                ? connectionFactory.getPoolConfig() : new JedisPoolConfig();
+        return new JedisPool(poolConfig, host, port, connectionFactory.getTimeout(), connectionFactory.getPassword(),
+                connectionFactory.getDatabase(), connectionFactory.getClientName(), connectionFactory.isUseSsl());
+    }
+
+    private static String address(RedisNode node) {
+        return node.getHost() + ":" + node.getPort();
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    executor = Executors.newSingleThreadExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "redis-client-replica-refresh");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the refresh thread and destroys the pools of the sentinel replicas.
+     */
+    void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sentinelReplicaPools.values().forEach(JedisPool::destroy);
+        sentinelReplicaPools.clear();
+    }
+
+    /**
+     * Replicas of every slot, or of the whole keyspace in a single shard for sentinel topologies.
+     */
+    private static final class Topology {
+
+        private final Shard[] shards;
+
+        private final long refreshedAt;
+
+        private Topology(Shard[] shards, long refreshedAt) {
+            this.shards = shards;
+            this.refreshedAt = refreshedAt;
+        }
+    }
+
+    /**
+     * Replicas in sync of one master.
+     */
+    private static final class Shard {
+
+        private final Replica[] replicas;
+
+        private final Replica[] nearerThanMaster;
+
+        private Shard(List<Replica> replicas, long masterLatency) {
+            this.replicas = replicas.toArray(NO_REPLICAS);
+            this.nearerThanMaster = Arrays.stream(this.replicas)
+                    .filter(replica -> replica.latency < masterLatency)
+                    .sorted(Comparator.comparingLong(replica -> replica.latency))
+                    .toArray(Replica[]::new);
+        }
+    }
+
+    /**
+     * A replica, read under a hystrix command of its own.
+     */
+    private final class Replica {
+
+        private final String address;
+
+        private final String commandKey;
+
+        private final JedisPool pool;
+
+        private final boolean readOnly;
+
+        private final long latency;
+
+        private Replica(RedisNode node, JedisPool pool, boolean readOnly, long latency) {
+            this.address = address(node);
+            this.commandKey = REDIS_REPLICA_READ_COMMAND + "-" + node.getHost() + "-" + node.getPort();
+            this.pool = pool;
+            this.readOnly = readOnly;
+            this.latency = latency;
+        }
+
+        private <T> T read(Function<Jedis, T> command) {
+            try (Jedis jedis = pool.getResource()) {
+                if (readOnly && !readOnlyConnections.contains(jedis)) {
+                    jedis.readonly();
+                    readOnlyConnections.add(jedis);
+                }
+                return command.apply(jedis);
+            }
+        }
+    }
+}
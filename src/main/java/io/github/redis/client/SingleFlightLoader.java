@@ -0,0 +1,360 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.helper.ValueTypes;
+import io.github.redis.metrics.RedisClientMetrics;
+import io.github.redis.serializer.TypedRedisSerializer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static io.github.redis.helper.Constants.REDIS_GET_OR_LOAD_COMMAND;
+
+/**
+ * The type Single flight loader.
+ * Backs {@link RedisClient#getOrLoad(String, Class, Supplier, int)}: concurrent callers for the same key in this JVM
+ * share one in-flight read of redis, and on a miss one load, whose result is written back with expiry.
+ * <p>
+ * Other nodes are kept out of the load by an optional lock key set with SET NX PX, while waiting for it the value is
+ * polled from redis. Recomputation is spread before expiry with probabilistic early refresh (XFetch): the time the
+ * last load took is kept next to the value, and a read recomputes early with a probability growing as the remaining
+ * ttl nears that time, scaled by the early refresh beta.
+ */
+class SingleFlightLoader {
+
+    private static final Logger LOGGER = LogManager.getLogger(SingleFlightLoader.class.getName());
+
+    private static final String LOCK_SUFFIX = ":lock";
+
+    private static final String DELTA_SUFFIX = ":delta";
+
+    private static final long LOCK_POLL_MILLIS = 20;
+
+    private static final byte[] UNLOCK_SCRIPT = ("if redis.call('get', KEYS[1]) == ARGV[1] "
+            + "then return redis.call('del', KEYS[1]) else return 0 end").getBytes(StandardCharsets.UTF_8);
+
+    private final RedisClient client;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final boolean clusterMode;
+
+    private final RedisClientProperties.Load properties;
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private RedisClientMetrics metrics = RedisClientMetrics.noop();
+
+    /**
+     * Instantiates a new Single flight loader.
+     *
+     * @param client              the redis client, loaded elements are written back with it
+     * @param redisTemplate       the redis template
+     * @param stringRedisTemplate the string redis template
+     * @param clusterMode         whether the connection is a cluster connection, which can not be pipelined
+     * @param properties          the load properties
+     */
+    SingleFlightLoader(RedisClient client,
+                       RedisTemplate<String, Object> redisTemplate,
+                       StringRedisTemplate stringRedisTemplate,
+                       boolean clusterMode,
+                       RedisClientProperties.Load properties) {
+        this.client = client;
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.clusterMode = clusterMode;
+        this.properties = properties;
+    }
+
+    /**
+     * Sets metrics.
+     *
+     * @param metrics the metrics reads are timed with
+     */
+    void setMetrics(RedisClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the element from redis or loads it, sharing the call with concurrent callers of the same key.
+     *
+     * @param <T>             the type parameter
+     * @param key             the key
+     * @param tClass          the t class
+     * @param loader          the loader of missing elements
+     * @param expiryInSeconds the expiry in seconds of loaded elements
+     * @param format          the serialization format, used as metrics tag
+     * @return the element, {@code null} if missing and loaded as {@code null}
+     */
+    <T> T load(String key, Class<T> tClass, Supplier<T> loader, int expiryInSeconds, String format) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            Object shared = await(leader);
+            if (ValueTypes.isInstance(shared, tClass)) {
+                return ValueTypes.cast(shared, tClass);
+            }
+            // the leader asked for a type the element can not be converted to
+            return readOrLoad(key, tClass, loader, expiryInSeconds, format);
+        }
+        try {
+            T element = readOrLoad(key, tClass, loader, expiryInSeconds, format);
+            flight.complete(element);
+            return element;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private <T> T readOrLoad(String key, Class<T> tClass, Supplier<T> loader, int expiryInSeconds, String format) {
+        Entry entry = read(key, tClass, format, isEarlyRefreshEnabled());
+        T element = ValueTypes.isInstance(entry.value, tClass) ? ValueTypes.cast(entry.value, tClass) : null;
+        if (element != null && !refreshEarly(entry)) {
+            return element;
+        }
+
+        String token = null;
+        if (properties.isLockEnabled()) {
+            token = tryLock(key);
+            if (token == null) {
+                if (element != null) {
+                    return element;
+                }
+                element = awaitLoadByLockHolder(key, tClass, format);
+                if (element != null) {
+                    return element;
+                }
+                LOGGER.warn("Redis lock for key:{} held longer than {}, loading without lock", key, properties.getLockTimeout());
+            }
+        }
+
+        try {
+            long start = System.nanoTime();
+            T loaded = loader.get();
+            long deltaMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (loaded != null) {
+                writeBack(key, loaded, expiryInSeconds, deltaMillis, format);
+            }
+            return loaded;
+        } finally {
+            if (token != null) {
+                unlock(key, token);
+            }
+        }
+    }
+
+    private boolean isEarlyRefreshEnabled() {
+        return properties.getEarlyRefreshBeta() > 0;
+    }
+
+    /**
+     * XFetch: recompute when {@code -delta * beta * ln(random)} reaches the remaining ttl.
+     */
+    private boolean refreshEarly(Entry entry) {
+        if (!isEarlyRefreshEnabled() || entry.ttlMillis <= 0 || entry.deltaMillis <= 0) {
+            return false;
+        }
+        double random = 1 - ThreadLocalRandom.current().nextDouble();
+        return -entry.deltaMillis * properties.getEarlyRefreshBeta() * Math.log(random) >= entry.ttlMillis;
+    }
+
+    private Entry read(String key, Class<?> tClass, String format, boolean withExpiry) {
+        return new RedisCommand<>(REDIS_GET_OR_LOAD_COMMAND,
+                () -> metrics.time(REDIS_GET_OR_LOAD_COMMAND, format, () -> readRaw(key, tClass, withExpiry)),
+                failure -> {
+                    metrics.fallback(REDIS_GET_OR_LOAD_COMMAND, format, failure);
+                    LOGGER.error("Redis Get Or Load Failed to read key:{}, loading it", key, failure);
+                    return Entry.MISS;
+                }).execute();
+    }
+
+    private Entry readRaw(String key, Class<?> tClass, boolean withExpiry) {
+        byte[] rawKey = rawKey(key);
+        byte[] rawDeltaKey = rawKey(key + DELTA_SUFFIX);
+        RedisCallback<Object> reads = connection -> {
+            connection.get(rawKey);
+            if (withExpiry) {
+                connection.pTtl(rawKey);
+                connection.get(rawDeltaKey);
+            }
+            return null;
+        };
+
+        List<Object> results;
+        if (clusterMode) {
+            results = new ArrayList<>(3);
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                results.add(connection.get(rawKey));
+                if (withExpiry) {
+                    results.add(connection.pTtl(rawKey));
+                    results.add(connection.get(rawDeltaKey));
+                }
+                return null;
+            });
+        } else {
+            results = redisTemplate.executePipelined(reads, null);
+        }
+
+        Object value = TypedRedisSerializer.deserialize(valueSerializer(tClass), (byte[]) results.get(0), tClass);
+        if (!withExpiry || results.size() < 3) {
+            return new Entry(value, -1, 0);
+        }
+        return new Entry(value, toLong(results.get(1)), parseLong((byte[]) results.get(2)));
+    }
+
+    private <T> T awaitLoadByLockHolder(String key, Class<T> tClass, String format) {
+        long deadline = System.nanoTime() + properties.getLockTimeout().toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(LOCK_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            Object value = read(key, tClass, format, false).value;
+            if (ValueTypes.isInstance(value, tClass)) {
+                return ValueTypes.cast(value, tClass);
+            }
+        }
+        return null;
+    }
+
+    private String tryLock(String key) {
+        String token = UUID.randomUUID().toString();
+        byte[] rawLockKey = rawKey(key + LOCK_SUFFIX);
+        try {
+            Boolean locked = redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.set(rawLockKey,
+                    token.getBytes(StandardCharsets.UTF_8),
+                    Expiration.milliseconds(properties.getLockTimeout().toMillis()), SetOption.ifAbsent()));
+            return Boolean.TRUE.equals(locked) ? token : null;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Redis lock Failed for key:{}, loading without lock", key, e);
+            return "";
+        }
+    }
+
+    private void unlock(String key, String token) {
+        if (token.isEmpty()) {
+            return;
+        }
+        byte[] rawLockKey = rawKey(key + LOCK_SUFFIX);
+        try {
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.eval(UNLOCK_SCRIPT,
+                    ReturnType.INTEGER, 1, rawLockKey, token.getBytes(StandardCharsets.UTF_8)));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Redis unlock Failed for key:{}, lock expires on its own", key, e);
+        }
+    }
+
+    /**
+     * Writes the loaded element back under the hystrix command of the loader, so a write back to an unreachable
+     * redis times out and opens its circuit like the read, and never fails the load.
+     */
+    private void writeBack(String key, Object element, int expiryInSeconds, long deltaMillis, String format) {
+        new RedisCommand<Void>(REDIS_GET_OR_LOAD_COMMAND, () -> {
+            client.setElementInRedisWithExpiry(key, element, expiryInSeconds);
+            if (isEarlyRefreshEnabled()) {
+                byte[] rawDeltaKey = rawKey(key + DELTA_SUFFIX);
+                byte[] rawDelta = Long.toString(deltaMillis).getBytes(StandardCharsets.US_ASCII);
+                redisTemplate.execute((RedisCallback<Object>) connection -> {
+                    connection.setEx(rawDeltaKey, expiryInSeconds, rawDelta);
+                    return null;
+                });
+            }
+            return null;
+        }, failure -> {
+            metrics.fallback(REDIS_GET_OR_LOAD_COMMAND, format, failure);
+            LOGGER.error("Redis Get Or Load Failed to write back key:{}, returning loaded element", key, failure);
+            return null;
+        }).execute();
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
+    /**
+     * Values are written by the same template as {@link RedisClient#setElementInRedisWithExpiry(String, Object, int)}
+     * writes them, so they are read with its value serializer.
+     */
+    private RedisSerializer<?> valueSerializer(Class<?> tClass) {
+        return tClass == String.class ? stringRedisTemplate.getValueSerializer() : redisTemplate.getValueSerializer();
+    }
+
+    private static long toLong(Object result) {
+        return result instanceof Number ? ((Number) result).longValue() : -1;
+    }
+
+    private static long parseLong(byte[] raw) {
+        if (raw == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(raw, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * A value read from redis, with its remaining ttl and the time its last load took, in milliseconds.
+     */
+    private static final class Entry {
+
+        private static final Entry MISS = new Entry(null, -1, 0);
+
+        private final Object value;
+
+        private final long ttlMillis;
+
+        private final long deltaMillis;
+
+        private Entry(Object value, long ttlMillis, long deltaMillis) {
+            this.value = value;
+            this.ttlMillis = ttlMillis;
+            this.deltaMillis = deltaMillis;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+/**
+ * The interface Stream listener.
+ * Handles the entries read from a stream by a {@link RedisStreamListenerContainer}. An entry is acknowledged once
+ * the listener returns, an entry whose listener throws stays pending and is handled again once claimed.
+ *
+ * @param <T> the type parameter
+ */
+@FunctionalInterface
+public interface StreamListener<T> {
+
+    /**
+     * Handles an entry.
+     *
+     * @param message the entry
+     */
+    void onMessage(StreamMessage<T> message);
+}
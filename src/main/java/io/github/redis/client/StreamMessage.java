@@ -0,0 +1,67 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import java.util.Map;
+
+/**
+ * The type Stream message.
+ * An entry of a redis stream, read by {@link RedisStreams} or handed to a {@link StreamListener}: its id and its
+ * fields, deserialized to the type asked for with the hash value serializer.
+ *
+ * @param <T> the type parameter
+ */
+public class StreamMessage<T> {
+
+    private final String stream;
+
+    private final String id;
+
+    private final Map<String, T> fields;
+
+    /**
+     * Instantiates a new Stream message.
+     *
+     * @param stream the stream key
+     * @param id     the entry id
+     * @param fields the fields, in order of the entry
+     */
+    StreamMessage(String stream, String id, Map<String, T> fields) {
+        this.stream = stream;
+        this.id = id;
+        this.fields = fields;
+    }
+
+    /**
+     * Gets the key of the stream the entry was read from.
+     *
+     * @return the stream key
+     */
+    public String getStream() {
+        return stream;
+    }
+
+    /**
+     * Gets the id of the entry, e.g. {@code 1526919030474-55}.
+     *
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the fields of the entry.
+     *
+     * @return the fields, in order of the entry
+     */
+    public Map<String, T> getFields() {
+        return fields;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamMessage{stream=" + stream + ", id=" + id + ", fields=" + fields + "}";
+    }
+}
@@ -0,0 +1,474 @@
+package io.github.redis.client;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The type Write behind buffer.
+ * Buffers the writes of {@link RedisClient#setElementInRedis(String, Object)} and
+ * {@link RedisClient#putInRedisUsingHashOps(String, Object, Object)} in memory and writes them to redis in the
+ * background, in batches of SET and HSET sent in one round-trip through a {@link RedisPipeline}.
+ * <p>
+ * Writes to the same key, or hash field, are coalesced: only the last element written before a flush is sent.
+ * A flush is started every flush interval, or as soon as a batch worth of writes is pending. Writes which fail,
+ * also when the circuit of the pipeline is open, are kept and sent again by the next flush unless written again
+ * in between, up to max retries times before they are dropped. When the buffer holds max size keys, new keys are
+ * handled as set by the {@link RedisClientProperties.Backpressure}. Until flushed, buffered writes are not visible
+ * to reads, and the near caches are invalidated once they are written.
+ * <p>
+ * Writes the client sends to redis directly (delete, set with expiry, hash puts, counters, pipelines...)
+ * {@link #discard(Collection)} the pending writes of their keys first, waiting for a flush in flight of those keys,
+ * so a buffered write never lands after a later direct write. Pending writes are indexed by key, so a discard is a
+ * lookup of its keys and only waits for a flush writing one of them.
+ */
+public class WriteBehindBuffer implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LogManager.getLogger(WriteBehindBuffer.class.getName());
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final RedisClientProperties.WriteBehind properties;
+
+    /**
+     * The pending writes by key, then by hash key, {@code null} for the value of the key. The maps of the hash keys
+     * are only changed inside the compute methods of the pending map, or once removed from it.
+     */
+    private final ConcurrentMap<String, Map<Object, PendingWrite>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * The keys a flush is writing, completed once the batch they are in is written.
+     */
+    private final ConcurrentMap<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "redis-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Supplier<RedisPipeline> pipelineFactory;
+
+    private volatile Consumer<Collection<String>> writtenKeysListener = keys -> {
+    };
+
+    /**
+     * Instantiates a new Write behind buffer.
+     *
+     * @param properties the write behind properties
+     */
+    public WriteBehindBuffer(RedisClientProperties.WriteBehind properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Sets the factory of the pipelines flushes are written with, done by {@link RedisClient} it is set on.
+     *
+     * @param pipelineFactory the pipeline factory
+     */
+    void setPipelineFactory(Supplier<RedisPipeline> pipelineFactory) {
+        this.pipelineFactory = pipelineFactory;
+    }
+
+    /**
+     * Sets the listener of the keys written by a flush, done by {@link RedisClient} it is set on to invalidate its
+     * near cache.
+     *
+     * @param writtenKeysListener the written keys listener
+     */
+    void setWrittenKeysListener(Consumer<Collection<String>> writtenKeysListener) {
+        this.writtenKeysListener = writtenKeysListener;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        long interval = properties.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(properties.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (size.get() > 0) {
+            LOGGER.error("Redis write behind stopped with {} writes not flushed", size.get());
+        }
+    }
+
+    /**
+     * Buffers a SET of the element.
+     *
+     * @param key     the key
+     * @param element the element
+     * @return {@code false} if the buffer is full and the caller has to write the element itself
+     */
+    boolean set(String key, Object element) {
+        return buffer(key, null, element);
+    }
+
+    /**
+     * Buffers a HSET of the hash value.
+     *
+     * @param key       the key
+     * @param hashKey   the hash key
+     * @param hashValue the hash value
+     * @return {@code false} if the buffer is full and the caller has to write the hash value itself
+     */
+    boolean putInHash(String key, Object hashKey, Object hashValue) {
+        return buffer(key, hashKey, hashValue);
+    }
+
+    /**
+     * Discards the pending writes of the keys, values and hash fields, before the keys are written directly. If a
+     * flush is writing one of the keys, waits for it to complete.
+     *
+     * @param keys the keys
+     */
+    void discard(Collection<String> keys) {
+        for (String key : keys) {
+            discardKey(key);
+        }
+        awaitInFlight(keys);
+        // writes of a flush in flight which failed are kept again
+        for (String key : keys) {
+            discardKey(key);
+        }
+    }
+
+    /**
+     * Discards the pending writes of the hash fields and of the value of the key, before the hash fields are written
+     * directly. The pending writes of other fields of the hash are kept. If a flush is writing the key, waits for it
+     * to complete.
+     *
+     * @param key      the key
+     * @param hashKeys the hash keys
+     */
+    void discard(String key, Collection<?> hashKeys) {
+        discardFields(key, hashKeys);
+        awaitInFlight(Collections.singleton(key));
+        discardFields(key, hashKeys);
+    }
+
+    private void discardKey(String key) {
+        Map<Object, PendingWrite> fields = pending.remove(key);
+        if (fields != null) {
+            size.addAndGet(-fields.size());
+        }
+    }
+
+    private void discardFields(String key, Collection<?> hashKeys) {
+        pending.computeIfPresent(key, (k, fields) -> {
+            int discarded = fields.remove(null) != null ? 1 : 0;
+            for (Object hashKey : hashKeys) {
+                if (fields.remove(hashKey) != null) {
+                    discarded++;
+                }
+            }
+            size.addAndGet(-discarded);
+            return fields.isEmpty() ? null : fields;
+        });
+    }
+
+    private void awaitInFlight(Collection<String> keys) {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        for (String key : keys) {
+            CompletableFuture<Void> flushed = inFlight.get(key);
+            if (flushed == null) {
+                continue;
+            }
+            try {
+                flushed.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // batches are only completed normally
+            }
+        }
+    }
+
+    private boolean buffer(String key, Object hashKey, Object element) {
+        PendingWrite write = new PendingWrite(element, 0);
+        if (!replace(key, hashKey, write) && !add(key, hashKey, write)) {
+            switch (properties.getBackpressure()) {
+                case BLOCK:
+                    if (awaitSpace() && add(key, hashKey, write)) {
+                        return true;
+                    }
+                    drop(key);
+                    return true;
+                case DROP:
+                    drop(key);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        if (size.get() >= properties.getBatchSize()) {
+            triggerFlush();
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the pending write of a key, or hash field, coalescing the writes.
+     */
+    private boolean replace(String key, Object hashKey, PendingWrite write) {
+        boolean[] replaced = new boolean[1];
+        pending.computeIfPresent(key, (k, fields) -> {
+            replaced[0] = fields.replace(hashKey, write) != null;
+            return fields;
+        });
+        return replaced[0];
+    }
+
+    /**
+     * Adds a key to the buffer if there is space for it.
+     */
+    private boolean add(String key, Object hashKey, PendingWrite write) {
+        if (size.incrementAndGet() > properties.getMaxSize()) {
+            size.decrementAndGet();
+            triggerFlush();
+            return false;
+        }
+        pending.compute(key, (k, fields) -> {
+            Map<Object, PendingWrite> updated = fields != null ? fields : new HashMap<>();
+            if (updated.put(hashKey, write) != null) {
+                size.decrementAndGet();
+            }
+            return updated;
+        });
+        return true;
+    }
+
+    private boolean awaitSpace() {
+        long deadline = System.nanoTime() + properties.getBlockTimeout().toNanos();
+        while (size.get() >= properties.getMaxSize()) {
+            if (System.nanoTime() >= deadline || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+        return true;
+    }
+
+    private void drop(String key) {
+        droppedCount.incrementAndGet();
+        LOGGER.error("Redis write behind buffer full with {} keys, dropped write of key:{}", size.get(), key);
+    }
+
+    private void triggerFlush() {
+        if (!flushing.get() && !flusher.isShutdown() && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Writes the pending writes to redis, a batch per round-trip, until none are pending or a batch fails entirely.
+     */
+    void flush() {
+        Supplier<RedisPipeline> factory = pipelineFactory;
+        if (factory == null || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            while (!pending.isEmpty()) {
+                if (!flushBatch(factory.get())) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Redis write behind flush Failed, {} writes kept", size.get(), e);
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    /**
+     * Flushes up to a batch of writes, all the pending writes of a key at once. The keys are marked in flight before
+     * their writes are taken, so a discard of them waits for the batch.
+     *
+     * @return whether any write of the batch succeeded
+     */
+    private boolean flushBatch(RedisPipeline pipeline) {
+        List<WriteKey> keys = new ArrayList<>(properties.getBatchSize());
+        List<PendingWrite> writes = new ArrayList<>(properties.getBatchSize());
+        List<PipelineResult<Boolean>> results = new ArrayList<>(properties.getBatchSize());
+        Set<String> batchKeys = new HashSet<>();
+        CompletableFuture<Void> batchFlushed = new CompletableFuture<>();
+
+        Iterator<String> iterator = pending.keySet().iterator();
+        while (iterator.hasNext() && keys.size() < properties.getBatchSize()) {
+            String key = iterator.next();
+            inFlight.put(key, batchFlushed);
+            batchKeys.add(key);
+            Map<Object, PendingWrite> fields = pending.remove(key);
+            if (fields == null) {
+                continue;
+            }
+            size.addAndGet(-fields.size());
+            for (Map.Entry<Object, PendingWrite> field : fields.entrySet()) {
+                WriteKey writeKey = new WriteKey(key, field.getKey());
+                PendingWrite write = field.getValue();
+                try {
+                    results.add(writeKey.hashKey == null
+                            ? pipeline.set(key, write.element)
+                            : pipeline.putInHash(key, writeKey.hashKey, write.element));
+                    keys.add(writeKey);
+                    writes.add(write);
+                } catch (RuntimeException e) {
+                    droppedCount.incrementAndGet();
+                    LOGGER.error("Redis write behind dropped write of key:{}, could not be serialized", key, e);
+                }
+            }
+        }
+        if (keys.isEmpty()) {
+            endFlushBatch(batchKeys, batchFlushed);
+            return !pending.isEmpty();
+        }
+
+        int failed = 0;
+        Set<String> writtenKeys = new HashSet<>();
+        try {
+            pipeline.execute();
+            for (int i = 0; i < keys.size(); i++) {
+                if (results.get(i).isFallback()) {
+                    failed++;
+                    retain(keys.get(i), writes.get(i));
+                } else {
+                    writtenKeys.add(keys.get(i).key);
+                }
+            }
+        } finally {
+            endFlushBatch(batchKeys, batchFlushed);
+        }
+        if (!writtenKeys.isEmpty()) {
+            writtenKeysListener.accept(writtenKeys);
+        }
+        if (failed > 0) {
+            LOGGER.warn("Redis write behind flush Failed for {} of {} writes, kept for the next flush", failed, keys.size());
+        }
+        return failed < keys.size();
+    }
+
+    private void endFlushBatch(Set<String> batchKeys, CompletableFuture<Void> batchFlushed) {
+        for (String key : batchKeys) {
+            inFlight.remove(key, batchFlushed);
+        }
+        batchFlushed.complete(null);
+    }
+
+    /**
+     * Keeps a failed write, unless the key was written again since or the write was retried max retries times.
+     */
+    private void retain(WriteKey writeKey, PendingWrite write) {
+        if (write.retries >= properties.getMaxRetries()) {
+            droppedCount.incrementAndGet();
+            LOGGER.error("Redis write behind dropped write of key:{}, failed {} times", writeKey.key, write.retries + 1);
+            return;
+        }
+        PendingWrite retry = new PendingWrite(write.element, write.retries + 1);
+        pending.compute(writeKey.key, (k, fields) -> {
+            Map<Object, PendingWrite> updated = fields != null ? fields : new HashMap<>();
+            if (updated.putIfAbsent(writeKey.hashKey, retry) == null) {
+                size.incrementAndGet();
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * Number of writes waiting to be flushed.
+     *
+     * @return the count
+     */
+    public int getPendingCount() {
+        return size.get();
+    }
+
+    /**
+     * Number of writes dropped, because the buffer was full, the element could not be serialized or the write failed
+     * more than max retries times.
+     *
+     * @return the count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * A buffered element, with the number of times it failed to be written.
+     */
+    private static final class PendingWrite {
+
+        private final Object element;
+
+        private final int retries;
+
+        private PendingWrite(Object element, int retries) {
+            this.element = element;
+            this.retries = retries;
+        }
+    }
+
+    /**
+     * A key, or hash field when the hash key is set, of a write taken by a flush.
+     */
+    private static final class WriteKey {
+
+        private final String key;
+
+        private final Object hashKey;
+
+        private WriteKey(String key, Object hashKey) {
+            this.key = key;
+            this.hashKey = hashKey;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.redis.config;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import com.netflix.config.ConfigurationManager;
+import io.github.redis.helper.Constants;
+import io.github.redis.metrics.LatencyTracker;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Adaptive timeout configurer.
+ * Sets the hystrix timeout of the commands of {@link io.github.redis.client.RedisClient} from their recent latencies,
+ * every {@link RedisClientProperties.AdaptiveTimeout#getInterval()}: the latency percentile times the multiplier,
+ * between the min and max timeout. Hystrix reads the timeout on every execution, so a new timeout applies at once.
+ * Only commands timed out by hystrix, i.e. thread isolated or with
+ * <b>hystrix.command.&lt;key&gt;.execution.timeout.enabled=true</b>, are affected. As semaphore isolated commands are
+ * not timed out, the configurer refuses to start when no command is, e.g. with the default semaphore isolation.
+ * Timeouts set explicitly with <b>hystrix.command.&lt;key&gt;.execution.isolation.thread.timeoutInMilliseconds</b>
+ * are left untouched, and so is the timeout of blocking stream reads, whose latency is the block and which is set by
+ * the reads themselves.
+ */
+public class AdaptiveTimeoutConfigurer implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LogManager.getLogger(AdaptiveTimeoutConfigurer.class.getName());
+
+    private final LatencyTracker latencyTracker;
+
+    private final RedisClientProperties.AdaptiveTimeout properties;
+
+    private final HystrixIsolationConfigurer isolationConfigurer;
+
+    private final List<String> commandKeys = new ArrayList<>();
+
+    private ScheduledExecutorService updater;
+
+    /**
+     * Instantiates a new Adaptive timeout configurer.
+     *
+     * @param latencyTracker      the latency tracker of the redis client
+     * @param properties          the adaptive timeout properties
+     * @param isolationConfigurer the isolation configurer of the commands
+     */
+    public AdaptiveTimeoutConfigurer(LatencyTracker latencyTracker, RedisClientProperties.AdaptiveTimeout properties,
+                                     HystrixIsolationConfigurer isolationConfigurer) {
+        this.latencyTracker = latencyTracker;
+        this.properties = properties;
+        this.isolationConfigurer = isolationConfigurer;
+    }
+
+    /**
+     * Selects the commands to adapt the timeout of and starts updating them.
+     *
+     * @throws IllegalStateException if no command is timed out by hystrix
+     */
+    @Override
+    public void afterPropertiesSet() {
+        AbstractConfiguration configuration = ConfigurationManager.getConfigInstance();
+        List<String> notTimedOut = new ArrayList<>();
+        for (String commandKey : HystrixIsolationConfigurer.COMMAND_KEYS) {
+            if (configuration.containsKey(timeoutProperty(commandKey))
+                    || Constants.REDIS_STREAM_BLOCKING_READ_COMMAND.equals(commandKey)) {
+                continue;
+            }
+            if (isTimedOut(configuration, commandKey)) {
+                commandKeys.add(commandKey);
+            } else {
+                notTimedOut.add(commandKey);
+            }
+        }
+        if (commandKeys.isEmpty()) {
+            throw new IllegalStateException("Redis adaptive timeouts need thread isolated commands, set "
+                    + "spring.redis.client.isolation.strategy=thread or disable spring.redis.client.adaptive-timeout");
+        }
+        if (!notTimedOut.isEmpty()) {
+            LOGGER.warn("Redis adaptive timeouts do not apply to commands not timed out by hystrix:{}", notTimedOut);
+        }
+        long interval = properties.getInterval().toMillis();
+        updater = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-client-adaptive-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        updater.scheduleWithFixedDelay(this::update, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (updater != null) {
+            updater.shutdownNow();
+        }
+    }
+
+    /**
+     * Sets the hystrix timeout of every command from its recent latencies.
+     */
+    void update() {
+        try {
+            AbstractConfiguration configuration = ConfigurationManager.getConfigInstance();
+            for (String commandKey : commandKeys) {
+                configuration.setProperty(timeoutProperty(commandKey), timeoutMillis(latencyTracker, properties, commandKey));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Redis command timeouts update Failed", e);
+        }
+    }
+
+    /**
+     * Timeout of a command from its recent latencies.
+     *
+     * @param latencyTracker the latency tracker
+     * @param properties     the adaptive timeout properties
+     * @param command        the command name
+     * @return the timeout in milliseconds, the max timeout until enough latencies are recorded
+     */
+    public static long timeoutMillis(LatencyTracker latencyTracker, RedisClientProperties.AdaptiveTimeout properties,
+                                     String command) {
+        long maxTimeout = properties.getMaxTimeout().toMillis();
+        long latency = latencyTracker.percentile(command, properties.getPercentile());
+        if (latency < 0) {
+            return maxTimeout;
+        }
+        long timeout = (long) Math.ceil(TimeUnit.NANOSECONDS.toMicros(latency) * properties.getMultiplier() / 1000);
+        return Math.min(maxTimeout, Math.max(properties.getMinTimeout().toMillis(), timeout));
+    }
+
+    /**
+     * Whether hystrix times the command out, per its explicit property or else its isolation strategy.
+     */
+    private boolean isTimedOut(AbstractConfiguration configuration, String commandKey) {
+        return configuration.getBoolean("hystrix.command." + commandKey + ".execution.timeout.enabled",
+                isolationConfigurer.strategyOf(commandKey) == RedisClientProperties.IsolationStrategy.THREAD);
+    }
+
+    private static String timeoutProperty(String commandKey) {
+        return "hystrix.command." + commandKey + ".execution.isolation.thread.timeoutInMilliseconds";
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.redis.config;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import com.netflix.config.ConfigurationManager;
+import io.github.redis.config.RedisClientProperties.IsolationStrategy;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+
+import static io.github.redis.helper.Constants.*;
+
+/**
+ * The type Hystrix isolation configurer.
+ * Sets the isolation of the hystrix commands of {@link io.github.redis.client.RedisClient} from
+ * <b>spring.redis.client.isolation.*</b>, as hystrix command properties:
+ * <ul>
+ * <li>{@code semaphore}: the command runs on the calling thread, limited to max concurrent requests.</li>
+ * <li>{@code thread}: the command runs on its own hystrix thread pool, timed out by hystrix.</li>
+ * <li>{@code virtual_thread}: the command runs on its own hystrix thread pool of virtual threads (Java 21+,
+ * {@code thread} before).</li>
+ * </ul>
+ * Semaphore and virtual thread commands are not timed out by the hystrix timer thread, redis calls are bounded by
+ * the connect and read timeouts of the connection instead.
+ * With bulkheads per node or key prefix (<b>spring.redis.client.bulkhead.*</b>), the circuit breakers of the
+ * partitioned commands are disabled, as every partition has its own.
+ * Hystrix properties set explicitly, e.g. <b>hystrix.command.redisClientGet.execution.isolation.strategy</b>,
+ * are left untouched.
+ */
+public class HystrixIsolationConfigurer implements InitializingBean {
+
+    private static final Logger LOGGER = LogManager.getLogger(HystrixIsolationConfigurer.class.getName());
+
+    /**
+     * The constant COMMAND_KEYS, of the hystrix commands of the redis client.
+     */
+    static final List<String> COMMAND_KEYS = Collections.unmodifiableList(Arrays.asList(
+            REDIS_GET_COMMAND, REDIS_SET_COMMAND, REDIS_DELETE_COMMAND, REDIS_GET_FROM_DB, REDIS_PUT_IN_DB,
+            REDIS_MULTI_GET_FROM_DB, REDIS_MULTI_PUT_IN_DB, REDIS_INCREMENT_COMMAND,
+            REDIS_MULTI_GET_COMMAND, REDIS_MULTI_SET_COMMAND, REDIS_PIPELINE_COMMAND, REDIS_GET_OR_LOAD_COMMAND,
+            REDIS_SCAN_COMMAND, REDIS_SCRIPT_COMMAND, REDIS_RATE_LIMIT_COMMAND, REDIS_STREAM_ADD_COMMAND,
+            REDIS_STREAM_READ_COMMAND, REDIS_STREAM_BLOCKING_READ_COMMAND, REDIS_STREAM_ACK_COMMAND,
+            REDIS_STREAM_CLAIM_COMMAND, REDIS_LARGE_VALUE_COMMAND));
+
+    /**
+     * The constant PARTITIONED_COMMAND_KEYS, of the single key commands split by the bulkheads. Multi-key deletes
+     * share the command of single key deletes, and its circuit breaker.
+     */
+    static final List<String> PARTITIONED_COMMAND_KEYS = Collections.unmodifiableList(Arrays.asList(
+            REDIS_GET_COMMAND, REDIS_SET_COMMAND, REDIS_DELETE_COMMAND, REDIS_GET_FROM_DB, REDIS_PUT_IN_DB,
+            REDIS_INCREMENT_COMMAND));
+
+    private final RedisClientProperties.Isolation properties;
+
+    private final RedisClientProperties.Bulkhead bulkhead;
+
+    /**
+     * Instantiates a new Hystrix isolation configurer.
+     *
+     * @param properties the isolation properties
+     */
+    public HystrixIsolationConfigurer(RedisClientProperties.Isolation properties) {
+        this(properties, new RedisClientProperties.Bulkhead());
+    }
+
+    /**
+     * Instantiates a new Hystrix isolation configurer.
+     *
+     * @param properties the isolation properties
+     * @param bulkhead   the bulkhead properties
+     */
+    public HystrixIsolationConfigurer(RedisClientProperties.Isolation properties, RedisClientProperties.Bulkhead bulkhead) {
+        this.properties = properties;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        AbstractConfiguration configuration = ConfigurationManager.getConfigInstance();
+        Set<String> virtualThreadPoolKeys = new LinkedHashSet<>();
+        ThreadFactory virtualThreadFactory = null;
+
+        for (String commandKey : COMMAND_KEYS) {
+            IsolationStrategy strategy = strategyOf(commandKey);
+            if (strategy == IsolationStrategy.VIRTUAL_THREAD) {
+                if (virtualThreadFactory == null) {
+                    virtualThreadFactory = VirtualThreadConcurrencyStrategy.virtualThreadFactory();
+                }
+                if (virtualThreadFactory == null) {
+                    LOGGER.warn("Virtual threads need Java 21, hystrix command:{} isolated with a thread pool", commandKey);
+                    strategy = IsolationStrategy.THREAD;
+                } else {
+                    virtualThreadPoolKeys.add(commandKey);
+                }
+            }
+            configure(configuration, commandKey, strategy);
+        }
+
+        if (!virtualThreadPoolKeys.isEmpty()) {
+            VirtualThreadConcurrencyStrategy.register(virtualThreadPoolKeys, virtualThreadFactory);
+        }
+
+        if (bulkhead.isPerNode() || !bulkhead.getPrefixes().isEmpty()) {
+            for (String commandKey : PARTITIONED_COMMAND_KEYS) {
+                setIfAbsent(configuration, "hystrix.command." + commandKey + ".circuitBreaker.enabled", false);
+            }
+        }
+    }
+
+    /**
+     * Strategy of a command, hystrix command keys are matched ignoring case as map keys may be bound in lower case.
+     *
+     * @param commandKey the command key
+     * @return the isolation strategy
+     */
+    IsolationStrategy strategyOf(String commandKey) {
+        for (Map.Entry<String, IsolationStrategy> command : properties.getCommands().entrySet()) {
+            if (command.getKey().equalsIgnoreCase(commandKey)) {
+                return command.getValue();
+            }
+        }
+        return properties.getStrategy();
+    }
+
+    private void configure(AbstractConfiguration configuration, String commandKey, IsolationStrategy strategy) {
+        String prefix = "hystrix.command." + commandKey + ".";
+        if (strategy == IsolationStrategy.SEMAPHORE) {
+            setIfAbsent(configuration, prefix + "execution.isolation.strategy", "SEMAPHORE");
+            setIfAbsent(configuration, prefix + "execution.isolation.semaphore.maxConcurrentRequests",
+                    properties.getMaxConcurrentRequests());
+            setIfAbsent(configuration, prefix + "fallback.isolation.semaphore.maxConcurrentRequests",
+                    properties.getMaxConcurrentRequests());
+        } else {
+            setIfAbsent(configuration, prefix + "execution.isolation.strategy", "THREAD");
+        }
+        if (strategy != IsolationStrategy.THREAD) {
+            setIfAbsent(configuration, prefix + "execution.timeout.enabled", false);
+        }
+    }
+
+    private static void setIfAbsent(AbstractConfiguration configuration, String key, Object value) {
+        if (!configuration.containsKey(key)) {
+            configuration.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package io.github.redis.config;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.helper.JedisPools;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.util.Pool;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Jedis pool manager.
+ * Fills the jedis pools of the connection factory up to min idle connections at startup, so the first requests after
+ * a deploy do not pay for connecting and AUTH, and optionally resizes them while they are in use: max total grows
+ * by a quarter while threads wait to borrow, or the mean borrow wait is above the target, and shrinks back by an
+ * eighth, never below the configured max total, while less than half the connections are in use.
+ * Does nothing for lettuce connection factories, which are not pooled.
+ */
+public class JedisPoolManager implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LogManager.getLogger(JedisPoolManager.class.getName());
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private final RedisClientProperties.Pool properties;
+
+    private final Map<GenericObjectPool<Jedis>, Long> borrowedCounts = new WeakHashMap<>();
+
+    private ScheduledExecutorService resizer;
+
+    /**
+     * Instantiates a new Jedis pool manager.
+     *
+     * @param connectionFactory the connection factory
+     * @param properties        the pool properties
+     */
+    public JedisPoolManager(RedisConnectionFactory connectionFactory, RedisClientProperties.Pool properties) {
+        this.connectionFactory = connectionFactory;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!(connectionFactory instanceof JedisConnectionFactory)) {
+            return;
+        }
+        if (properties.isWarmUp()) {
+            warmUp();
+        }
+        if (properties.getAdaptive().isEnabled()) {
+            long interval = properties.getAdaptive().getInterval().toMillis();
+            resizer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "redis-pool-resizer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            resizer.scheduleWithFixedDelay(this::resize, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (resizer != null) {
+            resizer.shutdownNow();
+        }
+    }
+
+    /**
+     * Adds connections to every pool until it holds min idle idle connections.
+     */
+    void warmUp() {
+        int minIdle = ((JedisConnectionFactory) connectionFactory).getPoolConfig().getMinIdle();
+        for (Pool<Jedis> pool : JedisPools.of((JedisConnectionFactory) connectionFactory)) {
+            int missing = minIdle - pool.getNumIdle();
+            if (missing <= 0) {
+                continue;
+            }
+            try {
+                pool.addObjects(missing);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Redis pool warm up Failed after {} of {} connections",
+                        pool.getNumIdle(), minIdle, e);
+            }
+        }
+    }
+
+    /**
+     * Resizes every pool from its waiters, mean borrow wait and active connections.
+     */
+    void resize() {
+        GenericObjectPoolConfig poolConfig = ((JedisConnectionFactory) connectionFactory).getPoolConfig();
+        try {
+            for (Pool<Jedis> pool : JedisPools.of((JedisConnectionFactory) connectionFactory)) {
+                GenericObjectPool<Jedis> internalPool = JedisPools.internalPool(pool);
+                if (internalPool == null || internalPool.isClosed()) {
+                    continue;
+                }
+                long borrowedCount = internalPool.getBorrowedCount();
+                Long lastBorrowedCount = borrowedCounts.put(internalPool, borrowedCount);
+                long borrows = lastBorrowedCount == null ? 0 : borrowedCount - lastBorrowedCount;
+
+                int maxTotal = internalPool.getMaxTotal();
+                int target = targetMaxTotal(maxTotal, poolConfig.getMaxTotal(), borrows,
+                        internalPool.getMeanBorrowWaitTimeMillis(), internalPool.getNumWaiters(), internalPool.getNumActive());
+                if (target != maxTotal) {
+                    internalPool.setMaxTotal(target);
+                    internalPool.setMaxIdle(poolConfig.getMaxIdle() + target - poolConfig.getMaxTotal());
+                    LOGGER.info("Redis pool resized from {} to {} max connections, mean borrow wait(ms):{}, waiting:{}",
+                            maxTotal, target, internalPool.getMeanBorrowWaitTimeMillis(), internalPool.getNumWaiters());
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Redis pool resize Failed", e);
+        }
+    }
+
+    /**
+     * Max total of a pool after a resize.
+     *
+     * @param maxTotal           the current max total
+     * @param configuredMaxTotal the configured max total, floor of the max total
+     * @param borrows            the number of borrows since the last resize
+     * @param meanBorrowWait     the mean borrow wait in milliseconds, of the last borrows
+     * @param waiters            the number of threads waiting to borrow
+     * @param active             the number of connections in use
+     * @return the max total
+     */
+    int targetMaxTotal(int maxTotal, int configuredMaxTotal, long borrows, long meanBorrowWait, int waiters, int active) {
+        if (maxTotal < 0) {
+            return maxTotal;
+        }
+        RedisClientProperties.Adaptive adaptive = properties.getAdaptive();
+        boolean starved = waiters > 0 || (borrows > 0 && meanBorrowWait >= adaptive.getTargetBorrowWait().toMillis());
+        if (starved) {
+            return Math.min(adaptive.getMaxTotalLimit(), maxTotal + Math.max(1, maxTotal / 4));
+        }
+        if (active < maxTotal / 2) {
+            return Math.max(configuredMaxTotal, maxTotal - Math.max(1, maxTotal / 8));
+        }
+        return maxTotal;
+    }
+}
@@ -0,0 +1,1620 @@
+package io.github.redis.config;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.helper.Constants;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The type Redis client properties.
+ * Client side tuning for {@link io.github.redis.client.RedisClient}, bound from <b>spring.redis.client.*</b>.
+ */
+@ConfigurationProperties(prefix = "spring.redis.client")
+public class RedisClientProperties {
+
+    /**
+     * Maximum number of keys sent in a single MGET/MSET (or pipeline) by the batch operations.
+     */
+    private int batchSize = Constants.DEFAULT_BATCH_SIZE;
+
+    /**
+     * Redis driver used for connections. The reactive client is only available with lettuce.
+     */
+    private Driver driver = Driver.JEDIS;
+
+    private final NearCache nearCache = new NearCache();
+
+    private final Reactive reactive = new Reactive();
+
+    private final Scan scan = new Scan();
+
+    private final Cluster cluster = new Cluster();
+
+    private final Serialization serialization = new Serialization();
+
+    private final Metrics metrics = new Metrics();
+
+    private final AccessLog accessLog = new AccessLog();
+
+    private final Load load = new Load();
+
+    private final Pool pool = new Pool();
+
+    private final Isolation isolation = new Isolation();
+
+    private final WriteBehind writeBehind = new WriteBehind();
+
+    private final Read read = new Read();
+
+    private final Bulkhead bulkhead = new Bulkhead();
+
+    private final Hedge hedge = new Hedge();
+
+    private final AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout();
+
+    private final Script script = new Script();
+
+    private final RateLimiter rateLimiter = new RateLimiter();
+
+    private final Stream stream = new Stream();
+
+    private final LargeValue largeValue = new LargeValue();
+
+    /**
+     * Gets batch size.
+     *
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets batch size.
+     *
+     * @param batchSize the batch size
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Gets driver.
+     *
+     * @return the driver
+     */
+    public Driver getDriver() {
+        return driver;
+    }
+
+    /**
+     * Sets driver.
+     *
+     * @param driver the driver
+     */
+    public void setDriver(Driver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Gets reactive.
+     *
+     * @return the reactive client properties
+     */
+    public Reactive getReactive() {
+        return reactive;
+    }
+
+    /**
+     * Gets scan.
+     *
+     * @return the scan properties
+     */
+    public Scan getScan() {
+        return scan;
+    }
+
+    /**
+     * Gets cluster.
+     *
+     * @return the cluster properties
+     */
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    /**
+     * Gets serialization.
+     *
+     * @return the serialization properties
+     */
+    public Serialization getSerialization() {
+        return serialization;
+    }
+
+    /**
+     * Gets metrics.
+     *
+     * @return the metrics properties
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets access log.
+     *
+     * @return the access log properties
+     */
+    public AccessLog getAccessLog() {
+        return accessLog;
+    }
+
+    /**
+     * Gets load.
+     *
+     * @return the get or load properties
+     */
+    public Load getLoad() {
+        return load;
+    }
+
+    /**
+     * Gets pool.
+     *
+     * @return the connection pool properties
+     */
+    public Pool getPool() {
+        return pool;
+    }
+
+    /**
+     * Gets isolation.
+     *
+     * @return the hystrix isolation properties
+     */
+    public Isolation getIsolation() {
+        return isolation;
+    }
+
+    /**
+     * Gets write behind.
+     *
+     * @return the write behind properties
+     */
+    public WriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Gets read.
+     *
+     * @return the read properties
+     */
+    public Read getRead() {
+        return read;
+    }
+
+    /**
+     * Gets bulkhead.
+     *
+     * @return the bulkhead properties
+     */
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * Gets hedge.
+     *
+     * @return the hedge properties
+     */
+    public Hedge getHedge() {
+        return hedge;
+    }
+
+    /**
+     * Gets adaptive timeout.
+     *
+     * @return the adaptive timeout properties
+     */
+    public AdaptiveTimeout getAdaptiveTimeout() {
+        return adaptiveTimeout;
+    }
+
+    /**
+     * Gets script.
+     *
+     * @return the script properties
+     */
+    public Script getScript() {
+        return script;
+    }
+
+    /**
+     * Gets rate limiter.
+     *
+     * @return the rate limiter properties
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Gets stream.
+     *
+     * @return the stream properties
+     */
+    public Stream getStream() {
+        return stream;
+    }
+
+    /**
+     * Gets large value.
+     *
+     * @return the large value properties
+     */
+    public LargeValue getLargeValue() {
+        return largeValue;
+    }
+
+    /**
+     * Gets near cache.
+     *
+     * @return the near cache properties
+     */
+    public NearCache getNearCache() {
+        return nearCache;
+    }
+
+    /**
+     * Near cache (in-process L1 cache) properties, bound from <b>spring.redis.client.near-cache.*</b>.
+     */
+    public static class NearCache {
+
+        /**
+         * Whether reads of values and hash values are cached in-process.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of cached entries (a value or a hash field), least recently used entries are evicted.
+         */
+        private int maxSize = Constants.DEFAULT_NEAR_CACHE_MAX_SIZE;
+
+        /**
+         * Time after which a cached entry is read from redis again.
+         */
+        private Duration ttl = Duration.ofSeconds(30);
+
+        /**
+         * Time after ttl for which an expired entry is still served when the redis call fails or the circuit is open.
+         */
+        private Duration staleTtl = Duration.ofMinutes(5);
+
+        /**
+         * Pub/sub channel on which writes are broadcast, to invalidate the near caches of other nodes.
+         */
+        private String invalidationChannel = Constants.DEFAULT_NEAR_CACHE_INVALIDATION_CHANNEL;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public Duration getStaleTtl() {
+            return staleTtl;
+        }
+
+        public void setStaleTtl(Duration staleTtl) {
+            this.staleTtl = staleTtl;
+        }
+
+        public String getInvalidationChannel() {
+            return invalidationChannel;
+        }
+
+        public void setInvalidationChannel(String invalidationChannel) {
+            this.invalidationChannel = invalidationChannel;
+        }
+    }
+
+    /**
+     * Redis driver.
+     */
+    public enum Driver {
+        /**
+         * Pooled jedis connections, blocking {@link io.github.redis.client.RedisClient} only.
+         */
+        JEDIS,
+        /**
+         * Multiplexed lettuce connection, also enables {@link io.github.redis.client.ReactiveRedisClient}.
+         */
+        LETTUCE
+    }
+
+    /**
+     * Reactive client properties, bound from <b>spring.redis.client.reactive.*</b>.
+     */
+    public static class Reactive {
+
+        /**
+         * Maximum concurrent requests per operation, enforced with a hystrix semaphore instead of a thread pool.
+         */
+        private int maxConcurrentRequests = Constants.DEFAULT_REACTIVE_MAX_CONCURRENT_REQUESTS;
+
+        public int getMaxConcurrentRequests() {
+            return maxConcurrentRequests;
+        }
+
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+    }
+
+    /**
+     * Cluster routing properties, bound from <b>spring.redis.client.cluster.*</b>.
+     */
+    public static class Cluster {
+
+        /**
+         * Whether batch and delete operations are routed by slot to the cluster masters, with jedis.
+         */
+        private boolean routingEnabled = true;
+
+        /**
+         * Number of cluster masters a batch is sent to in parallel.
+         */
+        private int parallelism = Constants.DEFAULT_CLUSTER_PARALLELISM;
+
+        public boolean isRoutingEnabled() {
+            return routingEnabled;
+        }
+
+        public void setRoutingEnabled(boolean routingEnabled) {
+            this.routingEnabled = routingEnabled;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * Key scan properties, bound from <b>spring.redis.client.scan.*</b>.
+     */
+    public static class Scan {
+
+        /**
+         * COUNT hint of every SCAN call, the number of keys redis walks per call.
+         */
+        private int count = Constants.DEFAULT_SCAN_COUNT;
+
+        /**
+         * Number of cluster master nodes scanned in parallel.
+         */
+        private int parallelism = Constants.DEFAULT_SCAN_PARALLELISM;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * Value serialization properties, bound from <b>spring.redis.client.serialization.*</b>.
+     */
+    public static class Serialization {
+
+        /**
+         * Format of values written by the redis template.
+         */
+        private Format valueFormat = Format.JSON;
+
+        /**
+         * Format of hash values written by the redis template.
+         */
+        private Format hashValueFormat = Format.JSON;
+
+        /**
+         * Compression of serialized values larger than the compression threshold.
+         */
+        private Compression compression = Compression.NONE;
+
+        /**
+         * Size in bytes above which serialized values are compressed.
+         */
+        private int compressionThreshold = Constants.DEFAULT_COMPRESSION_THRESHOLD;
+
+        /**
+         * Whether values are written with their class name. Values written without are smaller and faster to write
+         * and read. Every read given the class reads them into it, older versions get maps and lists.
+         */
+        private boolean valueTypeInformation = true;
+
+        public Format getValueFormat() {
+            return valueFormat;
+        }
+
+        public void setValueFormat(Format valueFormat) {
+            this.valueFormat = valueFormat;
+        }
+
+        public Format getHashValueFormat() {
+            return hashValueFormat;
+        }
+
+        public void setHashValueFormat(Format hashValueFormat) {
+            this.hashValueFormat = hashValueFormat;
+        }
+
+        public Compression getCompression() {
+            return compression;
+        }
+
+        public void setCompression(Compression compression) {
+            this.compression = compression;
+        }
+
+        public int getCompressionThreshold() {
+            return compressionThreshold;
+        }
+
+        public void setCompressionThreshold(int compressionThreshold) {
+            this.compressionThreshold = compressionThreshold;
+        }
+
+        public boolean isValueTypeInformation() {
+            return valueTypeInformation;
+        }
+
+        public void setValueTypeInformation(boolean valueTypeInformation) {
+            this.valueTypeInformation = valueTypeInformation;
+        }
+    }
+
+    /**
+     * Serialization format of values.
+     */
+    public enum Format {
+        /**
+         * Jackson JSON with type information, written without header so older clients can still read it.
+         */
+        JSON,
+        /**
+         * Jackson Smile, binary JSON with back-referenced property names.
+         */
+        SMILE,
+        /**
+         * Jackson CBOR (RFC 7049), binary JSON.
+         */
+        CBOR
+    }
+
+    /**
+     * Compression of serialized values.
+     */
+    public enum Compression {
+        /**
+         * Values are never compressed.
+         */
+        NONE,
+        /**
+         * Values above the compression threshold are compressed with LZ4.
+         */
+        LZ4
+    }
+
+    /**
+     * Micrometer metrics properties, bound from <b>spring.redis.client.metrics.*</b>.
+     */
+    public static class Metrics {
+
+        /**
+         * Whether operations, serialization and connection pools of the client are metered.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Whether timers and payload size distributions publish percentile histograms.
+         */
+        private boolean percentileHistogram = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isPercentileHistogram() {
+            return percentileHistogram;
+        }
+
+        public void setPercentileHistogram(boolean percentileHistogram) {
+            this.percentileHistogram = percentileHistogram;
+        }
+    }
+
+    /**
+     * Access log properties, bound from <b>spring.redis.client.access-log.*</b>.
+     */
+    public static class AccessLog {
+
+        /**
+         * Which operations of the redis client are logged.
+         */
+        private AccessLogMode mode = AccessLogMode.SLOW;
+
+        /**
+         * Fraction of operations logged in sampled mode, between 0 and 1.
+         */
+        private double sampleRate = Constants.DEFAULT_ACCESS_LOG_SAMPLE_RATE;
+
+        /**
+         * Latency from which operations are logged in slow mode.
+         */
+        private Duration slowThreshold = Duration.ofMillis(100);
+
+        public AccessLogMode getMode() {
+            return mode;
+        }
+
+        public void setMode(AccessLogMode mode) {
+            this.mode = mode;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public Duration getSlowThreshold() {
+            return slowThreshold;
+        }
+
+        public void setSlowThreshold(Duration slowThreshold) {
+            this.slowThreshold = slowThreshold;
+        }
+    }
+
+    /**
+     * Access log mode.
+     */
+    public enum AccessLogMode {
+        /**
+         * Operations are not logged.
+         */
+        OFF,
+        /**
+         * A random sample of operations is logged at INFO.
+         */
+        SAMPLED,
+        /**
+         * Operations slower than the slow threshold are logged at WARN.
+         */
+        SLOW,
+        /**
+         * Every operation is logged at INFO, for debugging only.
+         */
+        ALL
+    }
+
+    /**
+     * Get or load properties, bound from <b>spring.redis.client.load.*</b>.
+     */
+    public static class Load {
+
+        /**
+         * Whether a missing element is loaded by one node at a time, holding a lock key set with SET NX PX.
+         */
+        private boolean lockEnabled = false;
+
+        /**
+         * Expiry of the lock key, and the longest time other nodes wait for the lock holder to write the element.
+         */
+        private Duration lockTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Weight of probabilistic early refresh, higher values refresh earlier, 0 disables it.
+         */
+        private double earlyRefreshBeta = Constants.DEFAULT_EARLY_REFRESH_BETA;
+
+        public boolean isLockEnabled() {
+            return lockEnabled;
+        }
+
+        public void setLockEnabled(boolean lockEnabled) {
+            this.lockEnabled = lockEnabled;
+        }
+
+        public Duration getLockTimeout() {
+            return lockTimeout;
+        }
+
+        public void setLockTimeout(Duration lockTimeout) {
+            this.lockTimeout = lockTimeout;
+        }
+
+        public double getEarlyRefreshBeta() {
+            return earlyRefreshBeta;
+        }
+
+        public void setEarlyRefreshBeta(double earlyRefreshBeta) {
+            this.earlyRefreshBeta = earlyRefreshBeta;
+        }
+    }
+
+    /**
+     * Jedis connection pool properties, bound from <b>spring.redis.client.pool.*</b>.
+     * Sizes and max wait of the pool are the standard <b>spring.redis.jedis.pool.*</b> properties.
+     */
+    public static class Pool {
+
+        /**
+         * Whether pools are filled up to min idle connections at startup, so first requests do not connect.
+         */
+        private boolean warmUp = true;
+
+        /**
+         * Whether connections are validated with PING before being borrowed.
+         */
+        private boolean testOnBorrow = false;
+
+        /**
+         * Whether idle connections are validated with PING by the evictor.
+         */
+        private boolean testWhileIdle = true;
+
+        /**
+         * Time between runs of the evictor of idle connections.
+         */
+        private Duration timeBetweenEvictionRuns = Duration.ofSeconds(30);
+
+        /**
+         * Time a connection may sit idle before the evictor closes it, leaving at least min idle connections.
+         */
+        private Duration minEvictableIdleTime = Duration.ofSeconds(60);
+
+        /**
+         * Connect timeout of new connections. The read timeout is <b>spring.redis.timeout</b>.
+         */
+        private Duration connectTimeout = Duration.ofSeconds(2);
+
+        private final Adaptive adaptive = new Adaptive();
+
+        public boolean isWarmUp() {
+            return warmUp;
+        }
+
+        public void setWarmUp(boolean warmUp) {
+            this.warmUp = warmUp;
+        }
+
+        public boolean isTestOnBorrow() {
+            return testOnBorrow;
+        }
+
+        public void setTestOnBorrow(boolean testOnBorrow) {
+            this.testOnBorrow = testOnBorrow;
+        }
+
+        public boolean isTestWhileIdle() {
+            return testWhileIdle;
+        }
+
+        public void setTestWhileIdle(boolean testWhileIdle) {
+            this.testWhileIdle = testWhileIdle;
+        }
+
+        public Duration getTimeBetweenEvictionRuns() {
+            return timeBetweenEvictionRuns;
+        }
+
+        public void setTimeBetweenEvictionRuns(Duration timeBetweenEvictionRuns) {
+            this.timeBetweenEvictionRuns = timeBetweenEvictionRuns;
+        }
+
+        public Duration getMinEvictableIdleTime() {
+            return minEvictableIdleTime;
+        }
+
+        public void setMinEvictableIdleTime(Duration minEvictableIdleTime) {
+            this.minEvictableIdleTime = minEvictableIdleTime;
+        }
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Adaptive getAdaptive() {
+            return adaptive;
+        }
+    }
+
+    /**
+     * Adaptive pool sizing properties, bound from <b>spring.redis.client.pool.adaptive.*</b>.
+     */
+    public static class Adaptive {
+
+        /**
+         * Whether max total of the pools grows when borrowing waits and shrinks back when connections are unused.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Ceiling of max total, the configured max total is the floor.
+         */
+        private int maxTotalLimit = Constants.DEFAULT_ADAPTIVE_MAX_TOTAL_LIMIT;
+
+        /**
+         * Mean borrow wait above which max total grows.
+         */
+        private Duration targetBorrowWait = Duration.ofMillis(5);
+
+        /**
+         * Time between two resizes.
+         */
+        private Duration interval = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxTotalLimit() {
+            return maxTotalLimit;
+        }
+
+        public void setMaxTotalLimit(int maxTotalLimit) {
+            this.maxTotalLimit = maxTotalLimit;
+        }
+
+        public Duration getTargetBorrowWait() {
+            return targetBorrowWait;
+        }
+
+        public void setTargetBorrowWait(Duration targetBorrowWait) {
+            this.targetBorrowWait = targetBorrowWait;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+    }
+
+    /**
+     * Hystrix isolation properties, bound from <b>spring.redis.client.isolation.*</b>.
+     */
+    public static class Isolation {
+
+        /**
+         * Isolation of the hystrix commands of the redis client, unless set per command.
+         */
+        private IsolationStrategy strategy = IsolationStrategy.SEMAPHORE;
+
+        /**
+         * Maximum concurrent executions, and fallbacks, of a semaphore isolated command.
+         */
+        private int maxConcurrentRequests = Constants.DEFAULT_SEMAPHORE_MAX_CONCURRENT_REQUESTS;
+
+        /**
+         * Isolation per hystrix command key, e.g. redisClientScan.
+         */
+        private Map<String, IsolationStrategy> commands = new LinkedHashMap<>();
+
+        public IsolationStrategy getStrategy() {
+            return strategy;
+        }
+
+        public void setStrategy(IsolationStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        public int getMaxConcurrentRequests() {
+            return maxConcurrentRequests;
+        }
+
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+
+        public Map<String, IsolationStrategy> getCommands() {
+            return commands;
+        }
+
+        public void setCommands(Map<String, IsolationStrategy> commands) {
+            this.commands = commands;
+        }
+    }
+
+    /**
+     * Isolation strategy of a hystrix command.
+     */
+    public enum IsolationStrategy {
+        /**
+         * The command runs on a hystrix thread pool of its own and is timed out by hystrix.
+         */
+        THREAD,
+        /**
+         * The command runs on the calling thread, limited by a semaphore, without hystrix timeout.
+         */
+        SEMAPHORE,
+        /**
+         * The command runs on a hystrix thread pool of virtual threads (Java 21+), without hystrix timeout.
+         */
+        VIRTUAL_THREAD
+    }
+
+    /**
+     * Write behind properties, bound from <b>spring.redis.client.write-behind.*</b>.
+     */
+    public static class WriteBehind {
+
+        /**
+         * Whether set and hash put are buffered and written to redis in the background.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of keys (or hash fields) pending, repeated writes to a pending key take no more space.
+         */
+        private int maxSize = Constants.DEFAULT_WRITE_BEHIND_MAX_SIZE;
+
+        /**
+         * Maximum number of writes sent in one round-trip, a flush starts as soon as as many are pending.
+         */
+        private int batchSize = Constants.DEFAULT_WRITE_BEHIND_BATCH_SIZE;
+
+        /**
+         * Time between two flushes.
+         */
+        private Duration flushInterval = Duration.ofMillis(100);
+
+        /**
+         * What happens to writes of new keys when the buffer is full.
+         */
+        private Backpressure backpressure = Backpressure.CALLER_RUNS;
+
+        /**
+         * Time a write waits for space in the buffer with block backpressure, before it is dropped.
+         */
+        private Duration blockTimeout = Duration.ofMillis(100);
+
+        /**
+         * Number of times a failed write is flushed again before it is dropped.
+         */
+        private int maxRetries = Constants.DEFAULT_WRITE_BEHIND_MAX_RETRIES;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public Backpressure getBackpressure() {
+            return backpressure;
+        }
+
+        public void setBackpressure(Backpressure backpressure) {
+            this.backpressure = backpressure;
+        }
+
+        public Duration getBlockTimeout() {
+            return blockTimeout;
+        }
+
+        public void setBlockTimeout(Duration blockTimeout) {
+            this.blockTimeout = blockTimeout;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+    }
+
+    /**
+     * Backpressure of the write behind buffer, for writes of new keys when it is full.
+     */
+    public enum Backpressure {
+        /**
+         * The write is sent to redis by the caller, as without write behind.
+         */
+        CALLER_RUNS,
+        /**
+         * The caller waits for a flush to make space, up to the block timeout, then the write is dropped.
+         */
+        BLOCK,
+        /**
+         * The write is dropped and logged.
+         */
+        DROP
+    }
+
+    /**
+     * Replica read properties, bound from <b>spring.redis.client.read.*</b>.
+     */
+    public static class Read {
+
+        /**
+         * Nodes reads are sent to, in sentinel and cluster topologies with jedis.
+         */
+        private ReadFrom from = ReadFrom.MASTER;
+
+        /**
+         * Maximum time since a replica last heard from its master, replicas lagging more are not read.
+         */
+        private Duration maxLag = Duration.ofSeconds(10);
+
+        /**
+         * Time between two refreshes of the replicas, their lag and their latency.
+         */
+        private Duration refreshInterval = Duration.ofSeconds(30);
+
+        public ReadFrom getFrom() {
+            return from;
+        }
+
+        public void setFrom(ReadFrom from) {
+            this.from = from;
+        }
+
+        public Duration getMaxLag() {
+            return maxLag;
+        }
+
+        public void setMaxLag(Duration maxLag) {
+            this.maxLag = maxLag;
+        }
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+    }
+
+    /**
+     * Nodes reads are sent to.
+     */
+    public enum ReadFrom {
+        /**
+         * Reads are sent to the master.
+         */
+        MASTER,
+        /**
+         * Reads are spread over the replicas in sync, and sent to the master when there is none.
+         */
+        REPLICA_PREFERRED,
+        /**
+         * Reads are sent to the node with the lowest latency, the master or a replica in sync.
+         */
+        NEAREST
+    }
+
+    /**
+     * Bulkhead properties, bound from <b>spring.redis.client.bulkhead.*</b>.
+     */
+    public static class Bulkhead {
+
+        /**
+         * Whether single key commands get a circuit breaker and a concurrency limit per cluster master.
+         */
+        private boolean perNode = false;
+
+        /**
+         * Key prefixes (namespaces) whose single key commands get a circuit breaker and a concurrency limit of their
+         * own, other keys share the default ones.
+         */
+        private List<String> prefixes = new ArrayList<>();
+
+        /**
+         * Maximum number of concurrent calls of a command per partition.
+         */
+        private int maxConcurrentRequests = Constants.DEFAULT_BULKHEAD_MAX_CONCURRENT_REQUESTS;
+
+        public boolean isPerNode() {
+            return perNode;
+        }
+
+        public void setPerNode(boolean perNode) {
+            this.perNode = perNode;
+        }
+
+        public List<String> getPrefixes() {
+            return prefixes;
+        }
+
+        public void setPrefixes(List<String> prefixes) {
+            this.prefixes = prefixes;
+        }
+
+        public int getMaxConcurrentRequests() {
+            return maxConcurrentRequests;
+        }
+
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+    }
+
+    /**
+     * Hedged read properties, bound from <b>spring.redis.client.hedge.*</b>.
+     */
+    public static class Hedge {
+
+        /**
+         * Whether a GET still running after the hedge percentile of recent GET latencies is sent again.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Percentile of recent GET latencies after which a GET is sent again, e.g. 0.95.
+         */
+        private double percentile = 0.95;
+
+        /**
+         * Minimum time before a GET is sent again.
+         */
+        private Duration minDelay = Duration.ofMillis(1);
+
+        /**
+         * Maximum fraction of GETs sent again, e.g. 0.05 for 5% more traffic at most.
+         */
+        private double maxRatio = Constants.DEFAULT_HEDGE_MAX_RATIO;
+
+        /**
+         * Number of threads running hedged GETs, GETs run on the calling thread without hedge when all are busy.
+         */
+        private int threads = Constants.DEFAULT_HEDGE_THREADS;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public double getMaxRatio() {
+            return maxRatio;
+        }
+
+        public void setMaxRatio(double maxRatio) {
+            this.maxRatio = maxRatio;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+    }
+
+    /**
+     * Adaptive timeout properties, bound from <b>spring.redis.client.adaptive-timeout.*</b>.
+     */
+    public static class AdaptiveTimeout {
+
+        /**
+         * Whether command timeouts follow recent command latencies instead of fixed values.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Percentile of recent command latencies the timeout is based on, e.g. 0.99.
+         */
+        private double percentile = 0.99;
+
+        /**
+         * Factor applied to the latency percentile to get the timeout.
+         */
+        private double multiplier = 2.0;
+
+        /**
+         * Minimum timeout.
+         */
+        private Duration minTimeout = Duration.ofMillis(20);
+
+        /**
+         * Maximum timeout, also the timeout until enough latencies are recorded.
+         */
+        private Duration maxTimeout = Duration.ofSeconds(1);
+
+        /**
+         * Time between two updates of the hystrix timeouts.
+         */
+        private Duration interval = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public double getMultiplier() {
+            return multiplier;
+        }
+
+        public void setMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+        }
+
+        public Duration getMinTimeout() {
+            return minTimeout;
+        }
+
+        public void setMinTimeout(Duration minTimeout) {
+            this.minTimeout = minTimeout;
+        }
+
+        public Duration getMaxTimeout() {
+            return maxTimeout;
+        }
+
+        public void setMaxTimeout(Duration maxTimeout) {
+            this.maxTimeout = maxTimeout;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+    }
+
+    /**
+     * Lua script properties, bound from <b>spring.redis.client.script.*</b>.
+     */
+    public static class Script {
+
+        /**
+         * Resource patterns of Lua scripts registered at startup, each under its file name without extension.
+         */
+        private List<String> locations = new ArrayList<>(Collections.singletonList(Constants.DEFAULT_SCRIPT_LOCATION));
+
+        /**
+         * Whether registered scripts are loaded into redis with SCRIPT LOAD at startup, instead of on first use.
+         */
+        private boolean preload = true;
+
+        public List<String> getLocations() {
+            return locations;
+        }
+
+        public void setLocations(List<String> locations) {
+            this.locations = locations;
+        }
+
+        public boolean isPreload() {
+            return preload;
+        }
+
+        public void setPreload(boolean preload) {
+            this.preload = preload;
+        }
+    }
+
+    /**
+     * Rate limiter properties, bound from <b>spring.redis.client.rate-limiter.*</b>.
+     */
+    public static class RateLimiter {
+
+        /**
+         * Whether calls are allowed when redis can not be reached or the circuit is open, for limits which do not
+         * set it and for {@link io.github.redis.client.RedisClient#tryAcquireInSlidingWindow(String, long, long)}.
+         */
+        private boolean failOpen = true;
+
+        /**
+         * Named limits, e.g. <b>spring.redis.client.rate-limiter.limits.api.limit=100</b>.
+         */
+        private Map<String, Limit> limits = new LinkedHashMap<>();
+
+        public boolean isFailOpen() {
+            return failOpen;
+        }
+
+        public void setFailOpen(boolean failOpen) {
+            this.failOpen = failOpen;
+        }
+
+        public Map<String, Limit> getLimits() {
+            return limits;
+        }
+
+        public void setLimits(Map<String, Limit> limits) {
+            this.limits = limits;
+        }
+    }
+
+    /**
+     * Limit of a rate limiter.
+     */
+    public static class Limit {
+
+        /**
+         * Algorithm counting the permits.
+         */
+        private RateLimitAlgorithm algorithm = RateLimitAlgorithm.TOKEN_BUCKET;
+
+        /**
+         * Permits per window, also the burst of a token bucket.
+         */
+        private long limit = Constants.DEFAULT_RATE_LIMIT;
+
+        /**
+         * Window the limit applies to, the time a token bucket takes to fill up.
+         */
+        private Duration window = Duration.ofSeconds(1);
+
+        /**
+         * Number of permits leased from redis at a time and handed out locally, 0 to ask redis for every call.
+         */
+        private int leaseSize = 0;
+
+        /**
+         * Whether calls are allowed when redis can not be reached, the rate limiter default when not set.
+         */
+        private Boolean failOpen;
+
+        public RateLimitAlgorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        public void setAlgorithm(RateLimitAlgorithm algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        public long getLimit() {
+            return limit;
+        }
+
+        public void setLimit(long limit) {
+            this.limit = limit;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public int getLeaseSize() {
+            return leaseSize;
+        }
+
+        public void setLeaseSize(int leaseSize) {
+            this.leaseSize = leaseSize;
+        }
+
+        public Boolean getFailOpen() {
+            return failOpen;
+        }
+
+        public void setFailOpen(Boolean failOpen) {
+            this.failOpen = failOpen;
+        }
+    }
+
+    /**
+     * Algorithms of the rate limiters.
+     */
+    public enum RateLimitAlgorithm {
+        /**
+         * A counter per window, reset when the window expires. Allows up to twice the limit around a window edge.
+         */
+        FIXED_WINDOW,
+        /**
+         * A sorted set of the times of the permits of the last window. Exact, at the cost of one member per permit.
+         */
+        SLIDING_LOG,
+        /**
+         * A bucket of the limit, refilled continuously over the window. Smooth, allows bursts of up to the limit.
+         */
+        TOKEN_BUCKET
+    }
+
+    /**
+     * Stream properties, bound from <b>spring.redis.client.stream.*</b>.
+     */
+    public static class Stream {
+
+        /**
+         * Length streams are trimmed to by XADD, approximately (MAXLEN ~), 0 not to trim them.
+         */
+        private long maxLength = 0;
+
+        /**
+         * Max number of entries read by one XREADGROUP or XAUTOCLAIM of the listener container.
+         */
+        private int batchSize = Constants.DEFAULT_STREAM_BATCH_SIZE;
+
+        /**
+         * Time a read of the listener container waits for new entries, kept below the read timeout of the connection.
+         */
+        private Duration block = Duration.ofSeconds(1);
+
+        /**
+         * Number of threads of the listener container running the listeners.
+         */
+        private int threads = 4;
+
+        /**
+         * Consumer name of the listener container in its consumer groups, the process name (pid@host) if not set.
+         */
+        private String consumer;
+
+        /**
+         * Time an entry stays pending with a consumer before the listener container claims it.
+         */
+        private Duration claimMinIdle = Duration.ofMinutes(1);
+
+        /**
+         * Interval of the listener container claiming entries pending for longer than the claim min idle.
+         */
+        private Duration claimInterval = Duration.ofSeconds(30);
+
+        public long getMaxLength() {
+            return maxLength;
+        }
+
+        public void setMaxLength(long maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getBlock() {
+            return block;
+        }
+
+        public void setBlock(Duration block) {
+            this.block = block;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public String getConsumer() {
+            return consumer;
+        }
+
+        public void setConsumer(String consumer) {
+            this.consumer = consumer;
+        }
+
+        public Duration getClaimMinIdle() {
+            return claimMinIdle;
+        }
+
+        public void setClaimMinIdle(Duration claimMinIdle) {
+            this.claimMinIdle = claimMinIdle;
+        }
+
+        public Duration getClaimInterval() {
+            return claimInterval;
+        }
+
+        public void setClaimInterval(Duration claimInterval) {
+            this.claimInterval = claimInterval;
+        }
+    }
+
+    /**
+     * Large value properties, bound from <b>spring.redis.client.large-value.*</b>.
+     */
+    public static class LargeValue {
+
+        /**
+         * Whether keys may hold large values: plain sets and deletes then also delete the chunks of a large value
+         * they overwrite or delete, at the cost of a script in place of SET, SETEX, MSET and DEL.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Size in bytes above which large values are stored in chunks, smaller ones are stored as is.
+         */
+        private int threshold = Constants.DEFAULT_LARGE_VALUE_THRESHOLD;
+
+        /**
+         * Size in bytes of the chunks, before compression, also the size of the pooled read buffers.
+         */
+        private int chunkSize = Constants.DEFAULT_LARGE_VALUE_CHUNK_SIZE;
+
+        /**
+         * Compression of the chunks, a chunk which does not get smaller is stored uncompressed.
+         */
+        private Compression compression = Compression.LZ4;
+
+        /**
+         * Number of chunks written or read per round-trip.
+         */
+        private int chunksPerBatch = 8;
+
+        /**
+         * Max number of direct read buffers kept for reuse.
+         */
+        private int maxPooledBuffers = 16;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(int threshold) {
+            this.threshold = threshold;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public Compression getCompression() {
+            return compression;
+        }
+
+        public void setCompression(Compression compression) {
+            this.compression = compression;
+        }
+
+        public int getChunksPerBatch() {
+            return chunksPerBatch;
+        }
+
+        public void setChunksPerBatch(int chunksPerBatch) {
+            this.chunksPerBatch = chunksPerBatch;
+        }
+
+        public int getMaxPooledBuffers() {
+            return maxPooledBuffers;
+        }
+
+        public void setMaxPooledBuffers(int maxPooledBuffers) {
+            this.maxPooledBuffers = maxPooledBuffers;
+        }
+    }
+}
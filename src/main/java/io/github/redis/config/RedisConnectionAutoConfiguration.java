@@ -4,28 +4,52 @@ package io.github.redis.config;
  */
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.redis.client.NearCache;
+import io.github.redis.client.ReactiveRedisClient;
 import io.github.redis.client.RedisClient;
+import io.github.redis.client.RedisScripts;
+import io.github.redis.client.RedisStreamListenerContainer;
+import io.github.redis.client.WriteBehindBuffer;
 import io.github.redis.helper.Constants;
+import io.github.redis.metrics.LatencyTracker;
+import io.github.redis.metrics.MeteredRedisSerializer;
+import io.github.redis.metrics.RedisClientMetrics;
+import io.github.redis.metrics.RedisPoolMetrics;
+import io.github.redis.serializer.CompactRedisSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.*;
+import org.springframework.data.redis.connection.jedis.JedisClientConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnection;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPoolConfig;
 
+import java.util.Locale;
+
 /**
  * The type Redis connection auto configuration.
  * This auto configuration class gets instantiated with the help of spring.factories file attached along with the artifact.
@@ -33,11 +57,13 @@ import redis.clients.jedis.JedisPoolConfig;
  */
 @Configuration
 @ConditionalOnClass({JedisConnection.class, RedisOperations.class, Jedis.class})
-@EnableConfigurationProperties(RedisProperties.class)
+@EnableConfigurationProperties({RedisProperties.class, RedisClientProperties.class})
 public class RedisConnectionAutoConfiguration {
 
     private RedisProperties redisProperties;
 
+    private RedisClientProperties clientProperties;
+
     private boolean sentinelEnabled;
 
     private boolean clusterEnabled;
@@ -45,14 +71,17 @@ public class RedisConnectionAutoConfiguration {
     /**
      * Instantiates a new Redis connection auto configuration.
      *
-     * @param redisProperties the redis properties
-     * @param sentinelEnabled the sentinel enabled
-     * @param clusterEnabled  the cluster enabled
+     * @param redisProperties  the redis properties
+     * @param clientProperties the redis client properties
+     * @param sentinelEnabled  the sentinel enabled
+     * @param clusterEnabled   the cluster enabled
      */
     public RedisConnectionAutoConfiguration(@Autowired RedisProperties redisProperties,
+                                            @Autowired RedisClientProperties clientProperties,
                                             @Value("${spring.redis.sentinel.enabled:false}") boolean sentinelEnabled,
                                             @Value("${spring.redis.cluster.enabled:false}") boolean clusterEnabled) {
         this.redisProperties = redisProperties;
+        this.clientProperties = clientProperties;
         this.sentinelEnabled = sentinelEnabled;
         this.clusterEnabled = clusterEnabled;
     }
@@ -66,6 +95,26 @@ public class RedisConnectionAutoConfiguration {
     @ConditionalOnMissingBean
     public RedisConnectionFactory redisConnectionFactory() {
 
+        if (clientProperties.getDriver() == RedisClientProperties.Driver.LETTUCE) {
+            return lettuceConnectionFactory();
+        }
+
+        JedisClientConfiguration clientConfiguration = jedisClientConfiguration(poolConfig());
+
+        if (sentinelEnabled) {
+            return new JedisConnectionFactory(sentinelConfiguration(), clientConfiguration);
+        } else if (clusterEnabled) {
+            return new JedisConnectionFactory(clusterConfiguration(), clientConfiguration);
+        } else {
+            return new JedisConnectionFactory(standaloneConfiguration(), clientConfiguration);
+        }
+    }
+
+    /**
+     * Pool config of every jedis topology, sized by <b>spring.redis.jedis.pool.*</b>
+     * and validated and evicted as set by <b>spring.redis.client.pool.*</b>.
+     */
+    private JedisPoolConfig poolConfig() {
         JedisPoolConfig poolConfig = new JedisPoolConfig();
         RedisProperties.Pool pool = redisProperties.getJedis().getPool();
 
@@ -73,32 +122,64 @@ public class RedisConnectionAutoConfiguration {
             poolConfig.setMaxTotal(pool.getMaxActive());
             poolConfig.setMinIdle(pool.getMinIdle());
             poolConfig.setMaxIdle(pool.getMaxIdle());
+            if (pool.getMaxWait() != null) {
+                poolConfig.setMaxWaitMillis(pool.getMaxWait().toMillis());
+            }
         } else {
             poolConfig.setMaxTotal(Constants.DEFAULT_MAX_TOTAL);
             poolConfig.setMinIdle(Constants.DEFAULT_MIN_IDLE);
             poolConfig.setMaxIdle(Constants.DEFAULT_MAX_IDLE);
         }
 
+        RedisClientProperties.Pool clientPool = clientProperties.getPool();
+        poolConfig.setTestOnBorrow(clientPool.isTestOnBorrow());
+        poolConfig.setTestWhileIdle(clientPool.isTestWhileIdle());
+        poolConfig.setTimeBetweenEvictionRunsMillis(clientPool.getTimeBetweenEvictionRuns().toMillis());
+        poolConfig.setMinEvictableIdleTimeMillis(clientPool.getMinEvictableIdleTime().toMillis());
+
+        return poolConfig;
+    }
+
+    private JedisClientConfiguration jedisClientConfiguration(JedisPoolConfig poolConfig) {
+        JedisClientConfiguration.JedisClientConfigurationBuilder clientConfiguration = JedisClientConfiguration.builder()
+                .usePooling().poolConfig(poolConfig).and()
+                .connectTimeout(clientProperties.getPool().getConnectTimeout());
+        if (redisProperties.getTimeout() != null) {
+            clientConfiguration.readTimeout(redisProperties.getTimeout());
+        }
+        return clientConfiguration.build();
+    }
+
+    /**
+     * Lettuce connection factory, for the same topology as jedis. Lettuce shares a single multiplexed
+     * connection between all callers, so no pool is configured.
+     */
+    private RedisConnectionFactory lettuceConnectionFactory() {
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder clientConfiguration = LettuceClientConfiguration.builder();
+        if (redisProperties.getTimeout() != null) {
+            clientConfiguration.commandTimeout(redisProperties.getTimeout());
+        }
+
         if (sentinelEnabled) {
-            return sentinelConnectionFactory(poolConfig);
+            return new LettuceConnectionFactory(sentinelConfiguration(), clientConfiguration.build());
         } else if (clusterEnabled) {
-            return clusterConnectionFactory(poolConfig);
+            return new LettuceConnectionFactory(clusterConfiguration(), clientConfiguration.build());
         } else {
-            return standaloneConnectionFactory();
+            return new LettuceConnectionFactory(standaloneConfiguration(), clientConfiguration.build());
         }
     }
 
-    private RedisConnectionFactory standaloneConnectionFactory() {
+    private RedisStandaloneConfiguration standaloneConfiguration() {
         RedisStandaloneConfiguration standaloneConfiguration = new RedisStandaloneConfiguration();
         standaloneConfiguration.setDatabase(redisProperties.getDatabase());
         standaloneConfiguration.setHostName(redisProperties.getHost());
         standaloneConfiguration.setPassword(RedisPassword.of(redisProperties.getPassword()));
         standaloneConfiguration.setPort(redisProperties.getPort());
 
-        return new JedisConnectionFactory(standaloneConfiguration);
+        return standaloneConfiguration;
     }
 
-    private RedisConnectionFactory clusterConnectionFactory(JedisPoolConfig poolConfig) {
+    private RedisClusterConfiguration clusterConfiguration() {
         RedisClusterConfiguration clusterConfiguration = new RedisClusterConfiguration();
 
         redisProperties.getCluster().getNodes().stream()
@@ -109,10 +190,10 @@ public class RedisConnectionAutoConfiguration {
         clusterConfiguration.setMaxRedirects(redisProperties.getCluster().getMaxRedirects());
         clusterConfiguration.setPassword(RedisPassword.of(redisProperties.getPassword()));
 
-        return new JedisConnectionFactory(clusterConfiguration, poolConfig);
+        return clusterConfiguration;
     }
 
-    private RedisConnectionFactory sentinelConnectionFactory(JedisPoolConfig poolConfig) {
+    private RedisSentinelConfiguration sentinelConfiguration() {
         RedisSentinelConfiguration sentinelConfiguration = new RedisSentinelConfiguration();
         sentinelConfiguration.setMaster(redisProperties.getSentinel().getMaster());
         sentinelConfiguration.setDatabase(redisProperties.getDatabase());
@@ -122,7 +203,31 @@ public class RedisConnectionAutoConfiguration {
                 .map(node -> node.split(":"))
                 .forEach(hostPort -> sentinelConfiguration.sentinel(hostPort[0], Integer.parseInt(hostPort[1])));
 
-        return new JedisConnectionFactory(sentinelConfiguration, poolConfig);
+        return sentinelConfiguration;
+    }
+
+    /**
+     * Jedis pool manager, warming up the jedis pools and resizing them with
+     * <b>spring.redis.client.pool.adaptive.enabled=true</b>.
+     *
+     * @return the jedis pool manager
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public JedisPoolManager jedisPoolManager() {
+        return new JedisPoolManager(redisConnectionFactory(), clientProperties.getPool());
+    }
+
+    /**
+     * Hystrix isolation configurer of the redis client commands, semaphore isolated unless set otherwise with
+     * <b>spring.redis.client.isolation.*</b>.
+     *
+     * @return the hystrix isolation configurer
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public HystrixIsolationConfigurer hystrixIsolationConfigurer() {
+        return new HystrixIsolationConfigurer(clientProperties.getIsolation(), clientProperties.getBulkhead());
     }
 
     /**
@@ -140,13 +245,52 @@ public class RedisConnectionAutoConfiguration {
         template.setConnectionFactory(redisConnectionFactory);
 
         template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setValueSerializer(valueSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
-        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setHashValueSerializer(hashValueSerializer());
 
         return template;
     }
 
+    /**
+     * Serializer of values, in the format set by <b>spring.redis.client.serialization.value-format</b>.
+     * Values of any format remain readable, whatever the configured format.
+     */
+    private RedisSerializer<Object> valueSerializer() {
+        RedisClientProperties.Serialization serialization = clientProperties.getSerialization();
+        return metered(new CompactRedisSerializer(serialization.getValueFormat(), serialization.getCompression(),
+                        serialization.getCompressionThreshold(), serialization.isValueTypeInformation()),
+                "value", serialization.getValueFormat().name());
+    }
+
+    private RedisSerializer<Object> hashValueSerializer() {
+        RedisClientProperties.Serialization serialization = clientProperties.getSerialization();
+        return metered(new CompactRedisSerializer(serialization.getHashValueFormat(),
+                        serialization.getCompression(), serialization.getCompressionThreshold()),
+                "hash_value", serialization.getHashValueFormat().name());
+    }
+
+    /**
+     * Decorates the serializer with serialization time and payload size meters,
+     * unless <b>spring.redis.client.metrics.enabled=false</b>.
+     */
+    private <T> RedisSerializer<T> metered(RedisSerializer<T> serializer, String type, String format) {
+        RedisClientProperties.Metrics metrics = clientProperties.getMetrics();
+        if (!metrics.isEnabled()) {
+            return serializer;
+        }
+        return new MeteredRedisSerializer<>(serializer, meterRegistry(), type,
+                format.toLowerCase(Locale.ROOT), metrics.isPercentileHistogram());
+    }
+
+    /**
+     * Meters are registered to the global registry, to which spring boot actuator adds the registries it
+     * configures (prometheus, statsd, ...) when <b>management.metrics.use-global-registry</b> is left enabled.
+     */
+    private MeterRegistry meterRegistry() {
+        return Metrics.globalRegistry;
+    }
+
     /**
      * String redis template string redis template.
      *
@@ -162,7 +306,7 @@ public class RedisConnectionAutoConfiguration {
         template.setConnectionFactory(redisConnectionFactory);
 
         template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer(new ObjectMapper()));
+        template.setValueSerializer(metered(new GenericJackson2JsonRedisSerializer(new ObjectMapper()), "string_value", "json"));
         template.setHashKeySerializer(new StringRedisSerializer());
         template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
 
@@ -178,8 +322,159 @@ public class RedisConnectionAutoConfiguration {
     @ConditionalOnMissingBean
     @Qualifier("redisClient")
     public RedisClient redisClient() {
-        return new RedisClient(
+        RedisClient redisClient = new RedisClient(
                 redisTemplate(redisConnectionFactory()),
-                stringRedisTemplate(redisConnectionFactory()));
+                stringRedisTemplate(redisConnectionFactory()),
+                clientProperties);
+        redisClient.setScripts(redisScripts());
+        if (clientProperties.getNearCache().isEnabled()) {
+            redisClient.setNearCache(nearCache());
+        }
+        if (clientProperties.getMetrics().isEnabled()) {
+            redisClient.setMetrics(redisClientMetrics());
+        }
+        if (clientProperties.getWriteBehind().isEnabled()) {
+            redisClient.setWriteBehindBuffer(writeBehindBuffer());
+        }
+        if (clientProperties.getHedge().isEnabled() || clientProperties.getAdaptiveTimeout().isEnabled()) {
+            redisClient.setLatencyTracker(latencyTracker());
+        }
+        return redisClient;
+    }
+
+    /**
+     * Registry of the Lua scripts of the redis client: built-in scripts, {@code RedisScript} beans and the scripts
+     * found at <b>spring.redis.client.script.locations</b>, loaded into redis at startup.
+     *
+     * @return the redis scripts
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public RedisScripts redisScripts() {
+        return new RedisScripts(redisTemplate(redisConnectionFactory()), clientProperties.getScript());
+    }
+
+    /**
+     * Listener container consuming redis streams in consumer groups, with <b>spring.redis.client.stream.*</b>.
+     * Threads are started by the first subscription.
+     *
+     * @return the redis stream listener container
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public RedisStreamListenerContainer redisStreamListenerContainer() {
+        return new RedisStreamListenerContainer(redisClient().streams(), clientProperties.getStream());
+    }
+
+    /**
+     * Metrics of the redis client operations and connection pools,
+     * disabled by <b>spring.redis.client.metrics.enabled=false</b>.
+     *
+     * @return the redis client metrics
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.redis.client.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public RedisClientMetrics redisClientMetrics() {
+        MeterRegistry registry = meterRegistry();
+        RedisConnectionFactory connectionFactory = redisConnectionFactory();
+        if (connectionFactory instanceof JedisConnectionFactory) {
+            new RedisPoolMetrics((JedisConnectionFactory) connectionFactory).bindTo(registry);
+        }
+        return new RedisClientMetrics(registry, clientProperties.getMetrics().isPercentileHistogram());
+    }
+
+    /**
+     * Reactive redis client, enabled by <b>spring.redis.client.driver=lettuce</b>.
+     *
+     * @return the reactive redis client
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.redis.client", name = "driver", havingValue = "lettuce")
+    public ReactiveRedisClient reactiveRedisClient() {
+        RedisSerializer<Object> valueSerializer = valueSerializer();
+        RedisSerializer<Object> hashValueSerializer = hashValueSerializer();
+        RedisSerializationContext<String, Object> serializationContext = RedisSerializationContext
+                .<String, Object>newSerializationContext(new StringRedisSerializer())
+                .value(valueSerializer)
+                .hashKey(new StringRedisSerializer())
+                .hashValue(hashValueSerializer)
+                .build();
+
+        return new ReactiveRedisClient(
+                new ReactiveRedisTemplate<>((ReactiveRedisConnectionFactory) redisConnectionFactory(), serializationContext),
+                valueSerializer, hashValueSerializer, clientProperties);
+    }
+
+    /**
+     * Near cache for the redis client, enabled by <b>spring.redis.client.near-cache.enabled=true</b>.
+     * Its counters are bound to the meter registry unless <b>spring.redis.client.metrics.enabled=false</b>.
+     *
+     * @return the near cache
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.redis.client.near-cache", name = "enabled", havingValue = "true")
+    public NearCache nearCache() {
+        NearCache nearCache = new NearCache(clientProperties.getNearCache(), redisTemplate(redisConnectionFactory()));
+        if (clientProperties.getMetrics().isEnabled()) {
+            nearCache.bindTo(meterRegistry());
+        }
+        return nearCache;
+    }
+
+    /**
+     * Write behind buffer of sets and hash puts, enabled by <b>spring.redis.client.write-behind.enabled=true</b>.
+     *
+     * @return the write behind buffer
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.redis.client.write-behind", name = "enabled", havingValue = "true")
+    public WriteBehindBuffer writeBehindBuffer() {
+        return new WriteBehindBuffer(clientProperties.getWriteBehind());
+    }
+
+    /**
+     * Tracker of recent latencies of the redis client operations, enabled by
+     * <b>spring.redis.client.hedge.enabled=true</b> or <b>spring.redis.client.adaptive-timeout.enabled=true</b>.
+     *
+     * @return the latency tracker
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnExpression("${spring.redis.client.hedge.enabled:false} or ${spring.redis.client.adaptive-timeout.enabled:false}")
+    public LatencyTracker latencyTracker() {
+        return new LatencyTracker();
+    }
+
+    /**
+     * Hystrix timeouts of the redis client commands following their recent latencies, enabled by
+     * <b>spring.redis.client.adaptive-timeout.enabled=true</b>. Fails to start when no command is thread isolated.
+     *
+     * @return the adaptive timeout configurer
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.redis.client.adaptive-timeout", name = "enabled", havingValue = "true")
+    public AdaptiveTimeoutConfigurer adaptiveTimeoutConfigurer() {
+        return new AdaptiveTimeoutConfigurer(latencyTracker(), clientProperties.getAdaptiveTimeout(),
+                hystrixIsolationConfigurer());
+    }
+
+    /**
+     * Listener container subscribing the near cache to the invalidation channel,
+     * so that writes of other nodes invalidate the local near cache.
+     *
+     * @return the redis message listener container
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.redis.client.near-cache", name = "enabled", havingValue = "true")
+    public RedisMessageListenerContainer nearCacheInvalidationListenerContainer() {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory());
+        container.addMessageListener(nearCache(), new ChannelTopic(clientProperties.getNearCache().getInvalidationChannel()));
+        return container;
     }
 }
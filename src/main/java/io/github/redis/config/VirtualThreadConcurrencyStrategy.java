@@ -0,0 +1,205 @@
+package io.github.redis.config;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import com.netflix.hystrix.HystrixThreadPoolKey;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import com.netflix.hystrix.strategy.HystrixPlugins;
+import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategy;
+import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategyDefault;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestVariable;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestVariableLifecycle;
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The type Virtual thread concurrency strategy.
+ * Hystrix concurrency strategy running the thread pools of the given keys on virtual threads (Java 21+), so a
+ * command blocked on redis does not hold a platform thread. Every command gets its own virtual thread, at most
+ * maximum size of them at a time per thread pool, commands beyond that are rejected as by a full thread pool.
+ * Every other thread pool, and everything else, is left to the default strategy of hystrix.
+ */
+class VirtualThreadConcurrencyStrategy extends HystrixConcurrencyStrategy {
+
+    private final HystrixConcurrencyStrategy delegate;
+
+    private final Set<String> threadPoolKeys;
+
+    private final ThreadFactory threadFactory;
+
+    private VirtualThreadConcurrencyStrategy(HystrixConcurrencyStrategy delegate, Set<String> threadPoolKeys,
+                                             ThreadFactory threadFactory) {
+        this.delegate = delegate;
+        this.threadPoolKeys = ConcurrentHashMap.newKeySet();
+        this.threadPoolKeys.addAll(threadPoolKeys);
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Factory of virtual threads, looked up reflectively as the artifact is built for Java 8.
+     *
+     * @return the thread factory, {@code null} before Java 21
+     */
+    static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "hystrix-redis-virtual-", 0L);
+            Method factory = builderType.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Registers the strategy for the thread pool keys. Hystrix plugins can only be registered once and resetting them
+     * would drop the plugins and thread pools of the whole application, so registration fails when another
+     * concurrency strategy is registered already, or hystrix ran a command before. Keys registered again are added
+     * to the strategy registered before.
+     *
+     * @param threadPoolKeys the thread pool keys
+     * @param threadFactory  the virtual thread factory
+     * @throws IllegalStateException if another concurrency strategy is registered
+     */
+    static synchronized void register(Set<String> threadPoolKeys, ThreadFactory threadFactory) {
+        HystrixPlugins plugins = HystrixPlugins.getInstance();
+        VirtualThreadConcurrencyStrategy strategy = new VirtualThreadConcurrencyStrategy(
+                HystrixConcurrencyStrategyDefault.getInstance(), threadPoolKeys, threadFactory);
+        try {
+            plugins.registerConcurrencyStrategy(strategy);
+        } catch (IllegalStateException e) {
+            HystrixConcurrencyStrategy current = plugins.getConcurrencyStrategy();
+            if (!(current instanceof VirtualThreadConcurrencyStrategy)) {
+                throw new IllegalStateException("Hystrix concurrency strategy " + current.getClass().getName()
+                        + " is registered already, virtual thread isolation can not be enabled for " + threadPoolKeys, e);
+            }
+            ((VirtualThreadConcurrencyStrategy) current).threadPoolKeys.addAll(threadPoolKeys);
+        }
+    }
+
+    @Override
+    public ThreadPoolExecutor getThreadPool(HystrixThreadPoolKey threadPoolKey,
+                                            HystrixThreadPoolProperties threadPoolProperties) {
+        if (!threadPoolKeys.contains(threadPoolKey.name())) {
+            return delegate.getThreadPool(threadPoolKey, threadPoolProperties);
+        }
+        int coreSize = threadPoolProperties.coreSize().get();
+        int maximumSize = threadPoolProperties.getAllowMaximumSizeToDivergeFromCoreSize().get()
+                ? Math.max(coreSize, threadPoolProperties.maximumSize().get())
+                : coreSize;
+        return new VirtualThreadPerTaskExecutor(coreSize, maximumSize, threadFactory);
+    }
+
+    @Override
+    public ThreadPoolExecutor getThreadPool(HystrixThreadPoolKey threadPoolKey, HystrixProperty<Integer> corePoolSize,
+                                            HystrixProperty<Integer> maximumPoolSize,
+                                            HystrixProperty<Integer> keepAliveTime, TimeUnit unit,
+                                            BlockingQueue<Runnable> workQueue) {
+        return delegate.getThreadPool(threadPoolKey, corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+    }
+
+    @Override
+    public BlockingQueue<Runnable> getBlockingQueue(int maxQueueSize) {
+        return delegate.getBlockingQueue(maxQueueSize);
+    }
+
+    @Override
+    public <T> Callable<T> wrapCallable(Callable<T> callable) {
+        return delegate.wrapCallable(callable);
+    }
+
+    @Override
+    public <T> HystrixRequestVariable<T> getRequestVariable(HystrixRequestVariableLifecycle<T> rv) {
+        return delegate.getRequestVariable(rv);
+    }
+
+    /**
+     * Executor starting a virtual thread per task, limited by a semaphore to the maximum size of the thread pool.
+     * Hystrix only takes {@link ThreadPoolExecutor}s, this one never starts threads of its own: its queue stays
+     * empty and its counts are those of the virtual threads.
+     */
+    static final class VirtualThreadPerTaskExecutor extends ThreadPoolExecutor {
+
+        private final int maximumSize;
+
+        private final Semaphore permits;
+
+        private final ThreadFactory virtualThreadFactory;
+
+        private final AtomicInteger largestActiveCount = new AtomicInteger();
+
+        private final AtomicLong taskCount = new AtomicLong();
+
+        private final AtomicLong completedTaskCount = new AtomicLong();
+
+        VirtualThreadPerTaskExecutor(int coreSize, int maximumSize, ThreadFactory virtualThreadFactory) {
+            super(coreSize, maximumSize, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(), virtualThreadFactory);
+            this.maximumSize = maximumSize;
+            this.permits = new Semaphore(maximumSize);
+            this.virtualThreadFactory = virtualThreadFactory;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (isShutdown() || !permits.tryAcquire()) {
+                getRejectedExecutionHandler().rejectedExecution(task, this);
+                return;
+            }
+            Thread thread = virtualThreadFactory.newThread(() -> {
+                try {
+                    task.run();
+                } finally {
+                    completedTaskCount.incrementAndGet();
+                    permits.release();
+                }
+            });
+            if (thread == null) {
+                permits.release();
+                throw new RejectedExecutionException("Virtual thread not created for " + task);
+            }
+            taskCount.incrementAndGet();
+            largestActiveCount.accumulateAndGet(getActiveCount(), Math::max);
+            thread.start();
+        }
+
+        @Override
+        public int getActiveCount() {
+            return maximumSize - permits.availablePermits();
+        }
+
+        @Override
+        public int getPoolSize() {
+            return getActiveCount();
+        }
+
+        @Override
+        public int getLargestPoolSize() {
+            return largestActiveCount.get();
+        }
+
+        @Override
+        public long getTaskCount() {
+            return taskCount.get();
+        }
+
+        @Override
+        public long getCompletedTaskCount() {
+            return completedTaskCount.get();
+        }
+    }
+}
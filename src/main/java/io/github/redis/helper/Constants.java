@@ -20,7 +20,15 @@ public class Constants {
      * The constant REDIS_DELETE_COMMAND. This is Hystrix command name for DELETE command of redis.
      */
     public static final String REDIS_DELETE_COMMAND = "redisClientDelete";
+    /**
+     * The constant REDIS_SET_WITH_EXPIRY_COMMAND. This is metrics command name for SETEX command of redis, not wrapped in hystrix.
+     */
+    public static final String REDIS_SET_WITH_EXPIRY_COMMAND = "redisClientSetWithExpiry";
 
+    /**
+     * The constant REDIS_INCREMENT_COMMAND. This is Hystrix command name for INCRBY command of redis.
+     */
+    public static final String REDIS_INCREMENT_COMMAND = "redisClientIncrement";
     /**
      * The constant REDIS_GET_FROM_DB. This is Hystrix command name for HGETALL command of redis.
      */
@@ -29,18 +37,219 @@ public class Constants {
      * The constant REDIS_PUT_IN_DB. This is Hystrix command name for SET command of redis.
      */
     public static final String REDIS_PUT_IN_DB = "redisPutInDB";
+    /**
+     * The constant REDIS_MULTI_GET_FROM_DB. This is Hystrix command name for HGETALL and HMGET commands of redis.
+     */
+    public static final String REDIS_MULTI_GET_FROM_DB = "redisMultiGetFromDB";
+    /**
+     * The constant REDIS_MULTI_PUT_IN_DB. This is Hystrix command name for HMSET command of redis.
+     */
+    public static final String REDIS_MULTI_PUT_IN_DB = "redisMultiPutInDB";
+    /**
+     * The constant REDIS_MULTI_GET_COMMAND. This is Hystrix command name for MGET command of redis.
+     */
+    public static final String REDIS_MULTI_GET_COMMAND = "redisClientMultiGet";
+    /**
+     * The constant REDIS_MULTI_SET_COMMAND. This is Hystrix command name for MSET command of redis.
+     */
+    public static final String REDIS_MULTI_SET_COMMAND = "redisClientMultiSet";
+    /**
+     * The constant REDIS_PIPELINE_COMMAND. This is Hystrix command name for pipelined commands of redis.
+     */
+    public static final String REDIS_PIPELINE_COMMAND = "redisClientPipeline";
+    /**
+     * The constant REDIS_GET_OR_LOAD_COMMAND. This is Hystrix command name for the reads of get or load.
+     */
+    public static final String REDIS_GET_OR_LOAD_COMMAND = "redisClientGetOrLoad";
+    /**
+     * The constant REDIS_SCAN_COMMAND. This is Hystrix command name for SCAN command of redis.
+     */
+    public static final String REDIS_SCAN_COMMAND = "redisClientScan";
+    /**
+     * The constant REDIS_REPLICA_READ_COMMAND. This is Hystrix command name prefix for reads of a replica,
+     * followed by the host and port of the replica.
+     */
+    public static final String REDIS_REPLICA_READ_COMMAND = "redisClientReplicaRead";
+    /**
+     * The constant REDIS_SCRIPT_COMMAND. This is Hystrix command name for EVALSHA command of redis, i.e. Lua scripts.
+     */
+    public static final String REDIS_SCRIPT_COMMAND = "redisClientScript";
+    /**
+     * The constant REDIS_RATE_LIMIT_COMMAND. This is Hystrix command name for the scripts of the rate limiters.
+     */
+    public static final String REDIS_RATE_LIMIT_COMMAND = "redisClientRateLimit";
+    /**
+     * The constant REDIS_STREAM_ADD_COMMAND. This is Hystrix command name for XADD of stream entries.
+     */
+    public static final String REDIS_STREAM_ADD_COMMAND = "redisClientStreamAdd";
+    /**
+     * The constant REDIS_STREAM_READ_COMMAND. This is Hystrix command name for XREADGROUP without block and XGROUP
+     * CREATE.
+     */
+    public static final String REDIS_STREAM_READ_COMMAND = "redisClientStreamRead";
+    /**
+     * The constant REDIS_STREAM_BLOCKING_READ_COMMAND. This is Hystrix command name for XREADGROUP with block, timed
+     * out after the longest block of its reads.
+     */
+    public static final String REDIS_STREAM_BLOCKING_READ_COMMAND = "redisClientStreamBlockingRead";
+    /**
+     * The constant REDIS_STREAM_ACK_COMMAND. This is Hystrix command name for XACK of stream entries.
+     */
+    public static final String REDIS_STREAM_ACK_COMMAND = "redisClientStreamAck";
+    /**
+     * The constant REDIS_STREAM_CLAIM_COMMAND. This is Hystrix command name for XAUTOCLAIM of pending stream entries.
+     */
+    public static final String REDIS_STREAM_CLAIM_COMMAND = "redisClientStreamClaim";
+    /**
+     * The constant REDIS_LARGE_VALUE_COMMAND. This is Hystrix command name for chunked reads and writes of large values.
+     */
+    public static final String REDIS_LARGE_VALUE_COMMAND = "redisClientLargeValue";
+    /**
+     * The constant REACTIVE_REDIS_GET_COMMAND. This is Hystrix command name for GET command of the reactive client.
+     */
+    public static final String REACTIVE_REDIS_GET_COMMAND = "reactiveRedisClientGet";
+    /**
+     * The constant REACTIVE_REDIS_SET_COMMAND. This is Hystrix command name for SET command of the reactive client.
+     */
+    public static final String REACTIVE_REDIS_SET_COMMAND = "reactiveRedisClientSet";
+    /**
+     * The constant REACTIVE_REDIS_DELETE_COMMAND. This is Hystrix command name for DELETE command of the reactive client.
+     */
+    public static final String REACTIVE_REDIS_DELETE_COMMAND = "reactiveRedisClientDelete";
+    /**
+     * The constant REACTIVE_REDIS_MULTI_GET_COMMAND. This is Hystrix command name for MGET command of the reactive client.
+     */
+    public static final String REACTIVE_REDIS_MULTI_GET_COMMAND = "reactiveRedisClientMultiGet";
+    /**
+     * The constant REACTIVE_REDIS_GET_FROM_DB. This is Hystrix command name for HGET command of the reactive client.
+     */
+    public static final String REACTIVE_REDIS_GET_FROM_DB = "reactiveRedisGetFromDB";
+    /**
+     * The constant REACTIVE_REDIS_PUT_IN_DB. This is Hystrix command name for HSET command of the reactive client.
+     */
+    public static final String REACTIVE_REDIS_PUT_IN_DB = "reactiveRedisPutInDB";
     /**
      * The constant DEFAULT_MAX_TOTAL. This is default pool config property.
      */
-    public static final int DEFAULT_MAX_TOTAL = 8;
+    public static final int DEFAULT_MAX_TOTAL = 64;
     /**
      * The constant DEFAULT_MIN_IDLE. This is default pool config property.
      */
-    public static final int DEFAULT_MIN_IDLE = 0;
+    public static final int DEFAULT_MIN_IDLE = 8;
     /**
      * The constant DEFAULT_MAX_IDLE. This is default pool config property.
      */
-    public static final int DEFAULT_MAX_IDLE = 8;
+    public static final int DEFAULT_MAX_IDLE = 64;
+    /**
+     * The constant DEFAULT_BATCH_SIZE. This is default number of keys per MGET/MSET chunk.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    /**
+     * The constant DEFAULT_NEAR_CACHE_MAX_SIZE. This is default max number of entries in the near cache.
+     */
+    public static final int DEFAULT_NEAR_CACHE_MAX_SIZE = 10_000;
+    /**
+     * The constant DEFAULT_SCAN_COUNT. This is default COUNT hint of SCAN command.
+     */
+    public static final int DEFAULT_SCAN_COUNT = 1000;
+    /**
+     * The constant DEFAULT_SCAN_PARALLELISM. This is default number of cluster nodes scanned in parallel.
+     */
+    public static final int DEFAULT_SCAN_PARALLELISM = 4;
+    /**
+     * The constant DEFAULT_CLUSTER_PARALLELISM. This is default number of cluster masters a batch is sent to in parallel.
+     */
+    public static final int DEFAULT_CLUSTER_PARALLELISM = 8;
+    /**
+     * The constant DEFAULT_REACTIVE_MAX_CONCURRENT_REQUESTS. This is default semaphore size per reactive command.
+     */
+    public static final int DEFAULT_REACTIVE_MAX_CONCURRENT_REQUESTS = 1000;
+    /**
+     * The constant DEFAULT_NEAR_CACHE_INVALIDATION_CHANNEL. This is default pub/sub channel for near cache invalidation.
+     */
+    public static final String DEFAULT_NEAR_CACHE_INVALIDATION_CHANNEL = "redis-client:near-cache:invalidate";
+    /**
+     * The constant DEFAULT_COMPRESSION_THRESHOLD. This is default size in bytes above which serialized values are compressed.
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    /**
+     * The constant DEFAULT_ACCESS_LOG_SAMPLE_RATE. This is default fraction of operations logged in sampled access log mode.
+     */
+    public static final double DEFAULT_ACCESS_LOG_SAMPLE_RATE = 0.01;
+    /**
+     * The constant DEFAULT_EARLY_REFRESH_BETA. This is default weight of probabilistic early refresh of get or load.
+     */
+    public static final double DEFAULT_EARLY_REFRESH_BETA = 1.0;
+    /**
+     * The constant DEFAULT_ADAPTIVE_MAX_TOTAL_LIMIT. This is default ceiling of max total of an adaptive pool.
+     */
+    public static final int DEFAULT_ADAPTIVE_MAX_TOTAL_LIMIT = 512;
+    /**
+     * The constant DEFAULT_SEMAPHORE_MAX_CONCURRENT_REQUESTS. This is default semaphore size per semaphore isolated command.
+     */
+    public static final int DEFAULT_SEMAPHORE_MAX_CONCURRENT_REQUESTS = 200;
+    /**
+     * The constant DEFAULT_WRITE_BEHIND_MAX_SIZE. This is default max number of keys pending in the write behind buffer.
+     */
+    public static final int DEFAULT_WRITE_BEHIND_MAX_SIZE = 100_000;
+    /**
+     * The constant DEFAULT_WRITE_BEHIND_BATCH_SIZE. This is default number of writes flushed per round-trip.
+     */
+    public static final int DEFAULT_WRITE_BEHIND_BATCH_SIZE = 500;
+    /**
+     * The constant DEFAULT_WRITE_BEHIND_MAX_RETRIES. This is default number of times a failed write behind is flushed again.
+     */
+    public static final int DEFAULT_WRITE_BEHIND_MAX_RETRIES = 50;
+
+    /**
+     * The constant DEFAULT_BULKHEAD_MAX_CONCURRENT_REQUESTS. This is default semaphore size per partition of a command.
+     */
+    public static final int DEFAULT_BULKHEAD_MAX_CONCURRENT_REQUESTS = 50;
+
+    /**
+     * The constant DEFAULT_LATENCY_WINDOW_SIZE. This is default number of latest latencies kept per command.
+     */
+    public static final int DEFAULT_LATENCY_WINDOW_SIZE = 1024;
+
+    /**
+     * The constant DEFAULT_LATENCY_MIN_SAMPLES. This is default number of latencies needed before percentiles are used.
+     */
+    public static final int DEFAULT_LATENCY_MIN_SAMPLES = 100;
+
+    /**
+     * The constant DEFAULT_HEDGE_MAX_RATIO. This is default max fraction of reads which are hedged.
+     */
+    public static final double DEFAULT_HEDGE_MAX_RATIO = 0.05;
+
+    /**
+     * The constant DEFAULT_HEDGE_THREADS. This is default number of threads running hedged reads.
+     */
+    public static final int DEFAULT_HEDGE_THREADS = 64;
+
+    /**
+     * The constant DEFAULT_SCRIPT_LOCATION. This is default resource pattern of the Lua scripts registered at startup.
+     */
+    public static final String DEFAULT_SCRIPT_LOCATION = "classpath*:redis/scripts/*.lua";
+
+    /**
+     * The constant DEFAULT_RATE_LIMIT. This is default number of permits of a rate limiter per window.
+     */
+    public static final long DEFAULT_RATE_LIMIT = 100;
+
+    /**
+     * The constant DEFAULT_STREAM_BATCH_SIZE. This is default number of stream entries read or acknowledged at a time.
+     */
+    public static final int DEFAULT_STREAM_BATCH_SIZE = 100;
+
+    /**
+     * The constant DEFAULT_LARGE_VALUE_THRESHOLD. This is default size in bytes above which large values are stored in chunks.
+     */
+    public static final int DEFAULT_LARGE_VALUE_THRESHOLD = 1024 * 1024;
+
+    /**
+     * The constant DEFAULT_LARGE_VALUE_CHUNK_SIZE. This is default size in bytes of the chunks of large values.
+     */
+    public static final int DEFAULT_LARGE_VALUE_CHUNK_SIZE = 256 * 1024;
 
     private Constants() {
     }
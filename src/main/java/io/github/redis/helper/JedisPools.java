@@ -0,0 +1,74 @@
+package io.github.redis.helper;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.util.ReflectionUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.util.Pool;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The type Jedis pools.
+ * Access to the jedis connection pools of a {@link JedisConnectionFactory}, which keeps them private:
+ * the single pool of a standalone or sentinel factory, or the pool of every node of a cluster factory, and to the
+ * commons pool behind a jedis pool.
+ */
+public final class JedisPools {
+
+    private static final Field POOL_FIELD = field("pool");
+
+    private static final Field CLUSTER_FIELD = field("cluster");
+
+    private static final Field INTERNAL_POOL_FIELD = field(Pool.class, "internalPool");
+
+    private JedisPools() {
+    }
+
+    /**
+     * Pools of the connection factory.
+     *
+     * @param connectionFactory the connection factory
+     * @return the pools, empty until the factory is initialized
+     */
+    public static List<Pool<Jedis>> of(JedisConnectionFactory connectionFactory) {
+        if (connectionFactory.isRedisClusterAware()) {
+            JedisCluster cluster = (JedisCluster) ReflectionUtils.getField(CLUSTER_FIELD, connectionFactory);
+            return cluster == null ? Collections.emptyList() : new ArrayList<>(cluster.getClusterNodes().values());
+        }
+        @SuppressWarnings("unchecked")
+        Pool<Jedis> pool = (Pool<Jedis>) ReflectionUtils.getField(POOL_FIELD, connectionFactory);
+        return pool == null ? Collections.emptyList() : Collections.singletonList(pool);
+    }
+
+    /**
+     * Commons pool behind a jedis pool, whose settings (e.g. max total) can be changed while it is in use.
+     *
+     * @param pool the pool
+     * @return the internal pool
+     */
+    @SuppressWarnings("unchecked")
+    public static GenericObjectPool<Jedis> internalPool(Pool<Jedis> pool) {
+        return (GenericObjectPool<Jedis>) ReflectionUtils.getField(INTERNAL_POOL_FIELD, pool);
+    }
+
+    private static Field field(String name) {
+        return field(JedisConnectionFactory.class, name);
+    }
+
+    private static Field field(Class<?> type, String name) {
+        Field field = ReflectionUtils.findField(type, name);
+        if (field == null) {
+            throw new IllegalStateException("No field " + name + " in " + type.getName());
+        }
+        ReflectionUtils.makeAccessible(field);
+        return field;
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.redis.helper;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The type Redis key partitioner.
+ * Splits keys of a multi-key operation into chunks that can be sent as a single redis command.
+ * In cluster mode keys are first grouped by hash slot, so that no chunk fails with CROSSSLOT.
+ */
+public final class RedisKeyPartitioner {
+
+    private RedisKeyPartitioner() {
+    }
+
+    /**
+     * Partition keys into chunks of at most batch size keys.
+     * Order of keys within the chunks follows the order of the given keys.
+     *
+     * @param keys      the keys
+     * @param batchSize the max number of keys in a chunk
+     * @param slotAware whether chunks must only contain keys of the same cluster hash slot
+     * @return the chunks
+     */
+    public static List<List<String>> partition(Collection<String> keys, int batchSize, boolean slotAware) {
+        int chunkSize = batchSize > 0 ? batchSize : Constants.DEFAULT_BATCH_SIZE;
+        List<List<String>> chunks = new ArrayList<>();
+
+        if (!slotAware) {
+            chunk(keys, chunkSize, chunks);
+            return chunks;
+        }
+
+        Map<Integer, List<String>> keysBySlot = new LinkedHashMap<>();
+        for (String key : keys) {
+            keysBySlot.computeIfAbsent(ClusterSlotHashUtil.calculateSlot(key), slot -> new ArrayList<>()).add(key);
+        }
+        keysBySlot.values().forEach(slotKeys -> chunk(slotKeys, chunkSize, chunks));
+        return chunks;
+    }
+
+    private static void chunk(Collection<String> keys, int chunkSize, List<List<String>> chunks) {
+        List<String> current = new ArrayList<>(Math.min(chunkSize, keys.size()));
+        for (String key : keys) {
+            current.add(key);
+            if (current.size() == chunkSize) {
+                chunks.add(current);
+                current = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.redis.helper;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import org.springframework.util.ClassUtils;
+import org.springframework.util.NumberUtils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The type Value types.
+ * Converts values read from redis to the type asked for by the caller, where the stored form loses the exact type:
+ * integral numbers are read back as {@link Integer} or {@link Long} whatever they were written as, and
+ * {@link ByteBuffer} values are read back as {@code byte[]}.
+ */
+public final class ValueTypes {
+
+    private ValueTypes() {
+    }
+
+    /**
+     * Converts the value to the type when it is a number of another type, or bytes read for a byte buffer.
+     * Any other value is returned as is.
+     *
+     * @param value the value read from redis
+     * @param type  the type asked for
+     * @return the converted value
+     * @throws IllegalArgumentException if the number does not fit in the type
+     */
+    public static Object coerce(Object value, Class<?> type) {
+        if (value == null || type.isInstance(value)) {
+            return value;
+        }
+        Class<?> wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+        if (value instanceof Number && Number.class.isAssignableFrom(wrapperType)) {
+            @SuppressWarnings("unchecked")
+            Class<? extends Number> numberType = (Class<? extends Number>) wrapperType;
+            return NumberUtils.convertNumberToTargetClass((Number) value, numberType);
+        }
+        if (value instanceof byte[] && type == ByteBuffer.class) {
+            return ByteBuffer.wrap((byte[]) value);
+        }
+        return value;
+    }
+
+    /**
+     * Casts the value to the type, converting it first with {@link #coerce(Object, Class)}.
+     *
+     * @param <T>   the type parameter
+     * @param value the value read from redis
+     * @param type  the type asked for
+     * @return the value
+     * @throws ClassCastException if the value is not of the type
+     */
+    public static <T> T cast(Object value, Class<T> type) {
+        return type.cast(coerce(value, type));
+    }
+
+    /**
+     * Whether the value is of the type, once converted with {@link #coerce(Object, Class)}.
+     *
+     * @param value the value read from redis
+     * @param type  the type asked for
+     * @return whether the value can be cast
+     */
+    public static boolean isInstance(Object value, Class<?> type) {
+        try {
+            return type.isInstance(coerce(value, type));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
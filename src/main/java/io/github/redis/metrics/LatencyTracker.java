@@ -0,0 +1,119 @@
+package io.github.redis.metrics;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.helper.Constants;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The type Latency tracker.
+ * Keeps the latencies of the last {@link Constants#DEFAULT_LATENCY_WINDOW_SIZE} successful operations of every
+ * command, in a ring buffer, to tell recent latency percentiles of a command, e.g. to pick the delay of hedged reads
+ * or the timeout of a command. Recording is one array write, percentiles are computed from a sorted copy of the
+ * window, made at most every {@value #SNAPSHOT_INTERVAL_MILLIS} milliseconds.
+ */
+public class LatencyTracker {
+
+    private static final long SNAPSHOT_INTERVAL_MILLIS = 100;
+
+    private static final long SNAPSHOT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(SNAPSHOT_INTERVAL_MILLIS);
+
+    private final int windowSize;
+
+    private final int minSamples;
+
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new Latency tracker, with the default window.
+     */
+    public LatencyTracker() {
+        this(Constants.DEFAULT_LATENCY_WINDOW_SIZE, Constants.DEFAULT_LATENCY_MIN_SAMPLES);
+    }
+
+    /**
+     * Instantiates a new Latency tracker.
+     *
+     * @param windowSize the number of latest latencies kept per command
+     * @param minSamples the number of latencies needed before percentiles are told
+     */
+    public LatencyTracker(int windowSize, int minSamples) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minSamples = Math.max(1, Math.min(minSamples, this.windowSize));
+    }
+
+    /**
+     * Records the latency of an operation.
+     *
+     * @param command the command name
+     * @param nanos   the latency in nanoseconds
+     */
+    public void record(String command, long nanos) {
+        windows.computeIfAbsent(command, ignored -> new Window(windowSize)).record(nanos);
+    }
+
+    /**
+     * Recent latency percentile of a command.
+     *
+     * @param command    the command name
+     * @param percentile the percentile, between 0 and 1, e.g. 0.95
+     * @return the latency in nanoseconds, {@code -1} until enough latencies are recorded
+     */
+    public long percentile(String command, double percentile) {
+        Window window = windows.get(command);
+        if (window == null) {
+            return -1;
+        }
+        long[] sorted = window.snapshot();
+        if (sorted.length < minSamples) {
+            return -1;
+        }
+        int index = (int) Math.ceil(Math.min(1, Math.max(0, percentile)) * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    /**
+     * Latencies of one command.
+     */
+    private static final class Window {
+
+        private final long[] latencies;
+
+        private final AtomicLong count = new AtomicLong();
+
+        private volatile long[] sorted = new long[0];
+
+        private volatile long sortedAt = System.nanoTime() - SNAPSHOT_INTERVAL_NANOS;
+
+        private Window(int size) {
+            this.latencies = new long[size];
+        }
+
+        private void record(long nanos) {
+            latencies[(int) (count.getAndIncrement() % latencies.length)] = nanos;
+        }
+
+        /**
+         * Sorted copy of the window, taken again once it is older than the snapshot interval. Concurrent records may
+         * be missed or seen half way, which is fine for percentiles of thousands of latencies.
+         */
+        private long[] snapshot() {
+            long now = System.nanoTime();
+            if (now - sortedAt < SNAPSHOT_INTERVAL_NANOS) {
+                return sorted;
+            }
+            int size = (int) Math.min(count.get(), latencies.length);
+            long[] copy = Arrays.copyOf(latencies, size);
+            Arrays.sort(copy);
+            sorted = copy;
+            sortedAt = now;
+            return copy;
+        }
+    }
+}
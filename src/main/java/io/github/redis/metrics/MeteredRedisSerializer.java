@@ -0,0 +1,133 @@
+package io.github.redis.metrics;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.helper.ValueTypes;
+import io.github.redis.serializer.TypedRedisSerializer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Metered redis serializer.
+ * Decorates a {@link RedisSerializer}, timing every (de)serialization as <b>redis.client.serialization</b> and
+ * recording the size of the serialized payloads as <b>redis.client.payload.size</b>, both tagged by operation
+ * ({@code serialize} or {@code deserialize}), type of value ({@code value}, {@code hash_value}, ...) and format.
+ * Typed reads are handed to the serializer when it is a {@link TypedRedisSerializer}.
+ *
+ * @param <T> the type parameter
+ */
+public class MeteredRedisSerializer<T> implements RedisSerializer<T>, TypedRedisSerializer {
+
+    /**
+     * The constant SERIALIZATION_TIMER.
+     */
+    public static final String SERIALIZATION_TIMER = "redis.client.serialization";
+
+    /**
+     * The constant PAYLOAD_SIZE.
+     */
+    public static final String PAYLOAD_SIZE = "redis.client.payload.size";
+
+    private final RedisSerializer<T> delegate;
+
+    private final MeterRegistry registry;
+
+    private final Timer serializeTimer;
+
+    private final Timer deserializeTimer;
+
+    private final DistributionSummary serializedSize;
+
+    private final DistributionSummary deserializedSize;
+
+    /**
+     * Instantiates a new Metered redis serializer.
+     *
+     * @param delegate            the serializer
+     * @param registry            the meter registry
+     * @param type                the type of value serialized, used as tag
+     * @param format              the serialization format, used as tag
+     * @param percentileHistogram whether percentile histograms are published
+     */
+    public MeteredRedisSerializer(RedisSerializer<T> delegate, MeterRegistry registry,
+                                  String type, String format, boolean percentileHistogram) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.serializeTimer = timer(registry, "serialize", type, format, percentileHistogram);
+        this.deserializeTimer = timer(registry, "deserialize", type, format, percentileHistogram);
+        this.serializedSize = payloadSize(registry, "serialize", type, format, percentileHistogram);
+        this.deserializedSize = payloadSize(registry, "deserialize", type, format, percentileHistogram);
+    }
+
+    /**
+     * Gets delegate.
+     *
+     * @return the decorated serializer
+     */
+    public RedisSerializer<T> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public byte[] serialize(T element) {
+        long start = registry.config().clock().monotonicTime();
+        byte[] bytes = delegate.serialize(element);
+        serializeTimer.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+        if (bytes != null) {
+            serializedSize.record(bytes.length);
+        }
+        return bytes;
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return delegate.deserialize(bytes);
+        }
+        long start = registry.config().clock().monotonicTime();
+        T element = delegate.deserialize(bytes);
+        deserializeTimer.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+        deserializedSize.record(bytes.length);
+        return element;
+    }
+
+    @Override
+    public <V> V deserialize(byte[] bytes, Class<V> type) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        long start = registry.config().clock().monotonicTime();
+        V element = delegate instanceof TypedRedisSerializer
+                ? ((TypedRedisSerializer) delegate).deserialize(bytes, type)
+                : ValueTypes.cast(delegate.deserialize(bytes), type);
+        deserializeTimer.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+        deserializedSize.record(bytes.length);
+        return element;
+    }
+
+    private static Timer timer(MeterRegistry registry, String operation, String type, String format,
+                               boolean percentileHistogram) {
+        return Timer.builder(SERIALIZATION_TIMER)
+                .tag("operation", operation)
+                .tag("type", type)
+                .tag("format", format)
+                .publishPercentileHistogram(percentileHistogram)
+                .register(registry);
+    }
+
+    private static DistributionSummary payloadSize(MeterRegistry registry, String operation, String type,
+                                                   String format, boolean percentileHistogram) {
+        return DistributionSummary.builder(PAYLOAD_SIZE)
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .tag("type", type)
+                .tag("format", format)
+                .publishPercentileHistogram(percentileHistogram)
+                .register(registry);
+    }
+}
@@ -0,0 +1,186 @@
+package io.github.redis.metrics;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import com.netflix.hystrix.exception.HystrixTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The type Redis client metrics.
+ * Micrometer meters of the redis client operations:
+ * <ul>
+ * <li><b>redis.client.command</b> timer of every operation as run inside its hystrix command (pool wait, network and
+ * (de)serialization), tagged by command, serialization format and outcome ({@code success} or {@code failure}).</li>
+ * <li><b>redis.client.command.fallback</b> counter of fallbacks, tagged by command, format and outcome
+ * ({@code failure}, {@code timeout}, {@code short_circuited} or {@code rejected}).</li>
+ * </ul>
+ * Time spent queueing for a hystrix thread is published by hystrix itself, as the difference between its total
+ * and execution latencies.
+ * Latencies of successful operations are also handed to a {@link LatencyTracker}, when one is set.
+ */
+public class RedisClientMetrics {
+
+    /**
+     * The constant COMMAND_TIMER.
+     */
+    public static final String COMMAND_TIMER = "redis.client.command";
+
+    /**
+     * The constant FALLBACK_COUNTER.
+     */
+    public static final String FALLBACK_COUNTER = "redis.client.command.fallback";
+
+    private static final String SUCCESS = "success";
+
+    private static final String FAILURE = "failure";
+
+    private final MeterRegistry registry;
+
+    private final boolean percentileHistogram;
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Counter> fallbackCounters = new ConcurrentHashMap<>();
+
+    private volatile LatencyTracker latencyTracker;
+
+    /**
+     * Instantiates a new Redis client metrics.
+     *
+     * @param registry            the meter registry
+     * @param percentileHistogram whether timers publish percentile histograms
+     */
+    public RedisClientMetrics(MeterRegistry registry, boolean percentileHistogram) {
+        this.registry = registry;
+        this.percentileHistogram = percentileHistogram;
+    }
+
+    /**
+     * Metrics which are not published anywhere.
+     *
+     * @return the redis client metrics
+     */
+    public static RedisClientMetrics noop() {
+        return new RedisClientMetrics(new CompositeMeterRegistry(), false);
+    }
+
+    /**
+     * Gets registry.
+     *
+     * @return the meter registry
+     */
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Sets the latency tracker, given the latency of every successful operation.
+     *
+     * @param latencyTracker the latency tracker, {@code null} to disable
+     */
+    public void setLatencyTracker(LatencyTracker latencyTracker) {
+        this.latencyTracker = latencyTracker;
+    }
+
+    /**
+     * Times a redis operation.
+     *
+     * @param <R>       the type parameter
+     * @param command   the command name
+     * @param format    the serialization format of the values involved
+     * @param operation the redis operation
+     * @return the result of the operation
+     */
+    public <R> R time(String command, String format, Supplier<R> operation) {
+        long start = registry.config().clock().monotonicTime();
+        String outcome = FAILURE;
+        try {
+            R result = operation.get();
+            outcome = SUCCESS;
+            return result;
+        } finally {
+            long latency = registry.config().clock().monotonicTime() - start;
+            timer(command, format, outcome).record(latency, TimeUnit.NANOSECONDS);
+            LatencyTracker tracker = latencyTracker;
+            if (tracker != null && outcome == SUCCESS) {
+                tracker.record(command, latency);
+            }
+        }
+    }
+
+    /**
+     * Times a redis operation without result.
+     *
+     * @param command   the command name
+     * @param format    the serialization format of the values involved
+     * @param operation the redis operation
+     */
+    public void timeRunnable(String command, String format, Runnable operation) {
+        time(command, format, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Counts a fallback.
+     *
+     * @param command the command name
+     * @param format  the serialization format of the values involved
+     * @param failure the failure which caused the fallback, may be {@code null}
+     */
+    public void fallback(String command, String format, Throwable failure) {
+        String outcome = outcomeOf(failure);
+        fallbackCounters.computeIfAbsent(command + ':' + format + ':' + outcome, id -> Counter.builder(FALLBACK_COUNTER)
+                .tag("command", command)
+                .tag("format", format)
+                .tag("outcome", outcome)
+                .register(registry))
+                .increment();
+    }
+
+    /**
+     * Outcome of a hystrix command, from the failure its fallback is given.
+     *
+     * @param failure the failure
+     * @return the outcome
+     */
+    static String outcomeOf(Throwable failure) {
+        if (failure instanceof HystrixTimeoutException) {
+            return "timeout";
+        }
+        if (failure instanceof RejectedExecutionException) {
+            return "rejected";
+        }
+        String message = failure != null && failure.getMessage() != null
+                ? failure.getMessage().toLowerCase(Locale.ROOT)
+                : "";
+        if (message.contains("short-circuited")) {
+            return "short_circuited";
+        }
+        if (message.contains("could not acquire a semaphore")) {
+            return "rejected";
+        }
+        return FAILURE;
+    }
+
+    private Timer timer(String command, String format, String outcome) {
+        return timers.computeIfAbsent(command + ':' + format + ':' + outcome, id -> Timer.builder(COMMAND_TIMER)
+                .tag("command", command)
+                .tag("format", format)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram(percentileHistogram)
+                .register(registry));
+    }
+}
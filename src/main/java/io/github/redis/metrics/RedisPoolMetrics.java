@@ -0,0 +1,77 @@
+package io.github.redis.metrics;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.helper.JedisPools;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.util.Pool;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The type Redis pool metrics.
+ * Gauges of the jedis connection pool(s) of a {@link JedisConnectionFactory}: <b>redis.client.pool.active</b>,
+ * <b>.idle</b> and <b>.waiting</b> (threads blocked on borrow) summed over all nodes in cluster mode, <b>.max</b>
+ * (maxTotal of the pool config, per pool) and <b>.borrow.wait.mean</b> / <b>.borrow.wait.max</b> in milliseconds,
+ * of the worst node in cluster mode.
+ * A growing waiting count with a mean borrow wait close to the command timeout means the pool is too small.
+ */
+public class RedisPoolMetrics implements MeterBinder {
+
+    private final JedisConnectionFactory connectionFactory;
+
+    /**
+     * Instantiates a new Redis pool metrics.
+     *
+     * @param connectionFactory the connection factory
+     */
+    public RedisPoolMetrics(JedisConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "redis.client.pool.active", "connections", Pool::getNumActive);
+        gauge(registry, "redis.client.pool.idle", "connections", Pool::getNumIdle);
+        gauge(registry, "redis.client.pool.waiting", "threads", Pool::getNumWaiters);
+        Gauge.builder("redis.client.pool.max", connectionFactory,
+                factory -> factory.getPoolConfig() == null ? Double.NaN : factory.getPoolConfig().getMaxTotal())
+                .baseUnit("connections")
+                .register(registry);
+        Gauge.builder("redis.client.pool.borrow.wait.mean", this,
+                metrics -> metrics.max(Pool::getMeanBorrowWaitTimeMillis))
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("redis.client.pool.borrow.wait.max", this,
+                metrics -> metrics.max(Pool::getMaxBorrowWaitTimeMillis))
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    private void gauge(MeterRegistry registry, String name, String baseUnit, ToDoubleFunction<Pool<Jedis>> value) {
+        Gauge.builder(name, this, metrics -> metrics.sum(value))
+                .baseUnit(baseUnit)
+                .register(registry);
+    }
+
+    private double sum(ToDoubleFunction<Pool<Jedis>> value) {
+        double sum = 0;
+        for (Pool<Jedis> pool : JedisPools.of(connectionFactory)) {
+            sum += value.applyAsDouble(pool);
+        }
+        return sum;
+    }
+
+    private double max(ToDoubleFunction<Pool<Jedis>> value) {
+        double max = 0;
+        for (Pool<Jedis> pool : JedisPools.of(connectionFactory)) {
+            max = Math.max(max, value.applyAsDouble(pool));
+        }
+        return max;
+    }
+}
@@ -0,0 +1,493 @@
+package io.github.redis.serializer;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.github.redis.config.RedisClientProperties.Compression;
+import io.github.redis.config.RedisClientProperties.Format;
+import io.github.redis.helper.ValueTypes;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The type Compact redis serializer.
+ * Serializes values with Jackson in JSON, Smile or CBOR, keeping type information like
+ * {@link GenericJackson2JsonRedisSerializer}, and compresses them with LZ4 above a size threshold.
+ * <p>
+ * Binary and compressed values start with a header byte naming their format, plain JSON values are written without
+ * header, exactly as before. Every value is read according to its own header, whatever the configured format is, so
+ * JSON values written before a migration stay readable and nodes can be migrated (or rolled back) one at a time.
+ * <p>
+ * Header bytes are {@code 0x01}..{@code 0x08}, a JSON document never starts with one of them. They are part of the
+ * stored values and fixed per format and compression, never derived from the order of {@link Format}.
+ * <p>
+ * Some values skip Jackson entirely: {@code byte[]} and {@link ByteBuffer} values are written as is behind the header
+ * byte {@code 0x06} and read back as {@code byte[]}, integral and floating point numbers are written as their decimal
+ * text, which is also their JSON document, so INCRBY and INCRBYFLOAT work on them and older clients still read them.
+ * Integral numbers are read back as {@link Integer}, or {@link Long} outside its range, as Jackson does.
+ * <p>
+ * Without type information, values are written behind the header byte {@code 0x07} ({@code 0x08} when compressed)
+ * and the format byte, without the class name. They are smaller and faster to write and read, but only
+ * {@link #deserialize(byte[], Class)} reads them into their class, {@link #deserialize(byte[])} reads them as maps
+ * and lists. Both read values of any header, through Jackson readers cached per class, see {@link TypedCodecs}.
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object>, TypedRedisSerializer {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final int LENGTH_OFFSET = 1;
+
+    private static final byte SMILE_HEADER = 0x01;
+
+    private static final byte CBOR_HEADER = 0x02;
+
+    private static final byte JSON_COMPRESSED_HEADER = 0x03;
+
+    private static final byte SMILE_COMPRESSED_HEADER = 0x04;
+
+    private static final byte CBOR_COMPRESSED_HEADER = 0x05;
+
+    private static final byte RAW_HEADER = 0x06;
+
+    private static final byte PLAIN_HEADER = 0x07;
+
+    private static final byte PLAIN_COMPRESSED_HEADER = 0x08;
+
+    private static final byte JSON_FORMAT_BYTE = 0x00;
+
+    private static final byte SMILE_FORMAT_BYTE = 0x01;
+
+    private static final byte CBOR_FORMAT_BYTE = 0x02;
+
+    private static final int PLAIN_DOCUMENT_OFFSET = 2;
+
+    private static final int MAX_FAST_INTEGRAL_LENGTH = 18;
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    private final Format format;
+
+    private final boolean typeInformation;
+
+    private final int compressionThreshold;
+
+    private final LZ4Compressor compressor;
+
+    private final LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+
+    private final Map<Format, ObjectMapper> binaryMappers = new EnumMap<>(Format.class);
+
+    private final Map<Format, TypedCodecs> codecs = new EnumMap<>(Format.class);
+
+    /**
+     * Instantiates a new Compact redis serializer.
+     *
+     * @param format               the format values are written in
+     * @param compression          the compression of values larger than the threshold
+     * @param compressionThreshold the size in bytes above which values are compressed
+     */
+    public CompactRedisSerializer(Format format, Compression compression, int compressionThreshold) {
+        this(format, compression, compressionThreshold, true);
+    }
+
+    /**
+     * Instantiates a new Compact redis serializer.
+     *
+     * @param format               the format values are written in
+     * @param compression          the compression of values larger than the threshold
+     * @param compressionThreshold the size in bytes above which values are compressed
+     * @param typeInformation      whether values are written with their class name
+     */
+    public CompactRedisSerializer(Format format, Compression compression, int compressionThreshold,
+                                  boolean typeInformation) {
+        this.format = format;
+        this.typeInformation = typeInformation;
+        this.compressionThreshold = compressionThreshold;
+        this.compressor = compression == Compression.LZ4 ? LZ4.fastCompressor() : null;
+        binaryMappers.put(Format.SMILE, typedMapper(new ObjectMapper(new SmileFactory())));
+        binaryMappers.put(Format.CBOR, typedMapper(new ObjectMapper(new CBORFactory())));
+        codecs.put(Format.JSON, new TypedCodecs(typedMapper(new ObjectMapper()), new ObjectMapper()));
+        codecs.put(Format.SMILE, new TypedCodecs(binaryMappers.get(Format.SMILE), new ObjectMapper(new SmileFactory())));
+        codecs.put(Format.CBOR, new TypedCodecs(binaryMappers.get(Format.CBOR), new ObjectMapper(new CBORFactory())));
+    }
+
+    @Override
+    public byte[] serialize(Object element) {
+        if (element == null) {
+            return EMPTY;
+        }
+        byte[] fastBody = writeFast(element);
+        if (fastBody != null) {
+            return fastBody;
+        }
+        if (!typeInformation) {
+            return writePlain(element);
+        }
+
+        byte[] body;
+        int headerLength;
+        if (format == Format.JSON) {
+            body = jsonSerializer.serialize(element);
+            headerLength = 0;
+        } else {
+            body = writeBinary(element);
+            headerLength = 1;
+        }
+
+        if (compressor != null && body.length - headerLength > compressionThreshold) {
+            byte[] compressed = compress(body, headerLength, compressedHeader(format));
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+        return body;
+    }
+
+    /**
+     * Writes the element without type information, behind the plain header and the format byte.
+     */
+    private byte[] writePlain(Object element) {
+        byte[] body;
+        try (ByteArrayBuilder builder = new ByteArrayBuilder()) {
+            builder.write(PLAIN_HEADER);
+            builder.write(formatByte(format));
+            codecs.get(format).plainWriter(element.getClass()).writeValue(builder, element);
+            body = builder.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Could not write " + format + ": " + e.getMessage(), e);
+        }
+        if (compressor != null && body.length - PLAIN_DOCUMENT_OFFSET > compressionThreshold) {
+            byte[] compressed = compress(body, PLAIN_DOCUMENT_OFFSET, PLAIN_COMPRESSED_HEADER, formatByte(format));
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+        return body;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        int header = bytes[0];
+        if (header == RAW_HEADER) {
+            return Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (header == PLAIN_HEADER || header == PLAIN_COMPRESSED_HEADER) {
+            return readPlain(bytes, Object.class);
+        }
+        Format bodyFormat = headerFormat(header);
+        if (bodyFormat == null) {
+            Object number = readNumber(bytes);
+            return number != null ? number : jsonSerializer.deserialize(bytes);
+        }
+
+        if (header < JSON_COMPRESSED_HEADER) {
+            return readBinary(bodyFormat, bytes, 1, bytes.length - 1);
+        }
+        byte[] body = decompress(bytes, LENGTH_OFFSET);
+        return bodyFormat == Format.JSON
+                ? jsonSerializer.deserialize(body)
+                : readBinary(bodyFormat, body, 0, body.length);
+    }
+
+    /**
+     * Deserializes the bytes straight into the type, with the reader of the type cached for the format of the value.
+     * Documents are read in place, after their header. Values with type information must name the type or a
+     * subtype of it, values without are read as the type.
+     *
+     * @param <T>   the type parameter
+     * @param bytes the bytes read from redis, may be {@code null}
+     * @param type  the type of the value
+     * @return the value, {@code null} for {@code null} or empty bytes
+     */
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> type) {
+        if (type == Object.class) {
+            return type.cast(deserialize(bytes));
+        }
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        int header = bytes[0];
+        if (header == RAW_HEADER) {
+            return ValueTypes.cast(Arrays.copyOfRange(bytes, 1, bytes.length), type);
+        }
+        if (header == PLAIN_HEADER || header == PLAIN_COMPRESSED_HEADER) {
+            return readPlain(bytes, type);
+        }
+        Format bodyFormat = headerFormat(header);
+        if (bodyFormat == null) {
+            Object number = readNumber(bytes);
+            return number != null
+                    ? ValueTypes.cast(number, type)
+                    : read(codecs.get(Format.JSON).typedReader(type), Format.JSON, bytes, 0, bytes.length);
+        }
+
+        if (header < JSON_COMPRESSED_HEADER) {
+            return read(codecs.get(bodyFormat).typedReader(type), bodyFormat, bytes, 1, bytes.length - 1);
+        }
+        byte[] body = decompress(bytes, LENGTH_OFFSET);
+        return read(codecs.get(bodyFormat).typedReader(type), bodyFormat, body, 0, body.length);
+    }
+
+    /**
+     * Reads a value written without type information.
+     */
+    private <T> T readPlain(byte[] bytes, Class<T> type) {
+        Format bodyFormat = bytes.length < PLAIN_DOCUMENT_OFFSET ? null : formatOfByte(bytes[1]);
+        if (bodyFormat == null) {
+            throw new SerializationException("Could not read value without type information, unknown format");
+        }
+        ObjectReader reader = codecs.get(bodyFormat).plainReader(type);
+        if (bytes[0] == PLAIN_HEADER) {
+            return read(reader, bodyFormat, bytes, PLAIN_DOCUMENT_OFFSET, bytes.length - PLAIN_DOCUMENT_OFFSET);
+        }
+        byte[] body = decompress(bytes, PLAIN_DOCUMENT_OFFSET);
+        return read(reader, bodyFormat, body, 0, body.length);
+    }
+
+    private static <T> T read(ObjectReader reader, Format bodyFormat, byte[] bytes, int offset, int length) {
+        try {
+            return reader.readValue(bytes, offset, length);
+        } catch (IOException e) {
+            throw new SerializationException("Could not read " + bodyFormat + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes raw bytes and numbers without Jackson, {@code null} for any other element.
+     */
+    private static byte[] writeFast(Object element) {
+        if (element instanceof byte[]) {
+            byte[] raw = (byte[]) element;
+            byte[] body = new byte[raw.length + 1];
+            body[0] = RAW_HEADER;
+            System.arraycopy(raw, 0, body, 1, raw.length);
+            return body;
+        }
+        if (element instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) element).duplicate();
+            byte[] body = new byte[buffer.remaining() + 1];
+            body[0] = RAW_HEADER;
+            buffer.get(body, 1, body.length - 1);
+            return body;
+        }
+        if (element instanceof Long || element instanceof Integer || element instanceof Short || element instanceof Byte) {
+            return Long.toString(((Number) element).longValue()).getBytes(StandardCharsets.US_ASCII);
+        }
+        if (element instanceof Double || element instanceof Float) {
+            double value = ((Number) element).doubleValue();
+            if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+                return element.toString().getBytes(StandardCharsets.US_ASCII);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a number written as decimal text without Jackson, {@code null} if the bytes are not a plain integral or
+     * floating point number.
+     */
+    private static Object readNumber(byte[] bytes) {
+        int start = bytes[0] == '-' ? 1 : 0;
+        if (start == bytes.length || !isDigit(bytes[start])) {
+            return null;
+        }
+        boolean integral = true;
+        for (int i = start; i < bytes.length; i++) {
+            byte b = bytes[i];
+            if (!isDigit(b)) {
+                if (b != '.' && b != 'e' && b != 'E' && b != '-' && b != '+') {
+                    return null;
+                }
+                integral = false;
+            }
+        }
+        if (!integral) {
+            try {
+                return Double.valueOf(new String(bytes, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        if (bytes.length - start > MAX_FAST_INTEGRAL_LENGTH) {
+            return null;
+        }
+        long value = 0;
+        for (int i = start; i < bytes.length; i++) {
+            value = value * 10 + (bytes[i] - '0');
+        }
+        value = start == 1 ? -value : value;
+        if (value == (int) value) {
+            return (int) value;
+        }
+        return value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private byte[] writeBinary(Object element) {
+        try {
+            byte[] document = binaryMappers.get(format).writeValueAsBytes(element);
+            byte[] body = new byte[document.length + 1];
+            body[0] = header(format);
+            System.arraycopy(document, 0, body, 1, document.length);
+            return body;
+        } catch (IOException e) {
+            throw new SerializationException("Could not write " + format + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Object readBinary(Format bodyFormat, byte[] bytes, int offset, int length) {
+        try {
+            return binaryMappers.get(bodyFormat).readValue(bytes, offset, length, Object.class);
+        } catch (IOException e) {
+            throw new SerializationException("Could not read " + bodyFormat + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compresses the document of the body behind the header bytes, {@code null} if that does not make the value
+     * smaller.
+     */
+    private byte[] compress(byte[] body, int headerLength, byte... header) {
+        int lengthOffset = header.length;
+        int blockOffset = lengthOffset + Integer.BYTES;
+        int documentLength = body.length - headerLength;
+        int maxBlockLength = compressor.maxCompressedLength(documentLength);
+        byte[] compressed = new byte[blockOffset + maxBlockLength];
+        int blockLength = compressor.compress(body, headerLength, documentLength, compressed, blockOffset, maxBlockLength);
+        if (blockOffset + blockLength >= body.length) {
+            return null;
+        }
+
+        System.arraycopy(header, 0, compressed, 0, header.length);
+        compressed[lengthOffset] = (byte) (documentLength >>> 24);
+        compressed[lengthOffset + 1] = (byte) (documentLength >>> 16);
+        compressed[lengthOffset + 2] = (byte) (documentLength >>> 8);
+        compressed[lengthOffset + 3] = (byte) documentLength;
+        return Arrays.copyOf(compressed, blockOffset + blockLength);
+    }
+
+    private byte[] decompress(byte[] bytes, int lengthOffset) {
+        int blockOffset = lengthOffset + Integer.BYTES;
+        if (bytes.length < blockOffset) {
+            throw new SerializationException("Could not read compressed value, " + bytes.length + " bytes only");
+        }
+        int documentLength = (bytes[lengthOffset] & 0xFF) << 24
+                | (bytes[lengthOffset + 1] & 0xFF) << 16
+                | (bytes[lengthOffset + 2] & 0xFF) << 8
+                | (bytes[lengthOffset + 3] & 0xFF);
+        if (documentLength < 0) {
+            throw new SerializationException("Could not read compressed value of length " + documentLength);
+        }
+        try {
+            byte[] document = new byte[documentLength];
+            decompressor.decompress(bytes, blockOffset, document, 0, documentLength);
+            return document;
+        } catch (LZ4Exception e) {
+            throw new SerializationException("Could not decompress value: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Header of an uncompressed value with type information, JSON values having none.
+     */
+    private static byte header(Format format) {
+        switch (format) {
+            case SMILE:
+                return SMILE_HEADER;
+            case CBOR:
+                return CBOR_HEADER;
+            default:
+                throw new IllegalArgumentException("No header for " + format);
+        }
+    }
+
+    private static byte compressedHeader(Format format) {
+        switch (format) {
+            case SMILE:
+                return SMILE_COMPRESSED_HEADER;
+            case CBOR:
+                return CBOR_COMPRESSED_HEADER;
+            default:
+                return JSON_COMPRESSED_HEADER;
+        }
+    }
+
+    /**
+     * Format of a value with type information by its header, {@code null} for plain JSON documents and numbers.
+     */
+    private static Format headerFormat(int header) {
+        switch (header) {
+            case SMILE_HEADER:
+            case SMILE_COMPRESSED_HEADER:
+                return Format.SMILE;
+            case CBOR_HEADER:
+            case CBOR_COMPRESSED_HEADER:
+                return Format.CBOR;
+            case JSON_COMPRESSED_HEADER:
+                return Format.JSON;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Format byte following the header of values without type information.
+     */
+    private static byte formatByte(Format format) {
+        switch (format) {
+            case SMILE:
+                return SMILE_FORMAT_BYTE;
+            case CBOR:
+                return CBOR_FORMAT_BYTE;
+            default:
+                return JSON_FORMAT_BYTE;
+        }
+    }
+
+    private static Format formatOfByte(byte formatByte) {
+        switch (formatByte) {
+            case JSON_FORMAT_BYTE:
+                return Format.JSON;
+            case SMILE_FORMAT_BYTE:
+                return Format.SMILE;
+            case CBOR_FORMAT_BYTE:
+                return Format.CBOR;
+            default:
+                return null;
+        }
+    }
+
+    private static ObjectMapper typedMapper(ObjectMapper mapper) {
+        mapper.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        return mapper;
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.redis.serializer;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The type Typed codecs.
+ * Jackson readers and writers of one format, built once per class and cached, so reads and writes of a class skip the
+ * lookup of its (de)serializers. Typed readers read documents carrying type information, as
+ * {@link org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer} writes them, plain readers and
+ * writers documents without it, ignoring unknown properties so a class can gain or lose fields.
+ */
+final class TypedCodecs {
+
+    private final ObjectMapper typedMapper;
+
+    private final ObjectMapper plainMapper;
+
+    private final ConcurrentMap<Class<?>, ObjectReader> typedReaders = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, ObjectReader> plainReaders = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, ObjectWriter> plainWriters = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates new Typed codecs.
+     *
+     * @param typedMapper the mapper of documents with type information
+     * @param plainMapper the mapper of documents without type information, configured here
+     */
+    TypedCodecs(ObjectMapper typedMapper, ObjectMapper plainMapper) {
+        this.typedMapper = typedMapper;
+        this.plainMapper = plainMapper
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+    }
+
+    /**
+     * Reader of the type, for documents with type information.
+     *
+     * @param type the type
+     * @return the reader
+     */
+    ObjectReader typedReader(Class<?> type) {
+        return typedReaders.computeIfAbsent(type, typedMapper::readerFor);
+    }
+
+    /**
+     * Reader of the type, for documents without type information.
+     *
+     * @param type the type
+     * @return the reader
+     */
+    ObjectReader plainReader(Class<?> type) {
+        return plainReaders.computeIfAbsent(type, plainMapper::readerFor);
+    }
+
+    /**
+     * Writer of the type, without type information.
+     *
+     * @param type the type
+     * @return the writer
+     */
+    ObjectWriter plainWriter(Class<?> type) {
+        return plainWriters.computeIfAbsent(type, plainMapper::writerFor);
+    }
+}
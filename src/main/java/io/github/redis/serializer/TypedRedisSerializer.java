@@ -0,0 +1,44 @@
+package io.github.redis.serializer;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.helper.ValueTypes;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * The type Typed redis serializer.
+ * A serializer which reads values straight into the class asked for by the caller, instead of the class named by the
+ * value, so the caller does not cast, and values written without type information can be read.
+ */
+public interface TypedRedisSerializer {
+
+    /**
+     * Deserializes the bytes into the type.
+     *
+     * @param <T>   the type parameter
+     * @param bytes the bytes read from redis, may be {@code null}
+     * @param type  the type of the value
+     * @return the value, {@code null} for {@code null} or empty bytes
+     * @throws SerializationException if the bytes can not be read into the type
+     */
+    <T> T deserialize(byte[] bytes, Class<T> type) throws SerializationException;
+
+    /**
+     * Deserializes the bytes with the serializer, straight into the type when the serializer is a
+     * {@link TypedRedisSerializer}, so values written without type information are read into the type. Other
+     * serializers read the value into the class it names, which callers convert with {@link ValueTypes}.
+     *
+     * @param serializer the serializer
+     * @param bytes      the bytes read from redis, may be {@code null}
+     * @param type       the type of the value
+     * @return the value, of the type for a typed serializer
+     * @throws SerializationException if the bytes can not be read
+     */
+    static Object deserialize(RedisSerializer<?> serializer, byte[] bytes, Class<?> type) throws SerializationException {
+        return serializer instanceof TypedRedisSerializer
+                ? ((TypedRedisSerializer) serializer).deserialize(bytes, type)
+                : serializer.deserialize(bytes);
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.redis.client;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisClusterNode.SlotRange;
+import org.springframework.data.redis.connection.RedisNode.NodeType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class ClusterSlotMapTest {
+
+    private RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private RedisClusterConnection connection = mock(RedisClusterConnection.class);
+
+    private RedisClusterNode lowMaster = master("low", 0, 8191);
+
+    private RedisClusterNode highMaster = master("high", 8192, 16383);
+
+    private ClusterSlotMap slotMap;
+
+    @Before
+    public void setUp() {
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArguments()[0]).doInRedis(connection));
+        when(connection.clusterGetNodes()).thenReturn(new HashSet<>(Arrays.asList(lowMaster, highMaster)));
+        slotMap = new ClusterSlotMap(redisTemplate);
+    }
+
+    @Test
+    public void testMastersShouldBeLoadedOnce() {
+        // slot of "key-1" is 229, of "key-3" is 8359
+        assertSame(lowMaster, slotMap.masterOf("key-1"));
+        assertSame(highMaster, slotMap.masterOf("key-3"));
+        assertSame(highMaster, slotMap.masters(connection)[8359]);
+        verify(connection, times(1)).clusterGetNodes();
+    }
+
+    @Test
+    public void testReloadShouldLoadMastersAgain() {
+        slotMap.masterOf("key-1");
+        when(connection.clusterGetNodes()).thenReturn(new HashSet<>(Arrays.asList(master("low", 0, 16383))));
+
+        slotMap.reload(connection);
+
+        assertEquals("low", slotMap.masterOf("key-3").getHost());
+        verify(connection, times(2)).clusterGetNodes();
+    }
+
+    @Test
+    public void testInvalidateShouldNotReloadWithinASecond() {
+        slotMap.masterOf("key-1");
+
+        slotMap.invalidate();
+        slotMap.masterOf("key-1");
+
+        verify(connection, times(1)).clusterGetNodes();
+    }
+
+    private static RedisClusterNode master(String host, int lowerBound, int upperBound) {
+        return RedisClusterNode.newRedisClusterNode()
+                .listeningAt(host, 7000)
+                .withId(host)
+                .promotedAs(NodeType.MASTER)
+                .serving(new SlotRange(lowerBound, upperBound))
+                .build();
+    }
+}
@@ -0,0 +1,169 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisClusterNode.SlotRange;
+import org.springframework.data.redis.connection.RedisNode.NodeType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.clients.jedis.BuilderFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class ClusterSlotRouterTest {
+
+    private static final List<String> KEYS = Arrays.asList("key-1", "key-2", "key-3", "key-4", "key-5", "key-6");
+
+    private RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private RedisClusterConnection connection = mock(RedisClusterConnection.class);
+
+    private JedisCluster jedisCluster = mock(JedisCluster.class);
+
+    private RedisClusterNode lowMaster = master("low", 0, 8191);
+
+    private RedisClusterNode highMaster = master("high", 8192, 16383);
+
+    private Map<String, Pipeline> pipelines = new HashMap<>();
+
+    private Map<String, Jedis> connections = new HashMap<>();
+
+    private boolean migrating;
+
+    private ClusterSlotRouter router;
+
+    @Before
+    public void setUp() {
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArguments()[0]).doInRedis(connection));
+        when(connection.getNativeConnection()).thenReturn(jedisCluster);
+        when(connection.clusterGetNodes()).thenReturn(new HashSet<>(Arrays.asList(lowMaster, highMaster)));
+
+        Map<String, JedisPool> pools = new HashMap<>();
+        pools.put("low:7000", pool(lowMaster));
+        pools.put("high:7000", pool(highMaster));
+        when(jedisCluster.getClusterNodes()).thenReturn(pools);
+
+        router = new ClusterSlotRouter(redisTemplate, new ClusterSlotMap(redisTemplate), 100, new RedisClientProperties.Cluster());
+    }
+
+    @Test
+    public void testGetShouldPipelinePerMasterAndKeepKeyOrder() {
+        List<byte[]> values = router.get(KEYS);
+
+        assertEquals(KEYS.size(), values.size());
+        for (int i = 0; i < KEYS.size(); i++) {
+            assertEquals("value-of-" + KEYS.get(i), new String(values.get(i), StandardCharsets.UTF_8));
+        }
+        verify(pipelines.get("low"), times(1)).sync();
+        verify(pipelines.get("high"), times(1)).sync();
+        verify(connection, times(1)).clusterGetNodes();
+    }
+
+    @Test
+    public void testMovedSlotsShouldReloadSlotMapAndRetry() {
+        RedisClusterNode lowServingAll = master("low", 0, 16383);
+        when(connection.clusterGetNodes())
+                .thenReturn(new HashSet<>(Arrays.asList(lowServingAll)))
+                .thenReturn(new HashSet<>(Arrays.asList(lowMaster, highMaster)));
+
+        List<byte[]> values = router.get(KEYS);
+
+        for (int i = 0; i < KEYS.size(); i++) {
+            assertEquals("value-of-" + KEYS.get(i), new String(values.get(i), StandardCharsets.UTF_8));
+        }
+        verify(connection, times(2)).clusterGetNodes();
+    }
+
+    @Test
+    public void testAskedKeysShouldBeSentToTargetAfterAskingWithoutReload() {
+        migrating = true;
+        RedisClusterNode lowServingAll = master("low", 0, 16383);
+        when(connection.clusterGetNodes()).thenReturn(new HashSet<>(Arrays.asList(lowServingAll)));
+
+        List<byte[]> values = router.get(KEYS);
+
+        int asked = 0;
+        for (int i = 0; i < KEYS.size(); i++) {
+            assertEquals("value-of-" + KEYS.get(i), new String(values.get(i), StandardCharsets.UTF_8));
+            asked += ClusterSlotHashUtil.calculateSlot(KEYS.get(i)) >= 8192 ? 1 : 0;
+        }
+        assertTrue(asked > 0);
+        verify(connections.get("high"), times(asked)).asking();
+        verify(connections.get("low"), never()).asking();
+        verify(connection, times(1)).clusterGetNodes();
+    }
+
+    @Test
+    public void testDeleteShouldSumDeletedKeysOfAllMasters() {
+        assertEquals(KEYS.size(), router.delete(KEYS));
+    }
+
+    private JedisPool pool(RedisClusterNode master) {
+        Pipeline pipeline = mock(Pipeline.class);
+        when(pipeline.get(any(byte[].class))).thenAnswer(invocation -> {
+            byte[] rawKey = (byte[]) invocation.getArguments()[0];
+            byte[] value = ("value-of-" + new String(rawKey, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+            return response(master, rawKey, value, new Response<>(BuilderFactory.BYTE_ARRAY));
+        });
+        when(pipeline.del(any(byte[].class))).thenAnswer(invocation ->
+                response(master, (byte[]) invocation.getArguments()[0], 1L, new Response<>(BuilderFactory.LONG)));
+        pipelines.put(master.getHost(), pipeline);
+
+        Jedis jedis = mock(Jedis.class);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        connections.put(master.getHost(), jedis);
+        JedisPool pool = mock(JedisPool.class);
+        when(pool.getResource()).thenReturn(jedis);
+        return pool;
+    }
+
+    /**
+     * Answers MOVED for keys whose slot the master does not serve any more, or ASK to the high master while the
+     * slots are migrating.
+     */
+    private <T> Response<T> response(RedisClusterNode master, byte[] rawKey, Object value, Response<T> response) {
+        int slot = ClusterSlotHashUtil.calculateSlot(rawKey);
+        boolean served = "low".equals(master.getHost()) ? slot < 8192 : slot >= 8192;
+        if (served) {
+            response.set(value);
+        } else if (migrating) {
+            response.set(new JedisAskDataException("ASK", new HostAndPort("high", 7000), slot));
+        } else {
+            response.set(new JedisMovedDataException("MOVED", null, slot));
+        }
+        return response;
+    }
+
+    private static RedisClusterNode master(String host, int lowerBound, int upperBound) {
+        return RedisClusterNode.newRedisClusterNode()
+                .listeningAt(host, 7000)
+                .withId(host + "-" + upperBound)
+                .promotedAs(NodeType.MASTER)
+                .serving(new SlotRange(lowerBound, upperBound))
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.metrics.LatencyTracker;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class HedgedReadsTest {
+
+    private LatencyTracker tracker = new LatencyTracker(100, 10);
+
+    private RedisClientProperties.Hedge properties = new RedisClientProperties.Hedge();
+
+    private RedisClientProperties.AdaptiveTimeout adaptiveTimeout = new RedisClientProperties.AdaptiveTimeout();
+
+    private AtomicInteger reads = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < 10; i++) {
+            tracker.record("get", TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        properties.setMaxRatio(1);
+    }
+
+    @Test
+    public void testSlowReadShouldBeSentAgainAndFirstResponseWin() {
+        HedgedReads hedgedReads = new HedgedReads(tracker, properties, adaptiveTimeout);
+
+        long start = System.nanoTime();
+        assertEquals("fast", hedgedReads.read("get", slowThenFast()));
+
+        assertEquals(2, reads.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(400));
+    }
+
+    @Test
+    public void testHedgesShouldStayWithinBudget() {
+        properties.setMaxRatio(0.05);
+        HedgedReads hedgedReads = new HedgedReads(tracker, properties, adaptiveTimeout);
+
+        assertEquals("slow", hedgedReads.read("get", slowThenFast()));
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void testReadShouldTimeOutAfterAdaptiveTimeout() {
+        adaptiveTimeout.setEnabled(true);
+        adaptiveTimeout.setMinTimeout(Duration.ofMillis(20));
+        HedgedReads hedgedReads = new HedgedReads(tracker, properties, adaptiveTimeout);
+
+        try {
+            hedgedReads.read("get", () -> sleep(500, "slow"));
+            fail("read is slower than the adaptive timeout");
+        } catch (QueryTimeoutException expected) {
+            // 2 x p99 of 1ms, raised to the min timeout of 20ms
+        }
+    }
+
+    @Test
+    public void testReadShouldRunOnCallerUntilLatenciesAreKnown() {
+        HedgedReads hedgedReads = new HedgedReads(new LatencyTracker(100, 10), properties, adaptiveTimeout);
+
+        assertEquals(Thread.currentThread().getName(), hedgedReads.read("get", () -> Thread.currentThread().getName()));
+    }
+
+    private Supplier<String> slowThenFast() {
+        return () -> reads.incrementAndGet() == 1 ? sleep(500, "slow") : "fast";
+    }
+
+    private static String sleep(long millis, String value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
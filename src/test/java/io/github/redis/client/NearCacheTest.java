@@ -0,0 +1,144 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties;
+import org.junit.Before;
+import org.junit.Test;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class NearCacheTest {
+
+    private RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private RedisClientProperties.NearCache properties;
+
+    private NearCache nearCache;
+
+    @Before
+    public void setUp() {
+        properties = new RedisClientProperties.NearCache();
+        properties.setEnabled(true);
+        properties.setMaxSize(16);
+        properties.setTtl(Duration.ofMinutes(1));
+        properties.setStaleTtl(Duration.ofMinutes(1));
+
+        nearCache = new NearCache(properties, redisTemplate);
+    }
+
+    @Test
+    public void testGetShouldReturnCachedElementOfRequestedType() {
+        nearCache.put("key", "value");
+
+        assertEquals("value", nearCache.get("key", String.class));
+        assertNull(nearCache.get("key", Integer.class));
+        assertNull(nearCache.get("other-key", String.class));
+        assertEquals(1, nearCache.getHitCount());
+        assertEquals(2, nearCache.getMissCount());
+    }
+
+    @Test
+    public void testPutShouldEvictLeastRecentlyUsedEntries() {
+        for (int i = 0; i < 100; i++) {
+            nearCache.put("key-" + i, i);
+        }
+
+        assertTrue(nearCache.size() <= 16);
+        assertTrue(nearCache.getEvictionCount() > 0);
+        assertEquals(Integer.valueOf(99), nearCache.get("key-99", Integer.class));
+    }
+
+    @Test
+    public void testExpiredEntryShouldOnlyBeServedAsStale() throws InterruptedException {
+        properties.setTtl(Duration.ofMillis(1));
+        nearCache = new NearCache(properties, redisTemplate);
+        nearCache.putInHash("key", "hashKey", "value");
+
+        Thread.sleep(5);
+
+        assertNull(nearCache.getFromHash("key", "hashKey", String.class));
+        assertEquals("value", nearCache.getStaleFromHash("key", "hashKey", String.class));
+        assertEquals(1, nearCache.getStaleHitCount());
+    }
+
+    @Test
+    public void testInvalidateShouldRemoveValueAndHashValuesAndPublish() {
+        nearCache.put("key", "value");
+        nearCache.putInHash("key", "hashKey", "hashValue");
+
+        nearCache.invalidate("key");
+
+        assertNull(nearCache.get("key", String.class));
+        assertNull(nearCache.getStaleFromHash("key", "hashKey", String.class));
+        verify(redisTemplate, timeout(1000)).execute(any(RedisCallback.class));
+    }
+
+    @Test
+    public void testPutShouldNotCacheValueReadBeforeConcurrentInvalidation() {
+        long sequence = nearCache.sequence("key");
+        nearCache.invalidateLocally("key");
+
+        nearCache.put("key", "old-value", sequence);
+        nearCache.putInHash("key", "hashKey", "old-value", sequence);
+
+        assertNull(nearCache.get("key", String.class));
+        assertNull(nearCache.getFromHash("key", "hashKey", String.class));
+        nearCache.put("key", "value", nearCache.sequence("key"));
+        assertEquals("value", nearCache.get("key", String.class));
+    }
+
+    @Test
+    public void testInvalidateShouldBatchKeysInvalidatedWhilePublishing() throws InterruptedException {
+        CountDownLatch publishing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(redisTemplate.execute(any(RedisCallback.class))).thenAnswer(invocation -> {
+            publishing.countDown();
+            release.await();
+            return 1L;
+        });
+
+        nearCache.invalidate("key-1");
+        assertTrue(publishing.await(1, TimeUnit.SECONDS));
+        nearCache.invalidate("key-2");
+        nearCache.invalidate("key-3");
+        release.countDown();
+        nearCache.destroy();
+
+        verify(redisTemplate, times(2)).execute(any(RedisCallback.class));
+    }
+
+    @Test
+    public void testBindToShouldExportCountersAsFunctionCounters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        nearCache.bindTo(registry);
+        nearCache.put("key", "value");
+        nearCache.get("key", String.class);
+        nearCache.get("other-key", String.class);
+
+        assertEquals(1, registry.get("redis.client.near.cache.requests").tag("result", "hit").functionCounter().count(), 0);
+        assertEquals(1, registry.get("redis.client.near.cache.requests").tag("result", "miss").functionCounter().count(), 0);
+        assertEquals(0, registry.get("redis.client.near.cache.evictions").functionCounter().count(), 0);
+        assertEquals(1, registry.get("redis.client.near.cache.size").gauge().value(), 0);
+    }
+
+    @Test
+    public void testOnMessageShouldInvalidateKeysOfOtherNodesOnly() {
+        nearCache.put("key-1", "value");
+        nearCache.put("key-2", "value");
+
+        nearCache.onMessage(new DefaultMessage("channel".getBytes(), "other-node\nkey-1".getBytes()), null);
+
+        assertNull(nearCache.get("key-1", String.class));
+        assertEquals("value", nearCache.get("key-2", String.class));
+        assertEquals(1, nearCache.getInvalidationCount());
+    }
+}
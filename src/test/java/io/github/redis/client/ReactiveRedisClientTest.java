@@ -0,0 +1,111 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.config.RedisClientProperties.Compression;
+import io.github.redis.config.RedisClientProperties.Format;
+import io.github.redis.serializer.CompactRedisSerializer;
+import io.github.redis.serializer.CompactRedisSerializerTest.Point;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class ReactiveRedisClientTest {
+
+    private ReactiveRedisTemplate<String, Object> reactiveRedisTemplate = mock(ReactiveRedisTemplate.class);
+
+    private ReactiveValueOperations<String, Object> valueOps = mock(ReactiveValueOperations.class);
+
+    private ReactiveHashOperations<String, Object, Object> hashOps = mock(ReactiveHashOperations.class);
+
+    private ReactiveRedisClient reactiveRedisClient;
+
+    @Before
+    public void setUp() {
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(valueOps);
+        doReturn(hashOps).when(reactiveRedisTemplate).opsForHash();
+
+        reactiveRedisClient = new ReactiveRedisClient(reactiveRedisTemplate, new RedisClientProperties());
+    }
+
+    @Test
+    public void getElementFromRedis() {
+        when(valueOps.get("key")).thenReturn(Mono.just("value"));
+
+        assertEquals("value", reactiveRedisClient.getElementFromRedis("key", String.class).block());
+    }
+
+    @Test
+    public void getElementFromRedisShouldFallbackToEmpty() {
+        when(valueOps.get("key")).thenReturn(Mono.error(new IllegalStateException("connection refused")));
+
+        assertNull(reactiveRedisClient.getElementFromRedis("key", String.class).block());
+    }
+
+    @Test
+    public void setElementInRedisShouldFallbackToFalse() {
+        when(valueOps.set("key", "value")).thenReturn(Mono.error(new IllegalStateException("connection refused")));
+
+        assertFalse(reactiveRedisClient.setElementInRedis("key", "value").block());
+    }
+
+    @Test
+    public void getElementsFromRedis() {
+        when(valueOps.multiGet(Arrays.asList("key-1", "key-2"))).thenReturn(Mono.just(Arrays.asList("value-1", null)));
+
+        Map<String, String> elements = reactiveRedisClient
+                .getElementsFromRedis(Arrays.asList("key-1", "key-2"), String.class).block();
+
+        assertEquals("value-1", elements.get("key-1"));
+        assertTrue(elements.containsKey("key-2"));
+        assertNull(elements.get("key-2"));
+    }
+
+    @Test
+    public void getFromRedisUsingHashOps() {
+        when(hashOps.get("key", "hashKey")).thenReturn(Mono.just("value"));
+
+        assertEquals("value", reactiveRedisClient.getFromRedisUsingHashOps("key", "hashKey", String.class).block());
+    }
+
+    @Test
+    public void getElementFromRedisShouldReadValueWithoutTypeInformationIntoTheClass() {
+        CompactRedisSerializer plainSerializer = new CompactRedisSerializer(Format.JSON, Compression.NONE, 0, false);
+        when(reactiveRedisTemplate.getSerializationContext()).thenReturn(RedisSerializationContext
+                .<String, Object>newSerializationContext(new StringRedisSerializer()).value(plainSerializer).build());
+        Point point = new Point();
+        point.setX(5);
+        point.setLabel("reactive");
+        byte[] rawValue = plainSerializer.serialize(point);
+        when(reactiveRedisTemplate.opsForValue(any(RedisSerializationContext.class))).thenAnswer(invocation -> {
+            RedisSerializationContext<?, ?> context = (RedisSerializationContext<?, ?>) invocation.getArguments()[0];
+            ReactiveValueOperations<String, Object> typedValueOps = mock(ReactiveValueOperations.class);
+            when(typedValueOps.get("key")).thenReturn(Mono.just(context.getValueSerializationPair().read(ByteBuffer.wrap(rawValue))));
+            return typedValueOps;
+        });
+        ReactiveRedisClient typedClient = new ReactiveRedisClient(reactiveRedisTemplate, plainSerializer, null,
+                new RedisClientProperties());
+
+        assertEquals(point, typedClient.getElementFromRedis("key", Point.class).block());
+    }
+
+    @Test
+    public void getKeysFromPattern() {
+        when(reactiveRedisTemplate.keys("*key*")).thenReturn(Flux.just("key-1", "key-2"));
+
+        assertEquals(Arrays.asList("key-1", "key-2"), reactiveRedisClient.getKeysFromPattern("*key*").collectList().block());
+    }
+}
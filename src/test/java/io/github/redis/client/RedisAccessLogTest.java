@@ -0,0 +1,44 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class RedisAccessLogTest {
+
+    @Test
+    public void testStartShouldNotReadClockWhenOff() {
+        RedisClientProperties.AccessLog properties = new RedisClientProperties.AccessLog();
+        properties.setMode(RedisClientProperties.AccessLogMode.OFF);
+
+        RedisAccessLog accessLog = new RedisAccessLog(properties);
+
+        assertEquals(0, accessLog.start());
+        accessLog.log("redisClientGet", "key", 0, 5);
+    }
+
+    @Test
+    public void testLogShouldAcceptEveryMode() {
+        RedisClientProperties.AccessLog properties = new RedisClientProperties.AccessLog();
+        properties.setSampleRate(1);
+        properties.setSlowThreshold(Duration.ZERO);
+
+        for (RedisClientProperties.AccessLogMode mode : RedisClientProperties.AccessLogMode.values()) {
+            properties.setMode(mode);
+            RedisAccessLog accessLog = new RedisAccessLog(properties);
+            accessLog.log("redisClientGet", "key", accessLog.start(), 5);
+        }
+    }
+
+    @Test
+    public void testSizeOfShouldNotSerializeElements() {
+        assertEquals(5, RedisAccessLog.sizeOf("value"));
+        assertEquals(3, RedisAccessLog.sizeOf(new byte[3]));
+        assertEquals(0, RedisAccessLog.sizeOf(null));
+        assertEquals(RedisAccessLog.UNKNOWN_SIZE, RedisAccessLog.sizeOf(Collections.singletonMap("key", "value")));
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.redis.client;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
+import io.github.redis.config.RedisClientProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisClusterNode.SlotRange;
+import org.springframework.data.redis.connection.RedisNode.NodeType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class RedisBulkheadsTest {
+
+    private static final String FORCE_OPEN = "hystrix.command.bulkheadTestGet-slow_.circuitBreaker.forceOpen";
+
+    private RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private RedisClusterConnection connection = mock(RedisClusterConnection.class);
+
+    private RedisClientProperties.Bulkhead properties = new RedisClientProperties.Bulkhead();
+
+    @Before
+    public void setUp() {
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArguments()[0]).doInRedis(connection));
+        when(connection.clusterGetNodes()).thenReturn(new HashSet<>(Arrays.asList(
+                master("low", 0, 8191), master("high", 8192, 16383))));
+    }
+
+    @After
+    public void tearDown() {
+        ConfigurationManager.getConfigInstance().clearProperty(FORCE_OPEN);
+    }
+
+    @Test
+    public void testKeysShouldBePartitionedByLongestPrefix() {
+        properties.setPrefixes(Arrays.asList("user:", "user:session:"));
+        RedisBulkheads bulkheads = new RedisBulkheads(null, properties);
+
+        assertEquals("user_", bulkheads.partitionOf("user:42"));
+        assertEquals("user_session_", bulkheads.partitionOf("user:session:42"));
+        assertEquals("default", bulkheads.partitionOf("order:42"));
+    }
+
+    @Test
+    public void testKeysShouldBePartitionedByClusterMaster() {
+        properties.setPerNode(true);
+        properties.setPrefixes(Arrays.asList("user:"));
+        RedisBulkheads bulkheads = new RedisBulkheads(new ClusterSlotMap(redisTemplate), properties);
+
+        // slot of "key-1" is 229, of "key-3" is 8359
+        assertEquals("low-7000-default", bulkheads.partitionOf("key-1"));
+        assertEquals("high-7000-default", bulkheads.partitionOf("key-3"));
+        assertEquals("high-7000-user_", bulkheads.partitionOf("user:{key-3}"));
+        verify(connection, times(1)).clusterGetNodes();
+    }
+
+    @Test
+    public void testOpenCircuitOfPartitionShouldNotFailOtherPartitions() {
+        properties.setPrefixes(Arrays.asList("slow:", "fast:"));
+        RedisBulkheads bulkheads = new RedisBulkheads(null, properties);
+        ConfigurationManager.getConfigInstance().setProperty(FORCE_OPEN, true);
+
+        assertEquals("fast", bulkheads.execute("bulkheadTestGet", "fast:1", () -> "fast"));
+        try {
+            bulkheads.execute("bulkheadTestGet", "slow:1", () -> "slow");
+            fail("circuit of slow keys is open");
+        } catch (HystrixRuntimeException e) {
+            assertEquals(HystrixRuntimeException.FailureType.SHORTCIRCUIT, e.getFailureType());
+        }
+    }
+
+    @Test
+    public void testWithoutPartitionsOperationsShouldRunAsIs() {
+        RedisBulkheads bulkheads = new RedisBulkheads(new ClusterSlotMap(redisTemplate), properties);
+        IllegalStateException failure = new IllegalStateException("connection refused");
+
+        try {
+            bulkheads.execute("bulkheadTestGet", "key-1", () -> {
+                throw failure;
+            });
+            fail("operation failed");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        verify(connection, never()).clusterGetNodes();
+    }
+
+    private static RedisClusterNode master(String host, int lowerBound, int upperBound) {
+        return RedisClusterNode.newRedisClusterNode()
+                .listeningAt(host, 7000)
+                .withId(host)
+                .promotedAs(NodeType.MASTER)
+                .serving(new SlotRange(lowerBound, upperBound))
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.redis.client;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.hystrix.Hystrix;
+import com.netflix.hystrix.HystrixCircuitBreaker;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.contrib.javanica.aop.aspectj.HystrixCommandAspect;
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.test.RespTestServer;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static io.github.redis.helper.Constants.REDIS_GET_COMMAND;
+import static io.github.redis.test.RespTestConnections.connectionFactory;
+import static io.github.redis.test.RespTestConnections.redisTemplate;
+import static io.github.redis.test.RespTestConnections.stringRedisTemplate;
+import static org.junit.Assert.*;
+
+/**
+ * Runs the client as applications do: behind the hystrix aspect, on jedis connections to a {@link RespTestServer}.
+ */
+public class RedisClientIntegrationTest {
+
+    private static final String GET_PROPERTIES = "hystrix.command." + REDIS_GET_COMMAND + ".";
+
+    private AbstractConfiguration configuration = ConfigurationManager.getConfigInstance();
+
+    private RespTestServer server;
+
+    private JedisConnectionFactory connectionFactory;
+
+    private RedisClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new RespTestServer(0, 7);
+        RedisClientProperties clientProperties = new RedisClientProperties();
+        connectionFactory = connectionFactory(server, clientProperties);
+        RedisClient target = new RedisClient(redisTemplate(connectionFactory, clientProperties),
+                stringRedisTemplate(connectionFactory, clientProperties), clientProperties);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new HystrixCommandAspect());
+        client = proxyFactory.getProxy();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        configuration.clearProperty(GET_PROPERTIES + "circuitBreaker.requestVolumeThreshold");
+        configuration.clearProperty(GET_PROPERTIES + "metrics.healthSnapshot.intervalInMilliseconds");
+        Hystrix.reset();
+        connectionFactory.destroy();
+        server.close();
+    }
+
+    @Test
+    public void testOperationsShouldRoundTripThroughJedis() {
+        client.setElementInRedis("key", "value");
+        client.setElementInRedisWithExpiry("point", 42L, 60);
+        client.putAllInRedisHash("hash", Collections.singletonMap("field", "value"), 0);
+
+        assertEquals("value", client.getElementFromRedis("key", String.class));
+        assertEquals(Long.valueOf(42), client.getElementFromRedis("point", Long.class));
+        assertEquals("value", client.getFromRedisUsingHashOps("hash", "field", String.class));
+        assertEquals(Long.valueOf(1), client.increment("counter"));
+        assertEquals(Long.valueOf(0), client.decrement("counter"));
+
+        client.deleteElementFromRedis("key");
+        assertNull(client.getElementFromRedis("key", String.class));
+        assertEquals(1, server.getCommandCount("SETEX"));
+        assertEquals(1, server.getCommandCount("DECR"));
+    }
+
+    @Test
+    public void testInjectedErrorsShouldFallBackAndOpenCircuit() throws Exception {
+        configuration.setProperty(GET_PROPERTIES + "circuitBreaker.requestVolumeThreshold", 5);
+        configuration.setProperty(GET_PROPERTIES + "metrics.healthSnapshot.intervalInMilliseconds", 10);
+        client.setElementInRedis("key", "value");
+        server.injectError("GET", 1, "ERR injected");
+        HystrixCircuitBreaker circuitBreaker = null;
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while ((circuitBreaker == null || !circuitBreaker.isOpen()) && System.currentTimeMillis() < deadline) {
+            assertNull(client.getElementFromRedis("key", String.class));
+            circuitBreaker = HystrixCircuitBreaker.Factory.getInstance(HystrixCommandKey.Factory.asKey(REDIS_GET_COMMAND));
+            Thread.sleep(20);
+        }
+        assertNotNull(circuitBreaker);
+        assertTrue(circuitBreaker.isOpen());
+
+        server.clearFaults();
+        long gets = server.getCommandCount("GET");
+        assertNull(client.getElementFromRedis("key", String.class));
+        assertEquals(gets, server.getCommandCount("GET"));
+    }
+}
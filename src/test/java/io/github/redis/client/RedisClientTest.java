@@ -1,5 +1,9 @@
 package io.github.redis.client;
 
+import com.netflix.config.ConfigurationManager;
+import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
+import io.github.redis.config.RedisClientProperties;
 import mockit.Deencapsulation;
 import mockit.Injectable;
 import mockit.Mocked;
@@ -9,18 +13,33 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
 @RunWith(JMockit.class)
@@ -76,6 +95,56 @@ public class RedisClientTest {
         redisClient.setElementInRedisWithExpiry("key", "value", 3600);
     }
 
+    @Test
+    public void testSetWithExpiryAndDeleteShouldRunInBulkheadOfKey() {
+        RedisClientProperties clientProperties = new RedisClientProperties();
+        clientProperties.getBulkhead().setPrefixes(Collections.singletonList("slow:"));
+        RedisClient client = new RedisClient(redisTemplate, stringRedisTemplate, clientProperties);
+        String setOpen = "hystrix.command.redisClientSetWithExpiry-slow_.circuitBreaker.forceOpen";
+        String deleteOpen = "hystrix.command.redisClientDelete-slow_.circuitBreaker.forceOpen";
+        ConfigurationManager.getConfigInstance().setProperty(setOpen, true);
+        ConfigurationManager.getConfigInstance().setProperty(deleteOpen, true);
+        try {
+            client.setElementInRedisWithExpiry("fast:1", "value", 60);
+            client.deleteElementFromRedis("fast:1");
+            try {
+                client.setElementInRedisWithExpiry("slow:1", "value", 60);
+                fail("circuit of slow keys is open");
+            } catch (HystrixRuntimeException e) {
+                assertEquals(HystrixRuntimeException.FailureType.SHORTCIRCUIT, e.getFailureType());
+            }
+            try {
+                client.deleteElementFromRedis("slow:1");
+                fail("circuit of slow keys is open");
+            } catch (HystrixRuntimeException e) {
+                assertEquals(HystrixRuntimeException.FailureType.SHORTCIRCUIT, e.getFailureType());
+            }
+            verify(redisTemplate, never()).delete("slow:1");
+            verify(redisTemplate, times(1)).delete("fast:1");
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty(setOpen);
+            ConfigurationManager.getConfigInstance().clearProperty(deleteOpen);
+        }
+    }
+
+    @Test
+    public void testCountersShouldSendIncrDecrAndIncrBy() {
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        RedisConnection connection = mock(RedisConnection.class);
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArguments()[0]).doInRedis(connection));
+        byte[] rawKey = "counter".getBytes(StandardCharsets.UTF_8);
+
+        redisClient.increment("counter");
+        redisClient.decrement("counter");
+        redisClient.incrementBy("counter", 5);
+
+        verify(connection).incr(aryEq(rawKey));
+        verify(connection).decr(aryEq(rawKey));
+        verify(connection).incrBy(aryEq(rawKey), eq(5L));
+        verifyNoMoreInteractions(connection);
+    }
+
     @Test
     public void getElementFromRedis() {
         when(stringValueOps.get("key")).thenReturn("value");
@@ -88,6 +157,62 @@ public class RedisClientTest {
         assertEquals("value", (String) redisClient.getElementFromRedis("key", Object.class));
     }
 
+    @Test
+    public void getElementFromRedisShouldConvertNumbers() {
+        when(valueOps.get("counter")).thenReturn(5);
+        assertEquals(Long.valueOf(5), redisClient.getElementFromRedis("counter", Long.class));
+    }
+
+    @Test
+    public void incrementShouldReturnCounter() {
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(3L);
+        assertEquals(Long.valueOf(3), redisClient.increment("counter"));
+        assertEquals(Long.valueOf(3), redisClient.incrementWithExpiry("counter", 1, 60));
+    }
+
+    @Test
+    public void incrementAndDecrementShouldFallBackToNull() throws NoSuchMethodException {
+        RuntimeException failure = new RuntimeException("boom");
+
+        assertEquals("fallbackForIncrement", RedisClient.class.getMethod("increment", String.class)
+                .getAnnotation(HystrixCommand.class).fallbackMethod());
+        assertEquals("fallbackForDecrement", RedisClient.class.getMethod("decrement", String.class)
+                .getAnnotation(HystrixCommand.class).fallbackMethod());
+        assertNull(Deencapsulation.invoke(redisClient, "fallbackForIncrement",
+                new Class<?>[]{String.class, Throwable.class}, "counter", failure));
+        assertNull(Deencapsulation.invoke(redisClient, "fallbackForDecrement",
+                new Class<?>[]{String.class, Throwable.class}, "counter", failure));
+        assertTrue(outContent.toString().contains("Redis INCRBY Failed for key:counter, delta:-1"));
+    }
+
+    @Test
+    public void slidingWindowShouldFallBackPerFailOpen() {
+        RuntimeException failure = new RuntimeException("boom");
+        Class<?>[] parameterTypes = {String.class, long.class, long.class, Throwable.class};
+
+        assertTrue(Deencapsulation.<Boolean>invoke(redisClient, "fallbackForTryAcquireInSlidingWindow",
+                parameterTypes, "key", 10L, 1000L, failure));
+
+        RedisClientProperties clientProperties = new RedisClientProperties();
+        clientProperties.getRateLimiter().setFailOpen(false);
+        RedisClient failClosed = new RedisClient(redisTemplate, stringRedisTemplate, clientProperties);
+        assertFalse(Deencapsulation.<Boolean>invoke(failClosed, "fallbackForTryAcquireInSlidingWindow",
+                parameterTypes, "key", 10L, 1000L, failure));
+        assertTrue(outContent.toString().contains("Redis sliding window Failed for key:key, limit:10, window(ms):1000, returning false"));
+    }
+
+    @Test
+    public void compareAndSetShouldFallBackToFalse() throws NoSuchMethodException {
+        RuntimeException failure = new RuntimeException("boom");
+
+        assertEquals("fallbackForCompareAndSet", RedisClient.class
+                .getMethod("compareAndSet", String.class, Object.class, Object.class)
+                .getAnnotation(HystrixCommand.class).fallbackMethod());
+        assertFalse(Deencapsulation.<Boolean>invoke(redisClient, "fallbackForCompareAndSet",
+                new Class<?>[]{String.class, Object.class, Object.class, Throwable.class}, "key", "old", "new", failure));
+        assertTrue(outContent.toString().contains("Redis compare and set Failed for key:key, returning false"));
+    }
+
     @Test
     public void deleteElementFromRedis() {
         redisClient.deleteElementFromRedis("key");
@@ -106,18 +231,112 @@ public class RedisClientTest {
 
     @Test
     public void getKeysFromPattern() {
-        when(redisTemplate.keys("*key*")).thenReturn(new HashSet<>(Arrays.asList("key-1", "key-2")));
+        stubScan("key-1", "key-2");
 
         Set<String> keys = redisClient.getKeysFromPattern("*key*");
 
         assertNotNull(keys);
         assertFalse(keys.isEmpty());
         assertTrue(keys.contains("key-1"));
+        verify(redisTemplate, never()).keys("*key*");
+    }
+
+    @Test
+    public void scanKeysFromPatternShouldStopAtLimit() {
+        stubScan("key-1", "key-2", "key-3");
+        Set<String> keys = new HashSet<>();
+
+        long scanned = redisClient.scanKeysFromPattern("*key*", 2, keys::add);
+
+        assertEquals(2, scanned);
+        assertEquals(new HashSet<>(Arrays.asList("key-1", "key-2")), keys);
+    }
+
+    @Test
+    public void scanKeysFromPatternShouldStopWhenConsumerDeclines() {
+        stubScan("key-1", "key-2", "key-3");
+
+        long scanned = redisClient.scanKeysFromPattern("*key*", 10, key -> !key.equals("key-2"));
+
+        assertEquals(1, scanned);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubScan(String... keys) {
+        Cursor<byte[]> cursor = mock(Cursor.class);
+        Iterator<String> iterator = Arrays.asList(keys).iterator();
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next().getBytes());
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        when(redisTemplate.executeWithStickyConnection(any(RedisCallback.class))).thenReturn(cursor);
+    }
+
+    @Test
+    public void getElementsFromRedis() {
+        when(stringValueOps.multiGet(Arrays.asList("key-1", "key-2", "key-3")))
+                .thenReturn(Arrays.asList("value-1", null, "value-3"));
+
+        Map<String, String> elements = redisClient.getElementsFromRedis(Arrays.asList("key-1", "key-2", "key-3"), String.class);
+
+        assertEquals(Arrays.asList("key-1", "key-2", "key-3"), Arrays.asList(elements.keySet().toArray()));
+        assertEquals("value-1", elements.get("key-1"));
+        assertNull(elements.get("key-2"));
+        assertEquals("value-3", elements.get("key-3"));
+    }
+
+    @Test
+    public void getElementsFromRedisShouldReturnPartialResultsIfAChunkFails() {
+        redisClient = new RedisClient(redisTemplate, stringRedisTemplate, batchOf(1));
+        when(valueOps.multiGet(Arrays.asList("key-1"))).thenReturn(Arrays.asList((Object) "value-1"));
+        when(valueOps.multiGet(Arrays.asList("key-2"))).thenThrow(new IllegalStateException("connection reset"));
+
+        Map<String, Object> elements = redisClient.getElementsFromRedis(Arrays.asList("key-1", "key-2"), Object.class);
+
+        assertEquals("value-1", elements.get("key-1"));
+        assertTrue(elements.containsKey("key-2"));
+        assertNull(elements.get("key-2"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getElementsFromRedisShouldFailIfAllChunksFail() {
+        when(valueOps.multiGet(Arrays.asList("key-1"))).thenThrow(new IllegalStateException("connection reset"));
+
+        redisClient.getElementsFromRedis(Arrays.asList("key-1"), Object.class);
+    }
+
+    @Test
+    public void setElementsInRedis() {
+        Map<String, Object> elements = new LinkedHashMap<>();
+        elements.put("key-1", "value");
+        elements.put("key-2", 2L);
+
+        redisClient.setElementsInRedis(elements);
+
+        verify(stringValueOps).multiSet(Collections.singletonMap("key-1", "value"));
+        verify(valueOps).multiSet(Collections.singletonMap("key-2", 2L));
+
+        GenericJackson2JsonRedisSerializer valueSerializer = new GenericJackson2JsonRedisSerializer();
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        doReturn(valueSerializer).when(redisTemplate).getValueSerializer();
+        doReturn(valueSerializer).when(stringRedisTemplate).getValueSerializer();
+        redisClient.setElementsInRedisWithExpiry(elements, 3600);
+
+        ArgumentCaptor<RedisCallback> pipeline = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(redisTemplate).executePipelined(pipeline.capture());
+        RedisConnection connection = mock(RedisConnection.class);
+        pipeline.getValue().doInRedis(connection);
+        verify(connection).setEx(aryEq("key-1".getBytes(StandardCharsets.UTF_8)), eq(3600L),
+                aryEq(valueSerializer.serialize("value")));
+        verify(connection).setEx(aryEq("key-2".getBytes(StandardCharsets.UTF_8)), eq(3600L),
+                aryEq(valueSerializer.serialize(2L)));
     }
 
     @Test
     public void testFallbackForSetElement() {
-        Deencapsulation.invoke(redisClient, "fallbackForSetElementInRedis", "key", "value");
+        RuntimeException failure = new RuntimeException("boom");
+
+        Deencapsulation.invoke(redisClient, "fallbackForSetElementInRedis",
+                new Class<?>[]{String.class, Object.class, Throwable.class}, "key", "value", failure);
 
         assertTrue(outContent.toString().contains("key"));
         assertTrue(outContent.toString().contains("value"));
@@ -126,7 +345,8 @@ public class RedisClientTest {
         initiateStreams();
 
         Deencapsulation.invoke(
-                redisClient, "fallbackForDeleteElementFromRedis", "key");
+                redisClient, "fallbackForDeleteElementFromRedis",
+                new Class<?>[]{String.class, Throwable.class}, "key", failure);
 
         assertTrue(outContent.toString().contains("key"));
         assertTrue(outContent.toString().contains("Redis Delete Failed"));
@@ -135,7 +355,8 @@ public class RedisClientTest {
         initiateStreams();
 
         Deencapsulation.invoke(
-                redisClient, "fallbackForPutInDBUsingHashOps", "key", "hashKey", "value");
+                redisClient, "fallbackForPutInDBUsingHashOps",
+                new Class<?>[]{String.class, Object.class, Object.class, Throwable.class}, "key", "hashKey", "value", failure);
 
         assertTrue(outContent.toString().contains("key"));
         assertTrue(outContent.toString().contains("Redis Put Using HashOps Failed"));
@@ -144,9 +365,50 @@ public class RedisClientTest {
         initiateStreams();
 
         Deencapsulation.invoke(
-                redisClient, "fallbackForGetKeysFromPattern", "*key*");
+                redisClient, "fallbackForGetKeysFromPattern",
+                new Class<?>[]{String.class, Throwable.class}, "*key*", failure);
 
         assertTrue(outContent.toString().contains("*key*"));
         assertTrue(outContent.toString().contains("Fallback for get keys from pattern executed"));
     }
+
+    @Test
+    public void getElementFromRedisShouldBeServedFromNearCache() {
+        NearCache nearCache = new NearCache(new RedisClientProperties.NearCache(), redisTemplate);
+        redisClient.setNearCache(nearCache);
+        when(stringValueOps.get("key")).thenReturn("value");
+
+        assertEquals("value", redisClient.getElementFromRedis("key", String.class));
+        assertEquals("value", redisClient.getElementFromRedis("key", String.class));
+
+        verify(stringValueOps, times(1)).get("key");
+        assertEquals(1, nearCache.getHitCount());
+    }
+
+    @Test
+    public void testFallbackForGetElementShouldReturnStaleElementFromNearCache() {
+        NearCache nearCache = new NearCache(new RedisClientProperties.NearCache(), redisTemplate);
+        nearCache.put("key", "value");
+        redisClient.setNearCache(nearCache);
+
+        assertEquals("value", Deencapsulation.invoke(redisClient, "fallbackForGetElementFromRedis",
+                new Class<?>[]{String.class, Class.class, Throwable.class}, "key", String.class, new RuntimeException("boom")));
+    }
+
+    @Test
+    public void testFallbackForGetElementsShouldReturnNullValues() {
+        Map<String, Object> elements = Deencapsulation.invoke(
+                redisClient, "fallbackForGetElementsFromRedis", new Class<?>[]{Collection.class, Class.class, Throwable.class},
+                Arrays.asList("key-1", "key-2"), Object.class, new RuntimeException("boom"));
+
+        assertEquals(2, elements.size());
+        assertNull(elements.get("key-1"));
+        assertTrue(outContent.toString().contains("Redis MGET Failed"));
+    }
+
+    private static RedisClientProperties batchOf(int batchSize) {
+        RedisClientProperties clientProperties = new RedisClientProperties();
+        clientProperties.setBatchSize(batchSize);
+        return clientProperties;
+    }
 }
\ No newline at end of file
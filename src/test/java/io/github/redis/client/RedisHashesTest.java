@@ -0,0 +1,179 @@
+package io.github.redis.client;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class RedisHashesTest {
+
+    private RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private RedisConnection connection = mock(RedisConnection.class);
+
+    private StringRedisSerializer stringSerializer = new StringRedisSerializer();
+
+    private GenericJackson2JsonRedisSerializer valueSerializer = new GenericJackson2JsonRedisSerializer();
+
+    private RedisHashes hashes;
+
+    @Before
+    public void setUp() {
+        doReturn(stringSerializer).when(redisTemplate).getKeySerializer();
+        doReturn(stringSerializer).when(redisTemplate).getHashKeySerializer();
+        doReturn(valueSerializer).when(redisTemplate).getHashValueSerializer();
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArguments()[0]).doInRedis(connection));
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenAnswer(invocation -> {
+                    ((RedisCallback<?>) invocation.getArguments()[0]).doInRedis(connection);
+                    return null;
+                });
+        hashes = new RedisHashes(redisTemplate, false, 100);
+    }
+
+    @Test
+    public void testGetAllShouldDeserializeTypedValues() {
+        Map<byte[], byte[]> rawHash = new LinkedHashMap<>();
+        rawHash.put(raw("name"), valueSerializer.serialize("paresh"));
+        rawHash.put(raw("city"), valueSerializer.serialize("pune"));
+        rawHash.put(raw("age"), valueSerializer.serialize(30));
+        when(connection.hGetAll(raw("user"))).thenReturn(rawHash);
+
+        Map<String, String> hash = hashes.getAll("user", String.class);
+
+        assertEquals(2, hash.size());
+        assertEquals("paresh", hash.get("name"));
+        assertEquals("pune", hash.get("city"));
+    }
+
+    @Test
+    public void testMultiGetShouldKeepOrderAndMissingFields() {
+        when(connection.hMGet(eq(raw("user")), Matchers.<byte[]>anyVararg()))
+                .thenReturn(Arrays.asList(valueSerializer.serialize("pune"), null));
+
+        Map<String, String> hash = hashes.multiGet("user", Arrays.asList("city", "country"), String.class);
+
+        assertEquals(Arrays.asList("city", "country"), new ArrayList<>(hash.keySet()));
+        assertEquals("pune", hash.get("city"));
+        assertNull(hash.get("country"));
+    }
+
+    @Test
+    public void testPutAllWithExpiryShouldSetAndExpireInOnePipeline() {
+        Map<String, Object> hashValues = new LinkedHashMap<>();
+        hashValues.put("name", "paresh");
+        hashValues.put("nickname", null);
+
+        hashes.putAll("user", hashValues, 60);
+
+        ArgumentCaptor<Map> rawHash = ArgumentCaptor.forClass(Map.class);
+        verify(redisTemplate).executePipelined(any(RedisCallback.class));
+        verify(connection).hMSet(eq(raw("user")), rawHash.capture());
+        verify(connection).expire(raw("user"), 60);
+        assertEquals(1, rawHash.getValue().size());
+    }
+
+    @Test
+    public void testPutObjectShouldBeReadBackAsObject() {
+        User user = new User();
+        user.setName("paresh");
+        user.setAge(30);
+
+        hashes.putObject("user", user, 0);
+
+        ArgumentCaptor<Map> rawHash = ArgumentCaptor.forClass(Map.class);
+        verify(connection).hMSet(eq(raw("user")), rawHash.capture());
+        verify(connection, never()).expire(any(byte[].class), anyLong());
+        when(connection.hGetAll(raw("user"))).thenReturn(rawHash.getValue());
+
+        User read = hashes.getAsObject("user", User.class);
+
+        assertEquals("paresh", read.getName());
+        assertEquals(30L, read.getAge());
+        assertNull(read.getCity());
+    }
+
+    @Test
+    public void testGetAsObjectShouldReturnNullForMissingHash() {
+        when(connection.hGetAll(raw("user"))).thenReturn(new LinkedHashMap<>());
+
+        assertNull(hashes.getAsObject("user", User.class));
+    }
+
+    @Test
+    public void testScanShouldStreamUpToLimit() {
+        Cursor<Map.Entry<byte[], byte[]>> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenReturn(true, true, true, false);
+        when(cursor.next()).thenReturn(
+                new AbstractMap.SimpleEntry<>(raw("field-1"), valueSerializer.serialize("value-1")),
+                new AbstractMap.SimpleEntry<>(raw("field-2"), valueSerializer.serialize("value-2")),
+                new AbstractMap.SimpleEntry<>(raw("field-3"), valueSerializer.serialize("value-3")));
+        when(connection.hScan(eq(raw("big")), any(ScanOptions.class))).thenReturn(cursor);
+        doAnswer(invocation -> ((RedisCallback<?>) invocation.getArguments()[0]).doInRedis(connection))
+                .when(redisTemplate).executeWithStickyConnection(any(RedisCallback.class));
+
+        List<String> fields = new ArrayList<>();
+        long scanned = hashes.scan("big", null, 2, String.class, (field, value) -> fields.add(field + "=" + value));
+
+        assertEquals(2, scanned);
+        assertEquals(Arrays.asList("field-1=value-1", "field-2=value-2"), fields);
+    }
+
+    private byte[] raw(String value) {
+        return stringSerializer.serialize(value);
+    }
+
+    public static class User {
+
+        private String name;
+
+        private long age;
+
+        private String city;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getAge() {
+            return age;
+        }
+
+        public void setAge(long age) {
+            this.age = age;
+        }
+
+        public String getCity() {
+            return city;
+        }
+
+        public void setCity(String city) {
+            this.city = city;
+        }
+    }
+}
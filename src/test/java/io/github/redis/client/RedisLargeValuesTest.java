@@ -0,0 +1,275 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.test.RespTestServer;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static io.github.redis.test.RespTestConnections.connectionFactory;
+import static io.github.redis.test.RespTestConnections.redisTemplate;
+import static io.github.redis.test.RespTestConnections.stringRedisTemplate;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Mockito.*;
+
+public class RedisLargeValuesTest {
+
+    private RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private RedisConnection connection = mock(RedisConnection.class);
+
+    private Map<String, byte[]> store = new HashMap<>();
+
+    private RedisClientProperties.LargeValue properties = new RedisClientProperties.LargeValue();
+
+    private RedisLargeValues largeValues;
+
+    @Before
+    public void setUp() {
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArguments()[0]).doInRedis(connection));
+        when(connection.get(any(byte[].class))).thenAnswer(invocation -> store.get(key(invocation.getArguments()[0])));
+        when(connection.getSet(any(byte[].class), any(byte[].class))).thenAnswer(invocation ->
+                store.put(key(invocation.getArguments()[0]), (byte[]) invocation.getArguments()[1]));
+        when(connection.del(anyVararg())).thenAnswer(invocation ->
+                store.remove(key(invocation.getArguments()[0])) != null ? 1L : 0L);
+        when(connection.getRange(any(byte[].class), anyLong(), anyLong())).thenAnswer(invocation -> {
+            byte[] value = store.getOrDefault(key(invocation.getArguments()[0]), new byte[0]);
+            long start = (Long) invocation.getArguments()[1];
+            long end = Math.min(value.length - 1, (Long) invocation.getArguments()[2]);
+            return start > end ? new byte[0] : Arrays.copyOfRange(value, (int) start, (int) end + 1);
+        });
+        doAnswer(invocation -> {
+            String key = key(invocation.getArguments()[0]);
+            byte[] chunk = (byte[]) invocation.getArguments()[1];
+            int offset = (int) (long) (Long) invocation.getArguments()[2];
+            byte[] value = store.getOrDefault(key, new byte[0]);
+            value = Arrays.copyOf(value, Math.max(value.length, offset + chunk.length));
+            System.arraycopy(chunk, 0, value, offset, chunk.length);
+            store.put(key, value);
+            return null;
+        }).when(connection).setRange(any(byte[].class), any(byte[].class), anyLong());
+
+        properties.setThreshold(1024);
+        properties.setChunkSize(1000);
+        properties.setChunksPerBatch(3);
+        largeValues = new RedisLargeValues(redisTemplate, false, properties);
+    }
+
+    @Test
+    public void testWriteShouldStoreValueInCompressedChunksAndStreamItBack() throws IOException {
+        byte[] value = compressibleValue(10_500);
+
+        assertEquals(value.length, largeValues.write("report", new ByteArrayInputStream(value), 60));
+
+        assertEquals(2, store.size());
+        String dataKey = store.keySet().stream().filter(key -> key.startsWith("report:data:")).findFirst().get();
+        assertTrue(store.get(dataKey).length < value.length / 2);
+        verify(connection, times(11)).setRange(any(byte[].class), any(byte[].class), anyLong());
+        verify(connection, times(4)).openPipeline();
+        verify(connection).expire(bytes(dataKey), 60);
+        assertArrayEquals(value, readAll(largeValues.open("report")));
+    }
+
+    @Test
+    public void testReadShouldReturnRangeAcrossChunks() throws IOException {
+        byte[] value = compressibleValue(10_500);
+        largeValues.write("report", new ByteArrayInputStream(value), 0);
+
+        assertArrayEquals(Arrays.copyOfRange(value, 990, 2010), largeValues.read("report", 990, 1020));
+        assertArrayEquals(Arrays.copyOfRange(value, 10_400, 10_500), largeValues.read("report", 10_400, 500));
+        assertEquals(0, largeValues.read("report", 20_000, 10).length);
+        assertNull(largeValues.read("missing", 0, 10));
+    }
+
+    @Test
+    public void testWriteShouldStoreIncompressibleChunksAsIs() throws IOException {
+        byte[] value = new byte[5000];
+        new Random(7).nextBytes(value);
+
+        largeValues.write("blob", new ByteArrayInputStream(value), 0);
+
+        String dataKey = store.keySet().stream().filter(key -> key.startsWith("blob:data:")).findFirst().get();
+        assertArrayEquals(value, store.get(dataKey));
+        assertArrayEquals(Arrays.copyOfRange(value, 1500, 1600), largeValues.read("blob", 1500, 100));
+        assertArrayEquals(value, readAll(largeValues.open("blob")));
+    }
+
+    @Test
+    public void testWriteShouldStoreSmallValueAsIsAndDeleteReplacedChunks() throws IOException {
+        largeValues.write("report", new ByteArrayInputStream(compressibleValue(5000)), 0);
+        byte[] small = "small".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(5, largeValues.write("report", new ByteArrayInputStream(small), 0));
+
+        assertEquals(1, store.size());
+        assertArrayEquals(small, store.get("report"));
+        assertArrayEquals(small, readAll(largeValues.open("report")));
+        assertArrayEquals("mal".getBytes(StandardCharsets.UTF_8), largeValues.read("report", 1, 3));
+        assertTrue(largeValues.delete("report"));
+        assertTrue(store.isEmpty());
+        assertNull(largeValues.open("report"));
+    }
+
+    @Test
+    public void testReplacedShouldDeleteDataKeysReturnedByScript() throws IOException {
+        largeValues.write("report", new ByteArrayInputStream(compressibleValue(5000)), 0);
+        String dataKey = store.keySet().stream().filter(key -> key.startsWith("report:data:")).findFirst().get();
+        store.remove("report");
+
+        assertEquals(1, largeValues.replaced(Arrays.asList(1L, bytes(dataKey))));
+
+        assertTrue(store.isEmpty());
+        assertEquals(0, largeValues.replaced(null));
+    }
+
+    @Test
+    public void testPlainWritesShouldDeleteChunksOfLargeValuesWhenEnabled() throws Exception {
+        try (RespTestServer server = new RespTestServer(0, 7)) {
+            server.registerScript(RedisLargeValues.REPLACE_SCRIPT.getScriptAsString(), RedisLargeValuesTest::replace);
+            RedisClientProperties clientProperties = new RedisClientProperties();
+            clientProperties.getLargeValue().setEnabled(true);
+            clientProperties.getLargeValue().setThreshold(1024);
+            clientProperties.getLargeValue().setChunkSize(1000);
+            JedisConnectionFactory connectionFactory = connectionFactory(server, clientProperties);
+            RedisTemplate<String, Object> template = redisTemplate(connectionFactory, clientProperties);
+            RedisClient client = new RedisClient(template, stringRedisTemplate(connectionFactory, clientProperties),
+                    clientProperties);
+            try {
+                for (String key : Arrays.asList("a", "b", "c", "d", "e", "f")) {
+                    client.setLargeValueInRedis(key, new ByteArrayInputStream(compressibleValue(5000)), 0);
+                }
+                assertEquals(6, template.keys("*:data:*").size());
+
+                client.setElementInRedis("a", "plain");
+                client.deleteElementsFromRedis(Arrays.asList("b", "c"));
+                client.setElementsInRedis(Collections.singletonMap("d", "plain"));
+                client.setElementsInRedisWithExpiry(Collections.singletonMap("e", "plain"), 60);
+                RedisPipeline pipeline = client.pipeline();
+                PipelineResult<Long> deleted = pipeline.delete("f");
+                pipeline.execute();
+
+                assertEquals(Collections.emptySet(), template.keys("*:data:*"));
+                assertEquals(Long.valueOf(1), deleted.get());
+                assertEquals("plain", client.getElementFromRedis("a", String.class));
+                assertEquals("plain", client.getElementFromRedis("e", String.class));
+                assertNull(client.getElementFromRedis("b", String.class));
+            } finally {
+                connectionFactory.destroy();
+            }
+        }
+    }
+
+    @Test
+    public void testPlainWritesShouldBeSingleCommandsWhenDisabled() throws Exception {
+        try (RespTestServer server = new RespTestServer(0, 7)) {
+            RedisClientProperties clientProperties = new RedisClientProperties();
+            JedisConnectionFactory connectionFactory = connectionFactory(server, clientProperties);
+            RedisClient client = new RedisClient(redisTemplate(connectionFactory, clientProperties),
+                    stringRedisTemplate(connectionFactory, clientProperties), clientProperties);
+            try {
+                client.setElementInRedis("a", "plain");
+                client.setElementInRedisWithExpiry("b", 42L, 60);
+                client.deleteElementFromRedis("a");
+
+                assertEquals(1, server.getCommandCount("SET"));
+                assertEquals(1, server.getCommandCount("SETEX"));
+                assertEquals(1, server.getCommandCount("DEL"));
+                assertEquals(0, server.getCommandCount("EVAL") + server.getCommandCount("EVALSHA")
+                        + server.getCommandCount("GETRANGE") + server.getCommandCount("SUBSTR"));
+            } finally {
+                connectionFactory.destroy();
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testStreamShouldFailWhenChunksExpireWhileRead() throws IOException {
+        largeValues.write("report", new ByteArrayInputStream(compressibleValue(10_500)), 0);
+        InputStream in = largeValues.open("report");
+        store.keySet().removeIf(key -> key.startsWith("report:data:"));
+
+        readAll(in);
+    }
+
+    /**
+     * Stands in for the Lua of {@link RedisLargeValues#REPLACE_SCRIPT}.
+     */
+    private static Object replace(List<byte[]> keys, List<byte[]> args, RespTestServer.Redis redis) {
+        List<Object> result = new ArrayList<>();
+        result.add(0L);
+        String expiry = new String(args.get(1), StandardCharsets.UTF_8);
+        long deleted = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] key = keys.get(i);
+            try {
+                byte[] header = (byte[]) redis.call("GETRANGE", key, 0, 21);
+                if (header.length == 22 && Arrays.equals(Arrays.copyOf(header, 4), args.get(0))) {
+                    int length = (header[20] & 0xFF) << 8 | header[21] & 0xFF;
+                    result.add(redis.call("GETRANGE", key, 22, 21 + length));
+                }
+            } catch (RespTestServer.RespError wrongType) {
+                // not a string, so not a manifest
+            }
+            if (expiry.equals("-1")) {
+                deleted += (Long) redis.call("DEL", key);
+            } else if (expiry.equals("0")) {
+                redis.call("SET", key, args.get(i + 2));
+            } else {
+                redis.call("SET", key, args.get(i + 2), "EX", expiry);
+            }
+        }
+        result.set(0, deleted);
+        return result;
+    }
+
+    private static byte[] compressibleValue(int length) {
+        byte[] value = new byte[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = (byte) ('a' + (i / 7) % 26);
+        }
+        return value;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[777];
+            int count;
+            while ((count = stream.read(buffer)) >= 0) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static String key(Object rawKey) {
+        Object key = rawKey instanceof byte[][] ? ((byte[][]) rawKey)[0] : rawKey;
+        return new String((byte[]) key, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties.Compression;
+import io.github.redis.config.RedisClientProperties.Format;
+import io.github.redis.metrics.RedisClientMetrics;
+import io.github.redis.serializer.CompactRedisSerializer;
+import io.github.redis.serializer.CompactRedisSerializerTest.Point;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class RedisPipelineTest {
+
+    private RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+
+    private GenericJackson2JsonRedisSerializer valueSerializer = new GenericJackson2JsonRedisSerializer();
+
+    @Before
+    public void setUp() {
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getHashKeySerializer();
+        doReturn(valueSerializer).when(redisTemplate).getValueSerializer();
+        doReturn(valueSerializer).when(redisTemplate).getHashValueSerializer();
+        doReturn(valueSerializer).when(stringRedisTemplate).getValueSerializer();
+    }
+
+    @Test
+    public void testExecuteShouldResolveResultsByPosition() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull()))
+                .thenReturn(Arrays.asList(Boolean.TRUE, valueSerializer.serialize("value"), 1L, valueSerializer.serialize("field-value")));
+
+        RedisPipeline pipeline = new RedisPipeline(redisTemplate, stringRedisTemplate, false, null, RedisClientMetrics.noop(), null);
+        PipelineResult<Boolean> set = pipeline.setWithExpiry("key-1", "value", 60);
+        PipelineResult<String> get = pipeline.get("key-1", String.class);
+        PipelineResult<Long> delete = pipeline.delete("key-2");
+        PipelineResult<String> hashGet = pipeline.getFromHash("hash", "field", String.class);
+
+        List<Object> results = pipeline.execute();
+
+        assertEquals(4, results.size());
+        assertTrue(set.get());
+        assertEquals("value", get.get());
+        assertEquals(Long.valueOf(1L), delete.get());
+        assertEquals("field-value", hashGet.get());
+        assertFalse(get.isFallback());
+    }
+
+    @Test
+    public void testGetShouldReadValueWithoutTypeInformationIntoTheClass() {
+        CompactRedisSerializer plainSerializer = new CompactRedisSerializer(Format.SMILE, Compression.NONE, 0, false);
+        doReturn(plainSerializer).when(redisTemplate).getValueSerializer();
+        Point point = new Point();
+        point.setX(3);
+        point.setLabel("plain");
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull()))
+                .thenReturn(Arrays.asList(plainSerializer.serialize(point)));
+
+        RedisPipeline pipeline = new RedisPipeline(redisTemplate, stringRedisTemplate, false, null, RedisClientMetrics.noop(), null);
+        PipelineResult<Point> get = pipeline.get("key-1", Point.class);
+        pipeline.execute();
+
+        assertEquals(point, get.get());
+        assertFalse(get.isFallback());
+    }
+
+    @Test
+    public void testExecuteShouldFallbackPerEntry() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull()))
+                .thenReturn(Arrays.asList("not-json".getBytes(), valueSerializer.serialize("value")));
+
+        RedisPipeline pipeline = new RedisPipeline(redisTemplate, stringRedisTemplate, false, null, RedisClientMetrics.noop(), null);
+        PipelineResult<String> broken = pipeline.get("key-1", String.class);
+        PipelineResult<String> fine = pipeline.get("key-2", String.class);
+
+        pipeline.execute();
+
+        assertNull(broken.get());
+        assertTrue(broken.isFallback());
+        assertNotNull(broken.getFailure());
+        assertEquals("value", fine.get());
+    }
+
+    @Test
+    public void testExecuteShouldFallbackAllEntriesIfPipelineFails() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull()))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        RedisPipeline pipeline = new RedisPipeline(redisTemplate, stringRedisTemplate, false, null, RedisClientMetrics.noop(), null);
+        PipelineResult<String> get = pipeline.get("key-1", String.class);
+        PipelineResult<Long> delete = pipeline.delete("key-2");
+
+        List<Object> results = pipeline.execute();
+
+        assertEquals(Arrays.asList(null, null), results);
+        assertTrue(get.isFallback());
+        assertTrue(delete.isFallback());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testResultShouldNotBeAvailableBeforeExecute() {
+        new RedisPipeline(redisTemplate, stringRedisTemplate, false, null, RedisClientMetrics.noop(), null).get("key-1", String.class).get();
+    }
+}
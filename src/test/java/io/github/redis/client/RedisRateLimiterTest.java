@@ -0,0 +1,107 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.metrics.RedisClientMetrics;
+import org.junit.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class RedisRateLimiterTest {
+
+    private RedisScripts scripts = mock(RedisScripts.class);
+
+    @Test
+    public void testAcquireShouldRunTheScriptOfTheAlgorithm() {
+        RedisClientProperties.Limit limit = limit(RedisClientProperties.RateLimitAlgorithm.FIXED_WINDOW, 0);
+        when(scripts.execute(anyString(), eq(List.class), any(), anyVararg()))
+                .thenReturn(Arrays.asList(2L, 1000L), Arrays.asList(0L, 800L));
+        RedisRateLimiter rateLimiter = new RedisRateLimiter("api", limit, true, scripts, RedisClientMetrics.noop());
+
+        assertTrue(rateLimiter.tryAcquire("client-1", 2));
+        assertFalse(rateLimiter.tryAcquire("client-1", 2));
+        verify(scripts, times(2)).execute(eq(RedisScripts.FIXED_WINDOW), eq(List.class),
+                eq(Collections.singletonList("api:client-1")), eq(10L), eq(1000L), eq(2L), eq(2L), anyString());
+    }
+
+    @Test
+    public void testLeasedPermitsShouldBeHandedOutLocally() {
+        RedisClientProperties.Limit limit = limit(RedisClientProperties.RateLimitAlgorithm.TOKEN_BUCKET, 5);
+        when(scripts.execute(anyString(), eq(List.class), any(), anyVararg()))
+                .thenReturn(Arrays.asList(5L, 1000L), Arrays.asList(0L, 1000L));
+        RedisRateLimiter rateLimiter = new RedisRateLimiter("api", limit, true, scripts, RedisClientMetrics.noop());
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.tryAcquire("client-1"));
+        }
+        assertFalse(rateLimiter.tryAcquire("client-1"));
+        verify(scripts, times(2)).execute(eq(RedisScripts.TOKEN_BUCKET), eq(List.class),
+                eq(Collections.singletonList("api:client-1")), eq(10L), eq(1000L), eq(5L), eq(1L), anyString());
+    }
+
+    @Test
+    public void testLeaseShouldExpireWhenTheWindowOfRedisEnds() throws InterruptedException {
+        RedisClientProperties.Limit limit = limit(RedisClientProperties.RateLimitAlgorithm.FIXED_WINDOW, 5);
+        when(scripts.execute(anyString(), eq(List.class), any(), anyVararg()))
+                .thenReturn(Arrays.asList(5L, 20L), Arrays.asList(5L, 1000L));
+        RedisRateLimiter rateLimiter = new RedisRateLimiter("api", limit, true, scripts, RedisClientMetrics.noop());
+
+        assertTrue(rateLimiter.tryAcquire("client-1"));
+        assertTrue(rateLimiter.tryAcquire("client-1"));
+        Thread.sleep(50);
+        assertTrue(rateLimiter.tryAcquire("client-1"));
+
+        // the lease of the first window expired with it, its permits are taken from the next window
+        verify(scripts, times(2)).execute(eq(RedisScripts.FIXED_WINDOW), eq(List.class),
+                eq(Collections.singletonList("api:client-1")), eq(10L), eq(1000L), eq(5L), eq(1L), anyString());
+    }
+
+    @Test
+    public void testFailureShouldFallbackToFailOpenOrClosed() {
+        RedisClientProperties.Limit limit = limit(RedisClientProperties.RateLimitAlgorithm.SLIDING_LOG, 5);
+        when(scripts.execute(anyString(), eq(List.class), any(), anyVararg()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        assertTrue(new RedisRateLimiter("open", limit, true, scripts, RedisClientMetrics.noop()).tryAcquire("client-1"));
+        assertFalse(new RedisRateLimiter("closed", limit, false, scripts, RedisClientMetrics.noop()).tryAcquire("client-1"));
+    }
+
+    @Test
+    public void testClientShouldHandOutConfiguredLimiters() {
+        RedisClientProperties properties = new RedisClientProperties();
+        RedisClientProperties.Limit limit = limit(RedisClientProperties.RateLimitAlgorithm.TOKEN_BUCKET, 0);
+        limit.setFailOpen(false);
+        properties.getRateLimiter().getLimits().put("api", limit);
+        RedisClient redisClient = new RedisClient(mock(RedisTemplate.class),
+                mock(StringRedisTemplate.class), properties);
+
+        assertSame(redisClient.rateLimiter("api"), redisClient.rateLimiter("api"));
+        try {
+            redisClient.rateLimiter("unknown");
+            fail("unknown limit is refused");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("unknown"));
+        }
+    }
+
+    private static RedisClientProperties.Limit limit(RedisClientProperties.RateLimitAlgorithm algorithm, int leaseSize) {
+        RedisClientProperties.Limit limit = new RedisClientProperties.Limit();
+        limit.setAlgorithm(algorithm);
+        limit.setLimit(10);
+        limit.setWindow(Duration.ofSeconds(1));
+        limit.setLeaseSize(leaseSize);
+        return limit;
+    }
+}
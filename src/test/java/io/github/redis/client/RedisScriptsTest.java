@@ -0,0 +1,148 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class RedisScriptsTest {
+
+    private static final RedisScript<Long> COUNT_SCRIPT = RedisScript.of("return redis.call('incr', KEYS[1])", Long.class);
+
+    private RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private RedisConnection connection = mock(RedisConnection.class);
+
+    private RedisScripts scripts;
+
+    @Before
+    public void setUp() {
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getValueSerializer();
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArguments()[0]).doInRedis(connection));
+        scripts = new RedisScripts(redisTemplate, new RedisClientProperties.Script());
+    }
+
+    @Test
+    public void testScriptShouldRunBySha1WithTypedResult() {
+        when(connection.evalSha(any(byte[].class), eq(ReturnType.INTEGER), eq(1), Matchers.<byte[]>anyVararg()))
+                .thenReturn(3L);
+
+        Integer count = scripts.execute(COUNT_SCRIPT, Integer.class, Collections.singletonList("counter"), 5, "text");
+
+        assertEquals(Integer.valueOf(3), count);
+        verify(connection).evalSha(aryEq(bytes(COUNT_SCRIPT.getSha1())), eq(ReturnType.INTEGER), eq(1),
+                aryEq(bytes("counter")), aryEq(bytes("5")), aryEq(bytes("text")));
+        verify(connection, never()).eval(any(byte[].class), any(ReturnType.class), anyInt(), Matchers.<byte[]>anyVararg());
+    }
+
+    @Test
+    public void testMissingScriptShouldBeSentWithEval() {
+        when(connection.evalSha(any(byte[].class), any(ReturnType.class), anyInt(), Matchers.<byte[]>anyVararg()))
+                .thenThrow(new InvalidDataAccessApiUsageException("NOSCRIPT No matching script. Please use EVAL."));
+        when(connection.eval(any(byte[].class), eq(ReturnType.VALUE), eq(1), Matchers.<byte[]>anyVararg()))
+                .thenReturn(bytes("value"));
+
+        assertEquals("value", scripts.execute(RedisScripts.GET_AND_EXPIRE, String.class, Collections.singletonList("key"), 60));
+        verify(connection).eval(aryEq(bytes(scripts.get(RedisScripts.GET_AND_EXPIRE).getScriptAsString())),
+                eq(ReturnType.VALUE), eq(1), aryEq(bytes("key")), aryEq(bytes("60")));
+    }
+
+    @Test
+    public void testRateLimitScriptsShouldReturnGrantedPermitsAndWindowLeft() {
+        when(connection.evalSha(any(byte[].class), eq(ReturnType.MULTI), eq(1), Matchers.<byte[]>anyVararg()))
+                .thenReturn(Arrays.asList(2L, 800L));
+
+        for (String name : Arrays.asList(RedisScripts.FIXED_WINDOW, RedisScripts.SLIDING_WINDOW, RedisScripts.TOKEN_BUCKET)) {
+            assertEquals(Arrays.asList(2L, 800L), scripts.execute(name, List.class, Collections.singletonList("limit"),
+                    10, 1000, 2, 1, "id"));
+            assertTrue(scripts.get(name).getScriptAsString().contains("pttl"));
+        }
+    }
+
+    @Test
+    public void testOtherFailuresShouldNotBeRetried() {
+        when(connection.evalSha(any(byte[].class), any(ReturnType.class), anyInt(), Matchers.<byte[]>anyVararg()))
+                .thenThrow(new InvalidDataAccessApiUsageException("ERR Error running script"));
+
+        try {
+            scripts.execute(COUNT_SCRIPT, Long.class, Collections.singletonList("counter"));
+            fail("script error is thrown");
+        } catch (InvalidDataAccessApiUsageException expected) {
+            verify(connection, never()).eval(any(byte[].class), any(ReturnType.class), anyInt(), Matchers.<byte[]>anyVararg());
+        }
+    }
+
+    @Test
+    public void testScriptsShouldBeRegisteredFromBeansAndResourcesAndLoaded() {
+        scripts.setScripts(Collections.singletonMap("count", COUNT_SCRIPT));
+        scripts.afterPropertiesSet();
+
+        assertEquals(Arrays.asList("compareAndSet", "count", "fixedWindow", "getAndExpire", "incrementWithExpiry",
+                "slidingWindow", "tokenBucket", "valueEquals"), Arrays.asList(scripts.getNames().toArray()));
+        assertTrue(scripts.get("valueEquals").getScriptAsString().startsWith("return redis.call('get', KEYS[1])"));
+        verify(connection, times(8)).scriptLoad(any(byte[].class));
+        verify(connection).scriptLoad(aryEq(bytes(COUNT_SCRIPT.getScriptAsString())));
+    }
+
+    @Test
+    public void testJedisClusterShouldLoadOnEveryNodeAndReloadMissingScript() {
+        JedisCluster jedisCluster = mock(JedisCluster.class);
+        when(connection.getNativeConnection()).thenReturn(jedisCluster);
+        Jedis master = mock(Jedis.class);
+        Jedis replica = mock(Jedis.class);
+        Map<String, JedisPool> nodes = new HashMap<>();
+        nodes.put("master:7000", pool(master));
+        nodes.put("replica:7001", pool(replica));
+        when(jedisCluster.getClusterNodes()).thenReturn(nodes);
+        when(jedisCluster.evalsha(any(byte[].class), anyInt(), Matchers.<byte[]>anyVararg()))
+                .thenThrow(new JedisNoScriptException("NOSCRIPT No matching script. Please use EVAL."));
+        when(jedisCluster.eval(any(byte[].class), anyInt(), Matchers.<byte[]>anyVararg())).thenReturn(1L);
+
+        scripts.load();
+        Boolean set = scripts.execute(RedisScripts.COMPARE_AND_SET, Boolean.class, Collections.singletonList("key"),
+                bytes("old"), bytes("new"), 0);
+
+        assertTrue(set);
+        verify(master, times(6)).scriptLoad(any(byte[].class));
+        verify(replica, times(6)).scriptLoad(any(byte[].class));
+        verify(jedisCluster).eval(aryEq(bytes(scripts.get(RedisScripts.COMPARE_AND_SET).getScriptAsString())), eq(1),
+                aryEq(bytes("key")), aryEq(bytes("old")), aryEq(bytes("new")), aryEq(bytes("0")));
+    }
+
+    private static JedisPool pool(Jedis jedis) {
+        JedisPool pool = mock(JedisPool.class);
+        when(pool.getResource()).thenReturn(jedis);
+        return pool;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
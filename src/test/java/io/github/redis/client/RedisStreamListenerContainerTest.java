@@ -0,0 +1,59 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class RedisStreamListenerContainerTest {
+
+    private RedisStreams streams = mock(RedisStreams.class);
+
+    @Test
+    public void testHandledEntriesShouldBeAcknowledgedAndFailedLeftPending() throws Exception {
+        RedisClientProperties.Stream properties = new RedisClientProperties.Stream();
+        properties.setBlock(Duration.ofMillis(50));
+        properties.setConsumer("consumer-1");
+        when(streams.read(eq("events"), eq("group"), eq("consumer-1"), anyInt(), any(Duration.class), eq(String.class)))
+                .thenReturn(Arrays.asList(message("1-0", "ok"), message("2-0", "poison")))
+                .thenReturn(Collections.emptyList());
+        CountDownLatch acknowledged = new CountDownLatch(1);
+        when(streams.acknowledge(eq("events"), eq("group"), any())).thenAnswer(invocation -> {
+            acknowledged.countDown();
+            return (long) ((List<?>) invocation.getArguments()[2]).size();
+        });
+        RedisStreamListenerContainer container = new RedisStreamListenerContainer(streams, properties);
+
+        container.subscribe("events", "group", String.class, message -> {
+            if ("poison".equals(message.getFields().get("type"))) {
+                throw new IllegalStateException("can not handle");
+            }
+        });
+
+        assertTrue(acknowledged.await(5, TimeUnit.SECONDS));
+        container.destroy();
+        verify(streams).createGroup("events", "group");
+        verify(streams).acknowledge("events", "group", Collections.singletonList("1-0"));
+        try {
+            container.subscribe("events", "other", String.class, message -> { });
+            fail("stopped container refuses subscriptions");
+        } catch (IllegalStateException expected) {
+            assertEquals("consumer-1", container.getConsumer());
+        }
+    }
+
+    private static StreamMessage<String> message(String id, String type) {
+        return new StreamMessage<>("events", id, Collections.singletonMap("type", type));
+    }
+}
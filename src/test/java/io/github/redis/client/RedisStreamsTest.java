@@ -0,0 +1,188 @@
+package io.github.redis.client;
+
+import com.netflix.config.ConfigurationManager;
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.helper.Constants;
+import io.github.redis.metrics.RedisClientMetrics;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.io.ByteArrayOutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class RedisStreamsTest {
+
+    private RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private GenericJackson2JsonRedisSerializer valueSerializer = new GenericJackson2JsonRedisSerializer();
+
+    private RedisStreamCommands commands = mock(RedisStreamCommands.class);
+
+    private RedisClientProperties.Stream properties = new RedisClientProperties.Stream();
+
+    private RedisStreams streams;
+
+    @Before
+    public void setUp() {
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getHashKeySerializer();
+        doReturn(valueSerializer).when(redisTemplate).getHashValueSerializer();
+        when(commands.isAutoClaimSupported()).thenReturn(true);
+        streams = new RedisStreams(redisTemplate, commands, properties, RedisClientMetrics.noop(), "json");
+    }
+
+    @Test
+    public void testAddAllShouldSendTrimmedXaddsInOneRoundTrip() {
+        properties.setMaxLength(1000);
+        when(commands.execute(any(byte[].class), any(List.class))).thenReturn(Arrays.asList(
+                bytes("1-0"), new RedisSystemException("WRONGTYPE", null)));
+
+        List<String> ids = streams.addAll("events", Arrays.asList(fields("type", "created"), fields("type", "deleted")));
+
+        assertEquals(Arrays.asList("1-0", null), ids);
+        List<byte[][]> xadds = sentCommands();
+        assertEquals(2, xadds.size());
+        assertEquals(Arrays.asList("XADD", "events", "MAXLEN", "~", "1000", "*", "type", "\"created\""),
+                strings(xadds.get(0)));
+    }
+
+    @Test
+    public void testReadShouldReadTypedEntriesAndCreateMissingGroup() {
+        Object entry = Arrays.asList(bytes("1-0"), Arrays.asList(bytes("count"), valueSerializer.serialize(5)));
+        Object reply = Collections.singletonList(Arrays.asList(bytes("events"), Collections.singletonList(entry)));
+        when(commands.canBlock()).thenReturn(true);
+        when(commands.execute(any(byte[].class), any(List.class)))
+                .thenReturn(Collections.singletonList(reply))
+                .thenReturn(Collections.singletonList(new RedisSystemException("NOGROUP No such key", null)))
+                .thenReturn(Collections.singletonList(bytes("OK")));
+
+        List<StreamMessage<Long>> messages = streams.read("events", "group", "consumer", 10, Duration.ofMillis(500), Long.class);
+        assertTrue(streams.read("events", "group", "consumer", 10, Duration.ofMillis(500), Long.class).isEmpty());
+
+        assertEquals(1, messages.size());
+        assertEquals("1-0", messages.get(0).getId());
+        assertEquals(Long.valueOf(5), messages.get(0).getFields().get("count"));
+        List<byte[][]> sent = sentCommands();
+        assertEquals(Arrays.asList("XREADGROUP", "GROUP", "group", "consumer", "COUNT", "10", "BLOCK", "500",
+                "STREAMS", "events", ">"), strings(sent.get(0)));
+        assertEquals(Arrays.asList("XGROUP", "CREATE", "events", "group", "$", "MKSTREAM"), strings(sent.get(2)));
+    }
+
+    @Test
+    public void testBlockingReadShouldRunUnderItsOwnCommandWithTheBlockInItsTimeout() {
+        when(commands.canBlock()).thenReturn(true);
+        when(commands.execute(any(byte[].class), any(List.class))).thenReturn(Collections.singletonList(null));
+
+        assertTrue(streams.read("events", "group", "consumer", 10, Duration.ofSeconds(3), Long.class).isEmpty());
+        assertTrue(streams.read("events", "group", "consumer", 10, Duration.ofSeconds(2), Long.class).isEmpty());
+
+        assertEquals(4000, ConfigurationManager.getConfigInstance().getInt(
+                "hystrix.command." + Constants.REDIS_STREAM_BLOCKING_READ_COMMAND
+                        + ".execution.isolation.thread.timeoutInMilliseconds"));
+    }
+
+    @Test
+    public void testClaimShouldFallBackToPendingAndClaimWithoutAutoClaim() {
+        Object pending = Arrays.asList(Arrays.asList(bytes("1-0"), bytes("dead"), 90000L, 1L),
+                Arrays.asList(bytes("2-0"), bytes("dead"), 10L, 1L));
+        Object claimed = Collections.singletonList(Arrays.asList(bytes("1-0"),
+                Arrays.asList(bytes("type"), valueSerializer.serialize("created"))));
+        when(commands.execute(any(byte[].class), any(List.class)))
+                .thenReturn(Collections.singletonList(new RedisSystemException("ERR unknown command `XAUTOCLAIM`", null)))
+                .thenReturn(Collections.singletonList(pending))
+                .thenReturn(Collections.singletonList(claimed));
+
+        List<StreamMessage<String>> messages = streams.claim("events", "group", "consumer", Duration.ofMinutes(1), 10, String.class);
+
+        assertEquals(1, messages.size());
+        assertEquals("created", messages.get(0).getFields().get("type"));
+        verify(commands).autoClaimUnsupported();
+        assertEquals(Arrays.asList("XCLAIM", "events", "group", "consumer", "60000", "1-0"), strings(sentCommands().get(2)));
+    }
+
+    @Test
+    public void testAcknowledgeShouldSendBatchesOfIds() {
+        properties.setBatchSize(2);
+        when(commands.execute(any(byte[].class), any(List.class))).thenReturn(Arrays.asList(2L, 1L));
+
+        assertEquals(3, streams.acknowledge("events", "group", Arrays.asList("1-0", "2-0", "3-0")));
+        List<byte[][]> xacks = sentCommands();
+        assertEquals(Arrays.asList("XACK", "events", "group", "1-0", "2-0"), strings(xacks.get(0)));
+        assertEquals(Arrays.asList("XACK", "events", "group", "3-0"), strings(xacks.get(1)));
+    }
+
+    @Test
+    public void testJedisCommandsShouldBeWrittenInRespAndRepliedInOrder() throws Exception {
+        Jedis jedis = mock(Jedis.class);
+        Client client = mock(Client.class);
+        Socket socket = mock(Socket.class);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        when(jedis.getClient()).thenReturn(client);
+        when(client.getSocket()).thenReturn(socket);
+        when(socket.getOutputStream()).thenReturn(written);
+        when(client.getOne()).thenReturn(bytes("1-0")).thenThrow(new JedisDataException("ERR no field"));
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.getNativeConnection()).thenReturn(jedis);
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArguments()[0]).doInRedis(connection));
+        byte[] key = bytes("s");
+
+        List<Object> replies = new RedisStreamCommands(redisTemplate).execute(key, Arrays.asList(
+                new byte[][]{bytes("XADD"), key, bytes("*"), bytes("f"), bytes("v")},
+                new byte[][]{bytes("XADD"), key, bytes("*")}));
+
+        assertEquals("*5\r\n$4\r\nXADD\r\n$1\r\ns\r\n$1\r\n*\r\n$1\r\nf\r\n$1\r\nv\r\n"
+                + "*3\r\n$4\r\nXADD\r\n$1\r\ns\r\n$1\r\n*\r\n", new String(written.toByteArray(), StandardCharsets.UTF_8));
+        assertArrayEquals(bytes("1-0"), (byte[]) replies.get(0));
+        assertTrue(replies.get(1) instanceof RedisSystemException);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<byte[][]> sentCommands() {
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(commands, atLeastOnce()).execute(any(byte[].class), captor.capture());
+        List<byte[][]> sent = new ArrayList<>();
+        captor.getAllValues().forEach(sent::addAll);
+        return sent;
+    }
+
+    private static Map<String, Object> fields(String field, Object value) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put(field, value);
+        return fields;
+    }
+
+    private static List<String> strings(byte[][] args) {
+        List<String> strings = new ArrayList<>();
+        for (byte[] arg : args) {
+            strings.add(new String(arg, StandardCharsets.UTF_8));
+        }
+        return strings;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,198 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.NamedNode;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisClusterNode.LinkState;
+import org.springframework.data.redis.connection.RedisClusterNode.SlotRange;
+import org.springframework.data.redis.connection.RedisNode.NodeType;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+import org.springframework.data.redis.connection.RedisServer;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class ReplicaReadRouterTest {
+
+    private static final String IN_SYNC = "# Replication\r\nrole:slave\r\nmaster_link_status:up\r\nmaster_last_io_seconds_ago:1\r\n";
+
+    private static final String LAGGING = "# Replication\r\nrole:slave\r\nmaster_link_status:down\r\nmaster_last_io_seconds_ago:-1\r\n";
+
+    private RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private JedisConnectionFactory connectionFactory = mock(JedisConnectionFactory.class);
+
+    private RedisSentinelConnection sentinelConnection = mock(RedisSentinelConnection.class);
+
+    private Map<String, Jedis> replicas = new HashMap<>();
+
+    private AtomicInteger masterReads = new AtomicInteger();
+
+    private RedisClientProperties.Read properties = new RedisClientProperties.Read();
+
+    @Before
+    public void setUp() {
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        when(connectionFactory.isRedisSentinelAware()).thenReturn(true);
+        when(connectionFactory.getSentinelConfiguration()).thenReturn(new RedisSentinelConfiguration().master("mymaster"));
+        when(connectionFactory.getSentinelConnection()).thenReturn(sentinelConnection);
+        properties.setFrom(RedisClientProperties.ReadFrom.REPLICA_PREFERRED);
+    }
+
+    @Test
+    public void testReadsShouldBeSpreadOverReplicasInSync() {
+        replica("spread-a", IN_SYNC);
+        replica("spread-b", IN_SYNC);
+        replica("spread-c", LAGGING);
+        when(sentinelConnection.slaves(any(NamedNode.class))).thenReturn(Arrays.asList(
+                server("spread-a", "slave"), server("spread-b", "slave"), server("spread-c", "slave")));
+        ReplicaReadRouter router = sentinelRouter();
+        router.refresh();
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("value-of-key", read(router, "key"));
+        }
+
+        assertEquals(0, masterReads.get());
+        verify(replicas.get("spread-a"), times(2)).get(any(byte[].class));
+        verify(replicas.get("spread-b"), times(2)).get(any(byte[].class));
+        verify(replicas.get("spread-c"), never()).get(any(byte[].class));
+    }
+
+    @Test
+    public void testFailedReplicaShouldFallBackToMaster() {
+        Jedis jedis = replica("failing-a", IN_SYNC);
+        doThrow(new JedisConnectionException("connection reset")).when(jedis).get(any(byte[].class));
+        when(sentinelConnection.slaves(any(NamedNode.class))).thenReturn(Arrays.asList(server("failing-a", "slave")));
+        ReplicaReadRouter router = sentinelRouter();
+        router.refresh();
+
+        assertEquals("master-value-of-key", read(router, "key"));
+        assertEquals(1, masterReads.get());
+    }
+
+    @Test
+    public void testReplicasDownShouldReadFromMaster() {
+        replica("down-a", IN_SYNC);
+        when(sentinelConnection.slaves(any(NamedNode.class))).thenReturn(Arrays.asList(server("down-a", "slave,s_down")));
+        ReplicaReadRouter router = sentinelRouter();
+        router.refresh();
+
+        assertEquals("master-value-of-key", read(router, "key"));
+        assertEquals(1, masterReads.get());
+        verify(replicas.get("down-a"), never()).get(any(byte[].class));
+    }
+
+    @Test
+    public void testClusterReplicaShouldBeSwitchedToReadOnlyOnce() {
+        RedisClusterConnection connection = mock(RedisClusterConnection.class);
+        JedisCluster jedisCluster = mock(JedisCluster.class);
+        when(connectionFactory.isRedisClusterAware()).thenReturn(true);
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArguments()[0]).doInRedis(connection));
+        when(connection.getNativeConnection()).thenReturn(jedisCluster);
+        RedisClusterNode master = RedisClusterNode.newRedisClusterNode().listeningAt("cluster-master", 7000)
+                .withId("master-id").promotedAs(NodeType.MASTER).serving(new SlotRange(0, 16383)).build();
+        RedisClusterNode replica = RedisClusterNode.newRedisClusterNode().listeningAt("cluster-replica", 7000)
+                .withId("replica-id").promotedAs(NodeType.SLAVE).slaveOf("master-id").linkState(LinkState.CONNECTED)
+                .build();
+        when(connection.clusterGetNodes()).thenReturn(new HashSet<>(Arrays.asList(master, replica)));
+        Map<String, JedisPool> pools = new HashMap<>();
+        pools.put("cluster-replica:7000", pool(replica("cluster-replica", IN_SYNC)));
+        when(jedisCluster.getClusterNodes()).thenReturn(pools);
+
+        ClusterSlotMap slotMap = new ClusterSlotMap(redisTemplate);
+        ReplicaReadRouter router = new ReplicaReadRouter(redisTemplate, connectionFactory, slotMap, properties, 10);
+        router.refresh();
+
+        assertEquals("value-of-key-1", read(router, "key-1"));
+        assertEquals("value-of-key-2", read(router, "key-2"));
+        assertEquals(0, masterReads.get());
+        verify(replicas.get("cluster-replica"), times(1)).readonly();
+        // the masters read by the refresh are those of the shared slot map
+        assertSame(master, slotMap.masterOf("key-1"));
+        verify(connection, times(1)).clusterGetNodes();
+    }
+
+    @Test
+    public void testCloseShouldDestroySentinelReplicaPools() {
+        replica("closed-a", IN_SYNC);
+        when(sentinelConnection.slaves(any(NamedNode.class))).thenReturn(Arrays.asList(server("closed-a", "slave")));
+        Map<String, JedisPool> pools = new HashMap<>();
+        ReplicaReadRouter router = new ReplicaReadRouter(redisTemplate, connectionFactory, null, properties, 10) {
+            @Override
+            JedisPool newPool(String host, int port) {
+                return pools.computeIfAbsent(host, ignored -> pool(replicas.get(host)));
+            }
+        };
+        router.refresh();
+
+        router.close();
+
+        verify(pools.get("closed-a"), times(1)).destroy();
+    }
+
+    private ReplicaReadRouter sentinelRouter() {
+        return new ReplicaReadRouter(redisTemplate, connectionFactory, null, properties, 10) {
+            @Override
+            JedisPool newPool(String host, int port) {
+                return pool(replicas.get(host));
+            }
+        };
+    }
+
+    private String read(ReplicaReadRouter router, String key) {
+        return router.read(key, jedis -> new String(jedis.get(key.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8),
+                () -> {
+                    masterReads.incrementAndGet();
+                    return "master-value-of-" + key;
+                });
+    }
+
+    private Jedis replica(String host, String replicationInfo) {
+        Jedis jedis = mock(Jedis.class);
+        when(jedis.ping()).thenReturn("PONG");
+        when(jedis.info("replication")).thenReturn(replicationInfo);
+        when(jedis.get(any(byte[].class))).thenAnswer(invocation ->
+                ("value-of-" + new String((byte[]) invocation.getArguments()[0], StandardCharsets.UTF_8))
+                        .getBytes(StandardCharsets.UTF_8));
+        replicas.put(host, jedis);
+        return jedis;
+    }
+
+    private static JedisPool pool(Jedis jedis) {
+        JedisPool pool = mock(JedisPool.class);
+        when(pool.getResource()).thenReturn(jedis);
+        return pool;
+    }
+
+    private static RedisServer server(String host, String flags) {
+        Properties properties = new Properties();
+        properties.setProperty("ip", host);
+        properties.setProperty("port", "6379");
+        properties.setProperty("flags", flags);
+        properties.setProperty("master-link-status", "ok");
+        return RedisServer.newServerFrom(properties);
+    }
+}
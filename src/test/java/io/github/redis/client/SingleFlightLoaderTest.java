@@ -0,0 +1,196 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.config.RedisClientProperties.Compression;
+import io.github.redis.config.RedisClientProperties.Format;
+import io.github.redis.serializer.CompactRedisSerializer;
+import io.github.redis.serializer.CompactRedisSerializerTest.Point;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class SingleFlightLoaderTest {
+
+    private RedisClient client = mock(RedisClient.class);
+
+    private RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+
+    private GenericJackson2JsonRedisSerializer valueSerializer = new GenericJackson2JsonRedisSerializer();
+
+    private RedisClientProperties.Load properties = new RedisClientProperties.Load();
+
+    private SingleFlightLoader loader;
+
+    @Before
+    public void setUp() {
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        doReturn(valueSerializer).when(redisTemplate).getValueSerializer();
+        doReturn(valueSerializer).when(stringRedisTemplate).getValueSerializer();
+        loader = new SingleFlightLoader(client, redisTemplate, stringRedisTemplate, false, properties);
+    }
+
+    @Test
+    public void testConcurrentMissesShouldShareOneLoad() throws Exception {
+        readsReturn(Arrays.asList(null, -2L, null));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(callers.submit(() -> loader.load("key", String.class, () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "loaded";
+            }, 60, "json")));
+        }
+        Thread.sleep(300);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("loaded", result.get(5, TimeUnit.SECONDS));
+        }
+        callers.shutdown();
+
+        assertEquals(1, loads.get());
+        verify(client, times(1)).setElementInRedisWithExpiry("key", "loaded", 60);
+    }
+
+    @Test
+    public void testCallersOfDifferentClassesShouldShareLoadWhenConvertible() throws Exception {
+        readsReturn(Arrays.asList(null, -2L, null));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        Future<Long> leader = callers.submit(() -> loader.load("key", Long.class, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return 5L;
+        }, 60, "json"));
+        Thread.sleep(100);
+        Future<Integer> sameNumber = callers.submit(() -> loader.load("key", Integer.class, () -> {
+            loads.incrementAndGet();
+            return 6;
+        }, 60, "json"));
+        Future<String> otherType = callers.submit(() -> loader.load("key", String.class, () -> {
+            loads.incrementAndGet();
+            return "five";
+        }, 60, "json"));
+        Thread.sleep(200);
+        release.countDown();
+
+        assertEquals(Long.valueOf(5), leader.get(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(5), sameNumber.get(5, TimeUnit.SECONDS));
+        assertEquals("five", otherType.get(5, TimeUnit.SECONDS));
+        callers.shutdown();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testHitShouldNotLoad() {
+        readsReturn(Arrays.asList(valueSerializer.serialize("value"), 60_000L, raw(5)));
+
+        assertEquals("value", loader.load("key", String.class, () -> {
+            throw new AssertionError("should not load");
+        }, 60, "json"));
+        verify(client, never()).setElementInRedisWithExpiry(anyString(), any(), anyInt());
+    }
+
+    @Test
+    public void testHitCloseToExpiryShouldRefreshEarly() {
+        readsReturn(Arrays.asList(valueSerializer.serialize("value"), 1L, raw(60_000)));
+
+        assertEquals("refreshed", loader.load("key", String.class, () -> "refreshed", 60, "json"));
+        verify(client).setElementInRedisWithExpiry("key", "refreshed", 60);
+    }
+
+    @Test
+    public void testReadFailureShouldLoad() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        assertEquals("loaded", loader.load("key", String.class, () -> "loaded", 60, "json"));
+    }
+
+    @Test
+    public void testWriteBackFailureShouldReturnLoadedElement() {
+        readsReturn(Arrays.asList(null, -2L, null));
+        doThrow(new RedisConnectionFailureException("down"))
+                .when(client).setElementInRedisWithExpiry("key", "loaded", 60);
+
+        assertEquals("loaded", loader.load("key", String.class, () -> "loaded", 60, "json"));
+        verify(client).setElementInRedisWithExpiry("key", "loaded", 60);
+    }
+
+    @Test
+    public void testMissShouldWaitForLockHolder() {
+        properties.setLockEnabled(true);
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull()))
+                .thenReturn(Arrays.asList(null, -2L, null))
+                .thenReturn(Collections.singletonList(valueSerializer.serialize("loaded-elsewhere")));
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(Boolean.FALSE);
+
+        assertEquals("loaded-elsewhere", loader.load("key", String.class, () -> {
+            throw new AssertionError("should not load");
+        }, 60, "json"));
+        verify(client, never()).setElementInRedisWithExpiry(eq("key"), any(), anyInt());
+    }
+
+    @Test
+    public void testValueWithoutTypeInformationShouldBeReadIntoTheClass() {
+        CompactRedisSerializer plainSerializer = new CompactRedisSerializer(Format.JSON, Compression.NONE, 0, false);
+        doReturn(plainSerializer).when(redisTemplate).getValueSerializer();
+        Point point = new Point();
+        point.setX(7);
+        point.setLabel("cached");
+        readsReturn(Collections.singletonList(plainSerializer.serialize(point)));
+
+        assertEquals(point, loader.load("key", Point.class, () -> {
+            throw new AssertionError("cached value is not loaded again");
+        }, 60, "json"));
+    }
+
+    private void readsReturn(List<Object> results) {
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull())).thenReturn(results);
+    }
+
+    private static byte[] raw(long delta) {
+        return Long.toString(delta).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
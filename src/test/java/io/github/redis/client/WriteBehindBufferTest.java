@@ -0,0 +1,277 @@
+package io.github.redis.client;
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.metrics.RedisClientMetrics;
+import io.github.redis.test.RespTestServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.redis.test.RespTestConnections.connectionFactory;
+import static io.github.redis.test.RespTestConnections.redisTemplate;
+import static io.github.redis.test.RespTestConnections.stringRedisTemplate;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class WriteBehindBufferTest {
+
+    private RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+
+    private StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+
+    private GenericJackson2JsonRedisSerializer valueSerializer = new GenericJackson2JsonRedisSerializer();
+
+    private RedisClientProperties.WriteBehind properties = new RedisClientProperties.WriteBehind();
+
+    private WriteBehindBuffer buffer;
+
+    @Before
+    public void setUp() {
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getKeySerializer();
+        doReturn(new StringRedisSerializer()).when(redisTemplate).getHashKeySerializer();
+        doReturn(valueSerializer).when(redisTemplate).getValueSerializer();
+        doReturn(valueSerializer).when(redisTemplate).getHashValueSerializer();
+        doReturn(valueSerializer).when(stringRedisTemplate).getValueSerializer();
+        buffer = new WriteBehindBuffer(properties);
+    }
+
+    @After
+    public void tearDown() {
+        buffer.destroy();
+    }
+
+    @Test
+    public void testWritesToSameKeyShouldBeCoalesced() {
+        withPipeline();
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull()))
+                .thenReturn(Arrays.asList(Boolean.TRUE, Boolean.TRUE, Boolean.TRUE));
+
+        assertTrue(buffer.set("key", "first"));
+        assertTrue(buffer.set("key", "second"));
+        assertTrue(buffer.putInHash("hash", "field-1", "value"));
+        assertTrue(buffer.putInHash("hash", "field-2", "value"));
+        assertEquals(3, buffer.getPendingCount());
+
+        buffer.flush();
+
+        assertEquals(0, buffer.getPendingCount());
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull());
+    }
+
+    @Test
+    public void testFailedFlushShouldKeepWrites() {
+        withPipeline();
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull()))
+                .thenThrow(new IllegalStateException("connection refused"))
+                .thenReturn(Arrays.asList(Boolean.TRUE, Boolean.TRUE));
+
+        buffer.set("key-1", "value");
+        buffer.set("key-2", "value");
+
+        buffer.flush();
+        assertEquals(2, buffer.getPendingCount());
+
+        buffer.flush();
+        assertEquals(0, buffer.getPendingCount());
+        assertEquals(0, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void testFullBufferShouldLetCallerWrite() {
+        properties.setMaxSize(1);
+
+        assertTrue(buffer.set("key-1", "value"));
+        assertFalse(buffer.set("key-2", "value"));
+        assertTrue(buffer.set("key-1", "other-value"));
+        assertEquals(1, buffer.getPendingCount());
+    }
+
+    @Test
+    public void testFullBufferShouldDropWithDropBackpressure() {
+        properties.setMaxSize(1);
+        properties.setBackpressure(RedisClientProperties.Backpressure.DROP);
+
+        assertTrue(buffer.set("key-1", "value"));
+        assertTrue(buffer.set("key-2", "value"));
+        assertEquals(1, buffer.getPendingCount());
+        assertEquals(1, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void testWriteFailingMoreThanMaxRetriesShouldBeDropped() {
+        withPipeline();
+        properties.setMaxRetries(1);
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull()))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        buffer.set("key", "value");
+
+        buffer.flush();
+        assertEquals(1, buffer.getPendingCount());
+        buffer.flush();
+        assertEquals(0, buffer.getPendingCount());
+        assertEquals(1, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void testDiscardShouldDropPendingWritesOfKey() {
+        withPipeline();
+        List<Collection<String>> writtenKeys = new ArrayList<>();
+        buffer.setWrittenKeysListener(writtenKeys::add);
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull()))
+                .thenReturn(Collections.singletonList(Boolean.TRUE));
+
+        buffer.set("key", "value");
+        buffer.putInHash("key", "field", "value");
+        buffer.set("other-key", "value");
+        assertTrue(writtenKeys.isEmpty());
+
+        buffer.discard(Collections.singleton("key"));
+        assertEquals(1, buffer.getPendingCount());
+
+        buffer.flush();
+        assertEquals(Collections.singletonList(Collections.singleton("other-key")), writtenKeys);
+    }
+
+    @Test
+    public void testDiscardShouldWaitForFlushOfKey() throws Exception {
+        withPipeline();
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull()))
+                .thenAnswer(invocation -> {
+                    flushing.countDown();
+                    release.await();
+                    return Collections.singletonList(Boolean.TRUE);
+                });
+        buffer.set("key", "value");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        executor.execute(buffer::flush);
+        assertTrue(flushing.await(1, TimeUnit.SECONDS));
+
+        Future<?> discard = executor.submit(() -> buffer.discard(Collections.singleton("key")));
+        Thread.sleep(100);
+        assertFalse(discard.isDone());
+
+        release.countDown();
+        discard.get(1, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testDiscardOfHashFieldsShouldKeepOtherFields() {
+        withPipeline();
+        buffer.set("key", "value");
+        buffer.putInHash("key", "field-1", "value");
+        buffer.putInHash("key", "field-2", "value");
+
+        buffer.discard("key", Collections.singleton("field-1"));
+
+        assertEquals(1, buffer.getPendingCount());
+    }
+
+    @Test
+    public void testDiscardShouldNotWaitForFlushOfOtherKeys() throws Exception {
+        withPipeline();
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(redisTemplate.executePipelined(any(RedisCallback.class), (RedisSerializer<?>) isNull()))
+                .thenAnswer(invocation -> {
+                    flushing.countDown();
+                    release.await();
+                    return Collections.singletonList(Boolean.TRUE);
+                });
+        buffer.set("key", "value");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        executor.execute(buffer::flush);
+        assertTrue(flushing.await(1, TimeUnit.SECONDS));
+        buffer.set("other-key", "value");
+
+        executor.submit(() -> buffer.discard(Collections.singleton("other-key"))).get(1, TimeUnit.SECONDS);
+        assertEquals(0, buffer.getPendingCount());
+
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testFlushAfterDirectHashPutShouldKeepDirectValues() throws Exception {
+        try (RespTestServer server = new RespTestServer(0, 7)) {
+            RedisClientProperties clientProperties = new RedisClientProperties();
+            JedisConnectionFactory connectionFactory = connectionFactory(server, clientProperties);
+            RedisClient client = new RedisClient(redisTemplate(connectionFactory, clientProperties),
+                    stringRedisTemplate(connectionFactory, clientProperties), clientProperties);
+            client.setWriteBehindBuffer(buffer);
+            try {
+                client.putInRedisUsingHashOps("hash", "field-1", "buffered");
+                client.putInRedisUsingHashOps("hash", "field-2", "buffered");
+                client.putInRedisUsingHashOps("object", "name", "buffered");
+                client.setElementInRedis("counter", 10L);
+                client.putInRedisUsingHashOps("piped", "field", "buffered");
+                assertEquals(5, buffer.getPendingCount());
+
+                client.putAllInRedisHash("hash", Collections.singletonMap("field-1", "direct"), 0);
+                client.putObjectInRedisHash("object", new Named("direct"), 0);
+                client.increment("counter");
+                RedisPipeline pipeline = client.pipeline();
+                pipeline.putInHash("piped", "field", "direct");
+                pipeline.execute();
+                buffer.flush();
+
+                assertEquals(0, buffer.getPendingCount());
+                assertEquals("direct", client.getFromRedisUsingHashOps("hash", "field-1", String.class));
+                assertEquals("buffered", client.getFromRedisUsingHashOps("hash", "field-2", String.class));
+                assertEquals("direct", client.getFromRedisUsingHashOps("object", "name", String.class));
+                assertEquals(Long.valueOf(1), client.getElementFromRedis("counter", Long.class));
+                assertEquals("direct", client.getFromRedisUsingHashOps("piped", "field", String.class));
+            } finally {
+                connectionFactory.destroy();
+            }
+        }
+    }
+
+    private void withPipeline() {
+        buffer.setPipelineFactory(() ->
+                new RedisPipeline(redisTemplate, stringRedisTemplate, false, null, RedisClientMetrics.noop(), null));
+    }
+
+    public static class Named {
+
+        private String name;
+
+        public Named() {
+        }
+
+        Named(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
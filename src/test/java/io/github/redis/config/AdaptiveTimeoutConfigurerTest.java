@@ -0,0 +1,99 @@
+package io.github.redis.config;
+
+import com.netflix.config.ConfigurationManager;
+import io.github.redis.metrics.LatencyTracker;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveTimeoutConfigurerTest {
+
+    private static final String GET_TIMEOUT = "hystrix.command.redisClientGet.execution.isolation.thread.timeoutInMilliseconds";
+
+    private static final String SET_TIMEOUT = "hystrix.command.redisClientSet.execution.isolation.thread.timeoutInMilliseconds";
+
+    private AbstractConfiguration configuration = ConfigurationManager.getConfigInstance();
+
+    private LatencyTracker tracker = new LatencyTracker(100, 10);
+
+    private RedisClientProperties.AdaptiveTimeout properties = new RedisClientProperties.AdaptiveTimeout();
+
+    private RedisClientProperties.Isolation isolation = new RedisClientProperties.Isolation();
+
+    @After
+    public void tearDown() {
+        for (String commandKey : HystrixIsolationConfigurer.COMMAND_KEYS) {
+            configuration.clearProperty("hystrix.command." + commandKey + ".execution.isolation.thread.timeoutInMilliseconds");
+        }
+    }
+
+    @Test
+    public void testTimeoutShouldFollowLatencyPercentileWithinBounds() {
+        assertEquals(1000, AdaptiveTimeoutConfigurer.timeoutMillis(tracker, properties, "redisClientGet"));
+
+        for (int i = 0; i < 100; i++) {
+            tracker.record("redisClientGet", TimeUnit.MILLISECONDS.toNanos(30));
+            tracker.record("redisClientSet", TimeUnit.MILLISECONDS.toNanos(1));
+            tracker.record("redisClientScan", TimeUnit.SECONDS.toNanos(2));
+        }
+
+        assertEquals(60, AdaptiveTimeoutConfigurer.timeoutMillis(tracker, properties, "redisClientGet"));
+        assertEquals(20, AdaptiveTimeoutConfigurer.timeoutMillis(tracker, properties, "redisClientSet"));
+        assertEquals(1000, AdaptiveTimeoutConfigurer.timeoutMillis(tracker, properties, "redisClientScan"));
+    }
+
+    @Test
+    public void testExplicitTimeoutsShouldWin() throws Exception {
+        isolation.setStrategy(RedisClientProperties.IsolationStrategy.THREAD);
+        configuration.setProperty(SET_TIMEOUT, 250);
+        for (int i = 0; i < 100; i++) {
+            tracker.record("redisClientGet", TimeUnit.MILLISECONDS.toNanos(30));
+            tracker.record("redisClientSet", TimeUnit.MILLISECONDS.toNanos(30));
+        }
+        AdaptiveTimeoutConfigurer configurer = configurer();
+        configurer.afterPropertiesSet();
+        try {
+            configurer.update();
+        } finally {
+            configurer.destroy();
+        }
+
+        assertEquals(60, configuration.getInt(GET_TIMEOUT));
+        assertEquals(250, configuration.getInt(SET_TIMEOUT));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSemaphoreIsolationShouldRefuseToStart() {
+        isolation.setStrategy(RedisClientProperties.IsolationStrategy.SEMAPHORE);
+
+        configurer().afterPropertiesSet();
+    }
+
+    @Test
+    public void testOnlyThreadIsolatedCommandsShouldBeAdapted() throws Exception {
+        isolation.setStrategy(RedisClientProperties.IsolationStrategy.SEMAPHORE);
+        isolation.getCommands().put("redisClientGet", RedisClientProperties.IsolationStrategy.THREAD);
+        for (int i = 0; i < 100; i++) {
+            tracker.record("redisClientGet", TimeUnit.MILLISECONDS.toNanos(30));
+            tracker.record("redisClientSet", TimeUnit.MILLISECONDS.toNanos(30));
+        }
+        AdaptiveTimeoutConfigurer configurer = configurer();
+        configurer.afterPropertiesSet();
+        try {
+            configurer.update();
+        } finally {
+            configurer.destroy();
+        }
+
+        assertEquals(60, configuration.getInt(GET_TIMEOUT));
+        assertFalse(configuration.containsKey(SET_TIMEOUT));
+    }
+
+    private AdaptiveTimeoutConfigurer configurer() {
+        return new AdaptiveTimeoutConfigurer(tracker, properties, new HystrixIsolationConfigurer(isolation));
+    }
+}
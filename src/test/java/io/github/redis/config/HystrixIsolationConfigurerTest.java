@@ -0,0 +1,78 @@
+package io.github.redis.config;
+
+import com.netflix.config.ConfigurationManager;
+import io.github.redis.config.RedisClientProperties.IsolationStrategy;
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HystrixIsolationConfigurerTest {
+
+    private AbstractConfiguration configuration = ConfigurationManager.getConfigInstance();
+
+    private RedisClientProperties.Isolation properties = new RedisClientProperties.Isolation();
+
+    @After
+    public void tearDown() {
+        for (String commandKey : HystrixIsolationConfigurer.COMMAND_KEYS) {
+            configuration.clearProperty("hystrix.command." + commandKey + ".execution.isolation.strategy");
+            configuration.clearProperty("hystrix.command." + commandKey + ".execution.isolation.semaphore.maxConcurrentRequests");
+            configuration.clearProperty("hystrix.command." + commandKey + ".fallback.isolation.semaphore.maxConcurrentRequests");
+            configuration.clearProperty("hystrix.command." + commandKey + ".execution.timeout.enabled");
+            configuration.clearProperty("hystrix.command." + commandKey + ".circuitBreaker.enabled");
+        }
+    }
+
+    @Test
+    public void testCommandsShouldBeSemaphoreIsolatedByDefault() {
+        new HystrixIsolationConfigurer(properties).afterPropertiesSet();
+
+        assertEquals("SEMAPHORE", configuration.getString("hystrix.command.redisClientGet.execution.isolation.strategy"));
+        assertEquals(200, configuration.getInt("hystrix.command.redisClientGet.execution.isolation.semaphore.maxConcurrentRequests"));
+        assertFalse(configuration.getBoolean("hystrix.command.redisClientGet.execution.timeout.enabled"));
+    }
+
+    @Test
+    public void testStrategyShouldBeSetPerCommand() {
+        properties.getCommands().put("redisclientscan", IsolationStrategy.THREAD);
+
+        new HystrixIsolationConfigurer(properties).afterPropertiesSet();
+
+        assertEquals("THREAD", configuration.getString("hystrix.command.redisClientScan.execution.isolation.strategy"));
+        assertFalse(configuration.containsKey("hystrix.command.redisClientScan.execution.timeout.enabled"));
+        assertEquals("SEMAPHORE", configuration.getString("hystrix.command.redisClientSet.execution.isolation.strategy"));
+    }
+
+    @Test
+    public void testExplicitHystrixPropertiesShouldWin() {
+        configuration.setProperty("hystrix.command.redisClientGet.execution.isolation.strategy", "THREAD");
+
+        new HystrixIsolationConfigurer(properties).afterPropertiesSet();
+
+        assertEquals("THREAD", configuration.getString("hystrix.command.redisClientGet.execution.isolation.strategy"));
+    }
+
+    @Test
+    public void testBulkheadsShouldDisableCircuitBreakerOfPartitionedCommands() {
+        RedisClientProperties.Bulkhead bulkhead = new RedisClientProperties.Bulkhead();
+        bulkhead.getPrefixes().add("user:");
+
+        new HystrixIsolationConfigurer(properties, bulkhead).afterPropertiesSet();
+
+        assertFalse(configuration.getBoolean("hystrix.command.redisClientGet.circuitBreaker.enabled"));
+        assertFalse(configuration.containsKey("hystrix.command.redisClientScan.circuitBreaker.enabled"));
+    }
+
+    @Test
+    public void testVirtualThreadsShouldFallBackToThreadPoolBeforeJava21() {
+        properties.setStrategy(IsolationStrategy.VIRTUAL_THREAD);
+
+        new HystrixIsolationConfigurer(properties).afterPropertiesSet();
+
+        assertEquals("THREAD", configuration.getString("hystrix.command.redisClientGet.execution.isolation.strategy"));
+        assertEquals(VirtualThreadConcurrencyStrategy.virtualThreadFactory() != null,
+                configuration.containsKey("hystrix.command.redisClientGet.execution.timeout.enabled"));
+    }
+}
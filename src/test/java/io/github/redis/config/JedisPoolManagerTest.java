@@ -0,0 +1,50 @@
+package io.github.redis.config;
+
+import org.junit.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+public class JedisPoolManagerTest {
+
+    private RedisClientProperties.Pool properties = new RedisClientProperties.Pool();
+
+    private JedisPoolManager poolManager = new JedisPoolManager(new LettuceConnectionFactory(), properties);
+
+    @Test
+    public void testMaxTotalShouldGrowWhileThreadsWait() {
+        assertEquals(80, poolManager.targetMaxTotal(64, 64, 100, 0, 3, 64));
+    }
+
+    @Test
+    public void testMaxTotalShouldGrowWhenBorrowWaitAboveTarget() {
+        properties.getAdaptive().setTargetBorrowWait(Duration.ofMillis(5));
+
+        assertEquals(80, poolManager.targetMaxTotal(64, 64, 100, 8, 0, 60));
+        assertEquals(64, poolManager.targetMaxTotal(64, 64, 0, 8, 0, 60));
+    }
+
+    @Test
+    public void testMaxTotalShouldNotGrowAboveLimit() {
+        properties.getAdaptive().setMaxTotalLimit(70);
+
+        assertEquals(70, poolManager.targetMaxTotal(64, 64, 100, 0, 3, 64));
+    }
+
+    @Test
+    public void testMaxTotalShouldShrinkBackToConfiguredWhenUnused() {
+        assertEquals(112, poolManager.targetMaxTotal(128, 64, 100, 0, 0, 10));
+        assertEquals(64, poolManager.targetMaxTotal(66, 64, 100, 0, 0, 10));
+        assertEquals(64, poolManager.targetMaxTotal(64, 64, 100, 0, 0, 10));
+    }
+
+    @Test
+    public void testLettuceFactoryShouldBeIgnored() {
+        properties.getAdaptive().setEnabled(true);
+
+        poolManager.afterPropertiesSet();
+        poolManager.destroy();
+    }
+}
@@ -1,6 +1,8 @@
 package io.github.redis.config;
 
 import io.github.redis.helper.Constants;
+import io.github.redis.metrics.MeteredRedisSerializer;
+import io.github.redis.serializer.CompactRedisSerializer;
 import mockit.Injectable;
 import mockit.Tested;
 import mockit.integration.junit4.JMockit;
@@ -10,12 +12,15 @@ import org.junit.runner.RunWith;
 import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -28,6 +33,9 @@ public class RedisConnectionAutoConfigurationTest {
     @Injectable
     private RedisProperties redisProperties;
 
+    @Injectable
+    private RedisClientProperties clientProperties;
+
     @Injectable
     private boolean sentinelEnabled = false;
 
@@ -61,12 +69,14 @@ public class RedisConnectionAutoConfigurationTest {
 
         redisProperties.setSentinel(sentinel);
 
-        autoConfiguration = new RedisConnectionAutoConfiguration(redisProperties,sentinelEnabled,clusterEnabled);
+        clientProperties = new RedisClientProperties();
+
+        autoConfiguration = new RedisConnectionAutoConfiguration(redisProperties,clientProperties,sentinelEnabled,clusterEnabled);
     }
 
     @Test
     public void testRedisConnectionFactoryShouldInstantiateClusterInstanceIfClusterEnabled() {
-        autoConfiguration = new RedisConnectionAutoConfiguration(redisProperties,false,true);
+        autoConfiguration = new RedisConnectionAutoConfiguration(redisProperties,clientProperties,false,true);
 
         RedisConnectionFactory factory = autoConfiguration.redisConnectionFactory();
 
@@ -77,7 +87,7 @@ public class RedisConnectionAutoConfigurationTest {
 
     @Test
     public void testRedisConnectionFactoryShouldInstantiateSentinelInstanceIfSentinelEnabled() {
-        autoConfiguration = new RedisConnectionAutoConfiguration(redisProperties,true,false);
+        autoConfiguration = new RedisConnectionAutoConfiguration(redisProperties,clientProperties,true,false);
 
         RedisConnectionFactory factory = autoConfiguration.redisConnectionFactory();
 
@@ -88,7 +98,7 @@ public class RedisConnectionAutoConfigurationTest {
 
     @Test
     public void testRedisConnectionFactoryShouldInstantiateStandaloneInstanceIfBothDisabled() {
-        autoConfiguration = new RedisConnectionAutoConfiguration(redisProperties,false,false);
+        autoConfiguration = new RedisConnectionAutoConfiguration(redisProperties,clientProperties,false,false);
 
         RedisConnectionFactory factory = autoConfiguration.redisConnectionFactory();
 
@@ -98,12 +108,25 @@ public class RedisConnectionAutoConfigurationTest {
         assertNull(((JedisConnectionFactory)factory).getClusterConfiguration());
     }
 
+    @Test
+    public void testRedisConnectionFactoryShouldApplyPoolConfigsToStandaloneInstance() {
+        clientProperties.getPool().setTestOnBorrow(true);
+
+        RedisConnectionFactory factory = autoConfiguration.redisConnectionFactory();
+
+        assertEquals(8, ((JedisConnectionFactory) factory).getPoolConfig().getMaxTotal());
+        assertEquals(1, ((JedisConnectionFactory) factory).getPoolConfig().getMaxIdle());
+        assertEquals(0, ((JedisConnectionFactory) factory).getPoolConfig().getMaxWaitMillis());
+        assertTrue(((JedisConnectionFactory) factory).getPoolConfig().getTestOnBorrow());
+        assertEquals(2000, ((JedisConnectionFactory) factory).getClientConfiguration().getConnectTimeout().toMillis());
+    }
+
     @Test
     public void testRedisConnectionFactoryShouldInstantiateStandaloneInstanceWithDefaultPoolConfigs() {
 
         redisProperties.getJedis().setPool(null);
 
-        autoConfiguration = new RedisConnectionAutoConfiguration(redisProperties,false,false);
+        autoConfiguration = new RedisConnectionAutoConfiguration(redisProperties,clientProperties,false,false);
 
         RedisConnectionFactory factory = autoConfiguration.redisConnectionFactory();
 
@@ -121,7 +144,32 @@ public class RedisConnectionAutoConfigurationTest {
                 .redisTemplate(autoConfiguration.redisConnectionFactory());
 
         assertNotNull(redisTemplate);
-        assertTrue(redisTemplate.getValueSerializer() instanceof GenericJackson2JsonRedisSerializer);
+        assertTrue(redisTemplate.getValueSerializer() instanceof MeteredRedisSerializer);
+        assertTrue(((MeteredRedisSerializer<?>) redisTemplate.getValueSerializer()).getDelegate()
+                instanceof CompactRedisSerializer);
+        assertTrue(redisTemplate.getHashValueSerializer() instanceof MeteredRedisSerializer);
+    }
+
+    @Test
+    public void testRedisTemplateShouldNotMeterSerializersIfMetricsDisabled() {
+        clientProperties.getMetrics().setEnabled(false);
+
+        RedisTemplate<String, Object> redisTemplate = autoConfiguration
+                .redisTemplate(autoConfiguration.redisConnectionFactory());
+
+        assertTrue(redisTemplate.getValueSerializer() instanceof CompactRedisSerializer);
+        assertTrue(redisTemplate.getHashValueSerializer() instanceof CompactRedisSerializer);
+    }
+
+    @Test
+    public void testRedisTemplateShouldWriteJsonByDefault() {
+        RedisTemplate<String, Object> redisTemplate = autoConfiguration
+                .redisTemplate(autoConfiguration.redisConnectionFactory());
+
+        Map<String, String> element = Collections.singletonMap("key", "value");
+
+        assertArrayEquals(new GenericJackson2JsonRedisSerializer().serialize(element),
+                ((MeteredRedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(element));
     }
 
     @Test
@@ -130,7 +178,21 @@ public class RedisConnectionAutoConfigurationTest {
                 .stringRedisTemplate(autoConfiguration.redisConnectionFactory());
 
         assertNotNull(redisTemplate);
-        assertTrue(redisTemplate.getValueSerializer() instanceof GenericJackson2JsonRedisSerializer);
+        assertTrue(((MeteredRedisSerializer<?>) redisTemplate.getValueSerializer()).getDelegate()
+                instanceof GenericJackson2JsonRedisSerializer);
+    }
+
+    @Test
+    public void testRedisConnectionFactoryShouldInstantiateLettuceInstanceIfLettuceDriver() {
+        clientProperties.setDriver(RedisClientProperties.Driver.LETTUCE);
+
+        autoConfiguration = new RedisConnectionAutoConfiguration(redisProperties,clientProperties,false,true);
+
+        RedisConnectionFactory factory = autoConfiguration.redisConnectionFactory();
+
+        assertTrue(factory instanceof LettuceConnectionFactory);
+        assertNotNull(((LettuceConnectionFactory) factory).getClusterConfiguration());
+        assertNotNull(autoConfiguration.reactiveRedisClient());
     }
 
     @Test
@@ -0,0 +1,82 @@
+package io.github.redis.config;
+
+import com.netflix.hystrix.strategy.HystrixPlugins;
+import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class VirtualThreadConcurrencyStrategyTest {
+
+    private final ThreadFactory threadFactory = runnable -> {
+        Thread thread = new Thread(runnable, "test-virtual");
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    @Before
+    @After
+    public void resetPlugins() {
+        HystrixPlugins.reset();
+    }
+
+    @Test
+    public void testExecutorShouldStartThreadPerTaskUpToMaximumSize() throws InterruptedException {
+        VirtualThreadConcurrencyStrategy.VirtualThreadPerTaskExecutor executor =
+                new VirtualThreadConcurrencyStrategy.VirtualThreadPerTaskExecutor(2, 2, threadFactory);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        Runnable task = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+
+        executor.execute(task);
+        executor.execute(task);
+        assertEquals(2, executor.getActiveCount());
+        try {
+            executor.execute(task);
+            fail("third task should be rejected");
+        } catch (RejectedExecutionException expected) {
+            // at maximum size
+        }
+        release.countDown();
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(2, executor.getCompletedTaskCount());
+        assertEquals(2, executor.getLargestPoolSize());
+        assertEquals(0, executor.getQueue().size());
+    }
+
+    @Test
+    public void testRegisterShouldAddKeysToRegisteredStrategy() {
+        VirtualThreadConcurrencyStrategy.register(Collections.singleton("redisClientGet"), threadFactory);
+        HystrixConcurrencyStrategy registered = HystrixPlugins.getInstance().getConcurrencyStrategy();
+
+        VirtualThreadConcurrencyStrategy.register(Collections.singleton("redisClientScan"), threadFactory);
+
+        assertSame(registered, HystrixPlugins.getInstance().getConcurrencyStrategy());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRegisterShouldFailWhenAnotherStrategyIsRegistered() {
+        HystrixPlugins.getInstance().registerConcurrencyStrategy(new HystrixConcurrencyStrategy() {
+        });
+
+        VirtualThreadConcurrencyStrategy.register(Collections.singleton("redisClientGet"), threadFactory);
+    }
+}
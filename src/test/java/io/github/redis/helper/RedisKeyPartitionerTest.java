@@ -0,0 +1,43 @@
+package io.github.redis.helper;
+
+import org.junit.Test;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RedisKeyPartitionerTest {
+
+    @Test
+    public void testPartitionShouldSplitKeysInBatches() {
+        List<List<String>> chunks = RedisKeyPartitioner
+                .partition(Arrays.asList("key-1", "key-2", "key-3", "key-4", "key-5"), 2, false);
+
+        assertEquals(3, chunks.size());
+        assertEquals(Arrays.asList("key-1", "key-2"), chunks.get(0));
+        assertEquals(Arrays.asList("key-5"), chunks.get(2));
+    }
+
+    @Test
+    public void testPartitionShouldGroupKeysBySlotIfSlotAware() {
+        List<List<String>> chunks = RedisKeyPartitioner
+                .partition(Arrays.asList("{user}:1", "{order}:1", "{user}:2", "{order}:2"), 10, true);
+
+        assertEquals(2, chunks.size());
+        assertEquals(Arrays.asList("{user}:1", "{user}:2"), chunks.get(0));
+        assertEquals(Arrays.asList("{order}:1", "{order}:2"), chunks.get(1));
+        for (List<String> chunk : chunks) {
+            int slot = ClusterSlotHashUtil.calculateSlot(chunk.get(0));
+            chunk.forEach(key -> assertEquals(slot, ClusterSlotHashUtil.calculateSlot(key)));
+        }
+    }
+
+    @Test
+    public void testPartitionShouldFallbackToDefaultBatchSize() {
+        List<List<String>> chunks = RedisKeyPartitioner.partition(Arrays.asList("key-1", "key-2"), 0, false);
+
+        assertEquals(1, chunks.size());
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.redis.helper;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class ValueTypesTest {
+
+    @Test
+    public void testNumbersShouldBeConvertedToTheAskedType() {
+        assertEquals(Long.valueOf(5), ValueTypes.cast(5, Long.class));
+        assertEquals(Integer.valueOf(5), ValueTypes.cast(5L, Integer.class));
+        assertEquals(Double.valueOf(5), ValueTypes.cast(5, Double.class));
+        assertEquals(Integer.valueOf(5), ValueTypes.cast(5, Object.class));
+        assertFalse(ValueTypes.isInstance(Long.MAX_VALUE, Integer.class));
+        assertFalse(ValueTypes.isInstance("5", Long.class));
+    }
+
+    @Test
+    public void testBytesShouldBeWrappedForByteBuffer() {
+        byte[] raw = {1, 2, 3};
+
+        assertEquals(ByteBuffer.wrap(raw), ValueTypes.cast(raw, ByteBuffer.class));
+        assertSame(raw, ValueTypes.cast(raw, byte[].class));
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.redis.metrics;
+
+import com.netflix.hystrix.exception.HystrixTimeoutException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+public class RedisClientMetricsTest {
+
+    private MeterRegistry registry = new SimpleMeterRegistry();
+
+    private RedisClientMetrics metrics = new RedisClientMetrics(registry, false);
+
+    @Test
+    public void testTimeShouldRecordOutcome() {
+        assertEquals("value", metrics.time("get", "json", () -> "value"));
+        try {
+            metrics.timeRunnable("get", "json", () -> {
+                throw new IllegalStateException("boom");
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+            // timed as failure and rethrown
+        }
+
+        assertEquals(1, registry.get(RedisClientMetrics.COMMAND_TIMER)
+                .tags("command", "get", "format", "json", "outcome", "success").timer().count());
+        assertEquals(1, registry.get(RedisClientMetrics.COMMAND_TIMER)
+                .tags("command", "get", "format", "json", "outcome", "failure").timer().count());
+    }
+
+    @Test
+    public void testSuccessfulLatenciesShouldBeTracked() {
+        LatencyTracker tracker = new LatencyTracker(100, 10);
+        metrics.setLatencyTracker(tracker);
+        for (int i = 0; i < 9; i++) {
+            metrics.time("get", "json", () -> "value");
+        }
+        assertEquals(-1, tracker.percentile("get", 0.95));
+
+        for (long latency = 1; latency <= 100; latency++) {
+            tracker.record("set", latency);
+        }
+        assertEquals(95, tracker.percentile("set", 0.95));
+        assertEquals(100, tracker.percentile("set", 1));
+        assertEquals(-1, tracker.percentile("delete", 0.95));
+    }
+
+    @Test
+    public void testFallbackShouldBeCountedByOutcome() {
+        metrics.fallback("get", "smile", new HystrixTimeoutException());
+        metrics.fallback("get", "smile", new HystrixTimeoutException());
+        metrics.fallback("get", "smile", new RuntimeException("Hystrix circuit short-circuited and is OPEN"));
+
+        assertEquals(2, registry.get(RedisClientMetrics.FALLBACK_COUNTER)
+                .tags("command", "get", "format", "smile", "outcome", "timeout").counter().count(), 0);
+        assertEquals(1, registry.get(RedisClientMetrics.FALLBACK_COUNTER)
+                .tags("command", "get", "format", "smile", "outcome", "short_circuited").counter().count(), 0);
+    }
+
+    @Test
+    public void testOutcomeOfFailures() {
+        assertEquals("timeout", RedisClientMetrics.outcomeOf(new HystrixTimeoutException()));
+        assertEquals("rejected", RedisClientMetrics.outcomeOf(new RejectedExecutionException()));
+        assertEquals("rejected", RedisClientMetrics.outcomeOf(new RuntimeException("could not acquire a semaphore for execution")));
+        assertEquals("failure", RedisClientMetrics.outcomeOf(new RuntimeException("connection refused")));
+        assertEquals("failure", RedisClientMetrics.outcomeOf(null));
+    }
+
+    @Test
+    public void testMeteredSerializerShouldRecordPayloadSize() {
+        MeteredRedisSerializer<String> serializer = new MeteredRedisSerializer<>(
+                new StringRedisSerializer(), registry, "value", "json", false);
+
+        assertEquals("value", serializer.deserialize(serializer.serialize("value")));
+
+        assertEquals(5, registry.get(MeteredRedisSerializer.PAYLOAD_SIZE)
+                .tags("operation", "serialize", "type", "value").summary().totalAmount(), 0);
+        assertEquals(1, registry.get(MeteredRedisSerializer.SERIALIZATION_TIMER)
+                .tags("operation", "deserialize", "type", "value").timer().count());
+    }
+}
@@ -0,0 +1,231 @@
+package io.github.redis.serializer;
+
+import io.github.redis.config.RedisClientProperties.Compression;
+import io.github.redis.config.RedisClientProperties.Format;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.Assert.*;
+
+public class CompactRedisSerializerTest {
+
+    @Test
+    public void testJsonShouldBeWrittenWithoutHeader() {
+        CompactRedisSerializer serializer = new CompactRedisSerializer(Format.JSON, Compression.NONE, 0);
+        Map<String, Object> element = element(1);
+
+        assertArrayEquals(new GenericJackson2JsonRedisSerializer().serialize(element), serializer.serialize(element));
+        assertEquals(element, serializer.deserialize(serializer.serialize(element)));
+    }
+
+    @Test
+    public void testBinaryFormatsShouldRoundTripAndBeSmallerThanJson() {
+        Map<String, Object> element = element(20);
+        int jsonLength = new GenericJackson2JsonRedisSerializer().serialize(element).length;
+
+        for (Format format : new Format[]{Format.SMILE, Format.CBOR}) {
+            CompactRedisSerializer serializer = new CompactRedisSerializer(format, Compression.NONE, 0);
+            byte[] bytes = serializer.serialize(element);
+
+            assertEquals(format == Format.SMILE ? 0x01 : 0x02, bytes[0]);
+            assertTrue(format + " should be smaller than json", bytes.length < jsonLength);
+            assertEquals(element, serializer.deserialize(bytes));
+        }
+    }
+
+    @Test
+    public void testValuesAboveThresholdShouldBeCompressed() {
+        CompactRedisSerializer serializer = new CompactRedisSerializer(Format.SMILE, Compression.LZ4, 64);
+        Map<String, Object> small = Collections.singletonMap("key", "value");
+        Map<String, Object> large = element(100);
+
+        assertEquals(0x01, serializer.serialize(small)[0]);
+        byte[] compressed = serializer.serialize(large);
+        assertEquals(0x04, compressed[0]);
+        assertTrue(compressed.length < new CompactRedisSerializer(Format.SMILE, Compression.NONE, 0).serialize(large).length);
+        assertEquals(large, serializer.deserialize(compressed));
+    }
+
+    @Test
+    public void testAnyFormatShouldBeReadWhateverTheConfiguredFormat() {
+        CompactRedisSerializer jsonSerializer = new CompactRedisSerializer(Format.JSON, Compression.NONE, 0);
+        Map<String, Object> element = element(100);
+        byte[] legacyJson = new GenericJackson2JsonRedisSerializer().serialize(element);
+
+        assertEquals(element, new CompactRedisSerializer(Format.CBOR, Compression.LZ4, 0).deserialize(legacyJson));
+        assertEquals(element, jsonSerializer.deserialize(new CompactRedisSerializer(Format.CBOR, Compression.LZ4, 0).serialize(element)));
+        assertEquals(element, jsonSerializer.deserialize(new CompactRedisSerializer(Format.JSON, Compression.LZ4, 0).serialize(element)));
+        assertEquals("value", jsonSerializer.deserialize(new CompactRedisSerializer(Format.SMILE, Compression.NONE, 0).serialize("value")));
+    }
+
+    @Test
+    public void testRawBytesShouldSkipJackson() {
+        CompactRedisSerializer serializer = new CompactRedisSerializer(Format.SMILE, Compression.LZ4, 0);
+        byte[] raw = {0, 1, 2, (byte) 0xFF};
+
+        byte[] bytes = serializer.serialize(raw);
+        assertEquals(raw.length + 1, bytes.length);
+        assertArrayEquals(raw, (byte[]) serializer.deserialize(bytes));
+
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        assertArrayEquals(raw, (byte[]) serializer.deserialize(serializer.serialize(buffer)));
+        assertEquals(raw.length, buffer.remaining());
+    }
+
+    @Test
+    public void testNumbersShouldBeWrittenAsDecimalText() {
+        CompactRedisSerializer serializer = new CompactRedisSerializer(Format.CBOR, Compression.NONE, 0);
+        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+
+        assertEquals("42", new String(serializer.serialize(42L), StandardCharsets.US_ASCII));
+        assertEquals(42, serializer.deserialize(serializer.serialize(42L)));
+        assertEquals(-7, serializer.deserialize(serializer.serialize(-7)));
+        assertEquals(Long.MAX_VALUE / 10, serializer.deserialize(serializer.serialize(Long.MAX_VALUE / 10)));
+        assertEquals(Long.MAX_VALUE, serializer.deserialize(serializer.serialize(Long.MAX_VALUE)));
+        assertEquals(1.5, serializer.deserialize(serializer.serialize(1.5)));
+        assertArrayEquals(jsonSerializer.serialize(1.5), serializer.serialize(1.5));
+        assertEquals(12345678901L, jsonSerializer.deserialize(serializer.serialize(12345678901L)));
+    }
+
+    @Test
+    public void testNullShouldRoundTripAsEmpty() {
+        CompactRedisSerializer serializer = new CompactRedisSerializer(Format.SMILE, Compression.LZ4, 0);
+
+        assertEquals(0, serializer.serialize(null).length);
+        assertNull(serializer.deserialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+    }
+
+    @Test
+    public void testTypedReadShouldReadStraightIntoClass() {
+        Point point = new Point(3, "label");
+        byte[] legacyJson = new GenericJackson2JsonRedisSerializer().serialize(point);
+
+        for (Format format : Format.values()) {
+            CompactRedisSerializer serializer = new CompactRedisSerializer(format, Compression.LZ4, 0);
+            assertEquals(point, serializer.deserialize(serializer.serialize(point), Point.class));
+            assertEquals(point, serializer.deserialize(legacyJson, Point.class));
+        }
+        CompactRedisSerializer serializer = new CompactRedisSerializer(Format.JSON, Compression.NONE, 0);
+        assertEquals(Long.valueOf(42), serializer.deserialize(serializer.serialize(42), Long.class));
+        assertArrayEquals(new byte[]{1, 2}, serializer.deserialize(serializer.serialize(new byte[]{1, 2}), byte[].class));
+        assertNull(serializer.deserialize(null, Point.class));
+    }
+
+    @Test
+    public void testValuesWithoutTypeInformationShouldBeSmallerAndReadIntoClass() {
+        Point point = new Point(3, "label");
+
+        for (Format format : Format.values()) {
+            byte[] typed = new CompactRedisSerializer(format, Compression.NONE, 0).serialize(point);
+            CompactRedisSerializer serializer = new CompactRedisSerializer(format, Compression.NONE, 0, false);
+            byte[] plain = serializer.serialize(point);
+
+            assertEquals(7, plain[0]);
+            assertEquals(Arrays.asList(Format.JSON, Format.SMILE, Format.CBOR).indexOf(format), plain[1]);
+            assertTrue(format + " without type information should be smaller", plain.length < typed.length);
+            assertEquals(point, serializer.deserialize(plain, Point.class));
+            assertEquals(point, new CompactRedisSerializer(Format.JSON, Compression.NONE, 0).deserialize(plain, Point.class));
+            assertEquals(3, ((Map<?, ?>) serializer.deserialize(plain)).get("x"));
+        }
+    }
+
+    @Test
+    public void testValuesWithoutTypeInformationShouldBeCompressed() {
+        CompactRedisSerializer serializer = new CompactRedisSerializer(Format.SMILE, Compression.LZ4, 64, false);
+        Point small = new Point(1, "small");
+        Point large = new Point(2, String.join(",", Collections.nCopies(100, "label")));
+
+        assertEquals(7, serializer.serialize(small)[0]);
+        byte[] compressed = serializer.serialize(large);
+        assertEquals(8, compressed[0]);
+        assertEquals(0x01, compressed[1]);
+        assertEquals(large, serializer.deserialize(compressed, Point.class));
+    }
+
+    @Test
+    public void testHeaderBytesShouldBeFixedPerFormatAndCompression() {
+        Map<String, Object> large = element(100);
+        Point point = new Point(2, String.join(",", Collections.nCopies(100, "label")));
+        byte[][] expected = {
+                // format, typed, typed compressed, plain format byte
+                {'{', 0x03, 0x00},
+                {0x01, 0x04, 0x01},
+                {0x02, 0x05, 0x02}};
+        Format[] formats = {Format.JSON, Format.SMILE, Format.CBOR};
+
+        for (int i = 0; i < formats.length; i++) {
+            Format format = formats[i];
+            assertEquals(format.name(), expected[i][0], new CompactRedisSerializer(format, Compression.NONE, 0).serialize(large)[0]);
+            assertEquals(format.name(), expected[i][1], new CompactRedisSerializer(format, Compression.LZ4, 0).serialize(large)[0]);
+
+            byte[] plain = new CompactRedisSerializer(format, Compression.NONE, 0, false).serialize(point);
+            assertArrayEquals(format.name(), new byte[]{0x07, expected[i][2]}, Arrays.copyOf(plain, 2));
+            byte[] plainCompressed = new CompactRedisSerializer(format, Compression.LZ4, 0, false).serialize(point);
+            assertArrayEquals(format.name(), new byte[]{0x08, expected[i][2]}, Arrays.copyOf(plainCompressed, 2));
+        }
+        assertEquals(0x06, new CompactRedisSerializer(Format.CBOR, Compression.LZ4, 0).serialize(new byte[]{1})[0]);
+    }
+
+    private static Map<String, Object> element(int size) {
+        Map<String, Object> element = new LinkedHashMap<>();
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            element.put("field-" + i, "value-" + i);
+            tags.add("tag");
+        }
+        element.put("tags", tags);
+        return element;
+    }
+
+    public static class Point {
+
+        private int x;
+
+        private String label;
+
+        public Point() {
+        }
+
+        Point(int x, String label) {
+            this.x = x;
+            this.label = label;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public void setX(int x) {
+            this.x = x;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Point && ((Point) other).x == x && Objects.equals(((Point) other).label, label);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(x, label);
+        }
+    }
+}
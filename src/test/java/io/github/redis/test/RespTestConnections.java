@@ -0,0 +1,69 @@
+package io.github.redis.test;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.config.RedisConnectionAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * The type Resp test connections.
+ * Builds the jedis connection factory and the templates of {@link RedisConnectionAutoConfiguration} against a
+ * {@link RespTestServer}, so tests run the client on the connections it is configured with in an application.
+ */
+public final class RespTestConnections {
+
+    private RespTestConnections() {
+    }
+
+    /**
+     * Creates a jedis connection factory connected to the server, to be destroyed by the caller.
+     *
+     * @param server           the server
+     * @param clientProperties the client properties
+     * @return the connection factory
+     */
+    public static JedisConnectionFactory connectionFactory(RespTestServer server, RedisClientProperties clientProperties) {
+        RedisProperties redisProperties = new RedisProperties();
+        redisProperties.setHost("127.0.0.1");
+        redisProperties.setPort(server.getPort());
+        JedisConnectionFactory connectionFactory = (JedisConnectionFactory)
+                new RedisConnectionAutoConfiguration(redisProperties, clientProperties, false, false).redisConnectionFactory();
+        connectionFactory.afterPropertiesSet();
+        return connectionFactory;
+    }
+
+    /**
+     * Creates the redis template of the connection factory.
+     *
+     * @param connectionFactory the connection factory
+     * @param clientProperties  the client properties
+     * @return the redis template
+     */
+    public static RedisTemplate<String, Object> redisTemplate(JedisConnectionFactory connectionFactory,
+                                                              RedisClientProperties clientProperties) {
+        RedisTemplate<String, Object> template = new RedisConnectionAutoConfiguration(new RedisProperties(),
+                clientProperties, false, false).redisTemplate(connectionFactory);
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    /**
+     * Creates the string redis template of the connection factory.
+     *
+     * @param connectionFactory the connection factory
+     * @param clientProperties  the client properties
+     * @return the string redis template
+     */
+    public static StringRedisTemplate stringRedisTemplate(JedisConnectionFactory connectionFactory,
+                                                          RedisClientProperties clientProperties) {
+        StringRedisTemplate template = new RedisConnectionAutoConfiguration(new RedisProperties(),
+                clientProperties, false, false).stringRedisTemplate(connectionFactory);
+        template.afterPropertiesSet();
+        return template;
+    }
+}
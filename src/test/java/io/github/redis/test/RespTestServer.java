@@ -0,0 +1,1094 @@
+package io.github.redis.test;
+/*
+ * created by pareshP on 17/10/26
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * The type Resp test server.
+ * Embeddable redis stand-in speaking RESP2, for integration and load tests of the client without a redis process.
+ * A single selector thread serves every connection, so thousands of pooled connections cost no threads, and pipelined
+ * commands are answered in one write. It knows the commands the client sends: PING, ECHO, SELECT, AUTH, CLIENT, GET,
+ * GETRANGE (SUBSTR), SETRANGE, SET (EX, PX, NX, XX), SETEX, PSETEX, GETSET, MGET, MSET, INCR, INCRBY, DECR, DEL, EXISTS, EXPIRE, PEXPIRE, TTL, PTTL,
+ * PERSIST, HSET, HMSET, HGET, HMGET, HGETALL, HDEL, KEYS, SCAN, DBSIZE, FLUSHALL, FLUSHDB, SCRIPT LOAD/EXISTS/FLUSH,
+ * EVAL and EVALSHA. Keys expire when read after their expiry.
+ * <p>
+ * Faults are injected per command, or for every command with a {@code null} command: a latency added to every reply,
+ * a slowdown added to a ratio of the replies, or an error replied to a ratio of the commands. Ratios are drawn from a
+ * random of the seed of the server, so the same commands get the same faults on every run. Replies of a connection
+ * keep their order, a delayed reply holds up the replies after it, as a slow redis would, while other connections
+ * are still served.
+ * <p>
+ * Lua is not interpreted: a script is answered by the {@link ScriptHandler} registered for its source, which calls
+ * commands as {@code redis.call} would. Other scripts are loaded, but fail when run.
+ */
+public class RespTestServer implements AutoCloseable {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+
+    private static final Status OK = new Status("OK");
+
+    private static final String WRONG_TYPE = "WRONGTYPE Operation against a key holding the wrong kind of value";
+
+    private static final String NOT_AN_INTEGER = "ERR value is not an integer or out of range";
+
+    private static final String SYNTAX_ERROR = "ERR syntax error";
+
+    private final ServerSocketChannel serverChannel;
+
+    private final Selector selector;
+
+    private final Thread eventLoop;
+
+    private final Random random;
+
+    private final Map<String, Entry> data = new ConcurrentHashMap<>();
+
+    private final Map<String, String> scripts = new ConcurrentHashMap<>();
+
+    private final Map<String, ScriptHandler> scriptHandlers = new ConcurrentHashMap<>();
+
+    private final List<Fault> faults = new CopyOnWriteArrayList<>();
+
+    private final Map<String, LongAdder> commandCounts = new ConcurrentHashMap<>();
+
+    private final Set<Connection> connections = new HashSet<>();
+
+    private volatile boolean closed;
+
+    /**
+     * Starts a server on a free port of the loopback interface, with seed 0.
+     *
+     * @throws IOException if the port can not be bound
+     */
+    public RespTestServer() throws IOException {
+        this(0, 0);
+    }
+
+    /**
+     * Starts a server on the loopback interface.
+     *
+     * @param port the port, 0 for a free port
+     * @param seed the seed of the random the ratios of the faults are drawn from
+     * @throws IOException if the port can not be bound
+     */
+    public RespTestServer(int port, long seed) throws IOException {
+        this.random = new Random(seed);
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 128);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.eventLoop = new Thread(this::run, "resp-test-server-" + getPort());
+        eventLoop.setDaemon(true);
+        eventLoop.start();
+    }
+
+    /**
+     * Gets port.
+     *
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Adds a latency to every reply of the command.
+     *
+     * @param command the command, {@code null} for every command
+     * @param latency the latency
+     */
+    public void injectLatency(String command, Duration latency) {
+        faults.add(new Fault(command, 1, latency.toNanos(), null));
+    }
+
+    /**
+     * Adds a latency to a ratio of the replies of the command.
+     *
+     * @param command the command, {@code null} for every command
+     * @param ratio   the ratio of the replies slowed down, between 0 and 1
+     * @param latency the latency
+     */
+    public void injectSlowdown(String command, double ratio, Duration latency) {
+        faults.add(new Fault(command, ratio, latency.toNanos(), null));
+    }
+
+    /**
+     * Replies an error to a ratio of the command, which is then not run.
+     *
+     * @param command the command, {@code null} for every command
+     * @param ratio   the ratio of the commands failed, between 0 and 1
+     * @param error   the error, e.g. {@code ERR injected} or {@code LOADING}
+     */
+    public void injectError(String command, double ratio, String error) {
+        faults.add(new Fault(command, ratio, 0, error));
+    }
+
+    /**
+     * Removes every injected fault, replies delayed already are still delayed.
+     */
+    public void clearFaults() {
+        faults.clear();
+    }
+
+    /**
+     * Registers the handler of a script, which answers EVAL and EVALSHA of the script.
+     *
+     * @param source  the source of the script, as sent by the client
+     * @param handler the handler
+     */
+    public void registerScript(String source, ScriptHandler handler) {
+        String sha1 = sha1(source);
+        scripts.put(sha1, source);
+        scriptHandlers.put(sha1, handler);
+    }
+
+    /**
+     * Gets the number of times the command was received, faults included.
+     *
+     * @param command the command
+     * @return the count
+     */
+    public long getCommandCount(String command) {
+        LongAdder count = commandCounts.get(command.toUpperCase(Locale.ROOT));
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Resets the command counts.
+     */
+    public void resetCommandCounts() {
+        commandCounts.clear();
+    }
+
+    /**
+     * Removes every key and loaded script, registered scripts stay.
+     */
+    public void flushAll() {
+        data.clear();
+        scripts.keySet().retainAll(scriptHandlers.keySet());
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        try {
+            eventLoop.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                Reply next = nextDue();
+                long waitNanos = next == null ? 0 : next.due - System.nanoTime();
+                if (next == null) {
+                    selector.select();
+                } else if (waitNanos <= 0) {
+                    selector.selectNow();
+                } else {
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+                }
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        serve((Connection) key.attachment(), key);
+                    }
+                }
+                for (Connection connection : new ArrayList<>(connections)) {
+                    connection.flush();
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // server closed
+        } finally {
+            for (Connection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+    }
+
+    private Reply nextDue() {
+        Reply next = null;
+        for (Connection connection : connections) {
+            Reply reply = connection.delayed.peek();
+            if (reply != null && (next == null || reply.due - next.due < 0)) {
+                next = reply;
+            }
+        }
+        return next;
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+        }
+    }
+
+    private void serve(Connection connection, SelectionKey key) {
+        try {
+            if (key.isReadable()) {
+                connection.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.flush();
+            }
+        } catch (IOException e) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Runs the command with its faults.
+     *
+     * @return the reply, and the latency of the faults
+     */
+    private Reply execute(List<byte[]> command) {
+        String name = name(command);
+        commandCounts.computeIfAbsent(name, ignored -> new LongAdder()).increment();
+        long latency = 0;
+        String error = null;
+        for (Fault fault : faults) {
+            if (fault.matches(name) && (fault.ratio >= 1 || random.nextDouble() < fault.ratio)) {
+                latency += fault.latencyNanos;
+                error = error != null ? error : fault.error;
+            }
+        }
+        Object reply;
+        if (error != null) {
+            reply = new RespError(error);
+        } else {
+            try {
+                reply = call(command);
+            } catch (RespError e) {
+                reply = e;
+            }
+        }
+        return new Reply(System.nanoTime() + latency, encode(reply));
+    }
+
+    /**
+     * Runs the command.
+     *
+     * @return the reply: a status, {@code byte[]}, {@link Long}, list or {@code null}
+     * @throws RespError the error reply
+     */
+    private Object call(List<byte[]> command) {
+        String name = name(command);
+        switch (name) {
+            case "PING":
+                return command.size() > 1 ? command.get(1) : new Status("PONG");
+            case "ECHO":
+                return arg(command, 1);
+            case "SELECT":
+            case "AUTH":
+            case "CLIENT":
+            case "QUIT":
+                return OK;
+            case "GET":
+                return string(key(command, 1));
+            case "SET":
+                return set(command);
+            case "SETEX":
+                put(key(command, 1), arg(command, 3), TimeUnit.SECONDS.toMillis(integer(arg(command, 2))));
+                return OK;
+            case "PSETEX":
+                put(key(command, 1), arg(command, 3), integer(arg(command, 2)));
+                return OK;
+            case "GETRANGE":
+            case "SUBSTR":
+                return range(string(key(command, 1)), integer(arg(command, 2)), integer(arg(command, 3)));
+            case "SETRANGE":
+                return setRange(key(command, 1), (int) integer(arg(command, 2)), arg(command, 3));
+            case "GETSET": {
+                byte[] previous = string(key(command, 1));
+                put(key(command, 1), arg(command, 2), 0);
+                return previous;
+            }
+            case "MGET": {
+                List<Object> values = new ArrayList<>(command.size() - 1);
+                for (int i = 1; i < command.size(); i++) {
+                    Entry entry = live(key(command, i));
+                    values.add(entry != null && entry.value instanceof byte[] ? entry.value : null);
+                }
+                return values;
+            }
+            case "MSET":
+                if (command.size() % 2 == 0) {
+                    throw new RespError("ERR wrong number of arguments for 'mset' command");
+                }
+                for (int i = 1; i < command.size(); i += 2) {
+                    put(key(command, i), command.get(i + 1), 0);
+                }
+                return OK;
+            case "INCR":
+                return incrementBy(key(command, 1), 1);
+            case "INCRBY":
+                return incrementBy(key(command, 1), integer(arg(command, 2)));
+            case "DECR":
+                return incrementBy(key(command, 1), -1);
+            case "DEL":
+            case "UNLINK": {
+                long deleted = 0;
+                for (int i = 1; i < command.size(); i++) {
+                    deleted += live(key(command, i)) != null && data.remove(key(command, i)) != null ? 1 : 0;
+                }
+                return deleted;
+            }
+            case "EXISTS": {
+                long existing = 0;
+                for (int i = 1; i < command.size(); i++) {
+                    existing += live(key(command, i)) != null ? 1 : 0;
+                }
+                return existing;
+            }
+            case "EXPIRE":
+                return expire(key(command, 1), TimeUnit.SECONDS.toMillis(integer(arg(command, 2))));
+            case "PEXPIRE":
+                return expire(key(command, 1), integer(arg(command, 2)));
+            case "TTL":
+            case "PTTL": {
+                Entry entry = live(key(command, 1));
+                if (entry == null) {
+                    return -2L;
+                }
+                if (entry.expiresAt == 0) {
+                    return -1L;
+                }
+                long ttl = Math.max(0, entry.expiresAt - System.currentTimeMillis());
+                return name.equals("TTL") ? (ttl + 500) / 1000 : ttl;
+            }
+            case "PERSIST": {
+                Entry entry = live(key(command, 1));
+                if (entry == null || entry.expiresAt == 0) {
+                    return 0L;
+                }
+                entry.expiresAt = 0;
+                return 1L;
+            }
+            case "HSET":
+            case "HMSET": {
+                if (command.size() < 4 || command.size() % 2 != 0) {
+                    throw new RespError("ERR wrong number of arguments for '" + name.toLowerCase(Locale.ROOT) + "' command");
+                }
+                Map<String, byte[]> hash = hashForWrite(key(command, 1));
+                long added = 0;
+                for (int i = 2; i < command.size(); i += 2) {
+                    added += hash.put(key(command, i), command.get(i + 1)) == null ? 1 : 0;
+                }
+                return name.equals("HSET") ? (Object) added : OK;
+            }
+            case "HGET": {
+                Map<String, byte[]> hash = hash(key(command, 1));
+                return hash == null ? null : hash.get(key(command, 2));
+            }
+            case "HMGET": {
+                Map<String, byte[]> hash = hash(key(command, 1));
+                List<Object> values = new ArrayList<>(command.size() - 2);
+                for (int i = 2; i < command.size(); i++) {
+                    values.add(hash == null ? null : hash.get(key(command, i)));
+                }
+                return values;
+            }
+            case "HGETALL": {
+                Map<String, byte[]> hash = hash(key(command, 1));
+                List<Object> fieldsAndValues = new ArrayList<>();
+                if (hash != null) {
+                    hash.forEach((field, value) -> {
+                        fieldsAndValues.add(bytes(field));
+                        fieldsAndValues.add(value);
+                    });
+                }
+                return fieldsAndValues;
+            }
+            case "HDEL": {
+                Map<String, byte[]> hash = hash(key(command, 1));
+                long deleted = 0;
+                for (int i = 2; hash != null && i < command.size(); i++) {
+                    deleted += hash.remove(key(command, i)) != null ? 1 : 0;
+                }
+                if (hash != null && hash.isEmpty()) {
+                    data.remove(key(command, 1));
+                }
+                return deleted;
+            }
+            case "KEYS": {
+                Pattern pattern = glob(key(command, 1));
+                List<Object> keys = new ArrayList<>();
+                for (String key : new TreeSet<>(data.keySet())) {
+                    if (pattern.matcher(key).matches() && live(key) != null) {
+                        keys.add(bytes(key));
+                    }
+                }
+                return keys;
+            }
+            case "SCAN":
+                return scan(command);
+            case "DBSIZE":
+                return (long) data.size();
+            case "FLUSHALL":
+            case "FLUSHDB":
+                data.clear();
+                return OK;
+            case "SCRIPT":
+                return script(command);
+            case "EVAL": {
+                String source = new String(arg(command, 1), StandardCharsets.UTF_8);
+                String sha1 = sha1(source);
+                scripts.put(sha1, source);
+                return eval(sha1, command);
+            }
+            case "EVALSHA": {
+                String sha1 = key(command, 1).toLowerCase(Locale.ROOT);
+                if (!scripts.containsKey(sha1)) {
+                    throw new RespError("NOSCRIPT No matching script. Please use EVAL.");
+                }
+                return eval(sha1, command);
+            }
+            default:
+                throw new RespError("ERR unknown command '" + name.toLowerCase(Locale.ROOT) + "'");
+        }
+    }
+
+    private Object set(List<byte[]> command) {
+        String key = key(command, 1);
+        long expiryMillis = 0;
+        boolean onlyIfMissing = false;
+        boolean onlyIfExisting = false;
+        for (int i = 3; i < command.size(); i++) {
+            String option = key(command, i).toUpperCase(Locale.ROOT);
+            if (option.equals("EX") || option.equals("PX")) {
+                long expiry = integer(arg(command, ++i));
+                expiryMillis = option.equals("EX") ? TimeUnit.SECONDS.toMillis(expiry) : expiry;
+            } else if (option.equals("NX")) {
+                onlyIfMissing = true;
+            } else if (option.equals("XX")) {
+                onlyIfExisting = true;
+            } else {
+                throw new RespError(SYNTAX_ERROR);
+            }
+        }
+        boolean exists = live(key) != null;
+        if (onlyIfMissing && exists || onlyIfExisting && !exists) {
+            return null;
+        }
+        put(key, arg(command, 2), expiryMillis);
+        return OK;
+    }
+
+    private static byte[] range(byte[] value, long start, long end) {
+        if (value == null) {
+            return new byte[0];
+        }
+        long from = Math.max(0, start < 0 ? value.length + start : start);
+        long to = Math.min(value.length - 1, end < 0 ? value.length + end : end);
+        return from > to ? new byte[0] : Arrays.copyOfRange(value, (int) from, (int) to + 1);
+    }
+
+    private Object scan(List<byte[]> command) {
+        long cursor = integer(arg(command, 1));
+        Pattern pattern = null;
+        long count = 10;
+        for (int i = 2; i < command.size(); i += 2) {
+            String option = key(command, i).toUpperCase(Locale.ROOT);
+            if (option.equals("MATCH")) {
+                pattern = glob(key(command, i + 1));
+            } else if (option.equals("COUNT")) {
+                count = integer(arg(command, i + 1));
+            } else {
+                throw new RespError(SYNTAX_ERROR);
+            }
+        }
+        List<String> keys = new ArrayList<>(new TreeSet<>(data.keySet()));
+        List<Object> found = new ArrayList<>();
+        int index = (int) Math.min(cursor, keys.size());
+        for (long examined = 0; index < keys.size() && examined < count; index++, examined++) {
+            String key = keys.get(index);
+            if ((pattern == null || pattern.matcher(key).matches()) && live(key) != null) {
+                found.add(bytes(key));
+            }
+        }
+        long next = index >= keys.size() ? 0 : index;
+        return Arrays.asList(bytes(Long.toString(next)), found);
+    }
+
+    private Object script(List<byte[]> command) {
+        String subcommand = key(command, 1).toUpperCase(Locale.ROOT);
+        switch (subcommand) {
+            case "LOAD": {
+                String source = new String(arg(command, 2), StandardCharsets.UTF_8);
+                String sha1 = sha1(source);
+                scripts.put(sha1, source);
+                return bytes(sha1);
+            }
+            case "EXISTS": {
+                List<Object> exists = new ArrayList<>(command.size() - 2);
+                for (int i = 2; i < command.size(); i++) {
+                    exists.add(scripts.containsKey(key(command, i).toLowerCase(Locale.ROOT)) ? 1L : 0L);
+                }
+                return exists;
+            }
+            case "FLUSH":
+                scripts.keySet().retainAll(scriptHandlers.keySet());
+                return OK;
+            default:
+                throw new RespError("ERR unknown subcommand '" + subcommand.toLowerCase(Locale.ROOT) + "'");
+        }
+    }
+
+    private Object eval(String sha1, List<byte[]> command) {
+        ScriptHandler handler = scriptHandlers.get(sha1);
+        if (handler == null) {
+            throw new RespError("ERR script " + sha1 + " has no handler registered with the test server");
+        }
+        long numKeys = integer(arg(command, 2));
+        if (numKeys < 0 || 3 + numKeys > command.size()) {
+            throw new RespError("ERR Number of keys can't be greater than number of args");
+        }
+        List<byte[]> keys = command.subList(3, 3 + (int) numKeys);
+        List<byte[]> args = command.subList(3 + (int) numKeys, command.size());
+        Object result = handler.run(keys, args, arguments -> {
+            List<byte[]> call = new ArrayList<>(arguments.length);
+            for (Object argument : arguments) {
+                call.add(argument instanceof byte[] ? (byte[]) argument : bytes(String.valueOf(argument)));
+            }
+            return call(call);
+        });
+        if (result instanceof String) {
+            return ((String) result).getBytes(StandardCharsets.UTF_8);
+        }
+        if (result instanceof Boolean) {
+            return (Boolean) result ? 1L : null;
+        }
+        return result;
+    }
+
+    private Entry live(String key) {
+        Entry entry = data.get(key);
+        if (entry != null && entry.expiresAt != 0 && entry.expiresAt <= System.currentTimeMillis()) {
+            data.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private byte[] string(String key) {
+        Entry entry = live(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!(entry.value instanceof byte[])) {
+            throw new RespError(WRONG_TYPE);
+        }
+        return (byte[]) entry.value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, byte[]> hash(String key) {
+        Entry entry = live(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!(entry.value instanceof Map)) {
+            throw new RespError(WRONG_TYPE);
+        }
+        return (Map<String, byte[]>) entry.value;
+    }
+
+    private Map<String, byte[]> hashForWrite(String key) {
+        Map<String, byte[]> hash = hash(key);
+        if (hash == null) {
+            hash = new LinkedHashMap<>();
+            data.put(key, new Entry(hash, 0));
+        }
+        return hash;
+    }
+
+    private void put(String key, byte[] value, long expiryMillis) {
+        data.put(key, new Entry(value, expiryMillis > 0 ? System.currentTimeMillis() + expiryMillis : 0));
+    }
+
+    private long setRange(String key, int offset, byte[] range) {
+        byte[] value = string(key);
+        Entry entry = live(key);
+        byte[] updated = Arrays.copyOf(value == null ? new byte[0] : value,
+                Math.max(value == null ? 0 : value.length, offset + range.length));
+        System.arraycopy(range, 0, updated, offset, range.length);
+        data.put(key, new Entry(updated, entry == null ? 0 : entry.expiresAt));
+        return updated.length;
+    }
+
+    private long incrementBy(String key, long delta) {
+        byte[] value = string(key);
+        long incremented = (value == null ? 0 : integer(value)) + delta;
+        Entry entry = live(key);
+        data.put(key, new Entry(bytes(Long.toString(incremented)), entry == null ? 0 : entry.expiresAt));
+        return incremented;
+    }
+
+    private long expire(String key, long expiryMillis) {
+        Entry entry = live(key);
+        if (entry == null) {
+            return 0;
+        }
+        if (expiryMillis <= 0) {
+            data.remove(key, entry);
+        } else {
+            entry.expiresAt = System.currentTimeMillis() + expiryMillis;
+        }
+        return 1;
+    }
+
+    private static String name(List<byte[]> command) {
+        return new String(command.get(0), StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+    }
+
+    private static byte[] arg(List<byte[]> command, int index) {
+        if (index >= command.size()) {
+            throw new RespError("ERR wrong number of arguments for '" + name(command).toLowerCase(Locale.ROOT) + "' command");
+        }
+        return command.get(index);
+    }
+
+    /**
+     * Keys and fields as strings of their bytes, one char per byte.
+     */
+    private static String key(List<byte[]> command, int index) {
+        return new String(arg(command, index), StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static long integer(byte[] value) {
+        try {
+            return Long.parseLong(new String(value, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new RespError(NOT_AN_INTEGER);
+        }
+    }
+
+    /**
+     * Pattern of a redis glob: {@code *}, {@code ?}, {@code [...]} and {@code \} escapes.
+     */
+    private static Pattern glob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else if (c == '[') {
+                int end = glob.indexOf(']', i + 1);
+                if (end < 0) {
+                    regex.append("\\[");
+                } else {
+                    String set = glob.substring(i + 1, end);
+                    regex.append('[').append(set.startsWith("^") ? "^" + Pattern.quote(set.substring(1)) : Pattern.quote(set))
+                            .append(']');
+                    i = end;
+                }
+            } else if (c == '\\' && i + 1 < glob.length()) {
+                regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static String sha1(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] encode(Object reply) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encode(reply, out);
+        return out.toByteArray();
+    }
+
+    private static void encode(Object reply, ByteArrayOutputStream out) {
+        if (reply == null) {
+            writeLine(out, "$-1");
+        } else if (reply instanceof Status) {
+            writeLine(out, "+" + ((Status) reply).message);
+        } else if (reply instanceof RespError) {
+            writeLine(out, "-" + ((RespError) reply).getMessage());
+        } else if (reply instanceof byte[]) {
+            byte[] value = (byte[]) reply;
+            writeLine(out, "$" + value.length);
+            out.write(value, 0, value.length);
+            out.write(CRLF, 0, CRLF.length);
+        } else if (reply instanceof Number) {
+            writeLine(out, ":" + ((Number) reply).longValue());
+        } else if (reply instanceof List) {
+            List<?> values = (List<?>) reply;
+            writeLine(out, "*" + values.size());
+            for (Object value : values) {
+                encode(value, out);
+            }
+        } else {
+            encode(String.valueOf(reply).getBytes(StandardCharsets.UTF_8), out);
+        }
+    }
+
+    private static void writeLine(ByteArrayOutputStream out, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+        out.write(CRLF, 0, CRLF.length);
+    }
+
+    /**
+     * Handler of a script, run by EVAL and EVALSHA in place of its Lua source.
+     */
+    @FunctionalInterface
+    public interface ScriptHandler {
+
+        /**
+         * Runs the script.
+         *
+         * @param keys  the keys
+         * @param args  the arguments
+         * @param redis the server, to call commands on as {@code redis.call} would
+         * @return the reply: {@code byte[]} or {@link String} for a bulk string, a number for an integer, a list for
+         * an array, {@code true} for 1 and {@code false} or {@code null} for nil, as Lua values are converted
+         * @throws RespError to reply an error
+         */
+        Object run(List<byte[]> keys, List<byte[]> args, Redis redis);
+    }
+
+    /**
+     * Commands of the server, for script handlers.
+     */
+    @FunctionalInterface
+    public interface Redis {
+
+        /**
+         * Calls a command, without faults.
+         *
+         * @param command the command name and its arguments, {@code byte[]} or converted with {@link String#valueOf}
+         * @return the reply: {@code byte[]} for a bulk string, {@link Long} for an integer, a list for an array,
+         * {@code null} for nil, and a status reply for OK
+         * @throws RespError the error reply of the command
+         */
+        Object call(Object... command);
+    }
+
+    /**
+     * An error reply.
+     */
+    public static class RespError extends RuntimeException {
+
+        /**
+         * Instantiates a new error reply.
+         *
+         * @param message the message, starting with the error code, e.g. {@code ERR} or {@code WRONGTYPE}
+         */
+        public RespError(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /**
+     * A status reply.
+     */
+    private static final class Status {
+
+        private final String message;
+
+        private Status(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return message;
+        }
+    }
+
+    /**
+     * A value, {@code byte[]} or a hash, and its expiry in epoch millis, 0 for none.
+     */
+    private static final class Entry {
+
+        private final Object value;
+
+        private volatile long expiresAt;
+
+        private Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A fault of the commands of a name, or of every command.
+     */
+    private static final class Fault {
+
+        private final String command;
+
+        private final double ratio;
+
+        private final long latencyNanos;
+
+        private final String error;
+
+        private Fault(String command, double ratio, long latencyNanos, String error) {
+            this.command = command == null ? null : command.toUpperCase(Locale.ROOT);
+            this.ratio = ratio;
+            this.latencyNanos = latencyNanos;
+            this.error = error;
+        }
+
+        private boolean matches(String name) {
+            return command == null || command.equals(name);
+        }
+    }
+
+    /**
+     * An encoded reply and when it is due.
+     */
+    private static final class Reply {
+
+        private final long due;
+
+        private final byte[] bytes;
+
+        private Reply(long due, byte[] bytes) {
+            this.due = due;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * A client connection: the bytes read and not yet parsed, the replies not yet due, and those due and not yet
+     * written.
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+
+        private final Deque<Reply> delayed = new ArrayDeque<>();
+
+        private final Deque<ByteBuffer> pending = new ArrayDeque<>();
+
+        private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+        private SelectionKey key;
+
+        private long lastDue;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void read() throws IOException {
+            while (true) {
+                if (!in.hasRemaining()) {
+                    ByteBuffer grown = ByteBuffer.allocate(in.capacity() * 2);
+                    in.flip();
+                    grown.put(in);
+                    in = grown;
+                }
+                int read = channel.read(in);
+                if (read < 0) {
+                    close();
+                    return;
+                }
+                if (read == 0) {
+                    break;
+                }
+            }
+            in.flip();
+            while (true) {
+                int start = in.position();
+                List<byte[]> command = parse(in);
+                if (command == null) {
+                    in.position(start);
+                    break;
+                }
+                if (!command.isEmpty()) {
+                    schedule(execute(command));
+                }
+            }
+            in.compact();
+        }
+
+        /**
+         * Queues the reply after the replies before it, written once due.
+         */
+        private void schedule(Reply reply) {
+            long due = delayed.isEmpty() || reply.due - lastDue > 0 ? reply.due : lastDue;
+            lastDue = due;
+            delayed.add(new Reply(due, reply.bytes));
+        }
+
+        private void flush() {
+            long now = System.nanoTime();
+            if (!delayed.isEmpty() && delayed.peek().due - now <= 0) {
+                ByteArrayOutputStream due = new ByteArrayOutputStream();
+                while (!delayed.isEmpty() && delayed.peek().due - now <= 0) {
+                    byte[] reply = delayed.poll().bytes;
+                    due.write(reply, 0, reply.length);
+                }
+                pending.add(ByteBuffer.wrap(due.toByteArray()));
+            }
+            try {
+                while (!pending.isEmpty()) {
+                    ByteBuffer buffer = pending.peek();
+                    channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    pending.poll();
+                }
+                if (key.isValid()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private void close() {
+            connections.remove(this);
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // closed anyway
+            }
+        }
+
+        /**
+         * Parses a command, an array of bulk strings.
+         *
+         * @return the command, {@code null} if not fully read yet
+         * @throws IOException if the bytes are not a command
+         */
+        private List<byte[]> parse(ByteBuffer buffer) throws IOException {
+            if (!buffer.hasRemaining()) {
+                return null;
+            }
+            if (buffer.get() != '*') {
+                throw new IOException("Not a RESP array");
+            }
+            Long size = readNumber(buffer);
+            if (size == null) {
+                return null;
+            }
+            List<byte[]> command = new ArrayList<>((int) Math.max(0, size));
+            for (long i = 0; i < size; i++) {
+                if (!buffer.hasRemaining()) {
+                    return null;
+                }
+                if (buffer.get() != '$') {
+                    throw new IOException("Not a RESP bulk string");
+                }
+                Long length = readNumber(buffer);
+                if (length == null || buffer.remaining() < length + 2) {
+                    return null;
+                }
+                byte[] argument = new byte[length.intValue()];
+                buffer.get(argument);
+                buffer.position(buffer.position() + 2);
+                command.add(argument);
+            }
+            return command;
+        }
+
+        private Long readNumber(ByteBuffer buffer) throws IOException {
+            long number = 0;
+            boolean negative = false;
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\r') {
+                    if (!buffer.hasRemaining()) {
+                        return null;
+                    }
+                    buffer.get();
+                    return negative ? -number : number;
+                }
+                if (b == '-') {
+                    negative = true;
+                } else if (b >= '0' && b <= '9') {
+                    number = number * 10 + (b - '0');
+                } else {
+                    throw new IOException("Not a RESP number");
+                }
+            }
+            return null;
+        }
+    }
+}
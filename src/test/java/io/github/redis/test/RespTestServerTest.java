@@ -0,0 +1,171 @@
+package io.github.redis.test;
+
+import io.github.redis.client.RedisClient;
+import io.github.redis.client.RedisScripts;
+import io.github.redis.config.RedisClientProperties;
+import io.github.redis.config.RedisConnectionAutoConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RespTestServerTest {
+
+    private RespTestServer server;
+
+    private JedisConnectionFactory connectionFactory;
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private RedisClientProperties clientProperties = new RedisClientProperties();
+
+    private RedisClient redisClient;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new RespTestServer(0, 42);
+        RedisProperties redisProperties = new RedisProperties();
+        redisProperties.setHost("127.0.0.1");
+        redisProperties.setPort(server.getPort());
+        redisProperties.setTimeout(Duration.ofSeconds(2));
+        RedisConnectionAutoConfiguration configuration =
+                new RedisConnectionAutoConfiguration(redisProperties, clientProperties, false, false);
+        connectionFactory = (JedisConnectionFactory) configuration.redisConnectionFactory();
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = configuration.redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        StringRedisTemplate stringRedisTemplate = configuration.stringRedisTemplate(connectionFactory);
+        stringRedisTemplate.afterPropertiesSet();
+        redisClient = new RedisClient(redisTemplate, stringRedisTemplate, clientProperties);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connectionFactory.destroy();
+        server.close();
+    }
+
+    @Test
+    public void testRedisClientShouldRoundTripThroughServer() {
+        redisClient.setElementInRedis("user:1", "alice");
+        redisClient.setElementInRedisWithExpiry("user:2", 42L, 60);
+        redisClient.putInRedisUsingHashOps("profile", "name", "bob");
+        Map<String, String> elements = new HashMap<>();
+        elements.put("user:3", "carol");
+        elements.put("user:4", "dave");
+        redisClient.setElementsInRedis(elements);
+
+        assertEquals("alice", redisClient.getElementFromRedis("user:1", String.class));
+        assertEquals(Long.valueOf(42), redisClient.getElementFromRedis("user:2", Long.class));
+        assertEquals("bob", redisClient.getFromRedisUsingHashOps("profile", "name", String.class));
+        assertEquals(Arrays.asList("carol", "dave", null),
+                new ArrayList<>(redisClient.getElementsFromRedis(Arrays.asList("user:3", "user:4", "user:5"), String.class).values()));
+        assertEquals(1, server.getCommandCount("MGET"));
+
+        List<String> scanned = new ArrayList<>();
+        assertEquals(4, redisClient.scanKeysFromPattern("user:*", 100, scanned::add));
+        assertEquals(Arrays.asList("user:1", "user:2", "user:3", "user:4"), scanned);
+
+        redisClient.deleteElementFromRedis("user:1");
+        assertNull(redisClient.getElementFromRedis("user:1", String.class));
+    }
+
+    @Test
+    public void testInjectedLatencyShouldDelayPipelinedRepliesInOrder() {
+        try (Jedis jedis = new Jedis("127.0.0.1", server.getPort())) {
+            jedis.set("a", "1");
+            jedis.set("b", "2");
+            server.injectLatency("GET", Duration.ofMillis(200));
+
+            long start = System.nanoTime();
+            Pipeline pipeline = jedis.pipelined();
+            Response<String> a = pipeline.get("a");
+            Response<String> b = pipeline.get("b");
+            Response<String> pong = pipeline.ping();
+            pipeline.sync();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals("1", a.get());
+            assertEquals("2", b.get());
+            assertEquals("PONG", pong.get());
+            assertTrue("replies took " + elapsedMillis + "ms", elapsedMillis >= 200 && elapsedMillis < 1000);
+        }
+    }
+
+    @Test
+    public void testInjectedErrorsAndSlowdownsShouldHitRatioOfCommands() {
+        try (Jedis jedis = new Jedis("127.0.0.1", server.getPort())) {
+            jedis.set("key", "value");
+            server.injectError("GET", 0.5, "ERR injected");
+            int failures = 0;
+            for (int i = 0; i < 40; i++) {
+                try {
+                    assertEquals("value", jedis.get("key"));
+                } catch (JedisDataException e) {
+                    assertEquals("ERR injected", e.getMessage());
+                    failures++;
+                }
+            }
+            assertTrue("failures " + failures, failures > 0 && failures < 40);
+
+            server.clearFaults();
+            server.injectSlowdown("GET", 0.5, Duration.ofMillis(50));
+            int slow = 0;
+            for (int i = 0; i < 20; i++) {
+                long start = System.nanoTime();
+                assertEquals("value", jedis.get("key"));
+                slow += System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50) ? 1 : 0;
+            }
+            assertTrue("slow replies " + slow, slow > 0 && slow < 20);
+            assertEquals(60, server.getCommandCount("GET"));
+        }
+    }
+
+    @Test
+    public void testEvalShaShouldRunRegisteredScriptAndFallBackOnErrors() {
+        RedisClientProperties.Limit limit = new RedisClientProperties.Limit();
+        limit.setLimit(2);
+
+        assertTrue(redisClient.rateLimiter("closed", limit).tryAcquire("client"));
+        limit.setFailOpen(false);
+        assertFalse(redisClient.rateLimiter("closed", limit).tryAcquire("client"));
+
+        String source = new RedisScripts(redisTemplate, clientProperties.getScript())
+                .get("tokenBucket").getScriptAsString();
+        server.registerScript(source, (keys, args, redis) -> {
+            long permits = Long.parseLong(new String(args.get(0), StandardCharsets.UTF_8));
+            long requested = Long.parseLong(new String(args.get(2), StandardCharsets.UTF_8));
+            long used = (Long) redis.call("INCRBY", keys.get(0), 0);
+            if (used + requested > permits) {
+                return Arrays.asList(0L, 1000L);
+            }
+            redis.call("INCRBY", keys.get(0), requested);
+            return Arrays.asList(requested, 1000L);
+        });
+        limit.setFailOpen(true);
+        server.injectLatency(null, Duration.ofMillis(1));
+
+        assertTrue(redisClient.rateLimiter("api", limit).tryAcquire("client"));
+        assertTrue(redisClient.rateLimiter("api", limit).tryAcquire("client"));
+        assertFalse(redisClient.rateLimiter("api", limit).tryAcquire("client"));
+        assertTrue(server.getCommandCount("EVALSHA") >= 3);
+    }
+}
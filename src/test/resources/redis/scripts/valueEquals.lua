@@ -0,0 +1 @@
+return redis.call('get', KEYS[1]) == ARGV[1]